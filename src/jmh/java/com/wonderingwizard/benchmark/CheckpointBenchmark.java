@@ -0,0 +1,76 @@
+package com.wonderingwizard.benchmark;
+
+import com.wonderingwizard.engine.EventProcessingEngine;
+import com.wonderingwizard.engine.EventPropagatingEngine;
+import com.wonderingwizard.events.TimeEvent;
+import com.wonderingwizard.processors.ScheduleRunnerProcessor;
+import com.wonderingwizard.server.ProcessorStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code captureState}/{@code restoreState} with {@code queues} active schedules: for all
+ * processors, as in the checkpoints taken for step-back, and for the schedule runner alone,
+ * whose state dominates them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = Scenario.HEAP)
+public class CheckpointBenchmark {
+
+    @Param({"10", "50"})
+    public int queues;
+
+    @Param({"20"})
+    public int instructions;
+
+    private EventProcessingEngine baseEngine;
+    private ScheduleRunnerProcessor scheduleRunner;
+    private Object checkpoint;
+    private Object scheduleRunnerState;
+
+    @Setup
+    public void setUp() {
+        baseEngine = new EventProcessingEngine();
+        EventPropagatingEngine engine = new EventPropagatingEngine(baseEngine);
+        scheduleRunner = ProcessorStack.registerInto(engine).scheduleRunnerProcessor();
+        Scenario.populate(engine, queues, instructions);
+        engine.processEvent(new TimeEvent(Scenario.EMT.minusSeconds(60)));
+        checkpoint = baseEngine.captureCheckpoint();
+        scheduleRunnerState = scheduleRunner.captureState();
+    }
+
+    @Benchmark
+    public Object captureCheckpoint() {
+        return baseEngine.captureCheckpoint();
+    }
+
+    @Benchmark
+    public void restoreCheckpoint() {
+        baseEngine.restoreCheckpoint(checkpoint);
+    }
+
+    @Benchmark
+    public Object captureScheduleRunnerState() {
+        return scheduleRunner.captureState();
+    }
+
+    @Benchmark
+    public void restoreScheduleRunnerState() {
+        scheduleRunner.restoreState(scheduleRunnerState);
+    }
+}
@@ -0,0 +1,58 @@
+package com.wonderingwizard.benchmark;
+
+import com.wonderingwizard.events.DigitalMapEvent;
+import com.wonderingwizard.processors.DigitalMapProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DigitalMapProcessor#findPathDuration} on the default digital map.
+ * <p>
+ * Lookups cycle through a fixed sample of POI pairs, so they are not served from one hot entry.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = Scenario.HEAP)
+public class DigitalMapBenchmark {
+
+    private static final int PAIRS = 4096;
+
+    private DigitalMapProcessor digitalMap;
+    private final String[] from = new String[PAIRS];
+    private final String[] to = new String[PAIRS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        digitalMap = new DigitalMapProcessor();
+        digitalMap.process(new DigitalMapEvent(Scenario.digitalMapJson()));
+        List<String> names = digitalMap.getPois().stream().map(DigitalMapProcessor.PoiInfo::name).toList();
+        Random random = new Random(42);
+        for (int i = 0; i < PAIRS; i++) {
+            from[i] = names.get(random.nextInt(names.size()));
+            to[i] = names.get(random.nextInt(names.size()));
+        }
+    }
+
+    @Benchmark
+    public int findPathDuration() {
+        int i = next;
+        next = (i + 1) % PAIRS;
+        return digitalMap.findPathDuration(from[i], to[i]);
+    }
+}
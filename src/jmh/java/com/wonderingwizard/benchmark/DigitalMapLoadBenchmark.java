@@ -0,0 +1,43 @@
+package com.wonderingwizard.benchmark;
+
+import com.wonderingwizard.engine.SideEffect;
+import com.wonderingwizard.events.DigitalMapEvent;
+import com.wonderingwizard.processors.DigitalMapProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the default digital map: decoding the layout, building the road graph and
+ * precomputing all POI-to-POI durations. A load takes seconds, so each one is timed alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = Scenario.HEAP)
+public class DigitalMapLoadBenchmark {
+
+    private DigitalMapEvent mapEvent;
+
+    @Setup
+    public void setUp() {
+        mapEvent = new DigitalMapEvent(Scenario.digitalMapJson());
+    }
+
+    @Benchmark
+    public List<SideEffect> loadMap() {
+        return new DigitalMapProcessor().process(mapEvent);
+    }
+}
@@ -0,0 +1,83 @@
+package com.wonderingwizard.benchmark;
+
+import com.wonderingwizard.engine.EventProcessingEngine;
+import com.wonderingwizard.engine.EventPropagatingEngine;
+import com.wonderingwizard.engine.SideEffect;
+import com.wonderingwizard.events.TimeEvent;
+import com.wonderingwizard.events.WorkInstructionEvent;
+import com.wonderingwizard.server.ProcessorStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EventPropagatingEngine#processEvent} with the demo server's processor stack and
+ * {@code queues} active schedules of {@code instructions} work instructions each.
+ * <p>
+ * The engine is restored to the populated state before every iteration, so the event log and
+ * rebuilt schedules do not grow across iterations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = Scenario.HEAP)
+public class EngineBenchmark {
+
+    @Param({"10", "50"})
+    public int queues;
+
+    @Param({"20"})
+    public int instructions;
+
+    private EventProcessingEngine baseEngine;
+    private EventPropagatingEngine engine;
+    private Object populated;
+    private TimeEvent tick;
+    private WorkInstructionEvent update;
+
+    @Setup
+    public void setUp() {
+        baseEngine = new EventProcessingEngine();
+        engine = new EventPropagatingEngine(baseEngine);
+        ProcessorStack.registerInto(engine);
+        Scenario.populate(engine, queues, instructions);
+        tick = new TimeEvent(Scenario.EMT.minusSeconds(60));
+        engine.processEvent(tick);
+        populated = baseEngine.captureCheckpoint();
+        update = Scenario.workInstructions(1, instructions).get(instructions - 1);
+    }
+
+    @Setup(Level.Iteration)
+    public void restore() {
+        baseEngine.restoreCheckpoint(populated);
+    }
+
+    /** A clock tick that activates nothing: the steady-state cost of every time event. */
+    @Benchmark
+    public List<SideEffect> timeEvent() {
+        return engine.processEvent(tick);
+    }
+
+    /**
+     * An unchanged work instruction resent for an active queue. The schedule rebuild it causes
+     * is debounced to a later tick and not part of the measurement.
+     */
+    @Benchmark
+    public List<SideEffect> workInstructionUpdate() {
+        return engine.processEvent(update);
+    }
+}
@@ -0,0 +1,91 @@
+package com.wonderingwizard.benchmark;
+
+import com.wonderingwizard.engine.Engine;
+import com.wonderingwizard.engine.Event;
+import com.wonderingwizard.events.DigitalMapEvent;
+import com.wonderingwizard.events.LoadMode;
+import com.wonderingwizard.events.WorkInstructionEvent;
+import com.wonderingwizard.events.WorkQueueMessage;
+import com.wonderingwizard.events.WorkQueueStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.wonderingwizard.events.MoveStage.PLANNED;
+
+/**
+ * Shared input for the benchmarks: discharge work queues on the default digital map.
+ * <p>
+ * Yard positions and bollards are POIs of {@code digitalmap.json}, so the map lookups in
+ * schedule creation hit real paths instead of the fallback duration. The loaded map takes
+ * close to 1 GB of heap, hence the larger heap of the forks that load it.
+ */
+final class Scenario {
+
+    static final String HEAP = "-Xmx3g";
+
+    static final Instant EMT = Instant.parse("2024-01-01T10:00:00Z");
+
+    private static final String[] YARD_POSITIONS = {"Y-PTM-1A25A1", "Y-PTM-2A11B1", "Y-PTM-4D11A1", "Y-PTM-4D13B1"};
+    private static final String BOLLARD = "B52";
+
+    private Scenario() {
+    }
+
+    /**
+     * Returns the default digital map as sent by the terminal layout topic.
+     */
+    static String digitalMapJson() {
+        try (InputStream is = Scenario.class.getResourceAsStream("/digitalmap.json")) {
+            if (is == null) {
+                throw new IllegalStateException("digitalmap.json not on the classpath");
+            }
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the work instructions of one work queue, one container every two minutes.
+     *
+     * @param workQueueId the work queue
+     * @param count the number of work instructions
+     */
+    static List<WorkInstructionEvent> workInstructions(long workQueueId, int count) {
+        List<WorkInstructionEvent> instructions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            instructions.add(new WorkInstructionEvent(workQueueId * 10_000 + i, workQueueId, "QC" + workQueueId,
+                    PLANNED, EMT.plusSeconds(i * 120L), 120, 60, "", false, false, false, 0,
+                    YARD_POSITIONS[i % YARD_POSITIONS.length]));
+        }
+        return instructions;
+    }
+
+    /**
+     * Returns the message that activates a work queue.
+     */
+    static WorkQueueMessage activate(long workQueueId) {
+        return new WorkQueueMessage(workQueueId, WorkQueueStatus.ACTIVE, 0, LoadMode.DSCH,
+                null, null, BOLLARD, "FES4");
+    }
+
+    /**
+     * Loads the digital map and activates {@code queues} work queues, each with
+     * {@code instructionsPerQueue} work instructions.
+     */
+    static void populate(Engine engine, int queues, int instructionsPerQueue) {
+        engine.processEvent(new DigitalMapEvent(digitalMapJson()));
+        for (long wq = 1; wq <= queues; wq++) {
+            for (Event instruction : workInstructions(wq, instructionsPerQueue)) {
+                engine.processEvent(instruction);
+            }
+            engine.processEvent(activate(wq));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.wonderingwizard.benchmark;
+
+import com.wonderingwizard.domain.takt.Takt;
+import com.wonderingwizard.events.DigitalMapEvent;
+import com.wonderingwizard.events.LoadMode;
+import com.wonderingwizard.events.WorkInstructionEvent;
+import com.wonderingwizard.processors.DigitalMapProcessor;
+import com.wonderingwizard.processors.GraphScheduleBuilder;
+import com.wonderingwizard.processors.PlannedTimeStep;
+import com.wonderingwizard.processors.RtgWaitDurationStep;
+import com.wonderingwizard.processors.SchedulePipelineStep;
+import com.wonderingwizard.processors.SchedulePostProcessingStep;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GraphScheduleBuilder#createTakts} for one work queue of {@code instructions} work
+ * instructions, with and without the pipeline steps the work queue processor applies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = Scenario.HEAP)
+public class ScheduleBuilderBenchmark {
+
+    @Param({"20", "100", "500"})
+    public int instructions;
+
+    private GraphScheduleBuilder builder;
+    private List<WorkInstructionEvent> workInstructions;
+    private List<SchedulePipelineStep> pipelineSteps;
+    private List<SchedulePostProcessingStep> postProcessingSteps;
+    private String bollard;
+
+    @Setup
+    public void setUp() {
+        builder = new GraphScheduleBuilder(() -> 30, () -> 0);
+        workInstructions = Scenario.workInstructions(1, instructions);
+        DigitalMapProcessor digitalMap = new DigitalMapProcessor();
+        digitalMap.process(new DigitalMapEvent(Scenario.digitalMapJson()));
+        pipelineSteps = List.of(digitalMap, new RtgWaitDurationStep());
+        postProcessingSteps = List.of(new PlannedTimeStep());
+        bollard = Scenario.activate(1).bollardPosition();
+    }
+
+    @Benchmark
+    public List<Takt> createTakts() {
+        return builder.createTakts(workInstructions, Scenario.EMT, 0, LoadMode.DSCH);
+    }
+
+    @Benchmark
+    public List<Takt> createTaktsWithPipeline() {
+        return builder.createTakts(workInstructions, Scenario.EMT, 0, LoadMode.DSCH,
+                1, pipelineSteps, bollard, postProcessingSteps);
+    }
+}
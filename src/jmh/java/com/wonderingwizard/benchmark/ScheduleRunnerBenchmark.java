@@ -0,0 +1,81 @@
+package com.wonderingwizard.benchmark;
+
+import com.wonderingwizard.engine.EventProcessingEngine;
+import com.wonderingwizard.engine.EventPropagatingEngine;
+import com.wonderingwizard.engine.SideEffect;
+import com.wonderingwizard.events.AssetEvent;
+import com.wonderingwizard.events.OverrideConditionEvent;
+import com.wonderingwizard.events.TimeEvent;
+import com.wonderingwizard.processors.ScheduleRunnerProcessor;
+import com.wonderingwizard.server.ProcessorStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ScheduleRunnerProcessor#process} of a {@link TimeEvent} with {@code schedules} active
+ * schedules, called directly so the cost excludes the other processors.
+ * <p>
+ * The tick repeats the time of the last one, so nothing activates and each call measures the
+ * condition sweep over all waiting takts and actions. The asset event comes from the crane of
+ * the first schedule but satisfies no condition, so it measures routing the event to the
+ * active actions it could complete. The override of an unknown condition on the last takt of
+ * the first schedule changes nothing either, but marks that schedule for the activation sweep,
+ * so it measures a sweep that evaluates one schedule among {@code schedules}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = Scenario.HEAP)
+public class ScheduleRunnerBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int schedules;
+
+    @Param({"20"})
+    public int instructions;
+
+    private ScheduleRunnerProcessor scheduleRunner;
+    private TimeEvent tick;
+    private AssetEvent craneEvent;
+    private OverrideConditionEvent override;
+
+    @Setup
+    public void setUp() {
+        EventPropagatingEngine engine = new EventPropagatingEngine(new EventProcessingEngine());
+        scheduleRunner = ProcessorStack.registerInto(engine).scheduleRunnerProcessor();
+        Scenario.populate(engine, schedules, instructions);
+        tick = new TimeEvent(Scenario.EMT.minusSeconds(60));
+        engine.processEvent(tick);
+        craneEvent = new AssetEvent("DSCH", "QCspreaderIdle", "QC1", "", Scenario.EMT);
+        override = new OverrideConditionEvent(1, scheduleRunner.getScheduleTakts(1).getLast().name(), "benchmark");
+    }
+
+    @Benchmark
+    public List<SideEffect> timeEvent() {
+        return scheduleRunner.process(tick);
+    }
+
+    @Benchmark
+    public List<SideEffect> assetEvent() {
+        return scheduleRunner.process(craneEvent);
+    }
+
+    @Benchmark
+    public List<SideEffect> overrideEvent() {
+        return scheduleRunner.process(override);
+    }
+}
@@ -0,0 +1,63 @@
+package com.wonderingwizard.benchmark;
+
+import com.wonderingwizard.events.DigitalMapEvent;
+import com.wonderingwizard.events.TimeEvent;
+import com.wonderingwizard.events.WorkInstructionEvent;
+import com.wonderingwizard.server.DemoServer;
+import com.wonderingwizard.server.JsonSerializer;
+import com.wonderingwizard.server.Settings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JsonSerializer#serialize} of the demo server's {@code /api/state} response with
+ * {@code queues} active schedules. The server is driven through its steps without starting
+ * the HTTP server, so the state includes the step history as in production.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = Scenario.HEAP)
+public class SerializationBenchmark {
+
+    @Param({"10", "50"})
+    public int queues;
+
+    @Param({"20"})
+    public int instructions;
+
+    private Map<String, Object> state;
+
+    @Setup
+    public void setUp() {
+        DemoServer server = new DemoServer(Settings.load());
+        server.processStep("Load default digital map", new DigitalMapEvent(Scenario.digitalMapJson()));
+        for (long wq = 1; wq <= queues; wq++) {
+            for (WorkInstructionEvent instruction : Scenario.workInstructions(wq, instructions)) {
+                server.processStep("Work instruction", instruction);
+            }
+            server.processStep("Activate work queue", Scenario.activate(wq));
+        }
+        server.processStep("Time", new TimeEvent(Scenario.EMT.minusSeconds(60)));
+        state = server.getState();
+    }
+
+    @Benchmark
+    public String serialize() {
+        return JsonSerializer.serialize(state);
+    }
+}
@@ -0,0 +1,181 @@
+package com.wonderingwizard.benchmark;
+
+import com.wonderingwizard.engine.Engine;
+import com.wonderingwizard.engine.Event;
+import com.wonderingwizard.engine.EventProcessingEngine;
+import com.wonderingwizard.engine.EventProcessor;
+import com.wonderingwizard.engine.EventPropagatingEngine;
+import com.wonderingwizard.engine.SideEffect;
+import com.wonderingwizard.engine.SideEffectSink;
+import com.wonderingwizard.events.TimeEvent;
+import com.wonderingwizard.events.WorkInstructionEvent;
+import com.wonderingwizard.events.WorkQueueMessage;
+import com.wonderingwizard.events.WorkQueueStatus;
+import com.wonderingwizard.processors.DelayProcessor;
+import com.wonderingwizard.processors.ScheduleRunnerProcessor;
+import com.wonderingwizard.processors.TimeAlarmProcessor;
+import com.wonderingwizard.processors.WorkQueueProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import static com.wonderingwizard.events.MoveStage.PLANNED;
+
+/**
+ * Allocation per tick of the propagation loop with {@code queues} active schedules.
+ * <p>
+ * Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm} between the two benchmarks.
+ * {@link #listEngine()} runs the engine loop as it was before the sink API: every processor
+ * returns a list, the engine merges them into a new list per event and propagation queues the
+ * triggered events. {@link #sinkEngine()} runs the current engine into one reused sink. Ticks
+ * repeat the same time, so schedules stay in steady state and only the per-event overhead is
+ * measured.
+ * <p>
+ * Both benchmarks run the current processors. The list engine calls {@link EventProcessor#process(Event)},
+ * which processors that emit directly implement by collecting into a new sink, so it stands in
+ * for the list each processor used to return. Processor changes made together with the sink API,
+ * such as the runner's sweep, show up in both numbers; measure the commit before it for the
+ * end-to-end difference.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SideEffectAllocationBenchmark {
+
+    private static final Instant EMT = Instant.parse("2024-01-01T10:00:00Z");
+
+    @Param({"50"})
+    public int queues;
+
+    private ListEngine listEngine;
+    private Engine sinkEngine;
+    private final SideEffectSink sink = new SideEffectSink();
+    private TimeEvent tick;
+
+    @Setup
+    public void setUp() {
+        listEngine = new ListEngine();
+        sinkEngine = new EventPropagatingEngine(new EventProcessingEngine());
+        tick = new TimeEvent(EMT.minusSeconds(60));
+        for (Engine engine : List.of(listEngine, sinkEngine)) {
+            engine.register(new TimeAlarmProcessor());
+            engine.register(new WorkQueueProcessor(() -> 30));
+            engine.register(new ScheduleRunnerProcessor());
+            engine.register(new DelayProcessor());
+            for (long wq = 1; wq <= queues; wq++) {
+                for (long wi = 1; wi <= 4; wi++) {
+                    engine.processEvent(new WorkInstructionEvent(wq * 100 + wi, wq, "CHE-" + wq, PLANNED,
+                            EMT.plusSeconds(wi * 600), 120));
+                }
+                engine.processEvent(new WorkQueueMessage(wq, WorkQueueStatus.ACTIVE, 0, null));
+            }
+            engine.processEvent(tick);
+        }
+    }
+
+    @Benchmark
+    public List<SideEffect> listEngine() {
+        return listEngine.processEvent(tick);
+    }
+
+    @Benchmark
+    public int sinkEngine() {
+        sinkEngine.processEvent(tick, sink);
+        int size = sink.size();
+        sink.clear();
+        return size;
+    }
+
+    /**
+     * The dispatch and propagation loop of {@link EventProcessingEngine} and
+     * {@link EventPropagatingEngine} before the sink API, without history.
+     */
+    private static final class ListEngine implements Engine {
+
+        private final List<EventProcessor> processors = new ArrayList<>();
+        private final Map<Class<?>, EventProcessor[]> dispatchTable = new HashMap<>();
+
+        @Override
+        public void register(EventProcessor processor) {
+            processors.add(processor);
+            dispatchTable.clear();
+        }
+
+        @Override
+        public List<SideEffect> processEvent(Event event) {
+            List<SideEffect> allSideEffects = new ArrayList<>();
+            Queue<Event> eventQueue = new ArrayDeque<>();
+            eventQueue.add(event);
+            while (!eventQueue.isEmpty()) {
+                List<SideEffect> sideEffects = dispatch(eventQueue.poll());
+                allSideEffects.addAll(sideEffects);
+                for (SideEffect sideEffect : sideEffects) {
+                    if (sideEffect instanceof Event eventSideEffect) {
+                        eventQueue.add(eventSideEffect);
+                    }
+                }
+            }
+            return allSideEffects;
+        }
+
+        private List<SideEffect> dispatch(Event event) {
+            List<SideEffect> allSideEffects = new ArrayList<>();
+            for (EventProcessor processor : dispatchTable.computeIfAbsent(event.getClass(), this::resolveProcessors)) {
+                allSideEffects.addAll(processor.process(event));
+            }
+            return allSideEffects;
+        }
+
+        private EventProcessor[] resolveProcessors(Class<?> eventClass) {
+            List<EventProcessor> subscribed = new ArrayList<>();
+            for (EventProcessor processor : processors) {
+                for (Class<? extends Event> type : processor.subscribedEventTypes()) {
+                    if (type.isAssignableFrom(eventClass)) {
+                        subscribed.add(processor);
+                        break;
+                    }
+                }
+            }
+            return subscribed.toArray(new EventProcessor[0]);
+        }
+
+        @Override
+        public void snapshot() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean stepBack() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getHistorySize() {
+            return 0;
+        }
+
+        @Override
+        public void clearHistory() {
+        }
+    }
+}
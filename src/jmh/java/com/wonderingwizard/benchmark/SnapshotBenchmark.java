@@ -0,0 +1,113 @@
+package com.wonderingwizard.benchmark;
+
+import com.wonderingwizard.domain.takt.Action;
+import com.wonderingwizard.domain.takt.ActionStatus;
+import com.wonderingwizard.domain.takt.Takt;
+import com.wonderingwizard.engine.EventProcessingEngine;
+import com.wonderingwizard.engine.EventPropagatingEngine;
+import com.wonderingwizard.events.ActionCompletedEvent;
+import com.wonderingwizard.events.TimeEvent;
+import com.wonderingwizard.processors.ScheduleRunnerProcessor;
+import com.wonderingwizard.server.ProcessorStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedule runner {@code captureState}/{@code restoreState} after operators complete an action
+ * in {@code changed} of {@code queues} running schedules. Both should cost in proportion to the
+ * changed schedules rather than to all of them.
+ * <p>
+ * Before each invocation the engine is reset to the same checkpoint and one action is completed
+ * in each of the next {@code changed} queues.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = Scenario.HEAP)
+public class SnapshotBenchmark {
+
+    @Param({"50"})
+    public int queues;
+
+    @Param({"300"})
+    public int instructions;
+
+    @Param({"1", "50"})
+    public int changed;
+
+    private EventProcessingEngine baseEngine;
+    private EventPropagatingEngine engine;
+    private ScheduleRunnerProcessor scheduleRunner;
+    private Object checkpoint;
+    private Object scheduleRunnerState;
+    private List<ActionCompletedEvent> completions;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        baseEngine = new EventProcessingEngine();
+        engine = new EventPropagatingEngine(baseEngine);
+        scheduleRunner = ProcessorStack.registerInto(engine).scheduleRunnerProcessor();
+        Scenario.populate(engine, queues, instructions);
+        engine.processEvent(new TimeEvent(Scenario.EMT.plusSeconds(600)));
+        checkpoint = baseEngine.captureCheckpoint();
+        scheduleRunnerState = scheduleRunner.captureState();
+
+        completions = new ArrayList<>();
+        for (long wq = 1; wq <= queues; wq++) {
+            Action active = findActiveAction(wq);
+            if (active != null) {
+                completions.add(new ActionCompletedEvent(active.id(), wq));
+            }
+        }
+        if (completions.isEmpty()) {
+            throw new IllegalStateException("No active actions to complete");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void completeActions() {
+        baseEngine.restoreCheckpoint(checkpoint);
+        for (int i = 0; i < changed; i++) {
+            engine.processEvent(completions.get(next));
+            next = (next + 1) % completions.size();
+        }
+    }
+
+    @Benchmark
+    public Object capture() {
+        return scheduleRunner.captureState();
+    }
+
+    @Benchmark
+    public void restore() {
+        scheduleRunner.restoreState(scheduleRunnerState);
+    }
+
+    private Action findActiveAction(long workQueueId) {
+        for (Takt takt : scheduleRunner.getScheduleTakts(workQueueId)) {
+            for (Action action : takt.actions()) {
+                if (scheduleRunner.getActionStatus(workQueueId, action.id()) == ActionStatus.ACTIVE) {
+                    return action;
+                }
+            }
+        }
+        return null;
+    }
+}
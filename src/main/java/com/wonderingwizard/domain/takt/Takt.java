@@ -23,6 +23,8 @@ public final class Takt {
     private static final int STARTING_TAKT_NUMBER = 100;
 
     private final int sequence;
+    /** Derived from the sequence; cached because schedule sweeps look takts up by name. */
+    private final String name;
     private final List<Action> actions;
     private final Instant plannedStartTime;
     private volatile Instant estimatedStartTime;
@@ -30,6 +32,9 @@ public final class Takt {
 
     public Takt(int sequence, List<Action> actions, Instant plannedStartTime, Instant estimatedStartTime, int durationSeconds) {
         this.sequence = sequence;
+        this.name = sequence < 0
+                ? "PULSE" + (STARTING_TAKT_NUMBER + sequence)
+                : "TAKT" + (STARTING_TAKT_NUMBER + sequence);
         this.actions = actions;
         this.plannedStartTime = plannedStartTime;
         this.estimatedStartTime = estimatedStartTime;
@@ -63,9 +68,6 @@ public final class Takt {
     }
 
     public String name() {
-        if (sequence < 0) {
-            return "PULSE" + (STARTING_TAKT_NUMBER + sequence);
-        }
-        return "TAKT" + (STARTING_TAKT_NUMBER + sequence);
+        return name;
     }
 }
@@ -0,0 +1,46 @@
+package com.wonderingwizard.engine;
+
+import java.io.Serial;
+import java.util.List;
+
+/**
+ * Thrown by {@link Engine#processBatch(java.util.List)} when an event of the batch fails.
+ * <p>
+ * The events before the failing one have been applied, the events after it have not, so the
+ * caller can report the failing event and resubmit the rest. The side effects of the applied
+ * events are carried by the exception, so that they can still be published.
+ */
+public class BatchProcessingException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final int failedIndex;
+    private final transient List<SideEffect> sideEffects;
+
+    /**
+     * @param failedIndex index of the failing event within the batch
+     * @param cause the exception thrown while processing it
+     * @param sideEffects the side effects of the events before it
+     */
+    public BatchProcessingException(int failedIndex, RuntimeException cause, List<SideEffect> sideEffects) {
+        super("Failed to process event " + failedIndex + " of batch: " + cause.getMessage(), cause);
+        this.failedIndex = failedIndex;
+        this.sideEffects = sideEffects;
+    }
+
+    /**
+     * Returns the index of the failing event within the batch.
+     */
+    public int getFailedIndex() {
+        return failedIndex;
+    }
+
+    /**
+     * Returns the side effects of the events before the failing one, including those of the
+     * work they deferred to the end of the batch.
+     */
+    public List<SideEffect> getSideEffects() {
+        return sideEffects != null ? sideEffects : List.of();
+    }
+}
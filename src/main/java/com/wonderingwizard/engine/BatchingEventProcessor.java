@@ -0,0 +1,36 @@
+package com.wonderingwizard.engine;
+
+/**
+ * An event processor that settles its state after every event, e.g. with a fixed-point pass
+ * over all of it, and can settle it once for a batch of events instead.
+ * <p>
+ * The engine calls {@link #beginBatch()} before the first event of a batch and
+ * {@link #endBatch(SideEffectSink)} after the last. In between, the processor may leave its
+ * settling pass pending after an event, as long as the following events are unaffected by it;
+ * before any other event, the engine has it settle through {@link #settleBefore(Event, SideEffectSink)},
+ * so that every processor sees the settled state. The result is then as if the deferred events
+ * had all arrived together.
+ */
+public interface BatchingEventProcessor extends EventProcessor {
+
+    /**
+     * Starts deferring the settling pass.
+     */
+    void beginBatch();
+
+    /**
+     * Runs the pending settling pass, if any, and stops deferring it.
+     *
+     * @param sink receives the side effects of the settling pass
+     */
+    void endBatch(SideEffectSink sink);
+
+    /**
+     * Runs the pending settling pass if the given event could be affected by it. Called before
+     * every event of a batch, whether or not the processor subscribes to it.
+     *
+     * @param event the event about to be processed
+     * @param sink receives the side effects of the settling pass
+     */
+    void settleBefore(Event event, SideEffectSink sink);
+}
@@ -23,6 +23,85 @@ public interface Engine {
      */
     List<SideEffect> processEvent(Event event);
 
+    /**
+     * Process an event through all registered processors, appending the side effects to the
+     * given sink instead of returning a new list.
+     * <p>
+     * Side effects already in the sink are left untouched. The default delegates to
+     * {@link #processEvent(Event)}.
+     *
+     * @param event the event to process
+     * @param sink receives all side effects produced by all processors
+     */
+    default void processEvent(Event event, SideEffectSink sink) {
+        sink.addAll(processEvent(event));
+    }
+
+    /**
+     * Process a batch of events in order, e.g. all records of one Kafka poll.
+     * <p>
+     * Every event is processed as by {@link #processEvent(Event)}, between {@link #beginBatch()}
+     * and {@link #endBatch(SideEffectSink)}, so {@link BatchingEventProcessor}s settle their state
+     * once for the batch instead of after every event. If an event fails, the batch is still
+     * ended, so the events before it are settled, and their side effects are carried by the
+     * exception.
+     *
+     * @param events the events to process
+     * @return all side effects produced by all processors, in event order followed by those of
+     *         the work deferred to the end of the batch
+     * @throws BatchProcessingException if an event fails; the events before it remain applied
+     */
+    default List<SideEffect> processBatch(List<Event> events) {
+        SideEffectSink sink = new SideEffectSink();
+        beginBatch();
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            // Settle first, so that the work deferred by the events before is not lost if this one fails
+            settleBefore(event, sink);
+            int settled = sink.size();
+            try {
+                processEvent(event, sink);
+            } catch (RuntimeException e) {
+                SideEffectSink prefix = new SideEffectSink();
+                for (int j = 0; j < settled; j++) {
+                    prefix.add(sink.get(j));
+                }
+                endBatch(prefix);
+                throw new BatchProcessingException(i, e, prefix.toList());
+            }
+        }
+        endBatch(sink);
+        return sink.toList();
+    }
+
+    /**
+     * Starts a batch: until {@link #endBatch(SideEffectSink)}, {@link BatchingEventProcessor}s
+     * may defer the work that settles their state after an event. The default does nothing.
+     */
+    default void beginBatch() {
+    }
+
+    /**
+     * Ends the batch started by {@link #beginBatch()}, running the deferred work and appending
+     * its side effects, and those of the events they trigger, to the sink. The default does
+     * nothing.
+     *
+     * @param sink receives the side effects of the deferred work
+     */
+    default void endBatch(SideEffectSink sink) {
+    }
+
+    /**
+     * In a batch, runs the deferred work the given event must not be processed without,
+     * appending its side effects, and those of the events they trigger, to the sink. Engines
+     * call this before processing each event of a batch; the default does nothing.
+     *
+     * @param event the event about to be processed
+     * @param sink receives the side effects of the deferred work
+     */
+    default void settleBefore(Event event, SideEffectSink sink) {
+    }
+
     /**
      * Captures a snapshot of all processor state for step-back.
      * Call this before processing a user step.
@@ -14,6 +14,26 @@ import java.util.logging.Logger;
  * <p>
  * Supports step-back functionality to revert to the state before the last processed event.
  * <p>
+ * Events are dispatched through a per-class table: each concrete event class is resolved once
+ * to the processors whose {@link EventProcessor#subscribedEventTypes()} match it, in
+ * registration order. Processors that do not subscribe to an event are never called for it.
+ * <p>
+ * In undo-journal mode {@link #snapshot()} does not copy state: it opens an {@link UndoJournal}
+ * entry, and {@link UndoableEventProcessor}s record inverse operations for each change they make.
+ * {@link #stepBack()} replays those in reverse, so its cost is proportional to the changes made
+ * since the snapshot. Other processors fall back to a full capture before each event they receive.
+ * <p>
+ * Processors emit into a {@link SideEffectSink} owned by the engine, so an event without side
+ * effects allocates nothing; callers that reuse their own sink can use
+ * {@link #processEvent(Event, SideEffectSink)} to avoid the result list as well.
+ * <p>
+ * In a batch ({@link #beginBatch()} to {@link #endBatch(SideEffectSink)}),
+ * {@link BatchingEventProcessor}s settle their state at the end of the batch, or before an event
+ * that depends on it, instead of after every event.
+ * <p>
+ * With {@link Metrics} set, each processor call is timed and its side effects counted per
+ * (processor, event type), through recorders resolved once per event class like the dispatch table.
+ * <p>
  * Implements the {@link Engine} interface.
  */
 public class EventProcessingEngine implements Engine {
@@ -21,12 +41,39 @@ public class EventProcessingEngine implements Engine {
     private static final Logger logger = Logger.getLogger(EventProcessingEngine.class.getName());
 
     private final List<EventProcessor> processors = new ArrayList<>();
+    /** Concrete event class → subscribed processors in registration order. Rebuilt lazily after {@link #register}. */
+    private final Map<Class<?>, EventProcessor[]> dispatchTable = new HashMap<>();
+    /** Concrete event class → metrics recorders parallel to its dispatch table entry. Only used with metrics. */
+    private final Map<Class<?>, Metrics.ProcessorMetrics[]> processorMetricsTable = new HashMap<>();
     private final List<Map<EventProcessor, Object>> stateHistory = new ArrayList<>();
+    /** Non-null in undo-journal mode. */
+    private final UndoJournal journal;
+    /** Collects side effects for {@link #processEvent(Event)}; cleared after every event. */
+    private final SideEffectSink resultSink = new SideEffectSink();
+    private boolean resultSinkInUse;
+    private boolean inBatch;
     private Metrics metrics;
 
-    /** Set optional metrics collector for per-event-type processing duration. */
+    /**
+     * Creates an engine that snapshots by capturing the full state of every processor.
+     */
+    public EventProcessingEngine() {
+        this(false);
+    }
+
+    /**
+     * Creates an engine.
+     *
+     * @param undoJournal true to step back by undoing journaled changes instead of restoring full snapshots
+     */
+    public EventProcessingEngine(boolean undoJournal) {
+        this.journal = undoJournal ? new UndoJournal() : null;
+    }
+
+    /** Set optional metrics collector for per-event-type and per-processor processing duration. */
     public void setMetrics(Metrics metrics) {
         this.metrics = metrics;
+        processorMetricsTable.clear();
     }
 
     /**
@@ -36,6 +83,11 @@ public class EventProcessingEngine implements Engine {
      */
     public void register(EventProcessor processor) {
         processors.add(processor);
+        dispatchTable.clear();
+        processorMetricsTable.clear();
+        if (journal != null && processor instanceof UndoableEventProcessor undoable) {
+            undoable.setUndoJournal(journal);
+        }
         logger.info("Registered processor: " + processor.getName());
     }
 
@@ -49,38 +101,116 @@ public class EventProcessingEngine implements Engine {
      */
     @Override
     public void snapshot() {
+        if (journal != null) {
+            journal.mark();
+            return;
+        }
         stateHistory.add(captureAllStates());
     }
 
     public List<SideEffect> processEvent(Event event) {
+        if (resultSinkInUse) {
+            return SideEffectSink.collect(nested -> processEvent(event, nested));
+        }
+        resultSinkInUse = true;
+        try {
+            processEvent(event, resultSink);
+            return resultSink.toList();
+        } finally {
+            resultSink.clear();
+            resultSinkInUse = false;
+        }
+    }
+
+    @Override
+    public void processEvent(Event event, SideEffectSink sink) {
         if (logger.isLoggable(java.util.logging.Level.FINE)) {
             logger.fine("Processing event: " + event);
         }
 
-        long startNs = metrics != null ? System.nanoTime() : 0;
-
-        List<SideEffect> allSideEffects = new ArrayList<>();
-
-        for (EventProcessor processor : processors) {
-            List<SideEffect> sideEffects = processor.process(event);
-            allSideEffects.addAll(sideEffects);
+        if (inBatch) {
+            settleBefore(event, sink);
         }
+        long startNs = metrics != null ? System.nanoTime() : 0;
+        int start = sink.size();
+        EventProcessor[] subscribed = dispatchTable.computeIfAbsent(event.getClass(), this::resolveProcessors);
 
-        if (metrics != null) {
+        if (metrics == null) {
+            for (EventProcessor processor : subscribed) {
+                captureForUndo(processor);
+                processor.process(event, sink);
+            }
+        } else {
+            Metrics.ProcessorMetrics[] recorders =
+                    processorMetricsTable.computeIfAbsent(event.getClass(), this::resolveProcessorMetrics);
+            for (int i = 0; i < subscribed.length; i++) {
+                EventProcessor processor = subscribed[i];
+                captureForUndo(processor);
+                int before = sink.size();
+                long processorStartNs = System.nanoTime();
+                processor.process(event, sink);
+                recorders[i].record(System.nanoTime() - processorStartNs, sink.size() - before);
+            }
             metrics.recordEngineProcessing(event.getClass().getSimpleName(), System.nanoTime() - startNs);
         }
 
         if (logger.isLoggable(java.util.logging.Level.FINE)) {
-            if (allSideEffects.isEmpty()) {
+            if (sink.size() == start) {
                 logger.fine("No side effects produced");
             } else {
-                for (SideEffect sideEffect : allSideEffects) {
-                    logger.fine("Side effect: " + sideEffect);
+                for (int i = start; i < sink.size(); i++) {
+                    logger.fine("Side effect: " + sink.get(i));
                 }
             }
         }
+    }
+
+    @Override
+    public void beginBatch() {
+        if (inBatch) {
+            throw new IllegalStateException("A batch is already in progress");
+        }
+        inBatch = true;
+        for (EventProcessor processor : processors) {
+            if (processor instanceof BatchingEventProcessor batching) {
+                batching.beginBatch();
+            }
+        }
+    }
 
-        return allSideEffects;
+    @Override
+    public void endBatch(SideEffectSink sink) {
+        if (!inBatch) {
+            return;
+        }
+        inBatch = false;
+        for (EventProcessor processor : processors) {
+            if (processor instanceof BatchingEventProcessor batching) {
+                captureForUndo(processor);
+                batching.endBatch(sink);
+            }
+        }
+    }
+
+    @Override
+    public void settleBefore(Event event, SideEffectSink sink) {
+        if (!inBatch) {
+            return;
+        }
+        for (EventProcessor processor : processors) {
+            if (processor instanceof BatchingEventProcessor batching) {
+                captureForUndo(processor);
+                batching.settleBefore(event, sink);
+            }
+        }
+    }
+
+    /** Journals a full capture of a processor that does not record its own undo operations. */
+    private void captureForUndo(EventProcessor processor) {
+        if (journal != null && journal.isRecording() && !(processor instanceof UndoableEventProcessor)) {
+            Object previousState = processor.captureState();
+            journal.record(() -> processor.restoreState(previousState));
+        }
     }
 
     /**
@@ -89,6 +219,14 @@ public class EventProcessingEngine implements Engine {
      * @return true if step-back was successful, false if there is no history to revert to
      */
     public boolean stepBack() {
+        if (journal != null) {
+            if (!journal.undo()) {
+                logger.info("No history to step back to");
+                return false;
+            }
+            logger.info("Stepped back to previous state");
+            return true;
+        }
         if (stateHistory.isEmpty()) {
             logger.info("No history to step back to");
             return false;
@@ -100,13 +238,36 @@ public class EventProcessingEngine implements Engine {
         return true;
     }
 
+    /**
+     * Captures the state of all processors without adding it to the step-back history.
+     *
+     * @return an opaque checkpoint for {@link #restoreCheckpoint(Object)}
+     */
+    public Object captureCheckpoint() {
+        return captureAllStates();
+    }
+
+    /**
+     * Restores all processors to a checkpoint taken by {@link #captureCheckpoint()}.
+     * The step-back history is left unchanged.
+     *
+     * @param checkpoint the checkpoint to restore
+     */
+    @SuppressWarnings("unchecked")
+    public void restoreCheckpoint(Object checkpoint) {
+        if (!(checkpoint instanceof Map)) {
+            throw new IllegalArgumentException("Invalid checkpoint");
+        }
+        restoreAllStates((Map<EventProcessor, Object>) checkpoint);
+    }
+
     /**
      * Returns the number of steps that can be reverted.
      *
      * @return the number of available step-back operations
      */
     public int getHistorySize() {
-        return stateHistory.size();
+        return journal != null ? journal.size() : stateHistory.size();
     }
 
     /**
@@ -114,9 +275,48 @@ public class EventProcessingEngine implements Engine {
      */
     public void clearHistory() {
         stateHistory.clear();
+        if (journal != null) {
+            journal.clear();
+        }
         logger.info("State history cleared");
     }
 
+    /**
+     * Returns the processors subscribed to the given event class.
+     *
+     * @param eventClass the concrete event class
+     * @return the subscribed processors in registration order
+     */
+    List<EventProcessor> getSubscribedProcessors(Class<? extends Event> eventClass) {
+        return List.of(dispatchTable.computeIfAbsent(eventClass, this::resolveProcessors));
+    }
+
+    private EventProcessor[] resolveProcessors(Class<?> eventClass) {
+        List<EventProcessor> subscribed = new ArrayList<>();
+        for (EventProcessor processor : processors) {
+            for (Class<? extends Event> type : processor.subscribedEventTypes()) {
+                if (type.isAssignableFrom(eventClass)) {
+                    subscribed.add(processor);
+                    break;
+                }
+            }
+        }
+        if (logger.isLoggable(java.util.logging.Level.FINE)) {
+            logger.fine("Dispatch " + eventClass.getSimpleName() + " -> "
+                    + subscribed.stream().map(EventProcessor::getName).toList());
+        }
+        return subscribed.toArray(new EventProcessor[0]);
+    }
+
+    private Metrics.ProcessorMetrics[] resolveProcessorMetrics(Class<?> eventClass) {
+        EventProcessor[] subscribed = dispatchTable.computeIfAbsent(eventClass, this::resolveProcessors);
+        Metrics.ProcessorMetrics[] recorders = new Metrics.ProcessorMetrics[subscribed.length];
+        for (int i = 0; i < subscribed.length; i++) {
+            recorders[i] = metrics.processorMetrics(subscribed[i].getName(), eventClass.getSimpleName());
+        }
+        return recorders;
+    }
+
     private Map<EventProcessor, Object> captureAllStates() {
         Map<EventProcessor, Object> snapshot = new HashMap<>();
         for (EventProcessor processor : processors) {
@@ -1,10 +1,12 @@
 package com.wonderingwizard.engine;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Interface for event processors that can handle events and produce side effects.
- * Processors are registered with the engine and called for each event.
+ * Processors are registered with the engine and called for each event they subscribe to
+ * (see {@link #subscribedEventTypes()}).
  * <p>
  * Processors support state capture and restoration for undo/step-back functionality.
  */
@@ -18,6 +20,34 @@ public interface EventProcessor {
      */
     List<SideEffect> process(Event event);
 
+    /**
+     * Process an event and emit any resulting side effects into the sink.
+     * <p>
+     * Engines call this method. The default delegates to {@link #process(Event)}; processors on
+     * hot paths override it to emit directly and avoid allocating a list per event, and then
+     * usually implement {@link #process(Event)} with {@link SideEffectSink#collect}.
+     *
+     * @param event the event to process
+     * @param sink receives the side effects produced by processing this event
+     */
+    default void process(Event event, SideEffectSink sink) {
+        sink.addAll(process(event));
+    }
+
+    /**
+     * Returns the event types this processor wants to receive.
+     * <p>
+     * The engine only dispatches an event to this processor when the event is an instance
+     * of at least one of the returned types. The default subscribes to {@link Event}, i.e.
+     * every event. Subscriptions are resolved once per concrete event class and must not
+     * change after the processor has been registered.
+     *
+     * @return the subscribed event types
+     */
+    default Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(Event.class);
+    }
+
     /**
      * Returns the name of this processor for logging purposes.
      *
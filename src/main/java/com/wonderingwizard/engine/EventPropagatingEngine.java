@@ -1,9 +1,8 @@
 package com.wonderingwizard.engine;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
+import com.wonderingwizard.metrics.Metrics;
+
 import java.util.List;
-import java.util.Queue;
 import java.util.logging.Logger;
 
 /**
@@ -18,12 +17,18 @@ import java.util.logging.Logger;
  * before processing any triggered events from that level.
  * <p>
  * This enables automatic event propagation where side effects can trigger further processing.
+ * Side effects of work deferred in a batch are propagated the same way.
+ * With {@link Metrics} set, the number of events processed per incoming event is counted.
  */
 public class EventPropagatingEngine implements Engine {
 
     private static final Logger logger = Logger.getLogger(EventPropagatingEngine.class.getName());
 
     private final Engine delegate;
+    /** Collects side effects for {@link #processEvent(Event)}; cleared after every event. */
+    private final SideEffectSink resultSink = new SideEffectSink();
+    private boolean resultSinkInUse;
+    private Metrics metrics;
 
     /**
      * Creates a new event propagating engine that wraps the given engine.
@@ -34,6 +39,11 @@ public class EventPropagatingEngine implements Engine {
         this.delegate = delegate;
     }
 
+    /** Set optional metrics collector for propagation rounds per incoming event type. */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
     @Override
     public void register(EventProcessor processor) {
         delegate.register(processor);
@@ -41,36 +51,86 @@ public class EventPropagatingEngine implements Engine {
 
     @Override
     public List<SideEffect> processEvent(Event event) {
+        if (resultSinkInUse) {
+            return SideEffectSink.collect(nested -> processEvent(event, nested));
+        }
+        resultSinkInUse = true;
+        try {
+            processEvent(event, resultSink);
+            return resultSink.toList();
+        } finally {
+            resultSink.clear();
+            resultSinkInUse = false;
+        }
+    }
+
+    /**
+     * Processes the event and all events triggered by its side effects, appending every side
+     * effect to the sink. In a batch, the work the event depends on is settled and propagated
+     * first.
+     */
+    @Override
+    public void processEvent(Event event, SideEffectSink sink) {
         long t0 = System.nanoTime();
-        List<SideEffect> allSideEffects = new ArrayList<>();
-        Queue<Event> eventQueue = new ArrayDeque<>();
-        eventQueue.add(event);
-        int rounds = 0;
+        int start = sink.size();
+        settleBefore(event, sink);
+        int eventStart = sink.size();
+        delegate.processEvent(event, sink);
+        int rounds = 1 + propagate(sink, eventStart);
 
-        while (!eventQueue.isEmpty()) {
-            rounds++;
-            Event currentEvent = eventQueue.poll();
-            List<SideEffect> sideEffects = delegate.processEvent(currentEvent);
-            allSideEffects.addAll(sideEffects);
-
-            for (SideEffect sideEffect : sideEffects) {
-                if (sideEffect instanceof Event eventSideEffect) {
-                    if (logger.isLoggable(java.util.logging.Level.FINE)) {
-                        logger.fine("Side effect implements Event, queuing for processing: " + sideEffect);
-                    }
-                    eventQueue.add(eventSideEffect);
-                }
-            }
+        if (metrics != null) {
+            metrics.recordPropagation(event.getClass().getSimpleName(), rounds);
         }
 
         long totalMs = (System.nanoTime() - t0) / 1_000_000;
         if (totalMs > 10 && logger.isLoggable(java.util.logging.Level.FINE)) {
             logger.fine("PERF propagate " + event.getClass().getSimpleName()
                     + " total=" + totalMs + "ms rounds=" + rounds
-                    + " effects=" + allSideEffects.size());
+                    + " effects=" + (sink.size() - start));
         }
+    }
+
+    @Override
+    public void beginBatch() {
+        delegate.beginBatch();
+    }
+
+    @Override
+    public void endBatch(SideEffectSink sink) {
+        int start = sink.size();
+        delegate.endBatch(sink);
+        propagate(sink, start);
+    }
+
+    @Override
+    public void settleBefore(Event event, SideEffectSink sink) {
+        int start = sink.size();
+        delegate.settleBefore(event, sink);
+        propagate(sink, start);
+    }
 
-        return allSideEffects;
+    /**
+     * Processes the events among the side effects from {@code cursor} on, and the events their
+     * side effects trigger in turn.
+     * <p>
+     * The sink doubles as the breadth-first queue: triggered events are exactly the side effects
+     * implementing {@link Event}, in the order they were appended, so a cursor over the sink
+     * replaces a separate queue.
+     *
+     * @return the number of events processed
+     */
+    private int propagate(SideEffectSink sink, int cursor) {
+        int rounds = 0;
+        while (cursor < sink.size()) {
+            if (sink.get(cursor++) instanceof Event eventSideEffect) {
+                if (logger.isLoggable(java.util.logging.Level.FINE)) {
+                    logger.fine("Side effect implements Event, queuing for processing: " + eventSideEffect);
+                }
+                rounds++;
+                delegate.processEvent(eventSideEffect, sink);
+            }
+        }
+        return rounds;
     }
 
     @Override
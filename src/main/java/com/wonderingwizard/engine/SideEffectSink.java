@@ -0,0 +1,108 @@
+package com.wonderingwizard.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A reusable collector that processors emit side effects into.
+ * <p>
+ * Engines own one sink each and clear it after every event, so processing an event that
+ * produces no side effects allocates nothing. Side effects must be read or copied before the
+ * sink is cleared; {@link #toList()} returns a list that stays valid afterwards.
+ * A sink is not thread-safe.
+ */
+public final class SideEffectSink {
+
+    private SideEffect[] elements = new SideEffect[16];
+    private int size;
+
+    /**
+     * Collects the side effects emitted by the given action into a new list.
+     * Used by processors that implement {@link EventProcessor#process(Event, SideEffectSink)}
+     * to also implement {@link EventProcessor#process(Event)}.
+     *
+     * @param action emits side effects into the sink
+     * @return the emitted side effects
+     */
+    public static List<SideEffect> collect(Consumer<SideEffectSink> action) {
+        SideEffectSink sink = new SideEffectSink();
+        action.accept(sink);
+        return sink.toList();
+    }
+
+    /**
+     * Appends a side effect.
+     *
+     * @param sideEffect the side effect to append
+     */
+    public void add(SideEffect sideEffect) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = sideEffect;
+    }
+
+    /**
+     * Appends all side effects of a list, in order.
+     *
+     * @param sideEffects the side effects to append
+     */
+    public void addAll(List<? extends SideEffect> sideEffects) {
+        for (int i = 0, n = sideEffects.size(); i < n; i++) {
+            add(sideEffects.get(i));
+        }
+    }
+
+    /**
+     * Returns the side effect at the given position.
+     *
+     * @param index the position, from 0 to {@link #size()} - 1
+     * @return the side effect
+     */
+    public SideEffect get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return elements[index];
+    }
+
+    /**
+     * Returns the number of side effects collected since the last {@link #clear()}.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether no side effects were collected since the last {@link #clear()}.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns a copy of the collected side effects, or an immutable empty list if there are none.
+     *
+     * @return the side effects in emission order
+     */
+    public List<SideEffect> toList() {
+        if (size == 0) {
+            return List.of();
+        }
+        List<SideEffect> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(elements[i]);
+        }
+        return list;
+    }
+
+    /**
+     * Removes all side effects, keeping the capacity for reuse.
+     */
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+}
@@ -0,0 +1,99 @@
+package com.wonderingwizard.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Journal of inverse operations used by {@link EventProcessingEngine} in undo-journal mode.
+ * <p>
+ * Each {@link EventProcessingEngine#snapshot()} opens a new entry; changes made by
+ * {@link UndoableEventProcessor}s while processing events are recorded into the newest entry
+ * as operations that revert them. Stepping back pops the newest entry and runs its operations
+ * in reverse order, so the cost is proportional to the number of changes being undone rather
+ * than to the size of the processor state.
+ * <p>
+ * Recording is a no-op while no entry is open or while an entry is being undone, so
+ * processors may call {@link #record} unconditionally; {@link #isRecording()} lets them skip
+ * building inverse operations that would be discarded.
+ */
+public final class UndoJournal {
+
+    private final List<List<Runnable>> entries = new ArrayList<>();
+    private boolean undoing;
+
+    /**
+     * Returns whether changes are currently being recorded.
+     *
+     * @return true if an entry is open and no undo is in progress
+     */
+    public boolean isRecording() {
+        return !entries.isEmpty() && !undoing;
+    }
+
+    /**
+     * Records an operation that reverts a change about to be made.
+     *
+     * @param inverse the operation restoring the state before the change
+     */
+    public void record(Runnable inverse) {
+        if (isRecording()) {
+            entries.getLast().add(inverse);
+        }
+    }
+
+    /**
+     * Records the current mapping of {@code key} in {@code map}, so that undoing restores the
+     * previous value or removes the key if it was absent. Call before changing the mapping.
+     *
+     * @param map the map about to change
+     * @param key the key whose mapping is about to change
+     */
+    public <K, V> void recordMapEntry(Map<K, V> map, K key) {
+        if (!isRecording()) {
+            return;
+        }
+        if (map.containsKey(key)) {
+            V previous = map.get(key);
+            entries.getLast().add(() -> map.put(key, previous));
+        } else {
+            entries.getLast().add(() -> map.remove(key));
+        }
+    }
+
+    /** Opens a new entry; subsequent changes are recorded into it. */
+    void mark() {
+        entries.add(new ArrayList<>());
+    }
+
+    /**
+     * Reverts all changes recorded in the newest entry and discards it.
+     *
+     * @return false if there is no entry to undo
+     */
+    boolean undo() {
+        if (entries.isEmpty()) {
+            return false;
+        }
+        List<Runnable> entry = entries.removeLast();
+        undoing = true;
+        try {
+            for (int i = entry.size() - 1; i >= 0; i--) {
+                entry.get(i).run();
+            }
+        } finally {
+            undoing = false;
+        }
+        return true;
+    }
+
+    /** Returns the number of entries that can be undone. */
+    int size() {
+        return entries.size();
+    }
+
+    /** Discards all entries. */
+    void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,19 @@
+package com.wonderingwizard.engine;
+
+/**
+ * An event processor that records inverse operations for its own state changes.
+ * <p>
+ * In undo-journal mode the engine hands its {@link UndoJournal} to each undoable processor at
+ * registration. The processor must record every change it makes to its state from then on.
+ * Processors that do not implement this interface are still supported: the engine captures
+ * their full state before each event they subscribe to.
+ */
+public interface UndoableEventProcessor extends EventProcessor {
+
+    /**
+     * Sets the journal that receives inverse operations for subsequent state changes.
+     *
+     * @param journal the engine's journal
+     */
+    void setUndoJournal(UndoJournal journal);
+}
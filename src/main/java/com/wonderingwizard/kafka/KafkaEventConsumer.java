@@ -40,10 +40,8 @@ public class KafkaEventConsumer<E extends Event> {
 
     private final KafkaConfiguration kafkaConfig;
     private final ConsumerConfiguration consumerConfig;
-    private final EventMapper<E> mapper;
-    private final Engine engine;
-    private final Metrics metrics;
     private final DeadLetterQueue deadLetterQueue;
+    private final PolledRecordProcessor<GenericRecord> recordProcessor;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private volatile boolean ready;
     private Thread consumerThread;
@@ -77,10 +75,9 @@ public class KafkaEventConsumer<E extends Event> {
     ) {
         this.kafkaConfig = kafkaConfig;
         this.consumerConfig = consumerConfig;
-        this.mapper = mapper;
-        this.engine = engine;
-        this.metrics = metrics;
         this.deadLetterQueue = deadLetterQueue;
+        this.recordProcessor = new PolledRecordProcessor<>(
+                consumerConfig.topic(), mapper::map, engine, metrics, deadLetterQueue, logger);
     }
 
     /**
@@ -137,9 +134,7 @@ public class KafkaEventConsumer<E extends Event> {
                         ready = true;
                         logger.info("Consumer ready for topic: " + consumerConfig.topic());
                     }
-                    for (var record : records) {
-                        processRecord(record.value(), record.offset(), record.partition());
-                    }
+                    recordProcessor.process(records);
                 } catch (RecordDeserializationException e) {
                     // Send to dead letter queue and seek past the bad record
                     TopicPartition tp = e.topicPartition();
@@ -165,30 +160,6 @@ public class KafkaEventConsumer<E extends Event> {
         }
     }
 
-    private void processRecord(GenericRecord record, long offset, int partition) {
-        try {
-            long startNs = System.nanoTime();
-            E event = mapper.map(record);
-            long afterMapNs = System.nanoTime();
-            logger.fine("Mapped Kafka message from topic " + consumerConfig.topic()
-                    + " [partition=" + partition + ", offset=" + offset + "] to event: " + event);
-            engine.processEvent(event);
-            long endNs = System.nanoTime();
-            if (metrics != null) {
-                long totalNs = endNs - startNs;
-                long queueWaitNs = endNs - afterMapNs; // submitAndWait = queue wait + engine processing
-                metrics.recordKafkaMessage(consumerConfig.topic(), totalNs, queueWaitNs);
-            }
-        } catch (Exception e) {
-            logger.log(Level.WARNING,
-                    "Failed to process record from topic " + consumerConfig.topic()
-                            + " [partition=" + partition + ", offset=" + offset + "]", e);
-            if (deadLetterQueue != null) {
-                deadLetterQueue.add(consumerConfig.topic(), partition, offset, e.getMessage(), e);
-            }
-        }
-    }
-
     Properties buildConsumerProperties() {
         Properties props = new Properties();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaConfig.bootstrapServer());
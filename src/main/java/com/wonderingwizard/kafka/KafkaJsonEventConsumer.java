@@ -37,10 +37,8 @@ public class KafkaJsonEventConsumer<E extends Event> {
 
     private final KafkaConfiguration kafkaConfig;
     private final ConsumerConfiguration consumerConfig;
-    private final JsonEventMapper<E> mapper;
-    private final Engine engine;
-    private final Metrics metrics;
     private final DeadLetterQueue deadLetterQueue;
+    private final PolledRecordProcessor<String> recordProcessor;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private volatile boolean ready;
     private Thread consumerThread;
@@ -74,10 +72,9 @@ public class KafkaJsonEventConsumer<E extends Event> {
     ) {
         this.kafkaConfig = kafkaConfig;
         this.consumerConfig = consumerConfig;
-        this.mapper = mapper;
-        this.engine = engine;
-        this.metrics = metrics;
         this.deadLetterQueue = deadLetterQueue;
+        this.recordProcessor = new PolledRecordProcessor<>(
+                consumerConfig.topic(), mapper::map, engine, metrics, deadLetterQueue, logger);
     }
 
     /**
@@ -133,9 +130,7 @@ public class KafkaJsonEventConsumer<E extends Event> {
                         ready = true;
                         logger.info("JSON consumer ready for topic: " + consumerConfig.topic());
                     }
-                    for (var record : records) {
-                        processRecord(record.value(), record.offset(), record.partition());
-                    }
+                    recordProcessor.process(records);
                 } catch (RecordDeserializationException e) {
                     TopicPartition tp = e.topicPartition();
                     long offset = e.offset();
@@ -160,28 +155,6 @@ public class KafkaJsonEventConsumer<E extends Event> {
         }
     }
 
-    private void processRecord(String json, long offset, int partition) {
-        try {
-            long startNs = System.nanoTime();
-            E event = mapper.map(json);
-            long afterMapNs = System.nanoTime();
-            logger.fine("Mapped Kafka JSON message from topic " + consumerConfig.topic()
-                    + " [partition=" + partition + ", offset=" + offset + "] to event: " + event);
-            engine.processEvent(event);
-            long endNs = System.nanoTime();
-            if (metrics != null) {
-                metrics.recordKafkaMessage(consumerConfig.topic(), endNs - startNs, endNs - afterMapNs);
-            }
-        } catch (Exception e) {
-            logger.log(Level.WARNING,
-                    "Failed to process JSON record from topic " + consumerConfig.topic()
-                            + " [partition=" + partition + ", offset=" + offset + "]", e);
-            if (deadLetterQueue != null) {
-                deadLetterQueue.add(consumerConfig.topic(), partition, offset, e.getMessage(), e);
-            }
-        }
-    }
-
     Properties buildConsumerProperties() {
         Properties props = new Properties();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaConfig.bootstrapServer());
@@ -0,0 +1,115 @@
+package com.wonderingwizard.kafka;
+
+import com.wonderingwizard.engine.BatchProcessingException;
+import com.wonderingwizard.engine.Engine;
+import com.wonderingwizard.engine.Event;
+import com.wonderingwizard.metrics.Metrics;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Feeds the records of a Kafka poll into the engine, shared by {@link KafkaEventConsumer} and
+ * {@link KafkaJsonEventConsumer}.
+ * <p>
+ * All records of a poll are mapped and processed as one engine batch. Records that fail to map
+ * or to process are sent to the dead letter queue; the rest of the batch continues. Any other
+ * failure of the engine is rethrown, since it is unknown which records were applied.
+ *
+ * @param <V> the type of the record values
+ */
+class PolledRecordProcessor<V> {
+
+    private final String topic;
+    private final Function<V, ? extends Event> mapper;
+    private final Engine engine;
+    private final Metrics metrics;
+    private final DeadLetterQueue deadLetterQueue;
+    private final Logger logger;
+
+    /**
+     * @param topic the topic the records are polled from
+     * @param mapper maps a record value to an engine event
+     * @param engine the engine to process the events
+     * @param metrics per-message metrics, or null
+     * @param deadLetterQueue receives failed records, or null
+     * @param logger the consumer's logger
+     */
+    PolledRecordProcessor(String topic, Function<V, ? extends Event> mapper, Engine engine,
+                          Metrics metrics, DeadLetterQueue deadLetterQueue, Logger logger) {
+        this.topic = topic;
+        this.mapper = mapper;
+        this.engine = engine;
+        this.metrics = metrics;
+        this.deadLetterQueue = deadLetterQueue;
+        this.logger = logger;
+    }
+
+    /**
+     * Maps all records of a poll and processes them as one engine batch.
+     *
+     * @throws RuntimeException if the engine fails other than on a single event
+     */
+    void process(Iterable<ConsumerRecord<String, V>> records) {
+        List<MappedRecord> mapped = new ArrayList<>();
+        for (var record : records) {
+            try {
+                long startNs = System.nanoTime();
+                Event event = mapper.apply(record.value());
+                logger.fine("Mapped Kafka message from topic " + topic
+                        + " [partition=" + record.partition() + ", offset=" + record.offset() + "] to event: " + event);
+                mapped.add(new MappedRecord(event, record.partition(), record.offset(), System.nanoTime() - startNs));
+            } catch (Exception e) {
+                recordFailure(record.partition(), record.offset(), e);
+            }
+        }
+
+        int from = 0;
+        while (from < mapped.size()) {
+            List<MappedRecord> batch = mapped.subList(from, mapped.size());
+            List<Event> events = new ArrayList<>(batch.size());
+            for (MappedRecord record : batch) {
+                events.add(record.event());
+            }
+            long startNs = System.nanoTime();
+            try {
+                engine.processBatch(events);
+                recordMetrics(batch, System.nanoTime() - startNs);
+                from = mapped.size();
+            } catch (BatchProcessingException e) {
+                MappedRecord failed = batch.get(e.getFailedIndex());
+                recordFailure(failed.partition(), failed.offset(), e.getCause());
+                recordMetrics(batch.subList(0, e.getFailedIndex()), System.nanoTime() - startNs);
+                from += e.getFailedIndex() + 1;
+            }
+        }
+    }
+
+    /**
+     * Records per-message metrics for a processed batch, splitting the engine time evenly.
+     */
+    private void recordMetrics(List<MappedRecord> processed, long engineNs) {
+        if (metrics == null || processed.isEmpty()) {
+            return;
+        }
+        long queueWaitNs = engineNs / processed.size(); // submitAndWait = queue wait + engine processing
+        for (MappedRecord record : processed) {
+            metrics.recordKafkaMessage(topic, record.mapNs() + queueWaitNs, queueWaitNs);
+        }
+    }
+
+    private void recordFailure(int partition, long offset, Throwable e) {
+        logger.log(Level.WARNING,
+                "Failed to process record from topic " + topic
+                        + " [partition=" + partition + ", offset=" + offset + "]", e);
+        if (deadLetterQueue != null) {
+            deadLetterQueue.add(topic, partition, offset, e.getMessage(), e);
+        }
+    }
+
+    private record MappedRecord(Event event, int partition, long offset, long mapNs) {}
+}
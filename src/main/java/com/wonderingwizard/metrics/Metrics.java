@@ -13,6 +13,8 @@ import io.opentelemetry.sdk.metrics.View;
 import io.opentelemetry.exporter.prometheus.PrometheusHttpServer;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -27,11 +29,17 @@ public class Metrics {
 
     private static final AttributeKey<String> TOPIC = AttributeKey.stringKey("topic");
     private static final AttributeKey<String> EVENT_TYPE = AttributeKey.stringKey("event_type");
+    private static final AttributeKey<String> PROCESSOR = AttributeKey.stringKey("processor");
 
     private final LongCounter kafkaMessagesTotal;
     private final DoubleHistogram kafkaProcessingDuration;
     private final DoubleHistogram kafkaQueueWait;
     private final DoubleHistogram engineProcessingDuration;
+    private final DoubleHistogram processorDuration;
+    private final LongCounter processorSideEffects;
+    private final LongCounter propagationRounds;
+    /** Event type → attributes, so per-event recording does not build them each time. */
+    private final Map<String, Attributes> eventTypeAttributes = new ConcurrentHashMap<>();
     private final PrometheusHttpServer prometheusServer;
 
     public Metrics() {
@@ -63,6 +71,9 @@ public class Metrics {
                 .registerView(
                         InstrumentSelector.builder().setName("fes_engine_processing_duration_ms").build(),
                         msBucketView)
+                .registerView(
+                        InstrumentSelector.builder().setName("fes_processor_duration_ms").build(),
+                        msBucketView)
                 .build();
 
         OpenTelemetrySdk.builder()
@@ -87,11 +98,24 @@ public class Metrics {
                 .setDescription("Time to process a single event through the engine in milliseconds")
                 .build();
 
+        processorDuration = meter.histogramBuilder("fes_processor_duration_ms")
+                .setDescription("Time one processor spends on a single event in milliseconds")
+                .build();
+
+        processorSideEffects = meter.counterBuilder("fes_processor_side_effects_total")
+                .setDescription("Side effects emitted by a processor")
+                .build();
+
+        propagationRounds = meter.counterBuilder("fes_engine_propagation_rounds_total")
+                .setDescription("Events processed for an incoming event, including those triggered by its side effects")
+                .build();
+
         // Record initial zero-value so metrics appear in Prometheus immediately
         // (OTEL histograms are invisible until the first recording)
         kafkaProcessingDuration.record(0, Attributes.of(TOPIC, "warmup"));
         kafkaQueueWait.record(0, Attributes.of(TOPIC, "warmup"));
         engineProcessingDuration.record(0, Attributes.of(EVENT_TYPE, "warmup"));
+        processorDuration.record(0, Attributes.of(PROCESSOR, "warmup", EVENT_TYPE, "warmup"));
 
         // Register JVM runtime metrics (heap, CPU, GC, threads)
         io.opentelemetry.instrumentation.runtimemetrics.java17.RuntimeMetrics.builder(
@@ -116,8 +140,42 @@ public class Metrics {
 
     /** Record engine event processing duration in nanoseconds. */
     public void recordEngineProcessing(String eventType, long durationNanos) {
-        Attributes attrs = Attributes.of(EVENT_TYPE, eventType);
-        engineProcessingDuration.record(durationNanos / 1_000_000.0, attrs);
+        engineProcessingDuration.record(durationNanos / 1_000_000.0, eventTypeAttributes(eventType));
+    }
+
+    /** Record the number of events processed for one incoming event by the propagating engine. */
+    public void recordPropagation(String eventType, int rounds) {
+        propagationRounds.add(rounds, eventTypeAttributes(eventType));
+    }
+
+    /**
+     * Returns a recorder for one processor handling one event type. Engines keep the recorder
+     * next to their dispatch table, so recording on the hot path allocates nothing.
+     */
+    public ProcessorMetrics processorMetrics(String processor, String eventType) {
+        return new ProcessorMetrics(Attributes.of(PROCESSOR, processor, EVENT_TYPE, eventType));
+    }
+
+    private Attributes eventTypeAttributes(String eventType) {
+        return eventTypeAttributes.computeIfAbsent(eventType, type -> Attributes.of(EVENT_TYPE, type));
+    }
+
+    /** Duration and side-effect metrics of one (processor, event type) pair. */
+    public final class ProcessorMetrics {
+
+        private final Attributes attributes;
+
+        private ProcessorMetrics(Attributes attributes) {
+            this.attributes = attributes;
+        }
+
+        /** Record one call of the processor with its duration in nanoseconds and the side effects it emitted. */
+        public void record(long durationNanos, int sideEffects) {
+            processorDuration.record(durationNanos / 1_000_000.0, attributes);
+            if (sideEffects > 0) {
+                processorSideEffects.add(sideEffects, attributes);
+            }
+        }
     }
 
     public void shutdown() {
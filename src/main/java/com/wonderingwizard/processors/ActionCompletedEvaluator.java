@@ -32,6 +32,12 @@ public class ActionCompletedEvaluator implements CompletionConditionEvaluator {
 
     public static final String CONDITION_TYPE = "ACTION_COMPLETED";
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        // State-based: triggered by ActionCompleted side effects within the same process() call
+        return Set.of();
+    }
+
     @Override
     public Map<UUID, List<String>> evaluateSatisfied(Event event, Map<UUID, Action> allActions) {
         // Build map: actionType name → set of containerIds from COMPLETED actions of that type
@@ -0,0 +1,200 @@
+package com.wonderingwizard.processors;
+
+import com.wonderingwizard.domain.takt.Action;
+import com.wonderingwizard.domain.takt.ActionStatus;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Reverse dependency edges of a schedule's actions, with the number of dependencies each
+ * action still waits for.
+ * <p>
+ * Completing an action decrements the counters of its dependents, so the actions whose
+ * dependencies are all completed are known without re-checking every pending action of a takt.
+ * A dependency that is not part of the schedule never completes.
+ * <p>
+ * Actions are identified by their {@link ScheduleLayout} handles. The graph is derived from the
+ * schedule's current actions and is updated through {@link #update}, also when an action change
+ * is undone. It keeps no history: when the takts change or a state is restored, the owner
+ * discards it and builds a new one.
+ */
+final class ActionDependencyGraph {
+
+    private static final int[] NONE = new int[0];
+
+    private final ScheduleLayout layout;
+    /** Definition per handle, shared with the owner, which updates it before calling {@link #update}. */
+    private final Action[] definitions;
+    /** Status per handle, shared with the owner like {@link #definitions}. */
+    private final ActionStatus[] statuses;
+    /** Actions depending on each action; only the first {@link #dependentCounts} entries are used. */
+    private final int[][] dependents;
+    private final int[] dependentCounts;
+    /** Dependencies not yet completed, per action. */
+    private final int[] outstanding;
+    /** Positions of the PENDING actions without outstanding dependencies, per takt. */
+    private final BitSet[] ready;
+
+    /**
+     * Builds the graph of the given actions.
+     *
+     * @param layout the handles of the schedule's actions and takts
+     * @param definitions the current definition per handle, for the dependencies
+     * @param statuses the current status per handle
+     */
+    ActionDependencyGraph(ScheduleLayout layout, Action[] definitions, ActionStatus[] statuses) {
+        this.layout = layout;
+        this.definitions = definitions;
+        this.statuses = statuses;
+        this.dependents = new int[definitions.length][];
+        this.dependentCounts = new int[definitions.length];
+        this.outstanding = new int[definitions.length];
+        this.ready = new BitSet[layout.taktCount()];
+        Arrays.fill(dependents, NONE);
+        for (int takt = 0; takt < ready.length; takt++) {
+            ready[takt] = new BitSet(layout.actionsOf(takt).length);
+        }
+        for (int action = 0; action < definitions.length; action++) {
+            addDependencies(action, definitions[action].dependsOn());
+        }
+        for (int action = 0; action < definitions.length; action++) {
+            refreshReadiness(action);
+        }
+    }
+
+    /**
+     * Updates the graph after an action changed. Call after the new definition and status
+     * were stored in the arrays.
+     *
+     * @param action the handle of the changed action
+     * @param dependsOnBefore the previous dependencies of the action
+     * @param statusBefore the previous status of the action
+     */
+    void update(int action, Set<UUID> dependsOnBefore, ActionStatus statusBefore) {
+        Set<UUID> dependsOn = definitions[action].dependsOn();
+        if (!sameDependencies(dependsOnBefore, dependsOn)) {
+            removeDependencies(action, dependsOnBefore);
+            addDependencies(action, dependsOn);
+        }
+        boolean wasCompleted = statusBefore == ActionStatus.COMPLETED;
+        boolean isCompleted = statuses[action] == ActionStatus.COMPLETED;
+        if (wasCompleted != isCompleted) {
+            int[] ids = dependents[action];
+            for (int i = 0; i < dependentCounts[action]; i++) {
+                outstanding[ids[i]] += isCompleted ? -1 : 1;
+                refreshReadiness(ids[i]);
+            }
+        }
+        refreshReadiness(action);
+    }
+
+    /**
+     * Whether every dependency of the action is completed.
+     */
+    boolean areDependenciesCompleted(int action) {
+        return outstanding[action] == 0;
+    }
+
+    /**
+     * Returns the actions depending on the given action.
+     */
+    int[] dependentsOf(int action) {
+        return Arrays.copyOf(dependents[action], dependentCounts[action]);
+    }
+
+    /**
+     * Returns the PENDING actions of the takt whose dependencies are all completed, plus the
+     * given PENDING actions of the takt regardless of their dependencies, in takt order.
+     *
+     * @param takt the takt
+     * @param withoutDependencies actions whose dependencies are ignored, e.g. because they were overridden
+     * @return the candidate action handles in the order the takt lists them
+     */
+    int[] readyActions(int takt, int[] withoutDependencies) {
+        BitSet positions = ready[takt];
+        for (int action : withoutDependencies) {
+            if (layout.taktOf(action) == takt && statuses[action] == ActionStatus.PENDING
+                    && !positions.get(layout.position(action))) {
+                if (positions == ready[takt]) {
+                    positions = (BitSet) positions.clone();
+                }
+                positions.set(layout.position(action));
+            }
+        }
+        int[] listed = layout.actionsOf(takt);
+        int[] result = new int[positions.cardinality()];
+        int count = 0;
+        for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+            result[count++] = listed[position];
+        }
+        return result;
+    }
+
+    private static boolean sameDependencies(Set<UUID> before, Set<UUID> after) {
+        return before == after || (before != null && before.equals(after))
+                || (before == null && after.isEmpty()) || (after == null && before.isEmpty());
+    }
+
+    private void addDependencies(int action, Set<UUID> dependsOn) {
+        int count = 0;
+        if (dependsOn != null) {
+            for (UUID dependencyId : dependsOn) {
+                int dependency = layout.action(dependencyId);
+                if (dependency < 0) {
+                    count++;
+                    continue;
+                }
+                addDependent(dependency, action);
+                if (statuses[dependency] != ActionStatus.COMPLETED) {
+                    count++;
+                }
+            }
+        }
+        outstanding[action] = count;
+    }
+
+    private void removeDependencies(int action, Set<UUID> dependsOn) {
+        if (dependsOn != null) {
+            for (UUID dependencyId : dependsOn) {
+                int dependency = layout.action(dependencyId);
+                if (dependency >= 0) {
+                    removeDependent(dependency, action);
+                }
+            }
+        }
+        outstanding[action] = 0;
+    }
+
+    private void addDependent(int dependency, int action) {
+        int count = dependentCounts[dependency];
+        if (count == dependents[dependency].length) {
+            dependents[dependency] = Arrays.copyOf(dependents[dependency], Math.max(4, count * 2));
+        }
+        dependents[dependency][count] = action;
+        dependentCounts[dependency] = count + 1;
+    }
+
+    private void removeDependent(int dependency, int action) {
+        int[] ids = dependents[dependency];
+        int count = dependentCounts[dependency];
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == action) {
+                System.arraycopy(ids, i + 1, ids, i, count - i - 1);
+                dependentCounts[dependency] = count - 1;
+                return;
+            }
+        }
+    }
+
+    private void refreshReadiness(int action) {
+        int takt = layout.taktOf(action);
+        if (takt < 0) {
+            return;
+        }
+        boolean isReady = statuses[action] == ActionStatus.PENDING && outstanding[action] == 0;
+        ready[takt].set(layout.position(action), isReady);
+    }
+}
@@ -0,0 +1,96 @@
+package com.wonderingwizard.processors;
+
+import com.wonderingwizard.domain.takt.Action;
+import com.wonderingwizard.domain.takt.ActionStatus;
+import com.wonderingwizard.domain.takt.CompletionReason;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Runtime state of a schedule's actions by {@link ScheduleLayout} handle: status, assigned
+ * truck, target equipment, completion reason and actual times.
+ * <p>
+ * Everything else about an action is fixed while its schedule runs and stays in the action's
+ * immutable {@link Action} definition. Activating or completing an action or assigning it a
+ * truck only writes slots of this table instead of copying the whole record. {@link #apply}
+ * combines a definition with its runtime state for callers that need the full record.
+ */
+final class ActionStateTable {
+
+    final ActionStatus[] statuses;
+    final Long[] cheIds;
+    final String[] cheShortNames;
+    final String[] targetChes;
+    final CompletionReason[] completionReasons;
+    final Instant[] actualStartTimes;
+    final Instant[] actualEndTimes;
+
+    /**
+     * Creates the table with the runtime state the definitions carry.
+     */
+    ActionStateTable(Action[] definitions) {
+        int count = definitions.length;
+        this.statuses = new ActionStatus[count];
+        this.cheIds = new Long[count];
+        this.cheShortNames = new String[count];
+        this.targetChes = new String[count];
+        this.completionReasons = new CompletionReason[count];
+        this.actualStartTimes = new Instant[count];
+        this.actualEndTimes = new Instant[count];
+        for (int action = 0; action < count; action++) {
+            set(action, definitions[action]);
+        }
+    }
+
+    private ActionStateTable(ActionStateTable other) {
+        this.statuses = other.statuses.clone();
+        this.cheIds = other.cheIds.clone();
+        this.cheShortNames = other.cheShortNames.clone();
+        this.targetChes = other.targetChes.clone();
+        this.completionReasons = other.completionReasons.clone();
+        this.actualStartTimes = other.actualStartTimes.clone();
+        this.actualEndTimes = other.actualEndTimes.clone();
+    }
+
+    /** Returns an independent copy. */
+    ActionStateTable copy() {
+        return new ActionStateTable(this);
+    }
+
+    /** Sets the runtime state of an action to the one {@code version} carries. */
+    void set(int action, Action version) {
+        statuses[action] = version.status();
+        cheIds[action] = version.cheId();
+        cheShortNames[action] = version.cheShortName();
+        targetChes[action] = version.targetChe();
+        completionReasons[action] = version.completionReason();
+        actualStartTimes[action] = version.actualStartTime();
+        actualEndTimes[action] = version.actualEndTime();
+    }
+
+    /**
+     * Returns the definition with the action's runtime state, or the definition itself if it
+     * already carries that state.
+     */
+    Action apply(int action, Action definition) {
+        if (definition.status() == statuses[action]
+                && Objects.equals(definition.cheId(), cheIds[action])
+                && Objects.equals(definition.cheShortName(), cheShortNames[action])
+                && Objects.equals(definition.targetChe(), targetChes[action])
+                && definition.completionReason() == completionReasons[action]
+                && Objects.equals(definition.actualStartTime(), actualStartTimes[action])
+                && Objects.equals(definition.actualEndTime(), actualEndTimes[action])) {
+            return definition;
+        }
+        return new Action(definition.id(), definition.deviceType(), definition.actionType(),
+                definition.description(), definition.dependsOn(), definition.containerIndex(),
+                definition.durationSeconds(), definition.deviceIndex(), definition.workInstructions(),
+                definition.eventGates(), definition.skipWhenGatesSatisfied(),
+                cheIds[action], cheShortNames[action], targetChes[action], completionReasons[action],
+                statuses[action], definition.locationSkipConditions(), definition.completionConditions(),
+                definition.plannedStartTime(), definition.plannedEndTime(),
+                definition.estimatedStartTime(), definition.estimatedEndTime(),
+                actualStartTimes[action], actualEndTimes[action]);
+    }
+}
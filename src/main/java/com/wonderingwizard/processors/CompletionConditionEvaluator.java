@@ -5,6 +5,7 @@ import com.wonderingwizard.engine.Event;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -13,7 +14,9 @@ import java.util.UUID;
  * Implementations contain the domain logic for matching events to specific
  * completion conditions (e.g., a QC asset event satisfies a QC_LIFT completion condition).
  * <p>
- * Registered with {@link ScheduleRunnerProcessor} and called on every event.
+ * Registered with {@link ScheduleRunnerProcessor} and called on every event. Evaluators that
+ * implement {@link RoutedCompletionConditionEvaluator} only receive the actions the event is
+ * routed to.
  */
 public interface CompletionConditionEvaluator {
 
@@ -22,8 +25,20 @@ public interface CompletionConditionEvaluator {
      * scoped to specific actions.
      *
      * @param event the event to evaluate
-     * @param allActions map of actionId → Action for all actions across all schedules (any status)
+     * @param allActions map of actionId → Action for the candidate actions across all schedules (any status)
      * @return map of actionId → list of satisfied condition IDs on that action
      */
     Map<UUID, List<String>> evaluateSatisfied(Event event, Map<UUID, Action> allActions);
+
+    /**
+     * Returns the event types that can satisfy conditions handled by this evaluator.
+     * {@link ScheduleRunnerProcessor} includes them in its own engine subscription.
+     * State-based evaluators that only react to other completions return an empty set.
+     * Defaults to every event.
+     *
+     * @return the event types this evaluator reacts to
+     */
+    default Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(Event.class);
+    }
 }
@@ -0,0 +1,144 @@
+package com.wonderingwizard.processors;
+
+import com.wonderingwizard.domain.takt.Action;
+import com.wonderingwizard.domain.takt.ActionStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Index from routing key to the ACTIVE actions each {@link RoutedCompletionConditionEvaluator}
+ * can match, kept up to date by {@link ScheduleRunnerProcessor} as actions change.
+ * <p>
+ * Only actions with completion conditions are indexed. Changes are not journaled here: undoing an
+ * action change updates the index back, a state restore re-indexes the schedules that differ, and
+ * after a schedule is added, replaced or removed the index is {@link #invalidate() invalidated}
+ * and rebuilt from the schedules.
+ */
+final class CompletionRoutingIndex {
+
+    private final List<RoutedCompletionConditionEvaluator> evaluators = new ArrayList<>();
+    /** Per evaluator, the IDs of indexed actions by routing key. */
+    private final Map<RoutedCompletionConditionEvaluator, Map<String, Set<UUID>>> actionsByKey =
+            new IdentityHashMap<>();
+    /** Work queue of each indexed action. */
+    private final Map<UUID, Long> workQueues = new HashMap<>();
+    private boolean stale = true;
+    /** Incremented on every change of an action's status, work instructions or conditions. */
+    private long version;
+
+    void register(RoutedCompletionConditionEvaluator evaluator) {
+        evaluators.add(evaluator);
+        actionsByKey.put(evaluator, new HashMap<>());
+        invalidate();
+    }
+
+    /** Marks the index out of date until the next {@link #clear()} and rebuild. */
+    void invalidate() {
+        stale = true;
+        version++;
+    }
+
+    boolean isStale() {
+        return stale;
+    }
+
+    /** Empties the index for a rebuild, after which it is kept up to date again. */
+    void clear() {
+        for (Map<String, Set<UUID>> byKey : actionsByKey.values()) {
+            byKey.clear();
+        }
+        workQueues.clear();
+        stale = false;
+    }
+
+    /**
+     * Counts changes that can alter the result of a state-based evaluator, so it can be
+     * skipped when nothing changed since its last run.
+     */
+    long version() {
+        return version;
+    }
+
+    boolean isEmpty() {
+        return workQueues.isEmpty();
+    }
+
+    /**
+     * Re-indexes an action after it changed.
+     *
+     * @param workQueueId the work queue of the action's schedule
+     * @param previous the action before the change, or null if it is new
+     * @param previousStatus the status before the change, or null if the action is new
+     * @param next the action after the change
+     * @param nextStatus the status after the change
+     */
+    void update(long workQueueId, Action previous, ActionStatus previousStatus, Action next, ActionStatus nextStatus) {
+        boolean sameInputs = previous != null
+                && Objects.equals(previous.workInstructions(), next.workInstructions())
+                && Objects.equals(previous.completionConditions(), next.completionConditions());
+        if (!sameInputs || previousStatus != nextStatus) {
+            version++;
+        }
+        if (stale) {
+            return;
+        }
+        boolean wasIndexed = previous != null && isIndexed(previous, previousStatus);
+        boolean indexed = isIndexed(next, nextStatus);
+        if (wasIndexed && indexed && sameInputs) {
+            return;
+        }
+        if (wasIndexed) {
+            remove(previous);
+        }
+        if (indexed) {
+            add(workQueueId, next);
+        }
+    }
+
+    /** Returns the IDs of the actions indexed under {@code key} for the evaluator. */
+    Set<UUID> candidates(RoutedCompletionConditionEvaluator evaluator, String key) {
+        return actionsByKey.get(evaluator).getOrDefault(key, Set.of());
+    }
+
+    /** Returns the work queue of an indexed action, or null if it is not indexed. */
+    Long workQueueOf(UUID actionId) {
+        return workQueues.get(actionId);
+    }
+
+    private static boolean isIndexed(Action action, ActionStatus status) {
+        return status == ActionStatus.ACTIVE
+                && action.completionConditions() != null
+                && !action.completionConditions().isEmpty();
+    }
+
+    private void add(long workQueueId, Action action) {
+        workQueues.put(action.id(), workQueueId);
+        for (RoutedCompletionConditionEvaluator evaluator : evaluators) {
+            Map<String, Set<UUID>> byKey = actionsByKey.get(evaluator);
+            for (String key : evaluator.routingKeys(action)) {
+                byKey.computeIfAbsent(key, k -> new HashSet<>()).add(action.id());
+            }
+        }
+    }
+
+    private void remove(Action action) {
+        workQueues.remove(action.id());
+        for (RoutedCompletionConditionEvaluator evaluator : evaluators) {
+            Map<String, Set<UUID>> byKey = actionsByKey.get(evaluator);
+            for (String key : evaluator.routingKeys(action)) {
+                Set<UUID> ids = byKey.get(key);
+                if (ids != null && ids.remove(action.id()) && ids.isEmpty()) {
+                    byKey.remove(key);
+                }
+            }
+        }
+    }
+}
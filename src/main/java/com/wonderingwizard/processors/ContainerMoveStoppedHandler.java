@@ -41,6 +41,11 @@ public class ContainerMoveStoppedHandler implements ScheduleSubProcessor {
     private static final String STATUS_ERROR = "ERROR";
     private static final String STATE_TT_ASSIGNED = "TT_ASSIGNED";
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(ContainerMoveStateEvent.class);
+    }
+
     @Override
     public List<SideEffect> process(Event event, ScheduleContext context) {
         if (!(event instanceof ContainerMoveStateEvent cms)) {
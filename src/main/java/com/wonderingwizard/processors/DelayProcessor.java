@@ -2,8 +2,10 @@ package com.wonderingwizard.processors;
 
 import com.wonderingwizard.domain.takt.Takt;
 import com.wonderingwizard.engine.Event;
-import com.wonderingwizard.engine.EventProcessor;
 import com.wonderingwizard.engine.SideEffect;
+import com.wonderingwizard.engine.SideEffectSink;
+import com.wonderingwizard.engine.UndoJournal;
+import com.wonderingwizard.engine.UndoableEventProcessor;
 import com.wonderingwizard.events.TimeEvent;
 import com.wonderingwizard.events.WorkQueueMessage;
 import com.wonderingwizard.events.WorkQueueStatus;
@@ -19,6 +21,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Processor that calculates schedule delays based on takt execution times.
@@ -40,7 +43,7 @@ import java.util.Map;
  *       Decreases when takts complete faster than their planned duration.</li>
  * </ul>
  */
-public class DelayProcessor implements EventProcessor {
+public class DelayProcessor implements UndoableEventProcessor {
 
     private static class TaktInfo {
         final String name;
@@ -82,6 +85,7 @@ public class DelayProcessor implements EventProcessor {
 
     private final Map<Long, ScheduleDelayState> scheduleStates = new HashMap<>();
     private Instant currentTime = Instant.EPOCH;
+    private UndoJournal undoJournal = new UndoJournal();
 
     @Override
     public List<SideEffect> process(Event event) {
@@ -90,6 +94,7 @@ public class DelayProcessor implements EventProcessor {
         }
         if (event instanceof WorkQueueMessage message
                 && message.status() == WorkQueueStatus.INACTIVE) {
+            undoJournal.recordMapEntry(scheduleStates, message.workQueueId());
             scheduleStates.remove(message.workQueueId());
             return List.of();
         }
@@ -100,11 +105,33 @@ public class DelayProcessor implements EventProcessor {
             return handleTaktCompleted(completed);
         }
         if (event instanceof TimeEvent timeEvent) {
-            return handleTimeEvent(timeEvent);
+            return SideEffectSink.collect(sink -> handleTimeEvent(timeEvent, sink));
         }
         return List.of();
     }
 
+    /**
+     * Handles time events, which arrive every tick, without allocating a result list.
+     */
+    @Override
+    public void process(Event event, SideEffectSink sink) {
+        if (event instanceof TimeEvent timeEvent) {
+            handleTimeEvent(timeEvent, sink);
+        } else {
+            sink.addAll(process(event));
+        }
+    }
+
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(
+                ScheduleCreated.class,
+                WorkQueueMessage.class,
+                TaktActivated.class,
+                TaktCompleted.class,
+                TimeEvent.class);
+    }
+
     private List<SideEffect> handleScheduleCreated(ScheduleCreated created) {
         ScheduleDelayState state = new ScheduleDelayState();
         for (Takt takt : created.takts()) {
@@ -112,6 +139,7 @@ public class DelayProcessor implements EventProcessor {
             state.takts.add(info);
             state.taktByName.put(takt.name(), info);
         }
+        undoJournal.recordMapEntry(scheduleStates, created.workQueueId());
         scheduleStates.put(created.workQueueId(), state);
         return List.of();
     }
@@ -123,6 +151,8 @@ public class DelayProcessor implements EventProcessor {
         }
         TaktInfo takt = state.taktByName.get(activated.taktName());
         if (takt != null) {
+            Instant previous = takt.actualStartTime;
+            undoJournal.record(() -> takt.actualStartTime = previous);
             takt.actualStartTime = activated.activatedAt();
         }
         return List.of();
@@ -135,14 +165,17 @@ public class DelayProcessor implements EventProcessor {
         }
         TaktInfo takt = state.taktByName.get(completed.taktName());
         if (takt != null) {
+            Instant previous = takt.completedAt;
+            undoJournal.record(() -> takt.completedAt = previous);
             takt.completedAt = completed.completedAt();
         }
         return List.of();
     }
 
-    private List<SideEffect> handleTimeEvent(TimeEvent timeEvent) {
+    private void handleTimeEvent(TimeEvent timeEvent, SideEffectSink sink) {
+        Instant previousTime = currentTime;
+        undoJournal.record(() -> currentTime = previousTime);
         this.currentTime = timeEvent.timestamp();
-        List<SideEffect> sideEffects = new ArrayList<>();
 
         for (Map.Entry<Long, ScheduleDelayState> entry : scheduleStates.entrySet()) {
             long workQueueId = entry.getKey();
@@ -151,12 +184,12 @@ public class DelayProcessor implements EventProcessor {
             long totalDelay = calculateTotalDelay(state);
 
             if (totalDelay != state.lastEmittedDelay) {
+                long previousDelay = state.lastEmittedDelay;
+                undoJournal.record(() -> state.lastEmittedDelay = previousDelay);
                 state.lastEmittedDelay = totalDelay;
-                sideEffects.add(new DelayUpdated(workQueueId, totalDelay));
+                sink.add(new DelayUpdated(workQueueId, totalDelay));
             }
         }
-
-        return sideEffects;
     }
 
     /**
@@ -203,6 +236,11 @@ public class DelayProcessor implements EventProcessor {
         return -1;
     }
 
+    @Override
+    public void setUndoJournal(UndoJournal journal) {
+        this.undoJournal = journal;
+    }
+
     @Override
     public Object captureState() {
         Map<String, Object> snapshot = new HashMap<>();
@@ -11,13 +11,29 @@ import com.wonderingwizard.engine.SideEffect;
 import com.wonderingwizard.events.DigitalMapEvent;
 import com.wonderingwizard.events.WorkInstructionEvent;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.EOFException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -40,6 +56,12 @@ import java.util.zip.GZIPInputStream;
  * <p>Existing schedules are not affected when a new map arrives. Only schedules
  * created after the map update will use the new map data. If no map has been loaded,
  * the pipeline step passes templates through unchanged.
+ *
+ * <p>With a {@linkplain #setMapLoadingExecutor map loading executor}, maps are loaded off the
+ * event thread into an immutable snapshot that replaces the previous one once complete. A
+ * schedule build is bound to the map of the last map event before it was requested (see
+ * {@link #snapshot()}), so which map a schedule is built from depends only on the order of
+ * events, and replaying the event log gives the same schedules.
  */
 public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep {
 
@@ -48,14 +70,70 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
     private static final double DEFAULT_SPEED_KMH = 10.0;
 
     private record NodeCoord(double lat, double lon) {}
-    record GraphEdge(String toNodeId, double durationSeconds, int priority) {
-        /** Weight used for pathfinding: duration × priority (matching C# WeightCalculator). */
-        double weight() { return (durationSeconds / 60.0) * priority; }
+    /** A node or way of the layout with its tags; {@code refs} are the node references of a way. */
+    private record OsmElement(String id, Map<String, String> tags, List<String> refs) {}
+    /**
+     * What the graph is built from: the coordinates of all nodes, the POI destination nodes
+     * and the highway ways, in document order.
+     */
+    private record OsmData(Map<String, NodeCoord> nodeCoords, List<OsmElement> poiNodes, List<OsmElement> highways) {}
+
+    /**
+     * Everything derived from one digital map. Immutable, so it is read from any thread and
+     * shared by state snapshots; {@link #EMPTY} stands for no map loaded.
+     *
+     * @param poiDurations precomputed POI-to-POI durations in seconds (-1 if unreachable)
+     * @param graph the road graph, retained for on-demand pathfinding (path reconstruction)
+     * @param poiToRoadNode POI name → index of its road node in {@code graph}
+     * @param standbyLocations POI name → standby POI name, as declared by apmt_poi_standby_bay tag (20ft)
+     * @param standbyLocations40 POI name → standby POI name for 40ft containers, as declared by
+     *        apmt_poi_standby_bay_40 tag
+     */
+    private record MapSnapshot(boolean loaded, PoiDurationMatrix poiDurations, RoadGraph graph,
+                               Map<String, Integer> poiToRoadNode, List<PoiInfo> pois, List<RoadSegment> roadSegments,
+                               Map<String, String> standbyLocations, Map<String, String> standbyLocations40) {
+        static final MapSnapshot EMPTY = new MapSnapshot(false, PoiDurationMatrix.EMPTY, RoadGraph.EMPTY,
+                Map.of(), List.of(), List.of(), Map.of(), Map.of());
+
+        int duration(String fromName, String toName) {
+            if (!loaded || fromName == null || toName == null) {
+                return -1;
+            }
+            if (fromName.equals(toName)) {
+                return 0;
+            }
+            return poiDurations.duration(fromName, toName);
+        }
+
+        String standbyLocation(String poiName) {
+            if (!loaded || poiName == null || poiName.isBlank()) {
+                return null;
+            }
+            return standbyLocations.get(poiName);
+        }
+
+        String standbyLocation40(String poiName) {
+            if (!loaded || poiName == null || poiName.isBlank()) {
+                return null;
+            }
+            return standbyLocations40.get(poiName);
+        }
     }
 
-    /** Precomputed POI-to-POI durations: "fromName\0toName" → duration in seconds (-1 if unreachable) */
-    private final Map<String, Integer> poiDurations = new HashMap<>();
-    private boolean mapLoaded = false;
+    /**
+     * The map as of the last processed map event, still being loaded if a
+     * {@linkplain #setMapLoadingExecutor map loading executor} is set. Schedule creation waits
+     * for it, so schedules are built from the same map whether or not it was loaded in the
+     * background.
+     */
+    private volatile CompletableFuture<MapSnapshot> map = CompletableFuture.completedFuture(MapSnapshot.EMPTY);
+    /** The latest map that finished loading, answered to queries from outside the engine. */
+    private volatile MapSnapshot published = MapSnapshot.EMPTY;
+    private Executor mapLoadingExecutor;
+    /** Directory the POI durations are cached in across restarts, or null. */
+    private Path durationCacheDirectory;
+    /** Incremented whenever the map data changes, see {@link #inputsVersion()}. Event thread only. */
+    private long mapVersion;
 
     private static final String POI_TAG_NAME = "name";
     private static final String POI_ALT_NAME_TAG = "alt_name";
@@ -71,16 +149,28 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
     public record PoiInfo(String name, double lat, double lon) {}
     public record RoadSegment(double lat1, double lon1, double lat2, double lon2, double speedKmh, boolean oneway,
                                   String highway, String name, int lanes, int priority) {}
-    private final List<PoiInfo> pois = new ArrayList<>();
-    private final List<RoadSegment> roadSegments = new ArrayList<>();
-    /** POI name → standby POI name, as declared by apmt_poi_standby_bay tag (20ft) */
-    private final Map<String, String> standbyLocations = new HashMap<>();
-    /** POI name → standby POI name for 40ft containers, as declared by apmt_poi_standby_bay_40 tag */
-    private final Map<String, String> standbyLocations40 = new HashMap<>();
-    /** Retained graph and node coordinates for on-demand pathfinding (path reconstruction) */
-    private Map<String, List<GraphEdge>> graph = Map.of();
-    private Map<String, NodeCoord> nodeCoords = Map.of();
-    private Map<String, String> poiToRoadNode = Map.of();
+
+    /**
+     * Loads maps on the given executor instead of the event thread. The map event then returns
+     * at once; queries keep answering from the previous map until the new one is loaded, while
+     * schedule creation waits for it.
+     *
+     * @param executor the executor to load maps on, or null to load them on the event thread
+     */
+    public void setMapLoadingExecutor(Executor executor) {
+        this.mapLoadingExecutor = executor;
+    }
+
+    /**
+     * Keeps the precomputed POI durations in a file in the given directory, named after a hash
+     * of the map payload; the file of the previous map is replaced. Loading the same map again, e.g. after a restart, memory-maps the file
+     * instead of computing the durations; the layout is still parsed for the road graph.
+     *
+     * @param directory the cache directory, created when first written, or null to disable caching
+     */
+    public void setDurationCacheDirectory(Path directory) {
+        this.durationCacheDirectory = directory;
+    }
 
     @Override
     public List<SideEffect> process(Event event) {
@@ -90,141 +180,315 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
         return List.of();
     }
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(DigitalMapEvent.class);
+    }
+
     /**
-     * Parses the digital map payload. The payload is a JSON object with a
-     * {@code terminalLayout} field containing base64-encoded gzip-compressed OSM XML.
+     * Replaces the map with the one in the payload, loading it on the
+     * {@linkplain #setMapLoadingExecutor map loading executor} if one is set.
      */
     void parseMap(String payload) {
-        poiDurations.clear();
-        pois.clear();
-        roadSegments.clear();
-        standbyLocations.clear();
-        standbyLocations40.clear();
-        mapLoaded = false;
+        mapVersion++;
+        Path cacheDirectory = durationCacheDirectory;
+        if (mapLoadingExecutor == null) {
+            setMap(CompletableFuture.completedFuture(loadMap(payload, cacheDirectory)));
+            return;
+        }
+        setMap(CompletableFuture.supplyAsync(() -> loadMap(payload, cacheDirectory), mapLoadingExecutor)
+                .exceptionally(e -> {
+                    logger.warning("Could not load digital map: " + e);
+                    return MapSnapshot.EMPTY;
+                }));
+    }
 
+    private synchronized void setMap(CompletableFuture<MapSnapshot> loading) {
+        map = loading;
+        loading.thenAccept(snapshot -> publish(loading, snapshot));
+    }
+
+    /** Publishes a loaded map unless a later map event replaced it in the meantime. */
+    private synchronized void publish(CompletableFuture<MapSnapshot> loading, MapSnapshot snapshot) {
+        if (map == loading) {
+            published = snapshot;
+        }
+    }
+
+    /**
+     * Parses the digital map payload. The payload is a JSON object with a
+     * {@code terminalLayout} field containing base64-encoded gzip-compressed OSM XML.
+     * Reads no processor state, so it can run on any thread.
+     */
+    private MapSnapshot loadMap(String payload, Path cacheDirectory) {
         if (payload == null || payload.isBlank()) {
             logger.warning("Empty digital map payload");
-            return;
+            return MapSnapshot.EMPTY;
         }
 
-        String osmXml = extractAndDecompressLayout(payload);
-        if (osmXml == null || osmXml.isEmpty()) {
+        OsmData osm = readLayout(payload);
+        if (osm == null) {
             logger.warning("Could not extract terminal layout from digital map payload");
-            return;
+            return MapSnapshot.EMPTY;
         }
 
-        buildGraphAndPrecompute(osmXml);
-        mapLoaded = true;
-        logger.info("Digital map loaded: " + poiDurations.size() + " precomputed POI pairs");
+        var durationCache = cacheDirectory != null ? new DurationCache(cacheDirectory, payload) : null;
+        MapSnapshot snapshot = buildGraphAndPrecompute(osm, durationCache);
+        logger.info("Digital map loaded: " + snapshot.poiDurations().size() * snapshot.poiDurations().size()
+                + " precomputed POI pairs");
+        return snapshot;
     }
 
-    private String extractAndDecompressLayout(String payload) {
+    /**
+     * Reads the layout from the payload in one pass: the base64 text is read in place from the
+     * payload and decoded, gunzipped and parsed as it is read, so neither the base64 text nor the
+     * compressed or XML document is copied.
+     *
+     * <p>A truncated gzip stream, or XML that is garbled towards the end, keeps what was read
+     * up to that point, like the full layouts the producer sometimes cuts off.
+     *
+     * @return the layout, or null if the payload has no layout or it cannot be decoded
+     */
+    private OsmData readLayout(String payload) {
         // Extract terminalLayout field from JSON
-        String layoutB64 = extractJsonString(payload, "terminalLayout");
+        CharSequence layoutB64 = extractJsonString(payload, "terminalLayout");
         if (layoutB64 == null || layoutB64.isEmpty()) {
             logger.warning("Digital map payload missing 'terminalLayout' field");
             return null;
         }
 
-        try {
-            // Strip any whitespace/newlines that might be in the base64 string
-            layoutB64 = layoutB64.replaceAll("\\s", "");
-            // Try decoding, adding padding if needed (some encoders omit trailing '=')
-            byte[] compressed = decodeBase64Lenient(layoutB64);
-            return decompressGzip(compressed);
+        XMLStreamReader reader = null;
+        try (var xml = new TruncationTolerantInputStream(new GZIPInputStream(new Base64TextInputStream(layoutB64)))) {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(xml);
+            return readOsm(reader);
+        } catch (XMLStreamException e) {
+            if (e.getNestedException() instanceof IOException || e.getCause() instanceof IOException) {
+                logger.warning("Failed to decode/decompress terminal layout: " + e.getMessage());
+            } else {
+                logger.warning("Failed to parse terminal layout: " + e.getMessage());
+            }
+            return null;
         } catch (Exception e) {
             logger.warning("Failed to decode/decompress terminal layout: " + e.getMessage());
             return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                }
+            }
         }
     }
 
-    private static byte[] decodeBase64Lenient(String b64) {
-        // Some encoders produce concatenated base64 segments (e.g., "...AA==51W...").
-        // .NET's Convert.FromBase64String handles this transparently; Java does not.
-        // Split on segment boundaries (padding followed by non-padding), decode each,
-        // and concatenate the results.
-        var segments = b64.split("(?<==)(?=[^=])");
-        if (segments.length == 1) {
-            return Base64.getDecoder().decode(padBase64(b64));
+    /**
+     * Decodes base64 text that may consist of several concatenated segments, each with its own
+     * padding (e.g., "...AA==51W..."). .NET's Convert.FromBase64String handles this
+     * transparently; Java's decoder stops at the first padding. Whitespace is skipped.
+     */
+    private static final class Base64TextInputStream extends InputStream {
+        private final CharSequence text;
+        private int position;
+        private InputStream segment;
+
+        Base64TextInputStream(CharSequence text) {
+            this.text = text;
         }
-        var baos = new ByteArrayOutputStream();
-        for (var segment : segments) {
-            byte[] decoded = Base64.getDecoder().decode(padBase64(segment));
-            baos.writeBytes(decoded);
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n == -1 ? -1 : single[0] & 0xff;
         }
-        return baos.toByteArray();
-    }
 
-    private static String padBase64(String b64) {
-        String stripped = b64.replaceAll("=+$", "");
-        int remainder = stripped.length() % 4;
-        return switch (remainder) {
-            case 2 -> stripped + "==";
-            case 3 -> stripped + "=";
-            default -> stripped;
-        };
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            while (true) {
+                if (segment == null) {
+                    skipWhitespace();
+                    if (position >= text.length()) {
+                        return -1;
+                    }
+                    segment = Base64.getDecoder().wrap(new SegmentText());
+                }
+                int n = segment.read(buffer, offset, length);
+                if (n != -1) {
+                    return n;
+                }
+                segment = null;
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        /** The characters of the current segment, without whitespace and padding. */
+        private final class SegmentText extends InputStream {
+            private boolean padding;
+
+            @Override
+            public int read() {
+                while (position < text.length()) {
+                    char c = text.charAt(position);
+                    if (Character.isWhitespace(c)) {
+                        position++;
+                    } else if (c == '=') {
+                        padding = true;
+                        position++;
+                    } else if (padding) {
+                        return -1;
+                    } else {
+                        position++;
+                        return c;
+                    }
+                }
+                return -1;
+            }
+        }
     }
 
-    private String decompressGzip(byte[] compressed) throws IOException {
-        try (var bais = new ByteArrayInputStream(compressed);
-             var gzis = new GZIPInputStream(bais);
-             var baos = new ByteArrayOutputStream()) {
-            byte[] buffer = new byte[8192];
+    /** Ends the stream where the gzip data is truncated instead of failing. */
+    private static final class TruncationTolerantInputStream extends FilterInputStream {
+
+        TruncationTolerantInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
             try {
-                int len;
-                while ((len = gzis.read(buffer)) != -1) {
-                    baos.write(buffer, 0, len);
-                }
-            } catch (java.io.EOFException e) {
-                // Truncated gzip stream — use what we have
-                logger.fine("Truncated gzip stream, using partial data (" + baos.size() + " bytes)");
+                return super.read();
+            } catch (EOFException e) {
+                logger.fine("Truncated gzip stream, using partial data");
+                return -1;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                return super.read(buffer, offset, length);
+            } catch (EOFException e) {
+                logger.fine("Truncated gzip stream, using partial data");
+                return -1;
             }
-            return baos.toString(java.nio.charset.StandardCharsets.UTF_8);
         }
     }
 
     // ── OSM XML Parsing ──────────────────────────────────────────────
 
-    private static final Pattern NODE_PATTERN = Pattern.compile(
-            "<node\\s+([^>]*)/?>");
-    private static final Pattern NODE_WITH_TAGS_PATTERN = Pattern.compile(
-            "<node\\s+id=\"(\\d+)\"[^>/]*>(.*?)</node>", Pattern.DOTALL);
-    private static final Pattern WAY_PATTERN = Pattern.compile(
-            "<way\\s+id=\"\\d+\"[^>]*>(.*?)</way>", Pattern.DOTALL);
-    private static final Pattern TAG_PATTERN = Pattern.compile(
-            "<tag\\s+k=\"([^\"]+)\"\\s+v=\"([^\"]+)\"\\s*/>");
-    private static final Pattern ND_REF_PATTERN = Pattern.compile(
-            "<nd\\s+ref=\"(\\d+)\"\\s*/>");
-    private static final Pattern ATTR_ID = Pattern.compile("id=\"(\\d+)\"");
-    private static final Pattern ATTR_LAT = Pattern.compile("lat=\"([^\"]+)\"");
-    private static final Pattern ATTR_LON = Pattern.compile("lon=\"([^\"]+)\"");
-
-    private void buildGraphAndPrecompute(String osmXml) {
-        // Step 1: Parse all node coordinates
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private static XMLInputFactory createXmlInputFactory() {
+        var factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Reads the nodes and ways of an OSM document. Only what the graph needs is kept: the
+     * coordinates of every node, and the tags of POI destination nodes and highway ways.
+     */
+    private static OsmData readOsm(XMLStreamReader reader) throws XMLStreamException {
         var nodeCoords = new HashMap<String, NodeCoord>();
-        Matcher nodeMatcher = NODE_PATTERN.matcher(osmXml);
-        while (nodeMatcher.find()) {
-            String attrs = nodeMatcher.group(1);
-            Matcher idM = ATTR_ID.matcher(attrs);
-            Matcher latM = ATTR_LAT.matcher(attrs);
-            Matcher lonM = ATTR_LON.matcher(attrs);
-            if (idM.find() && latM.find() && lonM.find()) {
-                nodeCoords.put(idM.group(1),
-                        new NodeCoord(Double.parseDouble(latM.group(1)), Double.parseDouble(lonM.group(1))));
+        var poiNodes = new ArrayList<OsmElement>();
+        var highways = new ArrayList<OsmElement>();
+        // The node or way being read; refs is null while reading a node
+        String id = null;
+        Map<String, String> tags = null;
+        List<String> refs = null;
+        boolean started = false;
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    started = true;
+                    switch (reader.getLocalName()) {
+                        case "node" -> {
+                            id = reader.getAttributeValue(null, "id");
+                            String lat = reader.getAttributeValue(null, "lat");
+                            String lon = reader.getAttributeValue(null, "lon");
+                            if (id != null && lat != null && lon != null) {
+                                try {
+                                    nodeCoords.put(id, new NodeCoord(Double.parseDouble(lat), Double.parseDouble(lon)));
+                                } catch (NumberFormatException e) {
+                                    logger.fine("Skipping node " + id + " with invalid coordinates");
+                                }
+                            }
+                            tags = new HashMap<>();
+                            refs = null;
+                        }
+                        case "way" -> {
+                            id = reader.getAttributeValue(null, "id");
+                            tags = new HashMap<>();
+                            refs = new ArrayList<>();
+                        }
+                        case "nd" -> {
+                            String ref = reader.getAttributeValue(null, "ref");
+                            if (refs != null && ref != null) {
+                                refs.add(ref);
+                            }
+                        }
+                        case "tag" -> {
+                            String key = reader.getAttributeValue(null, "k");
+                            String value = reader.getAttributeValue(null, "v");
+                            if (tags != null && key != null && !key.isEmpty() && value != null && !value.isEmpty()) {
+                                tags.put(key, value);
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && tags != null) {
+                    switch (reader.getLocalName()) {
+                        case "node" -> {
+                            if ("apmt_poi_destination".equals(tags.get("amenity"))) {
+                                poiNodes.add(new OsmElement(id, tags, List.of()));
+                            }
+                            tags = null;
+                        }
+                        case "way" -> {
+                            if (tags.containsKey("highway")) {
+                                highways.add(new OsmElement(id, tags, refs));
+                            }
+                            tags = null;
+                            refs = null;
+                        }
+                        default -> {
+                        }
+                    }
+                }
             }
+        } catch (XMLStreamException e) {
+            // The layout is often truncated, producing garbled XML at the tail: keep what was read,
+            // dropping the element in progress. Decoding errors and empty documents are failures.
+            if (!started || e.getNestedException() instanceof IOException || e.getCause() instanceof IOException) {
+                throw e;
+            }
+            logger.fine("Terminal layout ends in malformed XML, using partial data: " + e.getMessage());
         }
+        return new OsmData(nodeCoords, poiNodes, highways);
+    }
+
+    private MapSnapshot buildGraphAndPrecompute(OsmData osm, DurationCache durationCache) {
+        // Step 1: Node coordinates, read while streaming the layout
+        var nodeCoords = osm.nodeCoords();
+        var pois = new ArrayList<PoiInfo>();
+        var roadSegments = new ArrayList<RoadSegment>();
+        var standbyLocations = new HashMap<String, String>();
+        var standbyLocations40 = new HashMap<String, String>();
 
-        // Step 2: Parse POI destination nodes (nodes with amenity=apmt_poi_destination)
+        // Step 2: POI destination nodes (nodes with amenity=apmt_poi_destination)
         // Each node can have a name (20ft) and alt_name (40ft), each with its own standby tag.
         var poiNameToNodeId = new HashMap<String, String>();
-        Matcher nodeWithTagsMatcher = NODE_WITH_TAGS_PATTERN.matcher(osmXml);
-        while (nodeWithTagsMatcher.find()) {
-            String nodeId = nodeWithTagsMatcher.group(1);
-            String content = nodeWithTagsMatcher.group(2);
-            var tags = parseTags(content);
-            if (!"apmt_poi_destination".equals(tags.get("amenity"))) {
-                continue;
-            }
+        for (var poiNode : osm.poiNodes()) {
+            String nodeId = poiNode.id();
+            var tags = poiNode.tags();
 
             // Primary POI (name tag, apmt_poi_standby_bay)
             String poiName = tags.get(POI_TAG_NAME);
@@ -256,17 +520,12 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
             }
         }
 
-        // Step 3: Parse highway ways and build road graph
-        var graphLocal = new HashMap<String, List<GraphEdge>>();
+        // Step 3: Build the road graph from the highway ways
+        var graphBuilder = new RoadGraph.Builder();
         var roadNodeIds = new java.util.HashSet<String>();
-        Matcher wayMatcher = WAY_PATTERN.matcher(osmXml);
-        while (wayMatcher.find()) {
-            String content = wayMatcher.group(1);
-            var tags = parseTags(content);
+        for (var way : osm.highways()) {
+            var tags = way.tags();
             String highwayValue = tags.get("highway");
-            if (highwayValue == null) {
-                continue;
-            }
             // Skip ways with corrupted tags (from truncated gzip decompression).
             // The gzip stream is often truncated, producing garbled XML at the tail.
             // Detect corruption by checking: (1) tag keys contain only valid chars,
@@ -290,7 +549,7 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
             double speedMs = speedKmh * 1000.0 / 3600.0;
             boolean oneway = "yes".equals(tags.get("oneway"));
 
-            List<String> refs = parseNdRefs(content);
+            List<String> refs = way.refs();
             roadNodeIds.addAll(refs);
 
             for (int i = 0; i < refs.size() - 1; i++) {
@@ -319,11 +578,11 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
                 roadSegments.add(new RoadSegment(c1.lat(), c1.lon(), c2.lat(), c2.lon(), speedKmh, oneway,
                         tags.getOrDefault("highway", ""), roadName, lanesCount, routePriority));
 
-                graphLocal.computeIfAbsent(n1, k -> new ArrayList<>())
-                        .add(new GraphEdge(n2, durationSec, routePriority));
+                int from = graphBuilder.addNode(n1, c1.lat(), c1.lon());
+                int to = graphBuilder.addNode(n2, c2.lat(), c2.lon());
+                graphBuilder.addEdge(from, to, durationSec, routePriority);
                 if (!oneway) {
-                    graphLocal.computeIfAbsent(n2, k -> new ArrayList<>())
-                            .add(new GraphEdge(n1, durationSec, routePriority));
+                    graphBuilder.addEdge(to, from, durationSec, routePriority);
                 }
             }
         }
@@ -374,68 +633,113 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
         }
 
         // Step 5: Precompute all POI-to-POI shortest path durations
-        // Run Dijkstra once from each unique road node that a POI maps to,
-        // then populate the lookup table.
-        var roadNodeToPois = new HashMap<String, List<String>>();
+        // Every POI is routed from its road node, or from its own node if it could not be
+        // snapped; those are added to the graph so each POI has an index.
+        var poiNameToRoadNode = new HashMap<String, Integer>();
         for (var entry : poiNameToNodeId.entrySet()) {
-            String roadNode = poiToRoadNodeLocal.get(entry.getValue());
-            if (roadNode == null) {
-                roadNode = entry.getValue();
+            String roadNodeId = poiToRoadNodeLocal.getOrDefault(entry.getValue(), entry.getValue());
+            NodeCoord coord = nodeCoords.get(roadNodeId);
+            int roadNode = graphBuilder.addNode(roadNodeId,
+                    coord != null ? coord.lat() : Double.NaN, coord != null ? coord.lon() : Double.NaN);
+            poiNameToRoadNode.put(entry.getKey(), roadNode);
+        }
+        RoadGraph roadGraph = graphBuilder.build();
+        PoiDurationMatrix durations = durationCache != null ? durationCache.read(poiNameToRoadNode.keySet()) : null;
+        if (durations == null) {
+            durations = PoiDurationMatrix.compute(roadGraph, poiNameToRoadNode);
+            if (durationCache != null) {
+                durationCache.write(durations);
             }
-            roadNodeToPois.computeIfAbsent(roadNode, k -> new ArrayList<>()).add(entry.getKey());
         }
 
-        // Collect all target road nodes for early termination
-        var allPoiRoadNodes = new java.util.HashSet<>(roadNodeToPois.keySet());
-
-        for (var entry : roadNodeToPois.entrySet()) {
-            String sourceRoadNode = entry.getKey();
-            List<String> sourcePoiNames = entry.getValue();
+        return new MapSnapshot(true, durations, roadGraph, Map.copyOf(poiNameToRoadNode), List.copyOf(pois),
+                List.copyOf(roadSegments), Map.copyOf(standbyLocations), Map.copyOf(standbyLocations40));
+    }
 
-            // Single-source Dijkstra from this road node to all reachable road nodes
-            var dist = dijkstraAll(graphLocal, sourceRoadNode, allPoiRoadNodes);
+    /**
+     * The cached POI durations of one map payload, in a file named after the payload's hash.
+     * Failing to read or write the cache only costs the precompute, so errors are logged and
+     * otherwise ignored.
+     */
+    private static final class DurationCache {
+        private static final String FILE_PREFIX = "poi-durations-";
+        private static final String FILE_SUFFIX = ".bin";
+        /** Chars encoded per digest update, so the payload is never copied as a whole. */
+        private static final int HASH_CHUNK_SIZE = 8192;
+
+        private final Path directory;
+        private final String key;
+        private final Path file;
+
+        DurationCache(Path directory, String payload) {
+            this.directory = directory;
+            this.key = sha256(payload);
+            this.file = directory.resolve(FILE_PREFIX + key + FILE_SUFFIX);
+        }
 
-            // Populate duration lookup for each source POI → all target POIs
-            for (String fromName : sourcePoiNames) {
-                for (var targetEntry : roadNodeToPois.entrySet()) {
-                    String targetRoadNode = targetEntry.getKey();
-                    Double d = dist.get(targetRoadNode);
-                    int duration = d != null ? (int) Math.round(d) : -1;
-                    for (String toName : targetEntry.getValue()) {
-                        poiDurations.put(durationKey(fromName, toName), duration);
-                    }
+        /** Returns the cached durations, or null if there are none for the payload and these POIs. */
+        PoiDurationMatrix read(Set<String> poiNames) {
+            try {
+                PoiDurationMatrix matrix = PoiDurationMatrix.read(file, key);
+                if (matrix != null && matrix.poiNames().equals(poiNames)) {
+                    logger.info("Using cached POI durations from " + directory);
+                    return matrix;
                 }
+            } catch (IOException e) {
+                logger.warning("Could not read cached POI durations: " + e.getMessage());
             }
+            return null;
         }
 
-        // Retain graph and coordinates for on-demand path reconstruction
-        this.graph = graphLocal;
-        this.nodeCoords = nodeCoords;
-        // Build POI name → road node mapping (for path queries by POI name)
-        var poiNameToRoadNode = new HashMap<String, String>();
-        for (var entry : poiNameToNodeId.entrySet()) {
-            String roadNode = poiToRoadNodeLocal.get(entry.getValue());
-            poiNameToRoadNode.put(entry.getKey(), roadNode != null ? roadNode : entry.getValue());
+        void write(PoiDurationMatrix matrix) {
+            try {
+                Files.createDirectories(directory);
+                matrix.write(file, key);
+                deleteStaleFiles();
+            } catch (IOException e) {
+                logger.warning("Could not cache POI durations: " + e.getMessage());
+            }
         }
-        this.poiToRoadNode = poiNameToRoadNode;
-    }
 
-    private Map<String, String> parseTags(String content) {
-        var tags = new HashMap<String, String>();
-        Matcher m = TAG_PATTERN.matcher(content);
-        while (m.find()) {
-            tags.put(m.group(1), m.group(2));
+        /** Deletes the files of earlier maps, so the directory holds one map however often it changes. */
+        private void deleteStaleFiles() throws IOException {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+                for (Path stale : files) {
+                    if (!stale.equals(file)) {
+                        Files.deleteIfExists(stale);
+                    }
+                }
+            }
         }
-        return tags;
-    }
 
-    private List<String> parseNdRefs(String content) {
-        var refs = new ArrayList<String>();
-        Matcher m = ND_REF_PATTERN.matcher(content);
-        while (m.find()) {
-            refs.add(m.group(1));
+        /**
+         * Hashes the UTF-8 encoding of the payload, encoding it chunk by chunk into a small
+         * buffer instead of into one byte array the size of the payload.
+         */
+        private static String sha256(CharSequence payload) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                CharBuffer chars = CharBuffer.wrap(payload);
+                ByteBuffer bytes = ByteBuffer.allocate((int) (HASH_CHUNK_SIZE * encoder.maxBytesPerChar()));
+                CoderResult result;
+                do {
+                    result = encoder.encode(chars, bytes, true);
+                    digest.update(bytes.flip());
+                    bytes.clear();
+                } while (result.isOverflow());
+                do {
+                    result = encoder.flush(bytes);
+                    digest.update(bytes.flip());
+                    bytes.clear();
+                } while (result.isOverflow());
+                return HexFormat.of().formatHex(digest.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
         }
-        return refs;
     }
 
     // ── Geo helpers ──────────────────────────────────────────────────
@@ -465,17 +769,7 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
      * @return the total travel duration in seconds, or -1 if no path exists
      */
     public int findPathDuration(String fromName, String toName) {
-        if (!mapLoaded || fromName == null || toName == null) {
-            return -1;
-        }
-        if (fromName.equals(toName)) {
-            return 0;
-        }
-        return poiDurations.getOrDefault(durationKey(fromName, toName), -1);
-    }
-
-    private static String durationKey(String from, String to) {
-        return from + "\0" + to;
+        return published.duration(fromName, toName);
     }
 
     /**
@@ -484,106 +778,27 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
      * @return list of [lat, lon] pairs along the path, or empty list if no path found
      */
     public List<double[]> findPath(String fromName, String toName) {
-        if (!mapLoaded || fromName == null || toName == null || graph.isEmpty()) {
+        MapSnapshot snapshot = published;
+        RoadGraph graph = snapshot.graph();
+        if (!snapshot.loaded() || fromName == null || toName == null || graph.edgeCount() == 0) {
             return List.of();
         }
-        String startNode = poiToRoadNode.get(fromName);
-        String endNode = poiToRoadNode.get(toName);
+        Integer startNode = snapshot.poiToRoadNode().get(fromName);
+        Integer endNode = snapshot.poiToRoadNode().get(toName);
         if (startNode == null || endNode == null) {
             return List.of();
         }
-        if (startNode.equals(endNode)) {
-            NodeCoord c = nodeCoords.get(startNode);
-            return c != null ? List.of(new double[]{c.lat(), c.lon()}) : List.of();
-        }
-
-        // Dijkstra with predecessor tracking
-        var weight = new HashMap<String, Double>();
-        var prev = new HashMap<String, String>();
-        var pq = new PriorityQueue<Map.Entry<String, Double>>(Comparator.comparingDouble(Map.Entry::getValue));
-        weight.put(startNode, 0.0);
-        pq.add(Map.entry(startNode, 0.0));
-
-        while (!pq.isEmpty()) {
-            var current = pq.poll();
-            String node = current.getKey();
-            double w = current.getValue();
-            if (w > weight.getOrDefault(node, Double.MAX_VALUE)) continue;
-            if (node.equals(endNode)) break;
-            for (var edge : graph.getOrDefault(node, List.of())) {
-                double newWeight = w + edge.weight();
-                if (newWeight < weight.getOrDefault(edge.toNodeId(), Double.MAX_VALUE)) {
-                    weight.put(edge.toNodeId(), newWeight);
-                    prev.put(edge.toNodeId(), node);
-                    pq.add(Map.entry(edge.toNodeId(), newWeight));
-                }
-            }
-        }
-
-        if (!prev.containsKey(endNode)) {
-            return List.of();
-        }
-
-        // Reconstruct path
-        var path = new ArrayList<String>();
-        for (String n = endNode; n != null; n = prev.get(n)) {
-            path.add(n);
-        }
-        java.util.Collections.reverse(path);
 
-        // Convert to coordinates
+        // Convert to coordinates, skipping nodes the layout has none for
         var coords = new ArrayList<double[]>();
-        for (String n : path) {
-            NodeCoord c = nodeCoords.get(n);
-            if (c != null) {
-                coords.add(new double[]{c.lat(), c.lon()});
+        for (int node : graph.path(startNode, endNode)) {
+            if (!Double.isNaN(graph.lat(node))) {
+                coords.add(new double[]{graph.lat(node), graph.lon(node)});
             }
         }
         return coords;
     }
 
-    /**
-     * Single-source Dijkstra that returns actual durations (seconds) to all reachable nodes
-     * in {@code targets}. Routing uses priority-weighted costs (driveTime × priority) to
-     * prefer higher-priority roads, matching the C# WeightCalculator behaviour.
-     * Stops early once all targets have been settled.
-     */
-    private static Map<String, Double> dijkstraAll(
-            Map<String, List<GraphEdge>> graph, String start, java.util.Set<String> targets) {
-        var weight = new HashMap<String, Double>();   // weighted cost used for routing
-        var duration = new HashMap<String, Double>(); // actual travel duration in seconds
-        var pq = new PriorityQueue<Map.Entry<String, Double>>(Comparator.comparingDouble(Map.Entry::getValue));
-        weight.put(start, 0.0);
-        duration.put(start, 0.0);
-        pq.add(Map.entry(start, 0.0));
-        int settled = 0;
-        int targetCount = targets.size();
-
-        while (!pq.isEmpty() && settled < targetCount) {
-            var current = pq.poll();
-            String node = current.getKey();
-            double w = current.getValue();
-
-            if (w > weight.getOrDefault(node, Double.MAX_VALUE)) {
-                continue;
-            }
-            if (targets.contains(node)) {
-                settled++;
-            }
-
-            for (var edge : graph.getOrDefault(node, List.of())) {
-                double newWeight = w + edge.weight();
-                if (newWeight < weight.getOrDefault(edge.toNodeId(), Double.MAX_VALUE)) {
-                    weight.put(edge.toNodeId(), newWeight);
-                    duration.put(edge.toNodeId(), duration.get(node) + edge.durationSeconds());
-                    pq.add(Map.entry(edge.toNodeId(), newWeight));
-                }
-            }
-        }
-
-        return duration;
-    }
-
     // ── SchedulePipelineStep ─────────────────────────────────────────
 
     private static final String BERTH_POI = "B52";
@@ -596,7 +811,37 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
             List<GraphScheduleBuilder.ActionTemplate> templates,
             WorkInstructionEvent workInstruction
     ) {
-        if (!mapLoaded) {
+        return snapshot().enrichTemplates(context, templates, workInstruction);
+    }
+
+    /**
+     * Returns the step bound to the map as of the last processed map event, waiting for it to
+     * load when templates are enriched.
+     */
+    @Override
+    public SchedulePipelineStep snapshot() {
+        return new MapStep(map, mapVersion);
+    }
+
+    /** The pipeline step of one map, see {@link #snapshot()}. */
+    private record MapStep(CompletableFuture<MapSnapshot> map, long inputsVersion) implements SchedulePipelineStep {
+        @Override
+        public List<GraphScheduleBuilder.ActionTemplate> enrichTemplates(
+                EnrichmentContext context,
+                List<GraphScheduleBuilder.ActionTemplate> templates,
+                WorkInstructionEvent workInstruction
+        ) {
+            return enrichFromMap(map.join(), context, templates, workInstruction);
+        }
+    }
+
+    private static List<GraphScheduleBuilder.ActionTemplate> enrichFromMap(
+            MapSnapshot map,
+            EnrichmentContext context,
+            List<GraphScheduleBuilder.ActionTemplate> templates,
+            WorkInstructionEvent workInstruction
+    ) {
+        if (!map.loaded()) {
             return templates;
         }
 
@@ -605,7 +850,7 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
             return templates;
         }
 
-        String standbyPoi = findStandbyLocation(yardPoi);
+        String standbyPoi = map.standbyLocation(yardPoi);
         String bollard = context.bollardPosition();
 
         // --- Circular drive calculation for DSCH ---
@@ -623,7 +868,7 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
             // Drive TO QC: from RTG standby to bollard
             // QC standby = standbyPoi → bollard - 20s pull
             int standbyToBollard = standbyPoi != null
-                    ? findPathDurationOrDefault(standbyPoi, bollard)
+                    ? findPathDurationOrDefault(map, standbyPoi, bollard)
                     : FALLBACK_DURATION;
             qcStandbyDuration = Math.max(1, standbyToBollard - FIXED_DURATION);
 
@@ -633,23 +878,23 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
                 String prevYardPoi = toYardPoi(context.previousToPosition());
                 if (prevYardPoi != null && standbyPoi != null) {
                     rtgStandbyDuration = Math.max(1,
-                            findPathDurationOrDefault(prevYardPoi, standbyPoi) - FIXED_DURATION);
+                            findPathDurationOrDefault(map, prevYardPoi, standbyPoi) - FIXED_DURATION);
                 } else {
                     rtgStandbyDuration = FALLBACK_DURATION;
                 }
             } else {
                 // First container: drive from bollard to RTG standby
                 int bollardToStandby = standbyPoi != null
-                        ? findPathDurationOrDefault(bollard, standbyPoi)
+                        ? findPathDurationOrDefault(map, bollard, standbyPoi)
                         : FALLBACK_DURATION;
                 rtgStandbyDuration = Math.max(1, bollardToStandby - FIXED_DURATION);
             }
         } else {
             // No bollard — fallback to old berth-based logic
-            int yardToBerth = findPathDurationOrDefault(yardPoi, BERTH_POI);
+            int yardToBerth = findPathDurationOrDefault(map, yardPoi, BERTH_POI);
             qcStandbyDuration = Math.max(1, yardToBerth - FIXED_DURATION);
             rtgStandbyDuration = standbyPoi != null
-                    ? findPathDurationOrDefault(BERTH_POI, standbyPoi)
+                    ? findPathDurationOrDefault(map, BERTH_POI, standbyPoi)
                     : FALLBACK_DURATION;
         }
 
@@ -663,7 +908,7 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
      * - Skip conditions: skip ahead if the next position is free
      * QC conditions are added for all load modes, RTG only for DSCH.
      */
-    private List<GraphScheduleBuilder.ActionTemplate> addLocationSkipConditions(
+    private static List<GraphScheduleBuilder.ActionTemplate> addLocationSkipConditions(
             List<GraphScheduleBuilder.ActionTemplate> templates, LoadMode loadMode) {
         var result = new ArrayList<GraphScheduleBuilder.ActionTemplate>(templates.size());
         for (var tmpl : templates) {
@@ -707,15 +952,15 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
         return loc.block() + loc.bay();
     }
 
-    private int findPathDurationOrDefault(String from, String to) {
-        int duration = findPathDuration(from, to);
+    private static int findPathDurationOrDefault(MapSnapshot map, String from, String to) {
+        int duration = map.duration(from, to);
         return duration > 0 ? duration : FALLBACK_DURATION;
     }
 
     /**
      * Sets each TT action duration to the specified value per action type.
      */
-    private List<GraphScheduleBuilder.ActionTemplate> adjustTtDurations(
+    private static List<GraphScheduleBuilder.ActionTemplate> adjustTtDurations(
             List<GraphScheduleBuilder.ActionTemplate> templates,
             int qcStandbyDuration,
             int rtgStandbyDuration) {
@@ -743,16 +988,21 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
         return result;
     }
 
+    @Override
+    public long inputsVersion() {
+        return mapVersion;
+    }
+
     public boolean isMapLoaded() {
-        return mapLoaded;
+        return published.loaded();
     }
 
     public List<PoiInfo> getPois() {
-        return Collections.unmodifiableList(pois);
+        return published.pois();
     }
 
     public List<RoadSegment> getRoadSegments() {
-        return Collections.unmodifiableList(roadSegments);
+        return published.roadSegments();
     }
 
     /**
@@ -763,10 +1013,7 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
      * @return the standby POI name, or null if not found or no standby declared
      */
     public String findStandbyLocation(String poiName) {
-        if (!mapLoaded || poiName == null || poiName.isBlank()) {
-            return null;
-        }
-        return standbyLocations.get(poiName);
+        return published.standbyLocation(poiName);
     }
 
     /**
@@ -777,15 +1024,16 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
      * @return the standby POI name, or null if not found or no standby declared
      */
     public String findStandbyLocation40(String poiName) {
-        if (!mapLoaded || poiName == null || poiName.isBlank()) {
-            return null;
-        }
-        return standbyLocations40.get(poiName);
+        return published.standbyLocation40(poiName);
     }
 
     // ── JSON helpers (no external library) ───────────────────────────
 
-    private String extractJsonString(String json, String key) {
+    /**
+     * Returns the raw value of a string field as a view of {@code json}, without copying it
+     * (escape sequences are not decoded), or null if the field is missing.
+     */
+    private static CharSequence extractJsonString(String json, String key) {
         String searchKey = "\"" + key + "\"";
         int keyIdx = json.indexOf(searchKey);
         if (keyIdx == -1) {
@@ -804,7 +1052,7 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
         while (pos < json.length()) {
             char c = json.charAt(pos);
             if (c == '"') {
-                return json.substring(firstQuote + 1, pos);
+                return CharBuffer.wrap(json, firstQuote + 1, pos);
             }
             if (c == '\\') {
                 pos++; // skip escaped char
@@ -819,10 +1067,7 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
     @Override
     public Object captureState() {
         var state = new HashMap<String, Object>();
-        state.put("poiDurations", new HashMap<>(poiDurations));
-        state.put("standbyLocations", new HashMap<>(standbyLocations));
-        state.put("standbyLocations40", new HashMap<>(standbyLocations40));
-        state.put("mapLoaded", mapLoaded);
+        state.put("map", map);
         return state;
     }
 
@@ -834,28 +1079,11 @@ public class DigitalMapProcessor implements EventProcessor, SchedulePipelineStep
         }
 
         var stateMap = (Map<String, Object>) state;
+        mapVersion++;
 
-        poiDurations.clear();
-        Object durationsState = stateMap.get("poiDurations");
-        if (durationsState instanceof Map) {
-            poiDurations.putAll((Map<String, Integer>) durationsState);
-        }
-
-        standbyLocations.clear();
-        Object standbyState = stateMap.get("standbyLocations");
-        if (standbyState instanceof Map) {
-            standbyLocations.putAll((Map<String, String>) standbyState);
-        }
-
-        standbyLocations40.clear();
-        Object standby40State = stateMap.get("standbyLocations40");
-        if (standby40State instanceof Map) {
-            standbyLocations40.putAll((Map<String, String>) standby40State);
-        }
-
-        Object loadedState = stateMap.get("mapLoaded");
-        if (loadedState instanceof Boolean) {
-            mapLoaded = (Boolean) loadedState;
-        }
+        Object mapState = stateMap.get("map");
+        setMap(mapState instanceof CompletableFuture
+                ? (CompletableFuture<MapSnapshot>) mapState
+                : CompletableFuture.completedFuture(MapSnapshot.EMPTY));
     }
 }
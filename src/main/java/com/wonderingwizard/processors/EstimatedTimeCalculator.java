@@ -8,6 +8,7 @@ import com.wonderingwizard.events.TimeEvent;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Sub-processor that recalculates takt estimated start times on each TimeEvent.
@@ -24,6 +25,11 @@ import java.util.List;
  */
 public class EstimatedTimeCalculator implements ScheduleSubProcessor {
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(TimeEvent.class);
+    }
+
     @Override
     public List<SideEffect> process(Event event, ScheduleContext context) {
         if (!(event instanceof TimeEvent)) {
@@ -1,8 +1,9 @@
 package com.wonderingwizard.processors;
 
 import com.wonderingwizard.engine.Event;
-import com.wonderingwizard.engine.EventProcessor;
 import com.wonderingwizard.engine.SideEffect;
+import com.wonderingwizard.engine.UndoJournal;
+import com.wonderingwizard.engine.UndoableEventProcessor;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -12,17 +13,37 @@ import java.util.List;
  * <p>
  * This processor produces no side effects — its sole purpose is to maintain an ordered
  * event log that can be exported and later imported to restore system state.
+ * <p>
+ * The log is append-only between {@link #clear()} calls, so a snapshot only records the
+ * current list and its length; entries appended later are invisible to it. Clearing or
+ * restoring starts a fresh list so earlier snapshots are never overwritten. Undoing an append
+ * copies the list first if the removed entry is still visible to a snapshot.
  */
-public class EventLogProcessor implements EventProcessor {
+public class EventLogProcessor implements UndoableEventProcessor {
+
+    /** Snapshot of the log: the first {@code size} entries of {@code log}. */
+    private record LogSnapshot(List<Event> log, int size) {}
 
-    private final List<Event> eventLog = new ArrayList<>();
+    private List<Event> eventLog = new ArrayList<>();
+    /** Number of leading entries of {@code eventLog} shared with the latest snapshot. */
+    private int capturedSize;
+    private UndoJournal undoJournal = new UndoJournal();
 
     @Override
     public List<SideEffect> process(Event event) {
         eventLog.add(event);
+        undoJournal.record(this::removeLastEvent);
         return List.of();
     }
 
+    private void removeLastEvent() {
+        if (eventLog.size() <= capturedSize) {
+            eventLog = new ArrayList<>(eventLog);
+            capturedSize = 0;
+        }
+        eventLog.removeLast();
+    }
+
     /**
      * Returns an unmodifiable view of the recorded event log.
      *
@@ -36,21 +57,27 @@ public class EventLogProcessor implements EventProcessor {
      * Clears the event log (used when importing a new event sequence).
      */
     public void clear() {
-        eventLog.clear();
+        eventLog = new ArrayList<>();
+        capturedSize = 0;
+    }
+
+    @Override
+    public void setUndoJournal(UndoJournal journal) {
+        this.undoJournal = journal;
     }
 
     @Override
     public Object captureState() {
-        return new ArrayList<>(eventLog);
+        capturedSize = eventLog.size();
+        return new LogSnapshot(eventLog, capturedSize);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void restoreState(Object state) {
-        if (!(state instanceof List)) {
+        if (!(state instanceof LogSnapshot snapshot)) {
             throw new IllegalArgumentException("Invalid state type for EventLogProcessor");
         }
-        eventLog.clear();
-        eventLog.addAll((List<Event>) state);
+        eventLog = new ArrayList<>(snapshot.log().subList(0, snapshot.size()));
+        capturedSize = 0;
     }
 }
\ No newline at end of file
@@ -15,6 +15,7 @@ import com.wonderingwizard.events.WorkInstructionEvent;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.IntSupplier;
 
 import static com.wonderingwizard.domain.takt.ActionType.*;
@@ -41,6 +42,9 @@ import static com.wonderingwizard.domain.takt.DeviceType.*;
  *   <li>Create Action objects into takts (without dependencies)</li>
  *   <li>Wire dependencies as a post-processing step based on blueprint execution order</li>
  * </ol>
+ *
+ * <p>The blueprints and segments a builder derives are kept for later builds, so a builder is
+ * meant to be long-lived. Concurrent builds may share it.
  */
 public class GraphScheduleBuilder {
 
@@ -49,9 +53,20 @@ public class GraphScheduleBuilder {
     private static final int DRIVE_TIME_MIN_SECONDS = 30;
     private static final int DRIVE_TIME_MAX_SECONDS = 300;
     private static final int DEFAULT_TAKT_DURATION = 120;
+    /** Blueprints with segments kept before the segment cache is cleared. */
+    private static final int MAX_CACHED_SEGMENTS = 4096;
 
     private final IntSupplier driveTimeSupplier;
     private final IntSupplier qcDriveTimeOffsetSupplier;
+    /** First blueprint built per shape, from which the other blueprints of the shape are derived. */
+    private final Map<BlueprintShape, List<ActionTemplate>> blueprintsByShape = new ConcurrentHashMap<>();
+    /** Blueprints by shape and work instruction durations, so that equal containers share one. */
+    private final Map<BlueprintKey, List<ActionTemplate>> blueprints = new ConcurrentHashMap<>();
+    /**
+     * Segments per blueprint, by contents: pipeline steps return new lists, and equal enriched
+     * blueprints of later builds are split once. Cleared when full, since enriched durations vary.
+     */
+    private final Map<List<ActionTemplate>, Map<DeviceType, List<Segment>>> segmentsByBlueprint = new ConcurrentHashMap<>();
 
     public GraphScheduleBuilder(IntSupplier driveTimeSupplier, IntSupplier qcDriveTimeOffsetSupplier) {
         this.driveTimeSupplier = driveTimeSupplier;
@@ -195,6 +210,21 @@ public class GraphScheduleBuilder {
 
     // ── Blueprint ──────────────────────────────────────────────────────
 
+    /** The kinds of container moves, each with its own blueprint. */
+    private enum BlueprintShape {
+        LOAD_SINGLE,
+        DISCHARGE_SINGLE,
+        DISCHARGE_TWIN,
+        LIFT_TWINS_DROP_SINGLES_SAME_BAY,
+        LIFT_TWINS_DROP_SINGLES_DIFFERENT_BAY,
+        LIFT_SINGLES_DROP_SINGLES_SAME_BAY,
+        LIFT_SINGLES_DROP_SINGLES_DIFFERENT_BAY,
+        LIFT_SINGLES_DROP_TWIN
+    }
+
+    /** The work instruction properties a blueprint of a shape depends on. */
+    private record BlueprintKey(BlueprintShape shape, int cycleTimeSeconds, int rtgCycleTimeSeconds) {}
+
     List<ActionTemplate> buildContainerBlueprint(WorkInstructionEvent wi, HashMap<Long, WorkInstructionEvent> workInstructionHashMap, int qcMudaSeconds, LoadMode loadMode) {
         int qcLiftDuration = 20;
         int rtgPlaceDuration = 20;
@@ -204,45 +234,86 @@ public class GraphScheduleBuilder {
                 driveToRtgPull + qcDriveTimeOffsetSupplier.getAsInt(),
                 DRIVE_TIME_MIN_SECONDS, DRIVE_TIME_MAX_SECONDS);
 
-        return switch (loadMode) {
-            case LOAD -> getLoadSingleTemplate(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+        BlueprintShape shape = switch (loadMode) {
+            case LOAD -> BlueprintShape.LOAD_SINGLE;
             case DSCH -> {
                 if (!wi.isTwinCarry()){
-                    yield getDischargeSingleTemplate(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+                    yield BlueprintShape.DISCHARGE_SINGLE;
                 }
                 // Twin companion not in this work queue — fall back to discharge twin (lift twin, put twin)
                 else if (!hasCompanionInQueue(wi, workInstructionHashMap)) {
-                    yield getDischargeTwinTemplate(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+                    yield BlueprintShape.DISCHARGE_TWIN;
                 }
                 //pick as twin, drop as singles in the same bay
                 else if (wi.isTwinFetch() && !wi.isTwinPut() && !isDifferentBay(wi, workInstructionHashMap)) {
-                    yield getDischargeLiftTwinsDropSinglesSameBay(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+                    yield BlueprintShape.LIFT_TWINS_DROP_SINGLES_SAME_BAY;
                 }
                 //pick as twin, drop as singles in different bay
                 else if (wi.isTwinFetch() && !wi.isTwinPut() && isDifferentBay(wi, workInstructionHashMap)) {
-                    yield getDischargeLiftTwinsDropSinglesDifferentBay(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+                    yield BlueprintShape.LIFT_TWINS_DROP_SINGLES_DIFFERENT_BAY;
                 }
                 //pick as twin, drop as twin
                 else if (wi.isTwinFetch() && wi.isTwinPut()) {
-                    yield getDischargeTwinTemplate(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+                    yield BlueprintShape.DISCHARGE_TWIN;
                 }
                 //pick as singles, drop as singles in the same bay
                 else if (!wi.isTwinFetch() && !wi.isTwinPut() && !isDifferentBay(wi, workInstructionHashMap)) {
-                    yield getDischargeLiftSinglesDropSinglesSameBay(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+                    yield BlueprintShape.LIFT_SINGLES_DROP_SINGLES_SAME_BAY;
                 }
                 //pick as singles, drop as singles in a different bay
                 else if (!wi.isTwinFetch() && !wi.isTwinPut() && isDifferentBay(wi, workInstructionHashMap)) {
-                    yield getDischargeLiftSinglesDropSinglesDifferentBay(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+                    yield BlueprintShape.LIFT_SINGLES_DROP_SINGLES_DIFFERENT_BAY;
                 }
                 //pick as singles, drop as twin
                 else if (!wi.isTwinFetch() && wi.isTwinPut()) {
-                    yield getDischargeLiftSinglesDropTwin(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+                    yield BlueprintShape.LIFT_SINGLES_DROP_TWIN;
                 }
                 else {
                     throw new RuntimeException("Unsupported twin fetch");
                 }
             }
         };
+
+        var key = new BlueprintKey(shape, wi.estimatedCycleTimeSeconds(), wi.estimatedRtgCycleTimeSeconds());
+        return blueprints.computeIfAbsent(key, k -> {
+            var shapeBlueprint = blueprintsByShape.get(shape);
+            var blueprint = shapeBlueprint != null
+                    ? withWorkInstructionDurations(shapeBlueprint, wi, qcLiftDuration, rtgPlaceDuration)
+                    : buildBlueprint(shape, wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+            blueprintsByShape.putIfAbsent(shape, blueprint);
+            return blueprint;
+        });
+    }
+
+    private List<ActionTemplate> buildBlueprint(BlueprintShape shape, WorkInstructionEvent wi, int qcLiftDuration, int driveToRtgPull, int driveToUnderRtg, int rtgPlaceDuration, int driveToQcPull) {
+        return switch (shape) {
+            case LOAD_SINGLE -> getLoadSingleTemplate(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+            case DISCHARGE_SINGLE -> getDischargeSingleTemplate(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+            case DISCHARGE_TWIN -> getDischargeTwinTemplate(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+            case LIFT_TWINS_DROP_SINGLES_SAME_BAY -> getDischargeLiftTwinsDropSinglesSameBay(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+            case LIFT_TWINS_DROP_SINGLES_DIFFERENT_BAY -> getDischargeLiftTwinsDropSinglesDifferentBay(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+            case LIFT_SINGLES_DROP_SINGLES_SAME_BAY -> getDischargeLiftSinglesDropSinglesSameBay(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+            case LIFT_SINGLES_DROP_SINGLES_DIFFERENT_BAY -> getDischargeLiftSinglesDropSinglesDifferentBay(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+            case LIFT_SINGLES_DROP_TWIN -> getDischargeLiftSinglesDropTwin(wi, qcLiftDuration, driveToRtgPull, driveToUnderRtg, rtgPlaceDuration, driveToQcPull);
+        };
+    }
+
+    /**
+     * Returns a blueprint of the same shape with the durations the work instruction determines:
+     * the QC lifts take the QC cycle and the RTG fetch the RTG cycle, less the fixed handover parts.
+     * All other durations are the same for every container of a shape.
+     */
+    private static List<ActionTemplate> withWorkInstructionDurations(List<ActionTemplate> shapeBlueprint, WorkInstructionEvent wi,
+                                                                     int qcLiftDuration, int rtgPlaceDuration) {
+        var result = new ArrayList<ActionTemplate>(shapeBlueprint.size());
+        for (var template : shapeBlueprint) {
+            result.add(switch (template.actionType()) {
+                case QC_LIFT -> template.withDuration(wi.estimatedCycleTimeSeconds() - qcLiftDuration);
+                case RTG_FETCH -> template.withDuration(wi.estimatedRtgCycleTimeSeconds() - rtgPlaceDuration);
+                default -> template;
+            });
+        }
+        return List.copyOf(result);
     }
 
     private List<ActionTemplate> getDischargeLiftSinglesDropTwin(WorkInstructionEvent wi, int qcLiftDuration, int driveToRtgPull, int driveToUnderRtg, int rtgPlaceDuration, int driveToQcPull) {
@@ -622,53 +693,7 @@ public class GraphScheduleBuilder {
     // ── Public entry point ─────────────────────────────────────────────
 
     public List<Takt> createTakts(List<WorkInstructionEvent> instructions, Instant estimatedMoveTime, int qcMudaSeconds, LoadMode loadMode) {
-        var takts = new HashMap<Integer, Takt>();
-        // Ordered list of all placed actions across all containers, in blueprint order per container
-        var allPlacedActions = new ArrayList<PlacedAction>();
-
-        // Sort by estimated move time, then deduplicate twin pairs by companion ID
-        var sorted = instructions.stream()
-                .sorted(Comparator.comparing(WorkInstructionEvent::estimatedMoveTime))
-                .toList();
-
-        var processedTwinIds = new HashSet<Long>();
-        int containerIdx = 0;
-
-        // Index WIs by ID for twin companion lookup
-        var wiById = new HashMap<Long, WorkInstructionEvent>();
-        for (var wi : sorted) {
-            wiById.put(wi.workInstructionId(), wi);
-        }
-
-        for (var wi : sorted) {
-            // Skip twin companion that was already processed as part of its pair
-            if (isTwinDischarge(wi, loadMode) && processedTwinIds.contains(wi.workInstructionId())) {
-                continue;
-            }
-
-            // Build the list of WIs for this action — twin pairs include both WIs
-            List<WorkInstructionEvent> actionWis;
-            if (isTwinDischarge(wi, loadMode) && wi.twinCompanionWorkInstruction() != 0) {
-                var companion = wiById.get(wi.twinCompanionWorkInstruction());
-                actionWis = companion != null ? List.of(wi, companion) : List.of(wi);
-                processedTwinIds.add(wi.twinCompanionWorkInstruction());
-            } else {
-                actionWis = List.of(wi);
-            }
-
-            var blueprint = buildContainerBlueprint(wi, wiById, qcMudaSeconds, loadMode);
-            var placed = placeContainerActions(blueprint, containerIdx, actionWis, qcMudaSeconds, takts);
-            allPlacedActions.addAll(placed);
-
-            containerIdx++;
-        }
-
-        // Wire dependencies as a post-processing step
-        wireDependencies(allPlacedActions);
-
-        return takts.values().stream()
-                .sorted(Comparator.comparingInt(Takt::sequence))
-                .toList();
+        return buildTakts(instructions, qcMudaSeconds, loadMode, 0, List.of(), null, null);
     }
 
     /**
@@ -708,31 +733,64 @@ public class GraphScheduleBuilder {
                                    int qcMudaSeconds, LoadMode loadMode,
                                    long workQueueId, List<SchedulePipelineStep> pipelineSteps,
                                    String bollardPosition, List<SchedulePostProcessingStep> postProcessingSteps) {
+        return createTakts(instructions, estimatedMoveTime, qcMudaSeconds, loadMode,
+                workQueueId, pipelineSteps, bollardPosition, postProcessingSteps, null);
+    }
+
+    /**
+     * Creates takts like {@link #createTakts(List, Instant, int, LoadMode, long, List, String, List)},
+     * reusing what the previous build recorded in {@code cache}.
+     *
+     * <p>The leading containers whose inputs are unchanged since that build keep their placement;
+     * placement resumes at the first changed container. Of the containers placed, those with
+     * unchanged inputs keep their enriched blueprint. Every action is created anew, so the
+     * result equals that of a build without cache.
+     *
+     * @param cache the cache of the work queue's previous build, updated with this build; may be null
+     */
+    List<Takt> createTakts(List<WorkInstructionEvent> instructions, Instant estimatedMoveTime,
+                           int qcMudaSeconds, LoadMode loadMode,
+                           long workQueueId, List<SchedulePipelineStep> pipelineSteps,
+                           String bollardPosition, List<SchedulePostProcessingStep> postProcessingSteps,
+                           BuildCache cache) {
         if (pipelineSteps == null || pipelineSteps.isEmpty()) {
-            return createTakts(instructions, estimatedMoveTime, qcMudaSeconds, loadMode);
+            return buildTakts(instructions, qcMudaSeconds, loadMode, workQueueId, List.of(), bollardPosition, cache);
         }
 
-        var takts = new HashMap<Integer, Takt>();
-        var allPlacedActions = new ArrayList<PlacedAction>();
+        var result = buildTakts(instructions, qcMudaSeconds, loadMode, workQueueId,
+                pipelineSteps, bollardPosition, cache);
+
+        for (var step : postProcessingSteps) {
+            result = step.process(result);
+        }
+
+        return result;
+    }
 
+    private List<Takt> buildTakts(List<WorkInstructionEvent> instructions, int qcMudaSeconds, LoadMode loadMode,
+                                  long workQueueId, List<SchedulePipelineStep> pipelineSteps,
+                                  String bollardPosition, BuildCache cache) {
+        // Sort by estimated move time, then deduplicate twin pairs by companion ID
         var sorted = instructions.stream()
                 .sorted(Comparator.comparing(WorkInstructionEvent::estimatedMoveTime))
                 .toList();
 
-        var processedTwinIds = new HashSet<Long>();
-        int containerIdx = 0;
-        String previousToPosition = null;
-
+        // Index WIs by ID for twin companion lookup
         var wiById = new HashMap<Long, WorkInstructionEvent>();
         for (var wi : sorted) {
             wiById.put(wi.workInstructionId(), wi);
         }
 
+        var containers = new ArrayList<ContainerInputs>();
+        var processedTwinIds = new HashSet<Long>();
+        String previousToPosition = null;
         for (var wi : sorted) {
+            // Skip twin companion that was already processed as part of its pair
             if (isTwinDischarge(wi, loadMode) && processedTwinIds.contains(wi.workInstructionId())) {
                 continue;
             }
 
+            // Build the list of WIs for this action — twin pairs include both WIs
             List<WorkInstructionEvent> actionWis;
             if (isTwinDischarge(wi, loadMode) && wi.twinCompanionWorkInstruction() != 0) {
                 var companion = wiById.get(wi.twinCompanionWorkInstruction());
@@ -742,35 +800,198 @@ public class GraphScheduleBuilder {
                 actionWis = List.of(wi);
             }
 
-            // Step 1: Build templates
-            var blueprint = buildContainerBlueprint(wi, wiById, qcMudaSeconds, loadMode);
+            containers.add(new ContainerInputs(wi, wiById.get(wi.twinCompanionWorkInstruction()), actionWis,
+                    containers.size(), previousToPosition));
+            previousToPosition = wi.toPosition();
+        }
+
+        var settings = new BuildSettings(workQueueId, loadMode, qcMudaSeconds, bollardPosition,
+                pipelineSteps.stream().map(SchedulePipelineStep::inputsVersion).toList());
+        var takts = new TaktTable();
+        // Ordered list of all placed actions across all containers, in blueprint order per container
+        var allPlacedActions = new ArrayList<PlacedAction>();
+        var blueprints = new ArrayList<List<ActionTemplate>>(containers.size());
+        var taktsCreatedBefore = new int[containers.size()];
+
+        int reused = cache != null ? cache.unchangedPrefix(settings, containers) : 0;
+        if (reused > 0) {
+            cache.restore(reused, takts, allPlacedActions, blueprints, taktsCreatedBefore);
+        }
 
-            // Step 2: Run pipeline steps to enrich templates (e.g., adjust durations from digital map)
-            var context = new SchedulePipelineStep.EnrichmentContext(
-                    workQueueId, bollardPosition, containerIdx, previousToPosition, loadMode);
-            for (var step : pipelineSteps) {
-                blueprint = step.enrichTemplates(context, blueprint, wi);
+        for (int containerIdx = reused; containerIdx < containers.size(); containerIdx++) {
+            var container = containers.get(containerIdx);
+            var wi = container.workInstruction();
+
+            var blueprint = cache != null ? cache.blueprint(settings, container) : null;
+            if (blueprint == null) {
+                // Step 1: Build templates
+                blueprint = buildContainerBlueprint(wi, wiById, qcMudaSeconds, loadMode);
+
+                // Step 2: Run pipeline steps to enrich templates (e.g., adjust durations from digital map)
+                var context = new SchedulePipelineStep.EnrichmentContext(
+                        workQueueId, bollardPosition, containerIdx, container.previousToPosition(), loadMode);
+                for (var step : pipelineSteps) {
+                    blueprint = step.enrichTemplates(context, blueprint, wi);
+                }
             }
+            blueprints.add(blueprint);
 
             // Step 3: Fit into takts
-            var placed = placeContainerActions(blueprint, containerIdx, actionWis, qcMudaSeconds, takts);
+            taktsCreatedBefore[containerIdx] = takts.size();
+            var placed = placeContainerActions(blueprint, containerIdx, container.workInstructions(),
+                    qcMudaSeconds, takts);
             allPlacedActions.addAll(placed);
-
-            previousToPosition = wi.toPosition();
-            containerIdx++;
         }
 
+        // Wire dependencies as a post-processing step
         wireDependencies(allPlacedActions);
 
-        var result = takts.values().stream()
+        if (cache != null) {
+            cache.record(settings, containers, blueprints, takts, allPlacedActions, taktsCreatedBefore);
+        }
+
+        return takts.values().stream()
                 .sorted(Comparator.comparingInt(Takt::sequence))
                 .toList();
+    }
 
-        for (var step : postProcessingSteps) {
-            result = step.process(result);
+    /**
+     * Inputs a container's blueprint and placement derive from, besides the {@link BuildSettings}
+     * and the placement of the containers before it.
+     *
+     * @param workInstruction the container's work instruction
+     * @param companion the work instruction's twin companion, or null if not in the work queue
+     * @param workInstructions the work instructions the container's actions carry
+     * @param index the container's index in the schedule
+     * @param previousToPosition the toPosition of the previous container, or null for the first
+     */
+    record ContainerInputs(WorkInstructionEvent workInstruction, WorkInstructionEvent companion,
+                           List<WorkInstructionEvent> workInstructions, int index, String previousToPosition) {}
+
+    /**
+     * Inputs shared by all containers of a build.
+     *
+     * @param pipelineVersions the {@link SchedulePipelineStep#inputsVersion()} of each pipeline step
+     */
+    record BuildSettings(long workQueueId, LoadMode loadMode, int qcMudaSeconds, String bollardPosition,
+                         List<Long> pipelineVersions) {}
+
+    /**
+     * What the previous build of a work queue produced, so that rebuilding the schedule after a
+     * work instruction changed only re-enriches and re-places the containers it affects.
+     *
+     * <p>A container's placement depends on the takts of all containers before it, so a build
+     * reuses the placement of the leading containers whose inputs are unchanged, and places the
+     * rest again. Placement only appends a container's actions to takts, and never changes a
+     * takt once created, so the takts as they were after any container are restored by taking
+     * the takts created up to it and the actions of the containers up to it.
+     *
+     * <p>Not thread-safe; a work queue's builds must not run concurrently.
+     */
+    static final class BuildCache {
+
+        /** One container of the previous build. */
+        private record ContainerBuild(ContainerInputs inputs, List<ActionTemplate> blueprint,
+                                      List<PlacedAction> placedActions, int[] taktOfAction,
+                                      int taktsCreatedBefore) {}
+
+        private BuildSettings settings;
+        private List<ContainerBuild> containers = List.of();
+        /** The takts of the previous build without their actions, in creation order. */
+        private List<Takt> takts = List.of();
+        private Map<ContainerInputs, List<ActionTemplate>> blueprints = Map.of();
+
+        /** Returns the number of leading containers whose inputs are unchanged. */
+        int unchangedPrefix(BuildSettings settings, List<ContainerInputs> inputs) {
+            if (!settings.equals(this.settings)) {
+                return 0;
+            }
+            int count = 0;
+            while (count < inputs.size() && count < containers.size()
+                    && inputs.get(count).equals(containers.get(count).inputs())) {
+                count++;
+            }
+            return count;
         }
 
-        return result;
+        /** Returns the enriched blueprint of a container with the given inputs, or null if unknown. */
+        List<ActionTemplate> blueprint(BuildSettings settings, ContainerInputs inputs) {
+            return settings.equals(this.settings) ? blueprints.get(inputs) : null;
+        }
+
+        /**
+         * Restores the takts as they were after placing the given number of leading containers,
+         * with new actions for them.
+         */
+        void restore(int containerCount, TaktTable takts, List<PlacedAction> placedActions,
+                     List<List<ActionTemplate>> blueprints, int[] taktsCreatedBefore) {
+            int taktCount = containerCount < containers.size()
+                    ? containers.get(containerCount).taktsCreatedBefore() : this.takts.size();
+            for (Takt takt : this.takts.subList(0, taktCount)) {
+                takts.put(new Takt(takt.sequence(), new ArrayList<>(),
+                        takt.plannedStartTime(), takt.estimatedStartTime(), takt.durationSeconds()));
+            }
+            for (int i = 0; i < containerCount; i++) {
+                ContainerBuild container = containers.get(i);
+                for (int a = 0; a < container.placedActions().size(); a++) {
+                    PlacedAction placed = container.placedActions().get(a);
+                    Action action = placed.action();
+                    Action copy = new Action(UUID.randomUUID(), action.deviceType(), action.actionType(),
+                            action.description(), new HashSet<>(), action.containerIndex(), action.durationSeconds(),
+                            action.deviceIndex(), action.workInstructions(), action.eventGates(),
+                            action.skipWhenGatesSatisfied())
+                            .withLocationSkipConditions(action.locationSkipConditions())
+                            .withCompletionConditions(action.completionConditions());
+                    placedActions.add(new PlacedAction(placed.template(), copy, i, placed.blueprintOrder()));
+                    takts.add(container.taktOfAction()[a], copy);
+                }
+                blueprints.add(container.blueprint());
+                taktsCreatedBefore[i] = container.taktsCreatedBefore();
+            }
+        }
+
+        /** Records a build. {@code placedActions} must hold every action of {@code takts}. */
+        void record(BuildSettings settings, List<ContainerInputs> inputs, List<List<ActionTemplate>> blueprints,
+                    TaktTable takts, List<PlacedAction> placedActions, int[] taktsCreatedBefore) {
+            var taktOf = new IdentityHashMap<Action, Integer>();
+            var positionInTakt = new IdentityHashMap<Action, Integer>();
+            for (Takt takt : takts.values()) {
+                for (int i = 0; i < takt.actions().size(); i++) {
+                    taktOf.put(takt.actions().get(i), takt.sequence());
+                    positionInTakt.put(takt.actions().get(i), i);
+                }
+            }
+            var byContainer = new ArrayList<List<PlacedAction>>();
+            for (int i = 0; i < inputs.size(); i++) {
+                byContainer.add(new ArrayList<>());
+            }
+            for (PlacedAction placed : placedActions) {
+                byContainer.get(placed.containerIndex()).add(placed);
+            }
+            var containers = new ArrayList<ContainerBuild>(inputs.size());
+            var blueprintsByInputs = new HashMap<ContainerInputs, List<ActionTemplate>>();
+            for (int i = 0; i < inputs.size(); i++) {
+                // Ordered as in the takts, so that restoring appends them in the same order
+                List<PlacedAction> placed = byContainer.get(i);
+                placed.sort(Comparator.comparingInt((PlacedAction pa) -> taktOf.get(pa.action()))
+                        .thenComparingInt(pa -> positionInTakt.get(pa.action())));
+                int[] taktOfAction = new int[placed.size()];
+                for (int a = 0; a < placed.size(); a++) {
+                    taktOfAction[a] = taktOf.get(placed.get(a).action());
+                }
+                containers.add(new ContainerBuild(inputs.get(i), blueprints.get(i), List.copyOf(placed),
+                        taktOfAction, taktsCreatedBefore[i]));
+                blueprintsByInputs.put(inputs.get(i), blueprints.get(i));
+            }
+            this.settings = settings;
+            this.containers = containers;
+            // Copied, since the schedule updates the estimated start times of its takts
+            this.takts = takts.values().stream()
+                    .map(takt -> new Takt(takt.sequence(), List.of(), takt.plannedStartTime(),
+                            takt.estimatedStartTime(), takt.durationSeconds()))
+                    .toList();
+            this.blueprints = blueprintsByInputs;
+        }
     }
 
     private static boolean isTwinDischarge(WorkInstructionEvent wi, LoadMode loadMode) {
@@ -832,14 +1053,14 @@ public class GraphScheduleBuilder {
      */
     private class PlacementContext {
         final int containerIndex;
-        final Map<Integer, Takt> takts;
+        final TaktTable takts;
         final Map<String, Integer> placementIndex;
         final List<PlacedAction> placedActions;
         final Map<ActionTemplate, Integer> blueprintOrder;
         final List<WorkInstructionEvent> workInstructions;
         final List<Segment> remaining;
 
-        PlacementContext(int containerIndex, Map<Integer, Takt> takts,
+        PlacementContext(int containerIndex, TaktTable takts,
                          List<ActionTemplate> blueprint, List<WorkInstructionEvent> workInstructions) {
             this.containerIndex = containerIndex;
             this.takts = takts;
@@ -855,7 +1076,6 @@ public class GraphScheduleBuilder {
 
         /** Places a segment's actions into a single takt WITHOUT wiring dependencies. */
         void place(Segment segment, int taktIndex) {
-            var takt = takts.get(taktIndex);
             for (var tmpl : segment.templates()) {
                 var actionWis = filterWorkInstructions(workInstructions, tmpl.containerSuffix());
                 var gates = tmpl.eventGates().stream()
@@ -868,7 +1088,7 @@ public class GraphScheduleBuilder {
                         new HashSet<>(), containerIndex, tmpl.durationSeconds(), tmpl.deviceIndex(), actionWis, gates, tmpl.skipWhenGatesSatisfied())
                         .withLocationSkipConditions(tmpl.locationSkipConditions())
                         .withCompletionConditions(allCompletionConditions.isEmpty() ? List.of() : List.copyOf(allCompletionConditions));
-                takt.actions().add(action);
+                takts.add(taktIndex, action);
                 placedActions.add(new PlacedAction(tmpl, action, containerIndex, blueprintOrder.getOrDefault(tmpl, 0)));
                 placementIndex.put(placementKey(containerIndex, tmpl.deviceType(), tmpl.name()), taktIndex);
             }
@@ -942,10 +1162,17 @@ public class GraphScheduleBuilder {
             int containerIndex,
             List<WorkInstructionEvent> workInstructions,
             int qcMudaSeconds,
-            Map<Integer, Takt> takts
+            TaktTable takts
     ) {
         var wi = workInstructions.getFirst();
-        var segmentsByDevice = buildSegmentsByDevice(blueprint);
+        var segmentsByDevice = segmentsByBlueprint.get(blueprint);
+        if (segmentsByDevice == null) {
+            if (segmentsByBlueprint.size() >= MAX_CACHED_SEGMENTS) {
+                segmentsByBlueprint.clear();
+            }
+            segmentsByDevice = buildSegmentsByDevice(blueprint);
+            segmentsByBlueprint.put(blueprint, segmentsByDevice);
+        }
         var ctx = new PlacementContext(containerIndex, takts, blueprint, workInstructions);
 
         // Step 1: Place anchor segment
@@ -1054,16 +1281,19 @@ public class GraphScheduleBuilder {
             }
         }
 
-        // Wire cross-device dependencies declared via withDependsOn
+        // Wire cross-device dependencies declared via withDependsOn, to the first matching action of the container
+        var firstByContainerAction = new HashMap<String, PlacedAction>();
+        for (var pa : allPlacedActions) {
+            firstByContainerAction.putIfAbsent(pa.containerIndex() + ":" + pa.action().deviceType()
+                    + ":" + pa.template().actionType(), pa);
+        }
         for (var pa : allPlacedActions) {
             if (pa.template().dependsOn() != null) {
                 var ref = pa.template().dependsOn();
-                allPlacedActions.stream()
-                        .filter(other -> other.containerIndex() == pa.containerIndex()
-                                && other.action().deviceType() == ref.deviceType()
-                                && other.template().actionType() == ref.actionType())
-                        .findFirst()
-                        .ifPresent(dep -> pa.action().dependsOn().add(dep.action().id()));
+                var dep = firstByContainerAction.get(pa.containerIndex() + ":" + ref.deviceType() + ":" + ref.actionType());
+                if (dep != null) {
+                    pa.action().dependsOn().add(dep.action().id());
+                }
             }
         }
     }
@@ -1113,15 +1343,15 @@ public class GraphScheduleBuilder {
      * Finds the highest takt index that contains the anchor action type.
      * This ensures proper spacing when placing consecutive containers.
      */
-    private int findMaxTaktForAction(Map<Integer, Takt> takts, Segment anchorSegment) {
+    private int findMaxTaktForAction(TaktTable takts, Segment anchorSegment) {
         int max = -1;
         var anchorActionTypes = anchorSegment.templates().stream()
                 .map(ActionTemplate::actionType)
                 .collect(java.util.stream.Collectors.toSet());
-        for (var entry : takts.entrySet()) {
-            for (var action : entry.getValue().actions()) {
+        for (var takt : takts.values()) {
+            for (var action : takt.actions()) {
                 if (anchorActionTypes.contains(action.actionType())) {
-                    max = Math.max(max, entry.getKey());
+                    max = Math.max(max, takt.sequence());
                     break;
                 }
             }
@@ -1129,17 +1359,8 @@ public class GraphScheduleBuilder {
         return max;
     }
 
-    private int findMaxTaktForDevice(Map<Integer, Takt> takts, DeviceType deviceType) {
-        int max = -1;
-        for (var entry : takts.entrySet()) {
-            for (var action : entry.getValue().actions()) {
-                if (action.deviceType() == deviceType) {
-                    max = Math.max(max, entry.getKey());
-                    break;
-                }
-            }
-        }
-        return max;
+    private int findMaxTaktForDevice(TaktTable takts, DeviceType deviceType) {
+        return takts.lastTaktOf(deviceType);
     }
 
     private Segment findAnchorSegment(Map<DeviceType, List<Segment>> segmentsByDevice) {
@@ -1187,22 +1408,20 @@ public class GraphScheduleBuilder {
      * <p>Duration-based overflow is handled by the backward placement step which calculates
      * the number of takts to step back based on the previous segment's duration.
      */
-    private int resolveOverflow(Segment segment, int targetTakt, Map<Integer, Takt> takts) {
-        var takt = takts.get(targetTakt);
+    private int resolveOverflow(Segment segment, int targetTakt, TaktTable takts) {
         var onlyOneNames = new HashSet<String>();
         for (var tmpl : segment.templates()) {
             if (tmpl.onlyOnePerTakt()) onlyOneNames.add(tmpl.name());
         }
 
-        int maxShifts = 20;
-        int shifts = 0;
-        while (shifts < maxShifts && hasOnlyOnePerTaktConflict(takt, onlyOneNames)) {
-            targetTakt--;
-            shifts++;
-            ensureTaktExists(takts, targetTakt, computeTaktStartTime(targetTakt, takts), DEFAULT_TAKT_DURATION);
-            takt = takts.get(targetTakt);
+        if (onlyOneNames.isEmpty()) return targetTakt;
+
+        // Takts holding one of the names hold actions and so exist; only the takt landed on may be new
+        int freeTakt = Math.max(takts.lastTaktWithout(targetTakt, onlyOneNames), targetTakt - 20);
+        if (freeTakt != targetTakt) {
+            ensureTaktExists(takts, freeTakt, computeTaktStartTime(freeTakt, takts), DEFAULT_TAKT_DURATION);
         }
-        return targetTakt;
+        return freeTakt;
     }
 
     /**
@@ -1216,7 +1435,7 @@ public class GraphScheduleBuilder {
      * {@code prevTakt.start + prevChainDuration <= candidate.start}
      */
     private int pushForwardUntilFits(int candidateTakt, int prevChainDuration,
-                                      Takt prevTakt, Map<Integer, Takt> takts) {
+                                      Takt prevTakt, TaktTable takts) {
         Instant prevChainEnd = prevTakt.plannedStartTime().plusSeconds(prevChainDuration);
         for (int shifts = 0; shifts < 50; shifts++) {
             Takt candidate = takts.get(candidateTakt);
@@ -1229,7 +1448,7 @@ public class GraphScheduleBuilder {
         return candidateTakt;
     }
 
-    private int pushBackUntilFits(int targetTakt, int chainDuration, Map<Integer, Takt> takts) {
+    private int pushBackUntilFits(int targetTakt, int chainDuration, TaktTable takts) {
         Takt target = takts.get(targetTakt);
         Instant deadline = target.plannedStartTime().plusSeconds(target.durationSeconds());
 
@@ -1252,19 +1471,13 @@ public class GraphScheduleBuilder {
      * Actions on different physical devices (different deviceIndex) can share a takt.
      */
     private int pushForwardForDeviceExclusivity(int targetTakt, DeviceType deviceType, int deviceIndex,
-                                                 int containerIndex, Map<Integer, Takt> takts) {
-        for (int shifts = 0; shifts < 20; shifts++) {
-            var takt = takts.get(targetTakt);
-            boolean hasOtherContainerDevice = takt.actions().stream()
-                    .anyMatch(a -> a.deviceType() == deviceType && a.deviceIndex() == deviceIndex
-                            && a.containerIndex() != containerIndex);
-            if (!hasOtherContainerDevice) {
-                return targetTakt;
-            }
-            targetTakt++;
-            ensureTaktExists(takts, targetTakt, computeTaktStartTime(targetTakt, takts), DEFAULT_TAKT_DURATION);
+                                                 int containerIndex, TaktTable takts) {
+        // Takts held by another container hold actions and so exist; only the takt landed on may be new
+        int freeTakt = Math.min(takts.firstTaktFor(targetTakt, deviceType, deviceIndex, containerIndex), targetTakt + 20);
+        if (freeTakt != targetTakt) {
+            ensureTaktExists(takts, freeTakt, computeTaktStartTime(freeTakt, takts), DEFAULT_TAKT_DURATION);
         }
-        return targetTakt;
+        return freeTakt;
     }
 
     /**
@@ -1276,7 +1489,7 @@ public class GraphScheduleBuilder {
      */
     private void relocateSyncSourceActions(int fromTakt, int toTakt,
                                             DeviceType syncSourceDeviceType, int containerIndex,
-                                            Map<Integer, Takt> takts, Map<String, Integer> placementIndex) {
+                                            TaktTable takts, Map<String, Integer> placementIndex) {
         var sourceTakt = takts.get(fromTakt);
         var destTakt = takts.get(toTakt);
 
@@ -1294,15 +1507,15 @@ public class GraphScheduleBuilder {
         if (!toPush.isEmpty()) {
             int nextTakt = toTakt + 1;
             ensureTaktExists(takts, nextTakt, computeTaktStartTime(nextTakt, takts), DEFAULT_TAKT_DURATION);
-            destTakt.actions().removeAll(toPush);
-            takts.get(nextTakt).actions().addAll(toPush);
+            takts.removeAll(toTakt, toPush);
+            takts.addAll(nextTakt, toPush);
             for (var action : toPush) {
                 placementIndex.put(placementKey(containerIndex, action.deviceType(), action.description()), nextTakt);
             }
         }
 
-        sourceTakt.actions().removeAll(toMove);
-        destTakt.actions().addAll(toMove);
+        takts.removeAll(fromTakt, toMove);
+        takts.addAll(toTakt, toMove);
 
         for (var action : toMove) {
             placementIndex.put(placementKey(containerIndex, action.deviceType(), action.description()), toTakt);
@@ -1313,20 +1526,14 @@ public class GraphScheduleBuilder {
         return segment.templates().stream().mapToInt(ActionTemplate::durationSeconds).sum();
     }
 
-    private int taktDurationAt(int taktIndex, Map<Integer, Takt> takts) {
+    private int taktDurationAt(int taktIndex, TaktTable takts) {
         var takt = takts.get(taktIndex);
         return takt != null ? takt.durationSeconds() : DEFAULT_TAKT_DURATION;
     }
 
-    private boolean hasOnlyOnePerTaktConflict(Takt takt, Set<String> onlyOneNames) {
-        if (onlyOneNames.isEmpty()) return false;
-        return takt.actions().stream()
-                .anyMatch(a -> onlyOneNames.contains(a.description()));
-    }
-
     // ── Takt management helpers ────────────────────────────────────────
 
-    private Instant computeAnchorStartTime(int anchorTaktIndex, WorkInstructionEvent wi, Map<Integer, Takt> takts) {
+    private Instant computeAnchorStartTime(int anchorTaktIndex, WorkInstructionEvent wi, TaktTable takts) {
         var prevTakt = takts.get(anchorTaktIndex - 1);
         if (prevTakt != null) {
             return prevTakt.plannedStartTime().plusSeconds(prevTakt.durationSeconds());
@@ -1334,20 +1541,16 @@ public class GraphScheduleBuilder {
         return wi.estimatedMoveTime();
     }
 
-    private Instant computeTaktStartTime(int taktIndex, Map<Integer, Takt> takts) {
+    private Instant computeTaktStartTime(int taktIndex, TaktTable takts) {
         // Search forward for the nearest existing takt
-        for (int i = taktIndex + 1; i <= taktIndex + 50; i++) {
-            var t = takts.get(i);
-            if (t != null) {
-                return t.plannedStartTime().plusSeconds((long) -(i - taktIndex) * DEFAULT_TAKT_DURATION);
-            }
+        var t = takts.after(taktIndex);
+        if (t != null && t.sequence() <= taktIndex + 50) {
+            return t.plannedStartTime().plusSeconds((long) -(t.sequence() - taktIndex) * DEFAULT_TAKT_DURATION);
         }
         // Search backward for the nearest existing takt
-        for (int i = taktIndex - 1; i >= taktIndex - 50; i--) {
-            var t = takts.get(i);
-            if (t != null) {
-                return t.plannedStartTime().plusSeconds((long) (taktIndex - i) * t.durationSeconds());
-            }
+        t = takts.before(taktIndex);
+        if (t != null && t.sequence() >= taktIndex - 50) {
+            return t.plannedStartTime().plusSeconds((long) (taktIndex - t.sequence()) * t.durationSeconds());
         }
         return takts.values().stream()
                 .map(Takt::plannedStartTime)
@@ -1355,9 +1558,227 @@ public class GraphScheduleBuilder {
                 .orElse(Instant.EPOCH);
     }
 
-    private void ensureTaktExists(Map<Integer, Takt> takts, int taktIndex, Instant startTime, int duration) {
-        takts.computeIfAbsent(taktIndex,
-                idx -> new Takt(idx, new ArrayList<>(), startTime, startTime, duration));
+    private void ensureTaktExists(TaktTable takts, int taktIndex, Instant startTime, int duration) {
+        if (takts.get(taktIndex) == null) {
+            takts.put(new Takt(taktIndex, new ArrayList<>(), startTime, startTime, duration));
+        }
+    }
+
+    /**
+     * The takts of a schedule under construction, indexed for placement.
+     *
+     * <p>Instead of scanning a takt's actions or all takts, the table keeps per takt the number of
+     * actions of each device instance by container and of each action name, and per device type
+     * the takts holding its actions, so that every probe is a lookup. Placement searches for the
+     * nearest takt free of a device instance or of some action names; for these the table keeps
+     * the runs of consecutive takts each device instance and action name occupies, so a search
+     * jumps over a run of occupied takts in one lookup instead of probing them one at a time. The
+     * action lists of the takts must only be changed through the table.
+     */
+    static final class TaktTable {
+
+        private record DeviceInstance(DeviceType deviceType, int deviceIndex) {}
+
+        /** What the actions of one takt occupy. */
+        private static final class Occupancy {
+            /** Action count per container, per device instance. */
+            final Map<DeviceInstance, Map<Integer, Integer>> containersByDevice = new HashMap<>();
+            final Map<String, Integer> names = new HashMap<>();
+        }
+
+        /** Takts in creation order, which the build cache relies on. */
+        private final Map<Integer, Takt> takts = new LinkedHashMap<>();
+        private final NavigableMap<Integer, Takt> bySequence = new TreeMap<>();
+        private final Map<Integer, Occupancy> occupancy = new HashMap<>();
+        /** Action count per takt, per device type. */
+        private final Map<DeviceType, NavigableMap<Integer, Integer>> taktsByDeviceType = new EnumMap<>(DeviceType.class);
+        private final Map<DeviceInstance, Runs> runsByDevice = new HashMap<>();
+        /** Action count per takt, per container, per device instance. */
+        private final Map<DeviceInstance, Map<Integer, NavigableMap<Integer, Integer>>> taktsByContainer = new HashMap<>();
+        private final Map<String, Runs> runsByName = new HashMap<>();
+
+        Takt get(int sequence) {
+            return takts.get(sequence);
+        }
+
+        /** Returns the takts in creation order. */
+        Collection<Takt> values() {
+            return takts.values();
+        }
+
+        int size() {
+            return takts.size();
+        }
+
+        /** Adds a takt without actions; actions are added through {@link #add}. */
+        void put(Takt takt) {
+            takts.put(takt.sequence(), takt);
+            bySequence.put(takt.sequence(), takt);
+            occupancy.put(takt.sequence(), new Occupancy());
+        }
+
+        /** Returns the nearest takt after the given sequence, or null. */
+        Takt after(int sequence) {
+            var entry = bySequence.higherEntry(sequence);
+            return entry != null ? entry.getValue() : null;
+        }
+
+        /** Returns the nearest takt before the given sequence, or null. */
+        Takt before(int sequence) {
+            var entry = bySequence.lowerEntry(sequence);
+            return entry != null ? entry.getValue() : null;
+        }
+
+        void add(int sequence, Action action) {
+            takts.get(sequence).actions().add(action);
+            count(sequence, action, 1);
+        }
+
+        void addAll(int sequence, List<Action> actions) {
+            for (var action : actions) {
+                add(sequence, action);
+            }
+        }
+
+        void removeAll(int sequence, List<Action> actions) {
+            takts.get(sequence).actions().removeAll(actions);
+            for (var action : actions) {
+                count(sequence, action, -1);
+            }
+        }
+
+        /**
+         * Returns the highest takt holding an action of the device type, or -1 if there is none.
+         * Pulse takts before -1 count as -1.
+         */
+        int lastTaktOf(DeviceType deviceType) {
+            var byTakt = taktsByDeviceType.get(deviceType);
+            return byTakt == null || byTakt.isEmpty() ? -1 : Math.max(-1, byTakt.lastKey());
+        }
+
+        /** Whether the takt holds an action of the device instance for another container. */
+        boolean hasOtherContainer(int sequence, DeviceType deviceType, int deviceIndex, int containerIndex) {
+            var containers = occupancy.get(sequence).containersByDevice.get(new DeviceInstance(deviceType, deviceIndex));
+            return containers != null && (containers.size() > 1 || !containers.containsKey(containerIndex));
+        }
+
+        /**
+         * Returns the first takt from the given one on that holds no action of the device instance
+         * for a container other than the given one. The takt need not exist.
+         */
+        int firstTaktFor(int sequence, DeviceType deviceType, int deviceIndex, int containerIndex) {
+            var device = new DeviceInstance(deviceType, deviceIndex);
+            var runs = runsByDevice.get(device);
+            int runEnd = runs != null ? runs.endOf(sequence) : sequence - 1;
+            // Within the run, only takts the container itself holds can be free
+            var own = taktsByContainer.getOrDefault(device, Map.of()).get(containerIndex);
+            if (own != null) {
+                for (var takt = own.ceilingKey(sequence); takt != null && takt <= runEnd; takt = own.higherKey(takt)) {
+                    if (!hasOtherContainer(takt, deviceType, deviceIndex, containerIndex)) {
+                        return takt;
+                    }
+                }
+            }
+            return runEnd + 1;
+        }
+
+        /**
+         * Returns the last takt up to the given one that holds no action with one of the names.
+         * The takt need not exist.
+         */
+        int lastTaktWithout(int sequence, Set<String> names) {
+            boolean moved = true;
+            while (moved) {
+                moved = false;
+                for (var name : names) {
+                    var runs = runsByName.get(name);
+                    int runStart = runs != null ? runs.startOf(sequence) : sequence + 1;
+                    if (runStart <= sequence) {
+                        sequence = runStart - 1;
+                        moved = true;
+                    }
+                }
+            }
+            return sequence;
+        }
+
+        /** Whether the takt holds an action with one of the given names. */
+        boolean holdsAnyOf(int sequence, Set<String> names) {
+            var held = occupancy.get(sequence).names;
+            for (var name : names) {
+                if (held.containsKey(name)) return true;
+            }
+            return false;
+        }
+
+        private void count(int sequence, Action action, int delta) {
+            var device = new DeviceInstance(action.deviceType(), action.deviceIndex());
+            var byDevice = occupancy.get(sequence).containersByDevice;
+            boolean heldDevice = byDevice.containsKey(device);
+            adjust(byDevice.computeIfAbsent(device, key -> new HashMap<>()), action.containerIndex(), delta);
+            if (byDevice.get(device).isEmpty()) {
+                byDevice.remove(device);
+            }
+            runsByDevice.computeIfAbsent(device, key -> new Runs()).update(sequence, heldDevice, byDevice.containsKey(device));
+            adjust(taktsByContainer.computeIfAbsent(device, key -> new HashMap<>())
+                    .computeIfAbsent(action.containerIndex(), key -> new TreeMap<>()), sequence, delta);
+
+            var names = occupancy.get(sequence).names;
+            boolean heldName = names.containsKey(action.description());
+            adjust(names, action.description(), delta);
+            runsByName.computeIfAbsent(action.description(), key -> new Runs())
+                    .update(sequence, heldName, names.containsKey(action.description()));
+            adjust(taktsByDeviceType.computeIfAbsent(action.deviceType(), type -> new TreeMap<>()), sequence, delta);
+        }
+
+        private static <K> void adjust(Map<K, Integer> counts, K key, int delta) {
+            counts.merge(key, delta, (count, change) -> count + change == 0 ? null : count + change);
+        }
+
+        /** Maximal runs of consecutive occupied takts, by first takt. */
+        private static final class Runs {
+
+            /** First takt of each run → its last takt. */
+            private final NavigableMap<Integer, Integer> ends = new TreeMap<>();
+
+            void update(int sequence, boolean wasOccupied, boolean occupied) {
+                if (occupied && !wasOccupied) {
+                    occupy(sequence);
+                } else if (wasOccupied && !occupied) {
+                    vacate(sequence);
+                }
+            }
+
+            /** Returns the last takt of the run holding the takt, or the takt before it if it is free. */
+            int endOf(int sequence) {
+                var run = ends.floorEntry(sequence);
+                return run != null && run.getValue() >= sequence ? run.getValue() : sequence - 1;
+            }
+
+            /** Returns the first takt of the run holding the takt, or the takt after it if it is free. */
+            int startOf(int sequence) {
+                var run = ends.floorEntry(sequence);
+                return run != null && run.getValue() >= sequence ? run.getKey() : sequence + 1;
+            }
+
+            private void occupy(int sequence) {
+                var before = ends.floorEntry(sequence);
+                int start = before != null && before.getValue() == sequence - 1 ? before.getKey() : sequence;
+                Integer after = ends.remove(sequence + 1);
+                ends.put(start, after != null ? after : sequence);
+            }
+
+            private void vacate(int sequence) {
+                var run = ends.floorEntry(sequence);
+                ends.remove(run.getKey());
+                if (run.getKey() < sequence) {
+                    ends.put(run.getKey(), sequence - 1);
+                }
+                if (run.getValue() > sequence) {
+                    ends.put(sequence + 1, run.getValue());
+                }
+            }
+        }
     }
 
 }
@@ -0,0 +1,177 @@
+package com.wonderingwizard.processors;
+
+import com.wonderingwizard.domain.takt.ActionConditionContext;
+import com.wonderingwizard.processors.ScheduleRunnerProcessor.LocationOccupancy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Positions occupied by trucks and trucks assigned to actions, kept up to date by
+ * {@link ScheduleRunnerProcessor} as actions change status or get trucks.
+ * <p>
+ * Schedules report the occupancies of a container and the truck held by an action whenever
+ * these may have changed. The index counts the reports of each position key and truck, so the
+ * occupied positions and assigned trucks are read without scanning the schedules. Changes are
+ * not journaled here: undoing a change reports the schedule's previous state again, and a state
+ * restore removes and reports again the schedules that differ. After a change the schedules
+ * cannot report, the index is {@link #invalidate() invalidated} and rebuilt from the schedules.
+ */
+final class OccupancyIndex {
+
+    /** Occupancies per work queue and container index. */
+    private final Map<Long, Map<Integer, List<LocationOccupancy>>> occupancies = new HashMap<>();
+    /** Truck held by each action, per work queue. */
+    private final Map<Long, Map<UUID, String>> trucks = new HashMap<>();
+    /** Number of occupancies per position key. */
+    private final Map<String, Integer> positionCounts = new HashMap<>();
+    /** Number of actions holding each truck. */
+    private final Map<String, Integer> truckCounts = new HashMap<>();
+    private final Set<String> occupiedPositions = Collections.unmodifiableSet(positionCounts.keySet());
+    private final Set<String> assignedTrucks = Collections.unmodifiableSet(truckCounts.keySet());
+    private boolean stale = true;
+
+    /** Marks the index out of date until the next {@link #clear()} and rebuild. */
+    void invalidate() {
+        stale = true;
+    }
+
+    boolean isStale() {
+        return stale;
+    }
+
+    /** Empties the index for a rebuild, after which it is kept up to date again. */
+    void clear() {
+        occupancies.clear();
+        trucks.clear();
+        positionCounts.clear();
+        truckCounts.clear();
+        stale = false;
+    }
+
+    /**
+     * Replaces the occupancies of a container.
+     *
+     * @param workQueueId the work queue of the container's schedule
+     * @param containerIndex the container
+     * @param current the positions its truck occupies now, possibly empty
+     */
+    void putOccupancies(long workQueueId, int containerIndex, List<LocationOccupancy> current) {
+        if (stale) {
+            return;
+        }
+        Map<Integer, List<LocationOccupancy>> byContainer = occupancies.get(workQueueId);
+        List<LocationOccupancy> previous = byContainer != null ? byContainer.get(containerIndex) : null;
+        if (previous == null && current.isEmpty() || current.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            for (LocationOccupancy occupancy : previous) {
+                decrement(positionCounts, positionKey(occupancy));
+            }
+        }
+        if (current.isEmpty()) {
+            byContainer.remove(containerIndex);
+            if (byContainer.isEmpty()) {
+                occupancies.remove(workQueueId);
+            }
+            return;
+        }
+        for (LocationOccupancy occupancy : current) {
+            positionCounts.merge(positionKey(occupancy), 1, Integer::sum);
+        }
+        occupancies.computeIfAbsent(workQueueId, k -> new TreeMap<>()).put(containerIndex, current);
+    }
+
+    /**
+     * Sets the truck an action holds.
+     *
+     * @param workQueueId the work queue of the action's schedule
+     * @param actionId the action
+     * @param truck the truck's short name, or null if the action holds none
+     */
+    void putTruck(long workQueueId, UUID actionId, String truck) {
+        if (stale) {
+            return;
+        }
+        Map<UUID, String> byAction = trucks.get(workQueueId);
+        String previous = byAction != null ? byAction.get(actionId) : null;
+        if (truck == null ? previous == null : truck.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            decrement(truckCounts, previous);
+        }
+        if (truck == null) {
+            byAction.remove(actionId);
+            if (byAction.isEmpty()) {
+                trucks.remove(workQueueId);
+            }
+            return;
+        }
+        truckCounts.merge(truck, 1, Integer::sum);
+        trucks.computeIfAbsent(workQueueId, k -> new HashMap<>()).put(actionId, truck);
+    }
+
+    /** Drops everything reported for a work queue, e.g. when its schedule is removed or replaced. */
+    void removeWorkQueue(long workQueueId) {
+        if (stale) {
+            return;
+        }
+        Map<Integer, List<LocationOccupancy>> byContainer = occupancies.remove(workQueueId);
+        if (byContainer != null) {
+            for (List<LocationOccupancy> list : byContainer.values()) {
+                for (LocationOccupancy occupancy : list) {
+                    decrement(positionCounts, positionKey(occupancy));
+                }
+            }
+        }
+        Map<UUID, String> byAction = trucks.remove(workQueueId);
+        if (byAction != null) {
+            for (String truck : byAction.values()) {
+                decrement(truckCounts, truck);
+            }
+        }
+    }
+
+    /**
+     * Returns a read-only view of the occupied position keys, e.g. "QC:QCZ1:STANDBY". The view
+     * follows later changes.
+     */
+    Set<String> occupiedPositions() {
+        return occupiedPositions;
+    }
+
+    /** Returns a read-only view of the assigned trucks' short names. The view follows later changes. */
+    Set<String> assignedTrucks() {
+        return assignedTrucks;
+    }
+
+    /** Returns the occupancies of a work queue, by container index. */
+    List<LocationOccupancy> occupancies(long workQueueId) {
+        Map<Integer, List<LocationOccupancy>> byContainer = occupancies.get(workQueueId);
+        if (byContainer == null) {
+            return List.of();
+        }
+        List<LocationOccupancy> result = new ArrayList<>();
+        for (List<LocationOccupancy> list : byContainer.values()) {
+            result.addAll(list);
+        }
+        return result;
+    }
+
+    private static String positionKey(LocationOccupancy occupancy) {
+        return ActionConditionContext.positionKey(
+                occupancy.equipmentType(), occupancy.equipmentName(), occupancy.position());
+    }
+
+    private static void decrement(Map<String, Integer> counts, String key) {
+        counts.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+}
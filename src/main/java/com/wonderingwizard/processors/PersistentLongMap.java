@@ -0,0 +1,213 @@
+package com.wonderingwizard.processors;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Immutable map from {@code long} keys to values. {@link #with} returns a new map that shares
+ * everything with this one except the path to the changed key, so snapshots of a large map can
+ * be kept for every step and compared in time proportional to their differences.
+ * <p>
+ * The keys are spread by a bijective hash and stored in a trie of 16-way nodes, four hash bits
+ * per level. Distinct keys always differ in some level, so there are no collisions.
+ *
+ * @param <V> the type of the values
+ */
+final class PersistentLongMap<V> {
+
+    private static final int BITS = 4;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final PersistentLongMap<?> EMPTY = new PersistentLongMap<>(null, 0);
+
+    /** A key and its value, in a slot of a node. */
+    private record Entry(long key, Object value) {}
+
+    /** Root node, or null if the map is empty. Slots hold null, an {@link Entry} or a child node. */
+    private final Object[] root;
+    private final int size;
+
+    private PersistentLongMap(Object[] root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> PersistentLongMap<V> empty() {
+        return (PersistentLongMap<V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Returns the value of the key, or null if it is absent. */
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        long hash = spread(key);
+        Object[] node = root;
+        while (node != null) {
+            Object slot = node[(int) (hash & MASK)];
+            if (slot instanceof Entry entry) {
+                return entry.key() == key ? (V) entry.value() : null;
+            }
+            node = (Object[]) slot;
+            hash >>>= BITS;
+        }
+        return null;
+    }
+
+    /**
+     * Returns a map with the key set to the value, or removed if {@code value} is null. Returns
+     * this map if nothing changes.
+     */
+    PersistentLongMap<V> with(long key, V value) {
+        int[] sizeChange = new int[1];
+        Object[] updated = value != null
+                ? put(root, spread(key), 0, new Entry(key, value), sizeChange)
+                : remove(root, spread(key), key, sizeChange);
+        if (updated == root) {
+            return this;
+        }
+        return updated == null ? empty() : new PersistentLongMap<>(updated, size + sizeChange[0]);
+    }
+
+    /**
+     * Calls {@code action} with every key whose value differs between this map and
+     * {@code other}, comparing values by identity. Subtrees the two maps share are skipped. A
+     * key may be reported more than once.
+     */
+    void forEachDifference(PersistentLongMap<V> other, LongConsumer action) {
+        // Where the shapes differ, the keys of both sides are candidates
+        difference(root, other.root, key -> {
+            if (get(key) != other.get(key)) {
+                action.accept(key);
+            }
+        });
+    }
+
+    /** Calls {@code action} with every key. */
+    void forEachKey(LongConsumer action) {
+        keys(root, action);
+    }
+
+    private static Object[] put(Object[] node, long hash, int depth, Entry entry, int[] sizeChange) {
+        Object[] copy = node != null ? node.clone() : new Object[WIDTH];
+        int index = (int) ((hash >>> (depth * BITS)) & MASK);
+        Object slot = copy[index];
+        if (slot == null) {
+            copy[index] = entry;
+            sizeChange[0] = 1;
+        } else if (slot instanceof Entry existing) {
+            if (existing.key() == entry.key()) {
+                if (existing.value() == entry.value()) {
+                    return node;
+                }
+                copy[index] = entry;
+            } else {
+                // Push the existing entry one level down, then insert next to it
+                Object[] child = new Object[WIDTH];
+                child[(int) ((spread(existing.key()) >>> ((depth + 1) * BITS)) & MASK)] = existing;
+                copy[index] = put(child, hash, depth + 1, entry, sizeChange);
+            }
+        } else {
+            Object[] child = (Object[]) slot;
+            Object[] updated = put(child, hash, depth + 1, entry, sizeChange);
+            if (updated == child) {
+                return node;
+            }
+            copy[index] = updated;
+        }
+        return copy;
+    }
+
+    private static Object[] remove(Object[] node, long hash, long key, int[] sizeChange) {
+        if (node == null) {
+            return null;
+        }
+        int index = (int) (hash & MASK);
+        Object slot = node[index];
+        Object replacement;
+        if (slot instanceof Entry entry) {
+            if (entry.key() != key) {
+                return node;
+            }
+            replacement = null;
+            sizeChange[0] = -1;
+        } else if (slot != null) {
+            Object[] child = (Object[]) slot;
+            Object[] updated = remove(child, hash >>> BITS, key, sizeChange);
+            if (updated == child) {
+                return node;
+            }
+            // Keep a lone entry at the shallowest level so equal maps share their shape
+            replacement = updated == null ? null : loneEntry(updated);
+            if (replacement == null) {
+                replacement = updated;
+            }
+        } else {
+            return node;
+        }
+        Object[] copy = node.clone();
+        copy[index] = replacement;
+        for (Object remaining : copy) {
+            if (remaining != null) {
+                return copy;
+            }
+        }
+        return null;
+    }
+
+    /** Returns the only slot of the node if it is an entry, or null. */
+    private static Entry loneEntry(Object[] node) {
+        Entry lone = null;
+        for (Object slot : node) {
+            if (slot == null) {
+                continue;
+            }
+            if (lone != null || !(slot instanceof Entry entry)) {
+                return null;
+            }
+            lone = entry;
+        }
+        return lone;
+    }
+
+    private static void difference(Object a, Object b, LongConsumer action) {
+        if (a == b) {
+            return;
+        }
+        if (a instanceof Object[] nodeA && b instanceof Object[] nodeB) {
+            for (int i = 0; i < WIDTH; i++) {
+                difference(nodeA[i], nodeB[i], action);
+            }
+        } else if (a instanceof Entry entryA && b instanceof Entry entryB && entryA.key() == entryB.key()) {
+            if (entryA.value() != entryB.value()) {
+                action.accept(entryA.key());
+            }
+        } else {
+            keys(a, action);
+            keys(b, action);
+        }
+    }
+
+    private static void keys(Object slot, LongConsumer action) {
+        if (slot instanceof Entry entry) {
+            action.accept(entry.key());
+        } else if (slot != null) {
+            for (Object child : (Object[]) slot) {
+                keys(child, action);
+            }
+        }
+    }
+
+    /** Bijective mix of the key, so keys that differ in their high bits spread over the nodes. */
+    private static long spread(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+}
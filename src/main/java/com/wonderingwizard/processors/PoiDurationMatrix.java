@@ -0,0 +1,233 @@
+package com.wonderingwizard.processors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Shortest travel durations between all POIs of a digital map.
+ * <p>
+ * POIs are numbered in the order of the map they were computed from; the duration from POI
+ * {@code i} to POI {@code j} is entry {@code i × size + j} of one dense {@code int} array, in
+ * whole seconds, -1 if there is no route. Instances are immutable, so a processor can publish a
+ * new matrix with a single field write and snapshots can share it.
+ * <p>
+ * A matrix can be {@linkplain #write written} to a file and {@linkplain #read memory-mapped}
+ * back, so a restart with the same map does not compute it again. The file is tagged with a
+ * key identifying the map it was computed from:
+ * <pre>
+ * int     magic "PDMX"
+ * int     format version
+ * int     key length, followed by the key in UTF-8
+ * int     number of POIs, followed per POI by its name length and name in UTF-8
+ * byte[]  zero padding to a multiple of 4 bytes
+ * int[]   the durations, row by row
+ * </pre>
+ * All numbers are big-endian.
+ */
+final class PoiDurationMatrix {
+
+    static final PoiDurationMatrix EMPTY = new PoiDurationMatrix(Map.of(), IntBuffer.allocate(0));
+
+    private static final int MAGIC = 0x50444D58;
+    /** Increment when the file layout or the way durations are computed changes. */
+    private static final int FORMAT_VERSION = 1;
+    private static final int WRITE_CHUNK_INTS = 16 * 1024;
+
+    private final Map<String, Integer> indexByName;
+    private final int size;
+    /** Heap buffer when computed, read-only mapped file region when read. */
+    private final IntBuffer durations;
+
+    private PoiDurationMatrix(Map<String, Integer> indexByName, IntBuffer durations) {
+        this.indexByName = indexByName;
+        this.size = indexByName.size();
+        this.durations = durations;
+    }
+
+    /**
+     * Computes the durations between all POIs, running one search per distinct road node
+     * in parallel on the common fork-join pool. Each search fills the rows of the POIs on its
+     * source node, so the searches share no mutable state.
+     *
+     * @param graph the road graph
+     * @param roadNodeByPoi POI name → index of the node in {@code graph} the POI is routed from
+     * @return the matrix
+     */
+    static PoiDurationMatrix compute(RoadGraph graph, Map<String, Integer> roadNodeByPoi) {
+        var indexByName = new HashMap<String, Integer>();
+        var poisByRoadNode = new LinkedHashMap<Integer, List<Integer>>();
+        for (var entry : roadNodeByPoi.entrySet()) {
+            int poi = indexByName.size();
+            indexByName.put(entry.getKey(), poi);
+            poisByRoadNode.computeIfAbsent(entry.getValue(), k -> new ArrayList<>()).add(poi);
+        }
+        int size = indexByName.size();
+        int[] roadNodes = poisByRoadNode.keySet().stream().mapToInt(Integer::intValue).toArray();
+        int[][] poisOnRoadNode = poisByRoadNode.values().stream()
+                .map(pois -> pois.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+        int[] durations = new int[Math.multiplyExact(size, size)];
+
+        IntStream.range(0, roadNodes.length).parallel().forEach(source -> {
+            double[] routeDurations = graph.durationsFrom(roadNodes[source], roadNodes);
+            for (int from : poisOnRoadNode[source]) {
+                int row = from * size;
+                for (int target = 0; target < roadNodes.length; target++) {
+                    double d = routeDurations[roadNodes[target]];
+                    int duration = Double.isNaN(d) ? -1 : (int) Math.round(d);
+                    for (int to : poisOnRoadNode[target]) {
+                        durations[row + to] = duration;
+                    }
+                }
+            }
+        });
+        return new PoiDurationMatrix(Map.copyOf(indexByName), IntBuffer.wrap(durations));
+    }
+
+    /**
+     * Memory-maps a matrix written by {@link #write}.
+     *
+     * @param file the file to read
+     * @param key the key the matrix must have been written with
+     * @return the matrix, or null if the file does not exist, was written with another key or
+     *         format version, or is damaged
+     * @throws IOException if the file exists but cannot be read
+     */
+    static PoiDurationMatrix read(Path file, String key) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION || !key.equals(readString(buffer))) {
+                return null;
+            }
+            int size = buffer.getInt();
+            if (size < 0) {
+                return null;
+            }
+            var indexByName = new HashMap<String, Integer>();
+            for (int poi = 0; poi < size; poi++) {
+                indexByName.put(readString(buffer), poi);
+            }
+            buffer.position((buffer.position() + 3) & ~3);
+            if (indexByName.size() != size || buffer.remaining() != (long) size * size * Integer.BYTES) {
+                return null;
+            }
+            return new PoiDurationMatrix(Map.copyOf(indexByName), buffer.slice().asIntBuffer());
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the matrix to a file, replacing it atomically so a concurrent {@link #read}
+     * sees either the previous file or the complete new one.
+     *
+     * @param file the file to write
+     * @param key identifies what the matrix was computed from, checked by {@link #read}
+     * @throws IOException if the file cannot be written
+     */
+    void write(Path file, String key) throws IOException {
+        var header = new ByteArrayOutputStream();
+        var out = new DataOutputStream(header);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, key);
+        out.writeInt(size);
+        String[] names = new String[size];
+        indexByName.forEach((name, index) -> names[index] = name);
+        for (String name : names) {
+            writeString(out, name);
+        }
+        while (out.size() % Integer.BYTES != 0) {
+            out.writeByte(0);
+        }
+
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                writeFully(channel, ByteBuffer.wrap(header.toByteArray()));
+                ByteBuffer chunk = ByteBuffer.allocate(WRITE_CHUNK_INTS * Integer.BYTES);
+                IntBuffer remaining = durations.duplicate().rewind();
+                while (remaining.hasRemaining()) {
+                    IntBuffer part = remaining.slice(remaining.position(),
+                            Math.min(WRITE_CHUNK_INTS, remaining.remaining()));
+                    chunk.clear();
+                    chunk.asIntBuffer().put(part);
+                    chunk.limit(part.capacity() * Integer.BYTES);
+                    writeFully(channel, chunk);
+                    remaining.position(remaining.position() + part.capacity());
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Returns the number of POIs. */
+    int size() {
+        return size;
+    }
+
+    /** Returns the names of the POIs. */
+    Set<String> poiNames() {
+        return indexByName.keySet();
+    }
+
+    /**
+     * Returns the duration between two POIs in seconds, or -1 if either is unknown or there is
+     * no route between them.
+     */
+    int duration(String from, String to) {
+        Integer fromIndex = indexByName.get(from);
+        Integer toIndex = indexByName.get(to);
+        if (fromIndex == null || toIndex == null) {
+            return -1;
+        }
+        return durations.get(fromIndex * size + toIndex);
+    }
+}
@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Logger;
 
@@ -18,13 +19,32 @@ import java.util.logging.Logger;
  * <p>
  * Matches by cheID (from the asset event) against the QC name on the action's
  * work instructions (fetchChe), and by operationalEvent against the condition type.
+ * Events are routed to actions by QC name.
  */
-public class QCAssetEventEvaluator implements CompletionConditionEvaluator {
+public class QCAssetEventEvaluator implements RoutedCompletionConditionEvaluator {
 
     private static final Logger logger = Logger.getLogger(QCAssetEventEvaluator.class.getName());
 
     public static final String CONDITION_TYPE = "QC_ASSET_EVENT";
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(AssetEvent.class);
+    }
+
+    @Override
+    public String routingKey(Event event) {
+        return event instanceof AssetEvent assetEvent && assetEvent.operationalEvent() != null
+                ? assetEvent.cheId() : null;
+    }
+
+    @Override
+    public Set<String> routingKeys(Action action) {
+        String actionQc = resolveQcName(action);
+        return actionQc != null && RoutedCompletionConditionEvaluator.hasCondition(action, CONDITION_TYPE)
+                ? Set.of(actionQc) : Set.of();
+    }
+
     @Override
     public Map<UUID, List<String>> evaluateSatisfied(Event event, Map<UUID, Action> activeActions) {
         if (!(event instanceof AssetEvent assetEvent)) {
@@ -1,8 +1,9 @@
 package com.wonderingwizard.processors;
 
 import com.wonderingwizard.engine.Event;
-import com.wonderingwizard.engine.EventProcessor;
 import com.wonderingwizard.engine.SideEffect;
+import com.wonderingwizard.engine.UndoJournal;
+import com.wonderingwizard.engine.UndoableEventProcessor;
 import com.wonderingwizard.events.CraneAvailabilityStatus;
 import com.wonderingwizard.events.CraneAvailabilityStatusEvent;
 import com.wonderingwizard.events.CraneDelayActivityEvent;
@@ -15,6 +16,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Processor that maintains the current state of quay cranes (QCs).
@@ -25,12 +27,13 @@ import java.util.Map;
  * overrides the previous state. New QCs are created automatically when first seen
  * (from any event type).
  */
-public class QCStateProcessor implements EventProcessor {
+public class QCStateProcessor implements UndoableEventProcessor {
 
     private final Map<String, QuayCraneMappingEvent> qcState = new LinkedHashMap<>();
     private final Map<String, CraneReadinessEvent> craneReadiness = new LinkedHashMap<>();
     private final Map<String, CraneAvailabilityStatus> craneAvailability = new LinkedHashMap<>();
     private final Map<String, List<CraneDelayActivityEvent>> craneDelays = new LinkedHashMap<>();
+    private UndoJournal undoJournal = new UndoJournal();
 
     private static final int MAX_DELAYS_PER_CRANE = 3;
 
@@ -51,11 +54,21 @@ public class QCStateProcessor implements EventProcessor {
         return List.of();
     }
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(
+                QuayCraneMappingEvent.class,
+                CraneReadinessEvent.class,
+                CraneAvailabilityStatusEvent.class,
+                CraneDelayActivityEvent.class);
+    }
+
     private List<SideEffect> handleQCEvent(QuayCraneMappingEvent event) {
         String name = event.quayCraneShortName();
         if (name == null || name.isBlank()) {
             return List.of();
         }
+        undoJournal.recordMapEntry(qcState, name);
         qcState.put(name, event);
         return List.of(new QCStateUpdated(name, event));
     }
@@ -67,10 +80,12 @@ public class QCStateProcessor implements EventProcessor {
         }
         // Create a minimal QC mapping entry if QC is not yet known
         if (!qcState.containsKey(name)) {
+            undoJournal.recordMapEntry(qcState, name);
             qcState.put(name, new QuayCraneMappingEvent(
                     name, null, null, null,
                     null, null, null, null, null, "", 0L));
         }
+        undoJournal.recordMapEntry(craneReadiness, name);
         craneReadiness.put(name, event);
         return List.of(new QCStateUpdated(name, qcState.get(name)));
     }
@@ -82,10 +97,12 @@ public class QCStateProcessor implements EventProcessor {
         }
         // Create a minimal QC mapping entry if QC is not yet known
         if (!qcState.containsKey(cheId)) {
+            undoJournal.recordMapEntry(qcState, cheId);
             qcState.put(cheId, new QuayCraneMappingEvent(
                     cheId, null, null, null,
                     null, null, null, null, null, event.terminalCode(), event.sourceTsMs()));
         }
+        undoJournal.recordMapEntry(craneAvailability, cheId);
         craneAvailability.put(cheId, event.cheStatus());
         return List.of(new QCStateUpdated(cheId, qcState.get(cheId)));
     }
@@ -96,16 +113,20 @@ public class QCStateProcessor implements EventProcessor {
             return List.of();
         }
         if (!qcState.containsKey(name)) {
+            undoJournal.recordMapEntry(qcState, name);
             qcState.put(name, new QuayCraneMappingEvent(
                     name, null, null, null,
                     null, null, null, null, null,
                     event.cdhTerminalCode() != null ? event.cdhTerminalCode() : "", 0L));
         }
-        List<CraneDelayActivityEvent> delays = craneDelays.computeIfAbsent(name, k -> new ArrayList<>());
+        // Replace rather than mutate the list so the previous one can be put back on undo
+        List<CraneDelayActivityEvent> delays = new ArrayList<>(craneDelays.getOrDefault(name, List.of()));
         delays.add(event);
         while (delays.size() > MAX_DELAYS_PER_CRANE) {
             delays.removeFirst();
         }
+        undoJournal.recordMapEntry(craneDelays, name);
+        craneDelays.put(name, delays);
         return List.of(new QCStateUpdated(name, qcState.get(name)));
     }
 
@@ -148,6 +169,11 @@ public class QCStateProcessor implements EventProcessor {
         return Map.copyOf(copy);
     }
 
+    @Override
+    public void setUndoJournal(UndoJournal journal) {
+        this.undoJournal = journal;
+    }
+
     @Override
     public Object captureState() {
         Map<String, Object> snapshot = new HashMap<>();
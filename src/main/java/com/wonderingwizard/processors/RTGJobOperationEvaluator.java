@@ -9,8 +9,10 @@ import com.wonderingwizard.events.WorkInstructionEvent;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Logger;
 
@@ -19,13 +21,51 @@ import java.util.logging.Logger;
  * <p>
  * Matches by cheId (RTG name = wi.putChe()), workInstructionId, containerId,
  * and job operation action code (condition description must match the event's action, e.g. "A" or "D").
+ * Events are routed to actions by RTG name and work instruction ID.
  */
-public class RTGJobOperationEvaluator implements CompletionConditionEvaluator {
+public class RTGJobOperationEvaluator implements RoutedCompletionConditionEvaluator {
 
     private static final Logger logger = Logger.getLogger(RTGJobOperationEvaluator.class.getName());
 
     public static final String CONDITION_TYPE = "RTG_JOB_OPERATION";
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(JobOperationEvent.class);
+    }
+
+    @Override
+    public String routingKey(Event event) {
+        if (!(event instanceof JobOperationEvent jobOp)
+                || jobOp.action() == null || jobOp.cheId() == null || jobOp.containerId() == null
+                || jobOp.workInstructionId() == null) {
+            return null;
+        }
+        try {
+            return routingKey(jobOp.cheId(), Long.parseLong(jobOp.workInstructionId()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Set<String> routingKeys(Action action) {
+        if (!RoutedCompletionConditionEvaluator.hasCondition(action, CONDITION_TYPE)) {
+            return Set.of();
+        }
+        Set<String> keys = new HashSet<>();
+        for (WorkInstructionEvent wi : action.workInstructions()) {
+            if (wi.putChe() != null) {
+                keys.add(routingKey(wi.putChe(), wi.workInstructionId()));
+            }
+        }
+        return keys;
+    }
+
+    private static String routingKey(String rtgName, long workInstructionId) {
+        return rtgName + ":" + workInstructionId;
+    }
+
     @Override
     public Map<UUID, List<String>> evaluateSatisfied(Event event, Map<UUID, Action> activeActions) {
         if (!(event instanceof JobOperationEvent jobOp)) {
@@ -0,0 +1,318 @@
+package com.wonderingwizard.processors;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Road network of a digital map in compressed sparse row form.
+ * <p>
+ * Nodes are numbered in the order they were added. The edges leaving node {@code n} are the
+ * entries {@code edgeStart[n]} to {@code edgeStart[n + 1]} (exclusive) of the parallel edge
+ * arrays, in the order they were added. Searches run on these arrays with an indexed binary
+ * heap, so they neither box distances nor hash node ids; ids are only resolved when a query
+ * starts, through {@link #indexOf}.
+ * <p>
+ * Routes minimize the priority-weighted cost of their edges, {@code duration / 60 × priority},
+ * to prefer higher-priority roads (matching the C# WeightCalculator); the duration of a route
+ * is the sum of its edges' durations. Instances are immutable.
+ */
+final class RoadGraph {
+
+    static final RoadGraph EMPTY = new Builder().build();
+
+    private final String[] nodeIds;
+    private final Map<String, Integer> indexById;
+    /** Coordinates per node, NaN if the layout has none. */
+    private final double[] lats;
+    private final double[] lons;
+    /** First edge of each node; one entry more than there are nodes. */
+    private final int[] edgeStart;
+    private final int[] edgeTargets;
+    private final double[] edgeDurations;
+    private final double[] edgeWeights;
+
+    private RoadGraph(Builder builder) {
+        int nodeCount = builder.nodeCount;
+        int edgeCount = builder.edgeCount;
+        this.nodeIds = Arrays.copyOf(builder.nodeIds, nodeCount);
+        this.indexById = Map.copyOf(builder.indexById);
+        this.lats = Arrays.copyOf(builder.lats, nodeCount);
+        this.lons = Arrays.copyOf(builder.lons, nodeCount);
+        this.edgeStart = new int[nodeCount + 1];
+        this.edgeTargets = new int[edgeCount];
+        this.edgeDurations = new double[edgeCount];
+        this.edgeWeights = new double[edgeCount];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            edgeStart[builder.edgeSources[edge] + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            edgeStart[node + 1] += edgeStart[node];
+        }
+        // Stable counting sort by source keeps the edges of a node in the order they were added
+        int[] next = Arrays.copyOf(edgeStart, nodeCount);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            int slot = next[builder.edgeSources[edge]]++;
+            edgeTargets[slot] = builder.edgeTargets[edge];
+            edgeDurations[slot] = builder.edgeDurations[edge];
+            edgeWeights[slot] = builder.edgeWeights[edge];
+        }
+    }
+
+    int nodeCount() {
+        return nodeIds.length;
+    }
+
+    int edgeCount() {
+        return edgeTargets.length;
+    }
+
+    /**
+     * Returns the index of the node with the given OSM id, or -1 if the graph does not contain it.
+     */
+    int indexOf(String nodeId) {
+        Integer index = indexById.get(nodeId);
+        return index != null ? index : -1;
+    }
+
+    String nodeId(int node) {
+        return nodeIds[node];
+    }
+
+    double lat(int node) {
+        return lats[node];
+    }
+
+    double lon(int node) {
+        return lons[node];
+    }
+
+    /**
+     * Searches the shortest routes from {@code source} until every target is settled.
+     *
+     * @param source the start node
+     * @param targets the nodes whose durations are needed
+     * @return the route duration in seconds per node, NaN for nodes that were not reached;
+     *         final for every target
+     */
+    double[] durationsFrom(int source, int[] targets) {
+        boolean[] isTarget = new boolean[nodeIds.length];
+        int remaining = 0;
+        for (int target : targets) {
+            if (!isTarget[target]) {
+                isTarget[target] = true;
+                remaining++;
+            }
+        }
+        Search search = new Search(source);
+        while (remaining > 0 && !search.isEmpty()) {
+            if (isTarget[search.settleNext()]) {
+                remaining--;
+            }
+        }
+        return search.durations;
+    }
+
+    /**
+     * Returns the nodes of the shortest route from {@code from} to {@code to}, both included,
+     * or an empty array if {@code to} cannot be reached.
+     */
+    int[] path(int from, int to) {
+        if (from == to) {
+            return new int[] {from};
+        }
+        Search search = new Search(from);
+        while (!search.isEmpty() && search.settleNext() != to) {
+            // settle nodes until the destination is reached
+        }
+        if (search.previous[to] < 0) {
+            return new int[0];
+        }
+        int length = 1;
+        for (int node = to; node != from; node = search.previous[node]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int node = to, i = length - 1; i >= 0; node = search.previous[node], i--) {
+            path[i] = node;
+        }
+        return path;
+    }
+
+    /**
+     * One Dijkstra search: per-node weights, durations and predecessors, and a binary min-heap
+     * of node indices ordered by weight, with each node's heap slot so its key can be decreased
+     * in place.
+     */
+    private final class Search {
+        final double[] weights;
+        final double[] durations;
+        final int[] previous;
+        private final int[] heap;
+        /** Slot of each node in {@link #heap}, -1 if it is not queued. */
+        private final int[] heapSlots;
+        private int heapSize;
+
+        Search(int source) {
+            int nodeCount = nodeIds.length;
+            weights = new double[nodeCount];
+            durations = new double[nodeCount];
+            previous = new int[nodeCount];
+            heap = new int[nodeCount];
+            heapSlots = new int[nodeCount];
+            Arrays.fill(weights, Double.MAX_VALUE);
+            Arrays.fill(durations, Double.NaN);
+            Arrays.fill(previous, -1);
+            Arrays.fill(heapSlots, -1);
+            weights[source] = 0.0;
+            durations[source] = 0.0;
+            push(source);
+        }
+
+        boolean isEmpty() {
+            return heapSize == 0;
+        }
+
+        /** Removes the queued node with the lowest weight, relaxes its edges and returns it. */
+        int settleNext() {
+            int node = heap[0];
+            heapSlots[node] = -1;
+            heapSize--;
+            if (heapSize > 0) {
+                int last = heap[heapSize];
+                heap[0] = last;
+                heapSlots[last] = 0;
+                siftDown(0);
+            }
+            double weight = weights[node];
+            double duration = durations[node];
+            for (int edge = edgeStart[node]; edge < edgeStart[node + 1]; edge++) {
+                int target = edgeTargets[edge];
+                double newWeight = weight + edgeWeights[edge];
+                if (newWeight < weights[target]) {
+                    weights[target] = newWeight;
+                    durations[target] = duration + edgeDurations[edge];
+                    previous[target] = node;
+                    if (heapSlots[target] < 0) {
+                        push(target);
+                    } else {
+                        siftUp(heapSlots[target]);
+                    }
+                }
+            }
+            return node;
+        }
+
+        private void push(int node) {
+            heap[heapSize] = node;
+            heapSlots[node] = heapSize;
+            siftUp(heapSize++);
+        }
+
+        private void siftUp(int slot) {
+            int node = heap[slot];
+            double weight = weights[node];
+            while (slot > 0) {
+                int parentSlot = (slot - 1) >>> 1;
+                int parent = heap[parentSlot];
+                if (weights[parent] <= weight) {
+                    break;
+                }
+                heap[slot] = parent;
+                heapSlots[parent] = slot;
+                slot = parentSlot;
+            }
+            heap[slot] = node;
+            heapSlots[node] = slot;
+        }
+
+        private void siftDown(int slot) {
+            int node = heap[slot];
+            double weight = weights[node];
+            while (true) {
+                int childSlot = 2 * slot + 1;
+                if (childSlot >= heapSize) {
+                    break;
+                }
+                if (childSlot + 1 < heapSize && weights[heap[childSlot + 1]] < weights[heap[childSlot]]) {
+                    childSlot++;
+                }
+                int child = heap[childSlot];
+                if (weight <= weights[child]) {
+                    break;
+                }
+                heap[slot] = child;
+                heapSlots[child] = slot;
+                slot = childSlot;
+            }
+            heap[slot] = node;
+            heapSlots[node] = slot;
+        }
+    }
+
+    /**
+     * Collects nodes and edges in any order and lays them out on {@link #build()}.
+     */
+    static final class Builder {
+        private final Map<String, Integer> indexById = new HashMap<>();
+        private String[] nodeIds = new String[16];
+        private double[] lats = new double[16];
+        private double[] lons = new double[16];
+        private int nodeCount;
+        private int[] edgeSources = new int[16];
+        private int[] edgeTargets = new int[16];
+        private double[] edgeDurations = new double[16];
+        private double[] edgeWeights = new double[16];
+        private int edgeCount;
+
+        /**
+         * Adds a node, or returns the index of the node with that id if it was added before.
+         *
+         * @param lat the latitude, NaN if unknown
+         * @param lon the longitude, NaN if unknown
+         * @return the index of the node
+         */
+        int addNode(String nodeId, double lat, double lon) {
+            Integer existing = indexById.get(nodeId);
+            if (existing != null) {
+                return existing;
+            }
+            if (nodeCount == nodeIds.length) {
+                int capacity = nodeCount * 2;
+                nodeIds = Arrays.copyOf(nodeIds, capacity);
+                lats = Arrays.copyOf(lats, capacity);
+                lons = Arrays.copyOf(lons, capacity);
+            }
+            nodeIds[nodeCount] = nodeId;
+            lats[nodeCount] = lat;
+            lons[nodeCount] = lon;
+            indexById.put(nodeId, nodeCount);
+            return nodeCount++;
+        }
+
+        /**
+         * Adds a directed edge between two added nodes.
+         *
+         * @param durationSeconds the travel time along the edge
+         * @param priority the route priority the duration is weighted with
+         */
+        void addEdge(int from, int to, double durationSeconds, int priority) {
+            if (edgeCount == edgeSources.length) {
+                int capacity = edgeCount * 2;
+                edgeSources = Arrays.copyOf(edgeSources, capacity);
+                edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+                edgeDurations = Arrays.copyOf(edgeDurations, capacity);
+                edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+            }
+            edgeSources[edgeCount] = from;
+            edgeTargets[edgeCount] = to;
+            edgeDurations[edgeCount] = durationSeconds;
+            edgeWeights[edgeCount] = (durationSeconds / 60.0) * priority;
+            edgeCount++;
+        }
+
+        RoadGraph build() {
+            return new RoadGraph(this);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.wonderingwizard.processors;
+
+import com.wonderingwizard.domain.takt.Action;
+import com.wonderingwizard.domain.takt.CompletionCondition;
+import com.wonderingwizard.engine.Event;
+
+import java.util.Set;
+
+/**
+ * A {@link CompletionConditionEvaluator} whose events only match actions sharing a lookup key
+ * with the event, e.g. the QC name of an asset event or the action ID of a position event.
+ * <p>
+ * {@link ScheduleRunnerProcessor} keeps its ACTIVE actions indexed by {@link #routingKeys(Action)}
+ * and passes {@link #evaluateSatisfied} only the actions indexed under {@link #routingKey(Event)},
+ * so matching an event does not scan every active action.
+ */
+public interface RoutedCompletionConditionEvaluator extends CompletionConditionEvaluator {
+
+    /**
+     * Returns the key of the actions the event can satisfy conditions on.
+     *
+     * @param event the event to route
+     * @return the lookup key, or null if the event cannot satisfy any condition of this evaluator
+     */
+    String routingKey(Event event);
+
+    /**
+     * Returns the keys under which an active action can be matched by this evaluator. Must only
+     * depend on the action's ID, work instructions and completion conditions, since the index
+     * re-reads them only when one of these changes.
+     *
+     * @param action the action to index
+     * @return the lookup keys, empty if the action has no condition handled by this evaluator
+     */
+    Set<String> routingKeys(Action action);
+
+    /**
+     * Checks whether the action has a completion condition of the given type.
+     *
+     * @param action the action to check
+     * @param conditionType the condition type, e.g. {@link QCAssetEventEvaluator#CONDITION_TYPE}
+     * @return true if any of the action's completion conditions has that type
+     */
+    static boolean hasCondition(Action action, String conditionType) {
+        if (action.completionConditions() == null) {
+            return false;
+        }
+        for (CompletionCondition condition : action.completionConditions()) {
+            if (conditionType.equals(condition.type())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
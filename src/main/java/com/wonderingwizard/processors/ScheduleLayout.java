@@ -0,0 +1,146 @@
+package com.wonderingwizard.processors;
+
+import com.wonderingwizard.domain.takt.Action;
+import com.wonderingwizard.domain.takt.Takt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Dense integer handles for the actions and takts of one schedule.
+ * <p>
+ * A takt's handle is its index in the schedule's takt list. Actions are numbered in the order
+ * the takts list them, so the actions of a takt have increasing handles. Schedule state is kept
+ * in arrays indexed by these handles; UUIDs and takt names are only translated at the edges,
+ * i.e. for incoming events, side effects and the public accessors.
+ * <p>
+ * A layout is immutable and shared by every copy of a schedule's state. Replacing a takt
+ * creates a new layout with {@link #withTakts}; actions it lists that the schedule does not know
+ * get no handle.
+ */
+final class ScheduleLayout {
+
+    private final UUID[] actionIds;
+    private final Map<UUID, Integer> actionHandles;
+    private final String[] taktNames;
+    private final Map<String, Integer> taktHandles;
+    /** Takt listing each action, or -1 if no takt lists it any more. */
+    private final int[] taktOfAction;
+    /** Position of each action within its takt. */
+    private final int[] positions;
+    /** Handles of the actions each takt lists, in takt order. */
+    private final int[][] taktActions;
+    /** Takt handles sorted by takt sequence. */
+    private final int[] sequenceOrder;
+
+    private ScheduleLayout(UUID[] actionIds, Map<UUID, Integer> actionHandles, List<Takt> takts) {
+        this.actionIds = actionIds;
+        this.actionHandles = actionHandles;
+        this.taktNames = new String[takts.size()];
+        this.taktHandles = new HashMap<>();
+        this.taktOfAction = new int[actionIds.length];
+        this.positions = new int[actionIds.length];
+        this.taktActions = new int[takts.size()][];
+        Arrays.fill(taktOfAction, -1);
+        for (int takt = 0; takt < takts.size(); takt++) {
+            taktNames[takt] = takts.get(takt).name();
+            taktHandles.putIfAbsent(taktNames[takt], takt);
+            List<Action> listed = takts.get(takt).actions();
+            int[] handles = new int[listed.size()];
+            int count = 0;
+            for (Action action : listed) {
+                Integer handle = actionHandles.get(action.id());
+                if (handle != null) {
+                    handles[count] = handle;
+                    taktOfAction[handle] = takt;
+                    positions[handle] = count++;
+                }
+            }
+            taktActions[takt] = count == handles.length ? handles : Arrays.copyOf(handles, count);
+        }
+        List<Integer> order = new ArrayList<>(takts.size());
+        for (int takt = 0; takt < takts.size(); takt++) {
+            order.add(takt);
+        }
+        // Stable, so takts of equal sequence keep their list order
+        order.sort(Comparator.comparingInt(takt -> takts.get(takt).sequence()));
+        this.sequenceOrder = order.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Numbers the actions of the takts in the order the takts list them.
+     */
+    static ScheduleLayout of(List<Takt> takts) {
+        List<UUID> ids = new ArrayList<>();
+        Map<UUID, Integer> handles = new HashMap<>();
+        for (Takt takt : takts) {
+            for (Action action : takt.actions()) {
+                if (handles.putIfAbsent(action.id(), ids.size()) == null) {
+                    ids.add(action.id());
+                }
+            }
+        }
+        return new ScheduleLayout(ids.toArray(new UUID[0]), handles, takts);
+    }
+
+    /**
+     * Returns the layout of the same actions as listed by {@code takts}, e.g. after one of
+     * the takts was replaced. Actions keep their handles.
+     */
+    ScheduleLayout withTakts(List<Takt> takts) {
+        return new ScheduleLayout(actionIds, actionHandles, takts);
+    }
+
+    int actionCount() {
+        return actionIds.length;
+    }
+
+    int taktCount() {
+        return taktNames.length;
+    }
+
+    /** Returns the handle of an action, or -1 if it is not part of the schedule. */
+    int action(UUID actionId) {
+        Integer handle = actionHandles.get(actionId);
+        return handle != null ? handle : -1;
+    }
+
+    UUID actionId(int action) {
+        return actionIds[action];
+    }
+
+    /** Returns the handle of a takt, or -1 if the schedule has no takt of that name. */
+    int takt(String taktName) {
+        Integer handle = taktHandles.get(taktName);
+        return handle != null ? handle : -1;
+    }
+
+    String taktName(int takt) {
+        return taktNames[takt];
+    }
+
+    /** Returns the takt listing the action, or -1 if none does. */
+    int taktOf(int action) {
+        return taktOfAction[action];
+    }
+
+    /** Returns the position of the action within the takt listing it. */
+    int position(int action) {
+        return positions[action];
+    }
+
+    /** Returns the actions the takt lists, in takt order. Callers must not modify the array. */
+    int[] actionsOf(int takt) {
+        return taktActions[takt];
+    }
+
+    /** Returns the takts in sequence order. Callers must not modify the array. */
+    int[] sequenceOrder() {
+        return sequenceOrder;
+    }
+}
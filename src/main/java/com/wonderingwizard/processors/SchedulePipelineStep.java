@@ -51,6 +51,28 @@ public interface SchedulePipelineStep {
             WorkInstructionEvent workInstruction
     );
 
+    /**
+     * Returns a value that changes whenever the external data this step enriches templates
+     * from changes. A schedule rebuild reuses the enriched templates of unchanged containers
+     * only while the versions of all steps are unchanged.
+     *
+     * @return the version of the step's inputs; 0 for steps that only depend on their arguments
+     */
+    default long inputsVersion() {
+        return 0;
+    }
+
+    /**
+     * Returns this step bound to the external data it currently enriches templates from.
+     * Called on the event thread when a schedule build is requested, so that a build running
+     * on another thread sees the data as of the event that requested it.
+     *
+     * @return a step that no later event affects; this step if it only depends on its arguments
+     */
+    default SchedulePipelineStep snapshot() {
+        return this;
+    }
+
     /**
      * Backward-compatible default: delegates to the new method with a minimal context.
      */
@@ -16,12 +16,16 @@ import com.wonderingwizard.domain.takt.EventGateCondition;
 import com.wonderingwizard.domain.takt.TaktCondition;
 import com.wonderingwizard.domain.takt.Takt;
 import com.wonderingwizard.domain.takt.TimeCondition;
+import com.wonderingwizard.engine.BatchingEventProcessor;
 import com.wonderingwizard.engine.Event;
-import com.wonderingwizard.engine.EventProcessor;
 import com.wonderingwizard.engine.SideEffect;
+import com.wonderingwizard.engine.SideEffectSink;
+import com.wonderingwizard.engine.UndoJournal;
+import com.wonderingwizard.engine.UndoableEventProcessor;
 import com.wonderingwizard.events.ActionCompletedEvent;
 import com.wonderingwizard.events.AssetEvent;
 import com.wonderingwizard.events.CheTargetPositionEvent;
+import com.wonderingwizard.events.ContainerHandlingEquipmentEvent;
 import com.wonderingwizard.events.JobOperationEvent;
 import com.wonderingwizard.events.NukeWorkQueueEvent;
 import com.wonderingwizard.events.OverrideActionConditionEvent;
@@ -40,6 +44,8 @@ import com.wonderingwizard.sideeffects.WorkInstructionCanceled;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.logging.Logger;
 import java.util.HashMap;
@@ -47,6 +53,8 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.UUID;
 
@@ -65,91 +73,219 @@ import java.util.UUID;
  *   <li>An action transitions to Active when its takt is Active AND all its dependencies are Completed</li>
  *   <li>An action transitions to Completed when an ActionCompletedEvent with matching UUID is received</li>
  * </ul>
+ * <p>
+ * After every event an activation sweep settles all schedules. In a batch, the sweep is run once
+ * for consecutive events that neither depend on its outcome nor advance the time, as if they had
+ * arrived together; it runs before any other event and at the end of the batch.
  */
-public class ScheduleRunnerProcessor implements EventProcessor {
+public class ScheduleRunnerProcessor implements UndoableEventProcessor, BatchingEventProcessor {
 
     public enum TaktState { WAITING, ACTIVE, COMPLETED }
 
     /**
      * Tracks the schedule state for each work queue.
+     * <p>
+     * Actions and takts are identified by their {@link ScheduleLayout} handles, and their state
+     * is kept in arrays indexed by handle. Action UUIDs and takt names are only looked up for
+     * incoming events and outgoing side effects.
+     * <p>
+     * Snapshots share unchanged schedules: {@link #captureState()} hands out the frozen copy in
+     * {@link #captured} and only re-copies a schedule after one of its mutators has cleared it.
+     * {@link #restoreState} does the reverse: a restored schedule starts out {@link #shared}
+     * with its frozen copy and takes its own copy on the first change. Every change to a live
+     * schedule must therefore go through the mutator methods below, which also record their
+     * inverse in the processor's {@link UndoJournal} and mark the schedule {@link #dirty} for
+     * the activation sweep.
      */
     private static class ScheduleState {
+        /** Immutable copy referenced by snapshots, or null if this state changed since the last capture. */
+        ScheduleState captured;
+        /** Whether the arrays and collections below are those of {@link #captured}, to be copied before a change. */
+        boolean shared;
+        /** The processor's uncaptured work queues, which {@link #workQueueId} joins when {@link #captured} is cleared. */
+        Set<Long> uncaptured;
+        UndoJournal journal;
         Instant estimatedMoveTime;
         List<Takt> takts;
-        Map<UUID, ActionInfo> actionLookup;
-        Map<String, TaktState> taktStates;
-        Map<String, Instant> actualStartTimes;
-        /** Conditions per takt, keyed by takt name. */
-        Map<String, List<TaktCondition>> taktConditions;
-        /** Overridden condition IDs per takt, keyed by takt name. */
-        Map<String, Set<String>> overriddenConditions;
-        /** Overridden action condition IDs per action, keyed by action UUID. */
-        Map<UUID, Set<String>> overriddenActionConditions;
-        /** Satisfied event gate IDs per gated action UUID. */
-        Map<UUID, Set<String>> satisfiedEventGates;
-        /** Armed event gate IDs per gated action UUID. */
-        Map<UUID, Set<String>> armedEventGates;
-        /** Index from event type to gated action UUIDs for fast lookup on WI event arrival. */
-        Map<String, List<UUID>> eventTypeToGatedActions;
-        /** Maps gated action UUID to the source action UUID that arms the gate. */
-        Map<UUID, UUID> gateArmSourceActions;
-
-        ScheduleState(Instant estimatedMoveTime, List<Takt> takts) {
+        /** Handles of the actions and takts; replaced, never modified, when a takt is replaced. */
+        ScheduleLayout layout;
+        /** Definition of each action, by action handle. Its runtime state is in {@link #actionStates}. */
+        Action[] definitions;
+        /** Status, truck, target equipment, completion reason and actual times of each action. */
+        ActionStateTable actionStates;
+        /** Results of {@link #action(int)}, by action handle, or null until requested after a change. */
+        Action[] views;
+        /** State of each takt, by takt handle. */
+        TaktState[] taktStates;
+        /** Actual start time of each takt, by takt handle. */
+        Instant[] actualStartTimes;
+        /** Conditions of each takt, by takt handle. */
+        List<TaktCondition>[] taktConditions;
+        /** Overridden condition IDs of each takt, by takt handle. */
+        Set<String>[] overriddenConditions;
+        /** Overridden action condition IDs, keyed by action handle. Few actions have any. */
+        Map<Integer, Set<String>> overriddenActionConditions;
+        /** Satisfied event gate IDs of each gated action, by action handle, or null if none. */
+        Set<String>[] satisfiedEventGates;
+        /** Armed event gate IDs of each gated action, by action handle, or null if none. */
+        Set<String>[] armedEventGates;
+        /** Index from event type to gated action handles for fast lookup on WI event arrival. */
+        Map<String, int[]> eventTypeToGatedActions;
+        /** Source action arming the gates of each gated action, by action handle, or -1. */
+        int[] gateArmSources;
+        /** Gated actions whose gates each action arms when it activates, by action handle. */
+        int[][] armedGatesOf;
+        /** Whether this state changed since the activation sweep last evaluated it. */
+        boolean dirty = true;
+        /** Whether the last evaluation left a TT action pending because no truck was free. */
+        boolean awaitingTruck;
+        /** Time of this schedule's pending entry in the processor's takt deadlines, or null. */
+        Instant wakeTime;
+        /**
+         * Equipment whose occupancy gates actions of this schedule, e.g. "QC:QCZ1", or "TT:*"
+         * when any equipment of the type counts. Only grows: a stale entry costs an extra
+         * evaluation, never a missed one.
+         */
+        Set<String> watchedEquipment;
+        /** Routing index kept up to date by {@link #putAction}, or null if this state is not indexed. */
+        CompletionRoutingIndex completionRouting;
+        /** Occupancy index kept up to date by {@link #putAction} and {@link #setTaktState}, or null if this state is not indexed. */
+        OccupancyIndex occupancy;
+        /** Work queue of this state, set once it is indexed or captured. */
+        long workQueueId;
+        /** Derived from the takts and actions, or null until {@link #dependencies()} builds it. */
+        ActionDependencyGraph dependencyGraph;
+        /** Handles of the TT actions per container index, in takt order, or null until {@link #refreshOccupancy()} builds it. */
+        Map<Integer, int[]> ttActionsByContainer;
+
+        private ScheduleState() {
+        }
+
+        ScheduleState(UndoJournal journal, Instant estimatedMoveTime, List<Takt> takts) {
+            this.journal = journal;
             this.estimatedMoveTime = estimatedMoveTime;
             this.takts = takts;
-            this.actionLookup = new HashMap<>();
-            this.taktStates = new HashMap<>();
-            this.actualStartTimes = new HashMap<>();
-            this.taktConditions = new LinkedHashMap<>();
-            this.overriddenConditions = new HashMap<>();
+            this.layout = ScheduleLayout.of(takts);
+            int actionCount = layout.actionCount();
+            int taktCount = layout.taktCount();
+            this.definitions = new Action[actionCount];
+            this.taktStates = new TaktState[taktCount];
+            this.actualStartTimes = new Instant[taktCount];
+            this.taktConditions = newLists(taktCount);
+            this.overriddenConditions = newSets(taktCount);
             this.overriddenActionConditions = new HashMap<>();
-            this.satisfiedEventGates = new HashMap<>();
-            this.armedEventGates = new HashMap<>();
-            this.eventTypeToGatedActions = new HashMap<>();
-            this.gateArmSourceActions = new HashMap<>();
+            this.satisfiedEventGates = newSets(actionCount);
+            this.armedEventGates = newSets(actionCount);
+            this.watchedEquipment = new HashSet<>();
 
-            // Build action lookup, initialize takt states, and index event gates
+            Arrays.fill(taktStates, TaktState.WAITING);
+            for (int takt = 0; takt < taktCount; takt++) {
+                overriddenConditions[takt] = new HashSet<>();
+            }
             for (Takt takt : takts) {
-                taktStates.put(takt.name(), TaktState.WAITING);
-                overriddenConditions.put(takt.name(), new HashSet<>());
                 for (Action action : takt.actions()) {
-                    actionLookup.put(action.id(), new ActionInfo(takt.name(), action));
-                    // Index event gates for fast lookup
-                    for (EventGateCondition gate : action.eventGates()) {
-                        eventTypeToGatedActions
-                                .computeIfAbsent(gate.requiredEventType(), k -> new ArrayList<>())
-                                .add(action.id());
-                    }
+                    definitions[layout.action(action.id())] = action;
                 }
             }
+            this.actionStates = new ActionStateTable(definitions);
+            this.views = definitions.clone();
 
-            // Resolve gate arm source action UUIDs
-            for (ActionInfo info : actionLookup.values()) {
-                for (EventGateCondition gate : info.action().eventGates()) {
-                    // Find the source action in the same container
-                    for (ActionInfo candidate : actionLookup.values()) {
-                        if (candidate.action().containerIndex() == info.action().containerIndex()
-                                && candidate.action().deviceType() == gate.sourceDeviceType()
-                                && candidate.action().actionType() == gate.sourceActionType()) {
-                            gateArmSourceActions.put(info.action().id(), candidate.action().id());
+            // Index event gates for fast lookup
+            Map<String, List<Integer>> gatedByEventType = new HashMap<>();
+            for (int handle = 0; handle < actionCount; handle++) {
+                watchLocations(definitions[handle]);
+                for (EventGateCondition gate : definitions[handle].eventGates()) {
+                    gatedByEventType.computeIfAbsent(gate.requiredEventType(), k -> new ArrayList<>()).add(handle);
+                }
+            }
+            this.eventTypeToGatedActions = new HashMap<>();
+            for (Map.Entry<String, List<Integer>> entry : gatedByEventType.entrySet()) {
+                eventTypeToGatedActions.put(entry.getKey(),
+                        entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+
+            // Resolve the source action arming each gated action, in the same container
+            this.gateArmSources = new int[actionCount];
+            Arrays.fill(gateArmSources, -1);
+            int[] armedCounts = new int[actionCount];
+            for (int gated = 0; gated < actionCount; gated++) {
+                Action gatedAction = definitions[gated];
+                for (EventGateCondition gate : gatedAction.eventGates()) {
+                    for (int candidate = 0; candidate < actionCount; candidate++) {
+                        Action source = definitions[candidate];
+                        if (source.containerIndex() == gatedAction.containerIndex()
+                                && source.deviceType() == gate.sourceDeviceType()
+                                && source.actionType() == gate.sourceActionType()) {
+                            gateArmSources[gated] = candidate;
                             break;
                         }
                     }
                 }
+                if (gateArmSources[gated] >= 0) {
+                    armedCounts[gateArmSources[gated]]++;
+                }
+            }
+            this.armedGatesOf = new int[actionCount][];
+            for (int source = 0; source < actionCount; source++) {
+                armedGatesOf[source] = new int[armedCounts[source]];
+                armedCounts[source] = 0;
+            }
+            for (int gated = 0; gated < actionCount; gated++) {
+                int source = gateArmSources[gated];
+                if (source >= 0) {
+                    armedGatesOf[source][armedCounts[source]++] = gated;
+                }
             }
         }
 
+        /** Returns the handle of an action, or -1 if it is not part of this schedule. */
+        int actionHandle(UUID actionId) {
+            return layout.action(actionId);
+        }
+
+        /** Returns the action with its current runtime state. */
+        Action action(int handle) {
+            Action view = views[handle];
+            if (view == null) {
+                view = actionStates.apply(handle, definitions[handle]);
+                views[handle] = view;
+            }
+            return view;
+        }
+
+        ActionStatus status(int handle) {
+            return actionStates.statuses[handle];
+        }
+
+        /** Returns the name of the takt listing the action. */
+        String taktNameOf(int action) {
+            int takt = layout.taktOf(action);
+            return takt >= 0 ? layout.taktName(takt) : null;
+        }
+
+        /** Returns the overridden condition IDs of an action. */
+        Set<String> actionOverrides(int action) {
+            return overriddenActionConditions.getOrDefault(action, Set.of());
+        }
+
         /**
-         * Returns actions from non-COMPLETED takts only. This avoids iterating
-         * the thousands of COMPLETED actions that accumulate over time.
+         * Returns the handles of the actions in non-COMPLETED takts only, in takt order. This
+         * avoids iterating the thousands of COMPLETED actions that accumulate over time.
          */
-        List<ActionInfo> getActiveAndWaitingTaktActions() {
-            List<ActionInfo> result = new ArrayList<>();
-            for (Takt takt : takts) {
-                if (taktStates.get(takt.name()) == TaktState.COMPLETED) continue;
-                for (Action action : takt.actions()) {
-                    ActionInfo info = actionLookup.get(action.id());
-                    if (info != null) result.add(info);
+        int[] getActiveAndWaitingTaktActions() {
+            int count = 0;
+            for (int takt = 0; takt < taktStates.length; takt++) {
+                if (taktStates[takt] != TaktState.COMPLETED) {
+                    count += layout.actionsOf(takt).length;
+                }
+            }
+            int[] result = new int[count];
+            count = 0;
+            for (int takt = 0; takt < taktStates.length; takt++) {
+                if (taktStates[takt] != TaktState.COMPLETED) {
+                    int[] listed = layout.actionsOf(takt);
+                    System.arraycopy(listed, 0, result, count, listed.length);
+                    count += listed.length;
                 }
             }
             return result;
@@ -159,49 +295,38 @@ public class ScheduleRunnerProcessor implements EventProcessor {
          * Gets all actions in a given takt that are eligible for activation.
          * An action is eligible when it is not yet active or completed,
          * and all its dependencies are completed.
+         *
+         * @return the eligible action handles, in takt order
          */
-        List<UUID> getActivatableActionsInTakt(String taktName) {
-            return getActivatableActionsInTakt(taktName, Set.of());
-        }
-
-        List<UUID> getActivatableActionsInTakt(String taktName, Set<String> occupiedPositions) {
-            List<UUID> result = new ArrayList<>();
-            // Find the takt and iterate only its actions (not all actions in the schedule)
-            Takt targetTakt = null;
-            for (Takt t : takts) {
-                if (t.name().equals(taktName)) { targetTakt = t; break; }
-            }
-            if (targetTakt == null) return result;
-            for (Action taktAction : targetTakt.actions()) {
-                ActionInfo info = actionLookup.get(taktAction.id());
-                if (info == null) continue;
-                UUID actionId = info.action().id();
-                if (info.action().status() != ActionStatus.PENDING) {
-                    continue;
-                }
-                Set<String> actionOverrides = overriddenActionConditions.getOrDefault(actionId, Set.of());
-                boolean depsOverridden = actionOverrides.contains("action-dependencies");
-                Set<UUID> dependencies = info.action().dependsOn();
-                boolean depsSatisfied = depsOverridden || dependencies == null || dependencies.isEmpty() || areDependenciesCompleted(dependencies);
-                if (!depsSatisfied) {
-                    continue;
+        int[] getActivatableActionsInTakt(int takt, Set<String> occupiedPositions) {
+            // Pending actions with completed dependencies, plus those whose dependency condition is overridden
+            int[] dependencyOverrides = new int[overriddenActionConditions.size()];
+            int overrideCount = 0;
+            for (Map.Entry<Integer, Set<String>> entry : overriddenActionConditions.entrySet()) {
+                if (entry.getValue().contains("action-dependencies")) {
+                    dependencyOverrides[overrideCount++] = entry.getKey();
                 }
+            }
+            int[] ready = dependencies().readyActions(takt, Arrays.copyOf(dependencyOverrides, overrideCount));
+            int count = 0;
+            for (int action : ready) {
+                Action version = definitions[action];
+                Set<String> overrides = actionOverrides(action);
                 // For skipWhenGatesSatisfied actions, event gates define the skip condition,
                 // not an activation barrier — so don't block on them.
-                if (!info.action().skipWhenGatesSatisfied()
-                        && !areEventGatesSatisfied(actionId, info.action(), actionOverrides)) {
+                if (!version.skipWhenGatesSatisfied()
+                        && !areEventGatesSatisfied(action, version, overrides)) {
                     continue;
                 }
                 // Check ACTIVATE-mode location conditions: block if target position is occupied
-                if (isBlockedByLocation(info.action(), occupiedPositions, actionOverrides)) {
+                if (isBlockedByLocation(version, occupiedPositions, overrides)) {
                     continue;
                 }
 
-                result.add(actionId);
+                ready[count++] = action;
             }
-            return result;
+            return count == ready.length ? ready : Arrays.copyOf(ready, count);
         }
-
         /**
          * Checks if any ACTIVATE-mode location condition blocks this action
          * (the target position is occupied, so the truck can't enter).
@@ -254,40 +379,413 @@ public class ScheduleRunnerProcessor implements EventProcessor {
             };
         }
 
-        boolean areDependenciesCompleted(Set<UUID> dependencies) {
-            for (UUID depId : dependencies) {
-                ActionInfo depInfo = actionLookup.get(depId);
-                if (depInfo == null || depInfo.action().status() != ActionStatus.COMPLETED) {
-                    return false;
+        boolean areDependenciesCompleted(int action) {
+            return dependencies().areDependenciesCompleted(action);
+        }
+
+        /**
+         * Returns the dependency graph of the actions, building it on first use after a change
+         * it could not follow.
+         */
+        ActionDependencyGraph dependencies() {
+            if (dependencyGraph == null) {
+                dependencyGraph = new ActionDependencyGraph(layout, definitions, actionStates.statuses);
+            }
+            return dependencyGraph;
+        }
+
+        /**
+         * Updates the action's status.
+         */
+        void setActionStatus(int handle, ActionStatus status, Instant currentTime) {
+            setActionStatus(handle, status, currentTime, actionStates.completionReasons[handle]);
+        }
+
+        /**
+         * Updates the action's status and completion reason.
+         */
+        void setActionStatus(int handle, ActionStatus status, Instant currentTime, CompletionReason reason) {
+            recordAction(handle);
+            ActionStatus before = actionStates.statuses[handle];
+            // Only set actualStartTime once (first activation or first completion if skipped)
+            Instant actualStart = actionStates.actualStartTimes[handle] != null
+                    ? actionStates.actualStartTimes[handle] : currentTime;
+            actionStates.statuses[handle] = status;
+            actionStates.completionReasons[handle] = reason;
+            if (status == ActionStatus.ACTIVE) {
+                actionStates.actualStartTimes[handle] = actualStart;
+                actionStates.actualEndTimes[handle] = null;
+            } else if (status == ActionStatus.COMPLETED) {
+                actionStates.actualStartTimes[handle] = actualStart;
+                actionStates.actualEndTimes[handle] = currentTime;
+            }
+            actionChanged(handle, definitions[handle], before,
+                    actionStates.cheShortNames[handle], actionStates.targetChes[handle]);
+        }
+
+        /**
+         * Assigns a truck to the action, or takes its truck away if {@code cheShortName} is null.
+         */
+        void assignTruck(int handle, Long cheId, String cheShortName) {
+            recordAction(handle);
+            String before = actionStates.cheShortNames[handle];
+            actionStates.cheIds[handle] = cheId;
+            actionStates.cheShortNames[handle] = cheShortName;
+            actionChanged(handle, definitions[handle], actionStates.statuses[handle],
+                    before, actionStates.targetChes[handle]);
+        }
+
+        void setTargetChe(int handle, String targetChe) {
+            recordAction(handle);
+            String before = actionStates.targetChes[handle];
+            actionStates.targetChes[handle] = targetChe;
+            actionChanged(handle, definitions[handle], actionStates.statuses[handle],
+                    actionStates.cheShortNames[handle], before);
+        }
+
+        /**
+         * Replaces the action's definition and runtime state with those of {@code action}.
+         */
+        void putAction(int handle, Action action) {
+            recordAction(handle);
+            Action before = definitions[handle];
+            ActionStatus statusBefore = actionStates.statuses[handle];
+            String cheBefore = actionStates.cheShortNames[handle];
+            String targetBefore = actionStates.targetChes[handle];
+            definitions[handle] = action;
+            actionStates.set(handle, action);
+            actionChanged(handle, before, statusBefore, cheBefore, targetBefore);
+            views[handle] = action;
+        }
+
+        /**
+         * Records the action's current definition and runtime state; call before changing either.
+         * Undoing updates the dependency graph and indexes like the change did.
+         */
+        private void recordAction(int handle) {
+            own();
+            if (!journal.isRecording()) {
+                return;
+            }
+            Action previous = action(handle);
+            journal.record(() -> {
+                Action current = definitions[handle];
+                ActionStatus statusCurrent = actionStates.statuses[handle];
+                String cheCurrent = actionStates.cheShortNames[handle];
+                String targetCurrent = actionStates.targetChes[handle];
+                definitions[handle] = previous;
+                actionStates.set(handle, previous);
+                actionChanged(handle, current, statusCurrent, cheCurrent, targetCurrent);
+                views[handle] = previous;
+            });
+        }
+
+        /**
+         * Marks the state changed and updates the dependency graph and indexes after the
+         * action's definition or runtime state changed.
+         *
+         * @param before the previous definition
+         * @param statusBefore the previous status
+         * @param cheBefore the previously assigned truck
+         * @param targetBefore the previous target equipment
+         */
+        private void actionChanged(int handle, Action before, ActionStatus statusBefore,
+                                   String cheBefore, String targetBefore) {
+            Action definition = definitions[handle];
+            ActionStatus status = actionStates.statuses[handle];
+            boolean holdingChanged = status != statusBefore
+                    || !Objects.equals(cheBefore, actionStates.cheShortNames[handle]);
+            if (holdingChanged || !Objects.equals(targetBefore, actionStates.targetChes[handle])
+                    || affectsActivation(before, definition)) {
+                changed();
+                watchLocations(definition);
+            } else {
+                uncapture();
+            }
+            views[handle] = null;
+            if (dependencyGraph != null) {
+                dependencyGraph.update(handle, before.dependsOn(), statusBefore);
+            }
+            if (completionRouting != null) {
+                completionRouting.update(workQueueId, before, statusBefore, definition, status);
+            }
+            if (occupancy != null && !occupancy.isStale()) {
+                if (before.containerIndex() != definition.containerIndex()
+                        || before.deviceType() != definition.deviceType()) {
+                    // Moves the action to another group of the occupancy layout
+                    occupancy.invalidate();
+                } else if (holdingChanged || affectsOccupancy(before, definition)) {
+                    refreshTruck(handle);
+                    if (definition.deviceType() == DeviceType.TT) {
+                        refreshContainer(definition.containerIndex());
+                    }
                 }
             }
-            return true;
         }
 
         /**
-         * Updates the action's status in the actionLookup.
+         * Whether replacing the definition {@code before} with {@code after} can change the
+         * positions or truck the action accounts for in the {@link #occupancy} index.
          */
-        void setActionStatus(UUID actionId, ActionStatus status, Instant currentTime) {
-            ActionInfo info = actionLookup.get(actionId);
-            if (info != null) {
-                Action action = info.action();
-                Action updated = action.withStatus(status);
-                // Only set actualStartTime once (first activation or first completion if skipped)
-                Instant actualStart = action.actualStartTime() != null ? action.actualStartTime() : currentTime;
-                if (status == ActionStatus.ACTIVE) {
-                    updated = updated.withActualTimes(actualStart, null);
-                } else if (status == ActionStatus.COMPLETED) {
-                    updated = updated.withActualTimes(actualStart, currentTime);
+        private static boolean affectsOccupancy(Action before, Action after) {
+            return before != after && (before.skipWhenGatesSatisfied() != after.skipWhenGatesSatisfied()
+                    || !Objects.equals(before.description(), after.description())
+                    || !Objects.equals(before.workInstructions(), after.workInstructions()));
+        }
+
+        /**
+         * Reports every container and truck of this schedule to {@link #occupancy}.
+         */
+        void refreshOccupancy() {
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (Action action : definitions) {
+                if (action.deviceType() == DeviceType.TT) {
+                    counts.merge(action.containerIndex(), 1, Integer::sum);
+                }
+            }
+            ttActionsByContainer = new HashMap<>();
+            for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+                ttActionsByContainer.put(entry.getKey(), new int[entry.getValue()]);
+                entry.setValue(0);
+            }
+            for (int handle = 0; handle < definitions.length; handle++) {
+                Action action = definitions[handle];
+                if (action.deviceType() == DeviceType.TT) {
+                    int containerIndex = action.containerIndex();
+                    int position = counts.merge(containerIndex, 1, Integer::sum) - 1;
+                    ttActionsByContainer.get(containerIndex)[position] = handle;
+                }
+            }
+            for (int containerIndex : ttActionsByContainer.keySet()) {
+                refreshContainer(containerIndex);
+            }
+            for (int handle = 0; handle < definitions.length; handle++) {
+                refreshTruck(handle);
+            }
+        }
+
+        /**
+         * Reports the actions of a takt again after it was completed or reopened, since only
+         * non-completed takts hold positions and trucks.
+         */
+        private void refreshTakt(int takt) {
+            Set<Integer> containers = new HashSet<>();
+            for (int handle : layout.actionsOf(takt)) {
+                refreshTruck(handle);
+                if (definitions[handle].deviceType() == DeviceType.TT) {
+                    containers.add(definitions[handle].containerIndex());
                 }
-                actionLookup.put(actionId, new ActionInfo(info.taktName(), updated));
             }
+            for (int containerIndex : containers) {
+                refreshContainer(containerIndex);
+            }
+        }
+
+        /** Whether the action is listed in a takt that is not completed. */
+        private boolean isInOpenTakt(int handle) {
+            int takt = layout.taktOf(handle);
+            return takt >= 0 && taktStates[takt] != TaktState.COMPLETED;
         }
 
-        boolean areEventGatesSatisfied(UUID actionId, Action action, Set<String> actionOverrides) {
+        private void refreshTruck(int handle) {
+            String truck = actionStates.cheShortNames[handle];
+            boolean holdsTruck = truck != null
+                    && actionStates.statuses[handle] != ActionStatus.COMPLETED
+                    && !definitions[handle].skipWhenGatesSatisfied()
+                    && isInOpenTakt(handle);
+            occupancy.putTruck(workQueueId, definitions[handle].id(), holdsTruck ? truck : null);
+        }
+
+        private void refreshContainer(int containerIndex) {
+            // Group the container's assigned TT actions of non-completed takts by type
+            Map<ActionType, List<Action>> grouped = new HashMap<>();
+            for (int handle : ttActionsByContainer.getOrDefault(containerIndex, new int[0])) {
+                if (actionStates.cheShortNames[handle] != null && isInOpenTakt(handle)) {
+                    grouped.computeIfAbsent(definitions[handle].actionType(), k -> new ArrayList<>()).add(action(handle));
+                }
+            }
+            occupancy.putOccupancies(workQueueId, containerIndex,
+                    grouped.isEmpty() ? List.of() : computeOccupancies(workQueueId, grouped));
+        }
+
+        /**
+         * Whether replacing the definition {@code before} with {@code after} can change the
+         * outcome of the activation sweep. Planned and estimated times, which are refreshed on
+         * every tick, cannot.
+         */
+        private static boolean affectsActivation(Action before, Action after) {
+            return before != after && (before.skipWhenGatesSatisfied() != after.skipWhenGatesSatisfied()
+                    || !Objects.equals(before.dependsOn(), after.dependsOn())
+                    || !Objects.equals(before.workInstructions(), after.workInstructions())
+                    || !Objects.equals(before.eventGates(), after.eventGates())
+                    || !Objects.equals(before.locationSkipConditions(), after.locationSkipConditions()));
+        }
+
+        private void watchLocations(Action action) {
+            for (LocationFreeCondition cond : action.locationSkipConditions()) {
+                String equipmentName = resolveEquipmentName(cond.deviceType(), action);
+                watchedEquipment.add(cond.deviceType().name() + ":" + (equipmentName != null ? equipmentName : "*"));
+            }
+        }
+
+        /** Marks this state as changed for both snapshots and the activation sweep. */
+        private void changed() {
+            own();
+            uncapture();
+            dirty = true;
+        }
+
+        /** Marks this state as changed for snapshots only. */
+        private void uncapture() {
+            if (captured != null) {
+                captured = null;
+                if (uncaptured != null) {
+                    uncaptured.add(workQueueId);
+                }
+            }
+        }
+
+        /** Takes a copy of the state shared with a snapshot; call before changing it. */
+        private void own() {
+            if (shared) {
+                shared = false;
+                copyFrom(this);
+                // The graph reads the arrays just replaced
+                dependencyGraph = null;
+            }
+        }
+
+        void setTaktState(int takt, TaktState state) {
+            if (journal.isRecording()) {
+                TaktState previous = taktStates[takt];
+                journal.record(() -> applyTaktState(takt, previous));
+            }
+            applyTaktState(takt, state);
+        }
+
+        private void applyTaktState(int takt, TaktState state) {
+            changed();
+            TaktState previous = taktStates[takt];
+            taktStates[takt] = state;
+            if (occupancy != null && !occupancy.isStale()
+                    && (previous == TaktState.COMPLETED) != (state == TaktState.COMPLETED)) {
+                refreshTakt(takt);
+            }
+        }
+
+        void setActualStartTime(int takt, Instant startTime) {
+            changed();
+            recordSlot(actualStartTimes, takt);
+            actualStartTimes[takt] = startTime;
+        }
+
+        void setTaktConditions(int takt, List<TaktCondition> conditions) {
+            changed();
+            recordSlot(taktConditions, takt);
+            taktConditions[takt] = conditions;
+        }
+
+        void replaceTakt(int index, Takt takt) {
+            changed();
+            dependencyGraph = null;
+            if (completionRouting != null) {
+                // Evaluators only see actions listed in the takts
+                completionRouting.invalidate();
+            }
+            if (occupancy != null) {
+                occupancy.invalidate();
+            }
+            if (journal.isRecording()) {
+                Takt previous = takts.get(index);
+                ScheduleLayout previousLayout = layout;
+                journal.record(() -> {
+                    changed();
+                    dependencyGraph = null;
+                    if (completionRouting != null) {
+                        completionRouting.invalidate();
+                    }
+                    if (occupancy != null) {
+                        occupancy.invalidate();
+                    }
+                    takts.set(index, previous);
+                    layout = previousLayout;
+                });
+            }
+            takts.set(index, takt);
+            layout = layout.withTakts(takts);
+        }
+
+        void overrideCondition(int takt, String conditionId) {
+            changed();
+            if (overriddenConditions[takt].add(conditionId)) {
+                journal.record(() -> {
+                    changed();
+                    overriddenConditions[takt].remove(conditionId);
+                });
+            }
+        }
+
+        void overrideActionCondition(int action, String conditionId) {
+            changed();
+            Set<String> set = overriddenActionConditions.get(action);
+            if (set == null) {
+                if (journal.isRecording()) {
+                    journal.record(() -> {
+                        changed();
+                        overriddenActionConditions.remove(action);
+                    });
+                }
+                set = new HashSet<>();
+                overriddenActionConditions.put(action, set);
+            }
+            if (set.add(conditionId)) {
+                journal.record(() -> {
+                    changed();
+                    overriddenActionConditions.get(action).remove(conditionId);
+                });
+            }
+        }
+
+        void armEventGate(int action, String gateId) {
+            changed();
+            addToSlot(armedEventGates, action, gateId);
+        }
+
+        void satisfyEventGate(int action, String gateId) {
+            changed();
+            addToSlot(satisfiedEventGates, action, gateId);
+        }
+
+        /** Records the current value of {@code array[index]}; call before changing it. */
+        private <T> void recordSlot(T[] array, int index) {
+            if (!journal.isRecording()) {
+                return;
+            }
+            T previous = array[index];
+            journal.record(() -> {
+                changed();
+                array[index] = previous;
+            });
+        }
+
+        private void addToSlot(Set<String>[] sets, int index, String value) {
+            if (sets[index] == null) {
+                recordSlot(sets, index);
+                sets[index] = new HashSet<>();
+            }
+            if (sets[index].add(value)) {
+                journal.record(() -> {
+                    changed();
+                    sets[index].remove(value);
+                });
+            }
+        }
+
+        boolean areEventGatesSatisfied(int handle, Action action, Set<String> actionOverrides) {
             if (action.eventGates().isEmpty()) {
                 return true;
             }
-            Set<String> satisfied = satisfiedEventGates.getOrDefault(actionId, Set.of());
+            Set<String> satisfied = satisfiedEventGates[handle] != null ? satisfiedEventGates[handle] : Set.of();
             for (EventGateCondition gate : action.eventGates()) {
                 if (!satisfied.contains(gate.id()) && !actionOverrides.contains(gate.id())) {
                     return false;
@@ -297,61 +795,114 @@ public class ScheduleRunnerProcessor implements EventProcessor {
         }
 
         /**
-         * Gets all pending actions in the given takt whose dependencies are now all satisfied.
+         * Checks whether all actions in a takt are completed.
          */
-        List<UUID> getNewlyActivatableActionsInTakt(String taktName) {
-            return getActivatableActionsInTakt(taktName);
+        boolean isTaktFullyCompleted(int takt) {
+            for (int handle : layout.actionsOf(takt)) {
+                if (actionStates.statuses[handle] != ActionStatus.COMPLETED) {
+                    return false;
+                }
+            }
+            return true;
         }
 
         /**
-         * Checks whether all actions in a takt are completed.
+         * Returns an independent copy. The layout and the gate indexes are derived from the
+         * takts at construction and never modified, so they are shared instead of rebuilt.
          */
-        boolean isTaktFullyCompleted(String taktName) {
-            // Find the takt by name and check its actions directly (avoids iterating all actions)
-            for (Takt takt : takts) {
-                if (takt.name().equals(taktName)) {
-                    for (Action action : takt.actions()) {
-                        ActionInfo info = actionLookup.get(action.id());
-                        if (info != null && info.action().status() != ActionStatus.COMPLETED) {
-                            return false;
-                        }
-                    }
-                    return true;
+        ScheduleState copy() {
+            ScheduleState copy = new ScheduleState();
+            copy.journal = this.journal;
+            copy.estimatedMoveTime = this.estimatedMoveTime;
+            copy.layout = this.layout;
+            copy.eventTypeToGatedActions = this.eventTypeToGatedActions;
+            copy.gateArmSources = this.gateArmSources;
+            copy.armedGatesOf = this.armedGatesOf;
+            copy.copyFrom(this);
+            return copy;
+        }
+
+        /**
+         * Returns a live state for the work queue that shares everything with this frozen copy
+         * until its first change. Indexes and the dependency graph are attached separately.
+         */
+        ScheduleState share(UndoJournal journal, long workQueueId, Set<Long> uncaptured) {
+            ScheduleState live = new ScheduleState();
+            live.captured = this;
+            live.shared = true;
+            live.uncaptured = uncaptured;
+            live.workQueueId = workQueueId;
+            live.journal = journal;
+            live.estimatedMoveTime = this.estimatedMoveTime;
+            live.takts = this.takts;
+            live.layout = this.layout;
+            live.definitions = this.definitions;
+            live.actionStates = this.actionStates;
+            // Cached views are derived from the shared definitions and states, so either copy may fill them
+            live.views = this.views;
+            live.taktStates = this.taktStates;
+            live.actualStartTimes = this.actualStartTimes;
+            live.taktConditions = this.taktConditions;
+            live.overriddenConditions = this.overriddenConditions;
+            live.overriddenActionConditions = this.overriddenActionConditions;
+            live.satisfiedEventGates = this.satisfiedEventGates;
+            live.armedEventGates = this.armedEventGates;
+            live.eventTypeToGatedActions = this.eventTypeToGatedActions;
+            live.gateArmSources = this.gateArmSources;
+            live.armedGatesOf = this.armedGatesOf;
+            live.watchedEquipment = this.watchedEquipment;
+            return live;
+        }
+
+        /** Replaces the arrays and collections of this state with copies of those of {@code source}. */
+        private void copyFrom(ScheduleState source) {
+            this.takts = new ArrayList<>(source.takts);
+            this.watchedEquipment = new HashSet<>(source.watchedEquipment);
+            this.definitions = source.definitions.clone();
+            this.actionStates = source.actionStates.copy();
+            this.views = source.views.clone();
+            this.taktStates = source.taktStates.clone();
+            this.actualStartTimes = source.actualStartTimes.clone();
+            List<TaktCondition>[] conditions = source.taktConditions.clone();
+            for (int takt = 0; takt < conditions.length; takt++) {
+                if (conditions[takt] != null) {
+                    conditions[takt] = new ArrayList<>(conditions[takt]);
                 }
             }
-            return true;
+            this.taktConditions = conditions;
+            this.overriddenConditions = copySets(source.overriddenConditions);
+            Map<Integer, Set<String>> actionOverrides = new HashMap<>();
+            for (Map.Entry<Integer, Set<String>> entry : source.overriddenActionConditions.entrySet()) {
+                actionOverrides.put(entry.getKey(), new HashSet<>(entry.getValue()));
+            }
+            this.overriddenActionConditions = actionOverrides;
+            this.satisfiedEventGates = copySets(source.satisfiedEventGates);
+            this.armedEventGates = copySets(source.armedEventGates);
         }
 
-        ScheduleState copy() {
-            ScheduleState copy = new ScheduleState(this.estimatedMoveTime, new ArrayList<>(this.takts));
-            copy.actionLookup = new HashMap<>(this.actionLookup);
-            copy.taktStates = new HashMap<>(this.taktStates);
-            copy.actualStartTimes = new HashMap<>(this.actualStartTimes);
-            copy.taktConditions = new LinkedHashMap<>();
-            for (Map.Entry<String, List<TaktCondition>> entry : this.taktConditions.entrySet()) {
-                copy.taktConditions.put(entry.getKey(), new ArrayList<>(entry.getValue()));
-            }
-            copy.overriddenConditions = new HashMap<>();
-            for (Map.Entry<String, Set<String>> entry : this.overriddenConditions.entrySet()) {
-                copy.overriddenConditions.put(entry.getKey(), new HashSet<>(entry.getValue()));
-            }
-            copy.overriddenActionConditions = new HashMap<>();
-            for (Map.Entry<UUID, Set<String>> entry : this.overriddenActionConditions.entrySet()) {
-                copy.overriddenActionConditions.put(entry.getKey(), new HashSet<>(entry.getValue()));
-            }
-            copy.satisfiedEventGates = new HashMap<>();
-            for (Map.Entry<UUID, Set<String>> entry : this.satisfiedEventGates.entrySet()) {
-                copy.satisfiedEventGates.put(entry.getKey(), new HashSet<>(entry.getValue()));
-            }
-            copy.armedEventGates = new HashMap<>();
-            for (Map.Entry<UUID, Set<String>> entry : this.armedEventGates.entrySet()) {
-                copy.armedEventGates.put(entry.getKey(), new HashSet<>(entry.getValue()));
+        @SuppressWarnings("unchecked")
+        private static <E> List<E>[] newLists(int length) {
+            return (List<E>[]) new List<?>[length];
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <E> Set<E>[] newSets(int length) {
+            return (Set<E>[]) new Set<?>[length];
+        }
+
+        private static Set<String>[] copySets(Set<String>[] sets) {
+            Set<String>[] copy = sets.clone();
+            for (int i = 0; i < copy.length; i++) {
+                if (copy[i] != null) {
+                    copy[i] = new HashSet<>(copy[i]);
+                }
             }
             return copy;
         }
     }
 
-    private record ActionInfo(String taktName, Action action) {}
+    /** An entry in {@link #taktDeadlines}; stale unless it is still its schedule's wake time. */
+    private record TaktDeadline(Instant time, long workQueueId) {}
 
     private static final Logger logger = Logger.getLogger(ScheduleRunnerProcessor.class.getName());
 
@@ -361,9 +912,9 @@ public class ScheduleRunnerProcessor implements EventProcessor {
     public ActionStatus getActionStatus(long workQueueId, UUID actionId) {
         ScheduleState state = scheduleStates.get(workQueueId);
         if (state == null) return ActionStatus.PENDING;
-        ActionInfo info = state.actionLookup.get(actionId);
-        if (info == null) return ActionStatus.PENDING;
-        return info.action().status();
+        int handle = state.actionHandle(actionId);
+        if (handle < 0) return ActionStatus.PENDING;
+        return state.status(handle);
     }
 
     /**
@@ -372,7 +923,8 @@ public class ScheduleRunnerProcessor implements EventProcessor {
     public TaktState getTaktState(long workQueueId, String taktName) {
         ScheduleState state = scheduleStates.get(workQueueId);
         if (state == null) return TaktState.WAITING;
-        return state.taktStates.getOrDefault(taktName, TaktState.WAITING);
+        int takt = state.layout.takt(taktName);
+        return takt >= 0 ? state.taktStates[takt] : TaktState.WAITING;
     }
 
     /**
@@ -381,7 +933,8 @@ public class ScheduleRunnerProcessor implements EventProcessor {
     public Instant getActualStartTime(long workQueueId, String taktName) {
         ScheduleState state = scheduleStates.get(workQueueId);
         if (state == null) return null;
-        return state.actualStartTimes.get(taktName);
+        int takt = state.layout.takt(taktName);
+        return takt >= 0 ? state.actualStartTimes[takt] : null;
     }
 
     /**
@@ -390,7 +943,9 @@ public class ScheduleRunnerProcessor implements EventProcessor {
     public Set<String> getSatisfiedEventGates(long workQueueId, UUID actionId) {
         ScheduleState state = scheduleStates.get(workQueueId);
         if (state == null) return Set.of();
-        return state.satisfiedEventGates.getOrDefault(actionId, Set.of());
+        int handle = state.actionHandle(actionId);
+        Set<String> satisfied = handle >= 0 ? state.satisfiedEventGates[handle] : null;
+        return satisfied != null ? satisfied : Set.of();
     }
 
     /**
@@ -399,8 +954,8 @@ public class ScheduleRunnerProcessor implements EventProcessor {
     public Action getAction(long workQueueId, UUID actionId) {
         ScheduleState state = scheduleStates.get(workQueueId);
         if (state == null) return null;
-        ActionInfo info = state.actionLookup.get(actionId);
-        return info != null ? info.action() : null;
+        int handle = state.actionHandle(actionId);
+        return handle >= 0 ? state.action(handle) : null;
     }
 
     /**
@@ -446,122 +1001,117 @@ public class ScheduleRunnerProcessor implements EventProcessor {
      * </ul>
      */
     public List<LocationOccupancy> getLocationOccupancy() {
+        OccupancyIndex index = occupancy();
         List<LocationOccupancy> occupancies = new ArrayList<>();
+        for (long workQueueId : scheduleStates.keySet()) {
+            occupancies.addAll(index.occupancies(workQueueId));
+        }
+        return occupancies;
+    }
 
-        for (Map.Entry<Long, ScheduleState> entry : scheduleStates.entrySet()) {
-            long workQueueId = entry.getKey();
-            ScheduleState state = entry.getValue();
-
-            // Group TT actions by containerIndex — only from non-COMPLETED takts
-            // (completed takts can't have occupied positions)
-            Map<Integer, Map<ActionType, List<Action>>> ttByContainer = new LinkedHashMap<>();
-            for (ActionInfo info : state.getActiveAndWaitingTaktActions()) {
-                Action action = info.action();
-                if (action.deviceType() == DeviceType.TT && action.cheShortName() != null) {
-                    ttByContainer.computeIfAbsent(action.containerIndex(), k -> new LinkedHashMap<>())
-                            .computeIfAbsent(action.actionType(), k -> new ArrayList<>())
-                            .add(action);
-                }
-            }
+    /**
+     * Computes the positions occupied by the truck of one container.
+     *
+     * @param workQueueId the work queue of the container's schedule
+     * @param actions the container's TT actions with a truck in non-completed takts, by type, in takt order
+     */
+    private static List<LocationOccupancy> computeOccupancies(long workQueueId, Map<ActionType, List<Action>> actions) {
+        List<LocationOccupancy> occupancies = new ArrayList<>();
 
-            for (Map<ActionType, List<Action>> actions : ttByContainer.values()) {
-                // QC standby: occupied when drive_to_standby activated AND drive_under_qc is pending
-                checkQCStandby(occupancies, workQueueId, actions);
+        // QC standby: occupied when drive_to_standby activated AND drive_under_qc is pending
+        checkQCStandby(occupancies, workQueueId, actions);
 
-                // QC under: occupied when drive_under_qc active OR handover_from_qc active
-                //   OR (drive_under_qc completed AND handover_from_qc pending)
-                checkQCUnder(occupancies, workQueueId, actions);
+        // QC under: occupied when drive_under_qc active OR handover_from_qc active
+        //   OR (drive_under_qc completed AND handover_from_qc pending)
+        checkQCUnder(occupancies, workQueueId, actions);
 
-                // RTG standby: occupied when drive_to_rtg_standby activated AND drive_to_rtg_under is pending
-                checkRTGStandby(occupancies, workQueueId, actions);
+        // RTG standby: occupied when drive_to_rtg_standby activated AND drive_to_rtg_under is pending
+        checkRTGStandby(occupancies, workQueueId, actions);
 
-                // RTG under: occupied when drive_to_rtg_under active OR handover_to_rtg active
-                //   OR (drive_to_rtg_under completed AND handover_to_rtg pending)
-                checkRTGUnder(occupancies, workQueueId, actions);
-            }
-        }
+        // RTG under: occupied when drive_to_rtg_under active OR handover_to_rtg active
+        //   OR (drive_to_rtg_under completed AND handover_to_rtg pending)
+        checkRTGUnder(occupancies, workQueueId, actions);
 
         return occupancies;
     }
 
-    private void checkQCStandby(List<LocationOccupancy> occupancies, long workQueueId,
+    private static void checkQCStandby(List<LocationOccupancy> occupancies, long workQueueId,
                                 Map<ActionType, List<Action>> actions) {
         // QC standby occupied when: drive_to_standby (ACTIVE or COMPLETED) AND drive_under_qc PENDING
-        Action standby = findWithStatus(actions, ActionType.TT_DRIVE_TO_QC_STANDBY, workQueueId, ActionStatus.ACTIVE, ActionStatus.COMPLETED);
+        Action standby = findWithStatus(actions, ActionType.TT_DRIVE_TO_QC_STANDBY, ActionStatus.ACTIVE, ActionStatus.COMPLETED);
         if (standby == null) return;
-        if (!allPending(actions, ActionType.TT_DRIVE_UNDER_QC, workQueueId)) return;
+        if (!allPending(actions, ActionType.TT_DRIVE_UNDER_QC)) return;
         addOccupancy(occupancies, standby, workQueueId, DeviceType.QC, EquipmentPosition.STANDBY, ScheduleRunnerProcessor::resolveQCName);
     }
 
-    private void checkQCUnder(List<LocationOccupancy> occupancies, long workQueueId,
+    private static void checkQCUnder(List<LocationOccupancy> occupancies, long workQueueId,
                                Map<ActionType, List<Action>> actions) {
         // QC under occupied when: drive_under_qc ACTIVE OR handover_from_qc ACTIVE
         //   OR (drive_under_qc COMPLETED AND handover_from_qc PENDING)
-        Action underActive = findWithStatus(actions, ActionType.TT_DRIVE_UNDER_QC, workQueueId, ActionStatus.ACTIVE);
+        Action underActive = findWithStatus(actions, ActionType.TT_DRIVE_UNDER_QC, ActionStatus.ACTIVE);
         if (underActive != null) {
             addOccupancy(occupancies, underActive, workQueueId, DeviceType.QC, EquipmentPosition.UNDER, ScheduleRunnerProcessor::resolveQCName);
             return;
         }
-        Action handoverActive = findWithStatus(actions, ActionType.TT_HANDOVER_FROM_QC, workQueueId, ActionStatus.ACTIVE);
+        Action handoverActive = findWithStatus(actions, ActionType.TT_HANDOVER_FROM_QC, ActionStatus.ACTIVE);
         if (handoverActive != null) {
             addOccupancy(occupancies, handoverActive, workQueueId, DeviceType.QC, EquipmentPosition.UNDER, ScheduleRunnerProcessor::resolveQCName);
             return;
         }
-        Action underCompleted = findWithStatus(actions, ActionType.TT_DRIVE_UNDER_QC, workQueueId, ActionStatus.COMPLETED);
-        if (underCompleted != null && allPending(actions, ActionType.TT_HANDOVER_FROM_QC, workQueueId)) {
+        Action underCompleted = findWithStatus(actions, ActionType.TT_DRIVE_UNDER_QC, ActionStatus.COMPLETED);
+        if (underCompleted != null && allPending(actions, ActionType.TT_HANDOVER_FROM_QC)) {
             addOccupancy(occupancies, underCompleted, workQueueId, DeviceType.QC, EquipmentPosition.UNDER, ScheduleRunnerProcessor::resolveQCName);
         }
     }
 
-    private void checkRTGStandby(List<LocationOccupancy> occupancies, long workQueueId,
+    private static void checkRTGStandby(List<LocationOccupancy> occupancies, long workQueueId,
                                   Map<ActionType, List<Action>> actions) {
-        Action standby = findWithStatus(actions, ActionType.TT_DRIVE_TO_RTG_STANDBY, workQueueId, ActionStatus.ACTIVE, ActionStatus.COMPLETED);
+        Action standby = findWithStatus(actions, ActionType.TT_DRIVE_TO_RTG_STANDBY, ActionStatus.ACTIVE, ActionStatus.COMPLETED);
         if (standby == null) return;
-        if (!allPending(actions, ActionType.TT_DRIVE_TO_RTG_UNDER, workQueueId)) return;
+        if (!allPending(actions, ActionType.TT_DRIVE_TO_RTG_UNDER)) return;
         addOccupancy(occupancies, standby, workQueueId, DeviceType.RTG, EquipmentPosition.STANDBY, ScheduleRunnerProcessor::resolveRTGName);
     }
 
-    private void checkRTGUnder(List<LocationOccupancy> occupancies, long workQueueId,
+    private static void checkRTGUnder(List<LocationOccupancy> occupancies, long workQueueId,
                                 Map<ActionType, List<Action>> actions) {
-        Action underActive = findWithStatus(actions, ActionType.TT_DRIVE_TO_RTG_UNDER, workQueueId, ActionStatus.ACTIVE);
+        Action underActive = findWithStatus(actions, ActionType.TT_DRIVE_TO_RTG_UNDER, ActionStatus.ACTIVE);
         if (underActive != null) {
             addOccupancy(occupancies, underActive, workQueueId, DeviceType.RTG, EquipmentPosition.UNDER, ScheduleRunnerProcessor::resolveRTGName);
             return;
         }
-        Action handoverActive = findWithStatus(actions, ActionType.TT_HANDOVER_TO_RTG, workQueueId, ActionStatus.ACTIVE);
+        Action handoverActive = findWithStatus(actions, ActionType.TT_HANDOVER_TO_RTG, ActionStatus.ACTIVE);
         if (handoverActive != null) {
             addOccupancy(occupancies, handoverActive, workQueueId, DeviceType.RTG, EquipmentPosition.UNDER, ScheduleRunnerProcessor::resolveRTGName);
             return;
         }
-        Action underCompleted = findWithStatus(actions, ActionType.TT_DRIVE_TO_RTG_UNDER, workQueueId, ActionStatus.COMPLETED);
-        if (underCompleted != null && allPending(actions, ActionType.TT_HANDOVER_TO_RTG, workQueueId)) {
+        Action underCompleted = findWithStatus(actions, ActionType.TT_DRIVE_TO_RTG_UNDER, ActionStatus.COMPLETED);
+        if (underCompleted != null && allPending(actions, ActionType.TT_HANDOVER_TO_RTG)) {
             addOccupancy(occupancies, underCompleted, workQueueId, DeviceType.RTG, EquipmentPosition.UNDER, ScheduleRunnerProcessor::resolveRTGName);
         }
     }
 
     /** Find any action of the given type that has one of the given statuses. */
-    private Action findWithStatus(Map<ActionType, List<Action>> actions, ActionType type,
-                                   long workQueueId, ActionStatus... statuses) {
+    private static Action findWithStatus(Map<ActionType, List<Action>> actions, ActionType type,
+                                         ActionStatus... statuses) {
         for (Action a : actions.getOrDefault(type, List.of())) {
-            ActionStatus s = getActionStatus(workQueueId, a.id());
             for (ActionStatus expected : statuses) {
-                if (s == expected) return a;
+                if (a.status() == expected) return a;
             }
         }
         return null;
     }
 
     /** Check if ALL actions of the given type are PENDING. */
-    private boolean allPending(Map<ActionType, List<Action>> actions, ActionType type, long workQueueId) {
+    private static boolean allPending(Map<ActionType, List<Action>> actions, ActionType type) {
         List<Action> list = actions.getOrDefault(type, List.of());
         if (list.isEmpty()) return true;
         for (Action a : list) {
-            if (getActionStatus(workQueueId, a.id()) != ActionStatus.PENDING) return false;
+            if (a.status() != ActionStatus.PENDING) return false;
         }
         return true;
     }
 
-    private void addOccupancy(List<LocationOccupancy> occupancies, Action action, long workQueueId,
+    private static void addOccupancy(List<LocationOccupancy> occupancies, Action action, long workQueueId,
                                DeviceType equipmentType, EquipmentPosition position,
                                java.util.function.Function<Action, String> nameResolver) {
         String equipmentName = nameResolver.apply(action);
@@ -583,13 +1133,71 @@ public class ScheduleRunnerProcessor implements EventProcessor {
     /**
      * Returns the set of occupied position keys for use in {@link ActionConditionContext}.
      * Format: "QC:QCZ1:STANDBY" or "RTG:RTZ01:UNDER".
+     * <p>
+     * The set is a read-only view that follows later events; copy it to keep the current keys.
      */
     public Set<String> getOccupiedPositionKeys() {
-        Set<String> keys = new HashSet<>();
-        for (LocationOccupancy occ : getLocationOccupancy()) {
-            keys.add(ActionConditionContext.positionKey(occ.equipmentType(), occ.equipmentName(), occ.position()));
+        return occupancy().occupiedPositions();
+    }
+
+    /**
+     * Returns the short names of the trucks held by actions of non-completed takts, as a
+     * read-only view that follows later events.
+     */
+    public Set<String> getAssignedTrucks() {
+        return occupancy().assignedTrucks();
+    }
+
+    /**
+     * Returns the occupancy index, rebuilding it from the schedules after it was invalidated.
+     */
+    private OccupancyIndex occupancy() {
+        if (occupancy.isStale()) {
+            occupancy.clear();
+            for (Map.Entry<Long, ScheduleState> entry : scheduleStates.entrySet()) {
+                trackOccupancy(entry.getKey(), entry.getValue());
+            }
+        }
+        return occupancy;
+    }
+
+    /** Attaches a schedule to the occupancy index and reports its current positions and trucks. */
+    private void trackOccupancy(long workQueueId, ScheduleState state) {
+        state.occupancy = occupancy;
+        state.workQueueId = workQueueId;
+        state.refreshOccupancy();
+    }
+
+    /**
+     * Records the schedule of the work queue before it is added, replaced or removed, for both
+     * snapshots and undo. Undoing restores it, re-indexes it and lets the next sweep see the change.
+     */
+    private void recordSchedule(long workQueueId) {
+        uncapturedSchedules.add(workQueueId);
+        if (!undoJournal.isRecording()) {
+            return;
         }
-        return keys;
+        ScheduleState previous = scheduleStates.get(workQueueId);
+        undoJournal.record(() -> {
+            uncapturedSchedules.add(workQueueId);
+            ScheduleState current = previous != null
+                    ? scheduleStates.put(workQueueId, previous)
+                    : scheduleStates.remove(workQueueId);
+            completionRouting.invalidate();
+            untrackOccupancy(workQueueId, current);
+            if (previous != null && !occupancy.isStale()) {
+                trackOccupancy(workQueueId, previous);
+            }
+            scheduleRemoved = true;
+        });
+    }
+
+    /** Detaches a schedule that is removed or replaced from the occupancy index. */
+    private void untrackOccupancy(long workQueueId, ScheduleState state) {
+        if (state != null) {
+            state.occupancy = null;
+        }
+        occupancy.removeWorkQueue(workQueueId);
     }
 
     private static String resolveQCName(Action action) {
@@ -608,13 +1216,57 @@ public class ScheduleRunnerProcessor implements EventProcessor {
         return null;
     }
 
+    private static final Set<Class<? extends Event>> HANDLED_EVENT_TYPES = Set.of(
+            WorkQueueMessage.class,
+            WorkInstructionEvent.class,
+            ScheduleCreated.class,
+            TimeEvent.class,
+            ActionCompletedEvent.class,
+            OverrideConditionEvent.class,
+            OverrideActionConditionEvent.class,
+            NukeWorkQueueEvent.class,
+            ContainerHandlingEquipmentEvent.class);
+
     private final Map<Long, ScheduleState> scheduleStates = new HashMap<>();
-    private final Map<Long, Instant> workInstructionEstimatedMoveTime = new HashMap<>();
+    /** Frozen schedules of the last capture or restore, shared with the snapshots taken since. */
+    private PersistentLongMap<ScheduleState> capturedSchedules = PersistentLongMap.empty();
+    /** Work queues whose schedule was added, replaced, removed or changed since {@link #capturedSchedules}. */
+    private final Set<Long> uncapturedSchedules = new HashSet<>();
+    /** Immutable, so snapshots and undo keep a reference instead of a copy. */
+    private PersistentLongMap<Instant> workInstructionEstimatedMoveTime = PersistentLongMap.empty();
     private final List<ScheduleSubProcessor> subProcessors = new ArrayList<>();
     private final List<CompletionConditionEvaluator> completionEvaluators = new ArrayList<>();
     private final Map<UUID, Set<String>> satisfiedCompletionConditions = new HashMap<>();
+    /** ACTIVE actions by routing key, so routed evaluators only see the actions an event can match. */
+    private final CompletionRoutingIndex completionRouting = new CompletionRoutingIndex();
+    /** Occupied positions and assigned trucks, kept up to date by the schedules; see {@link #occupancy()}. */
+    private final OccupancyIndex occupancy = new OccupancyIndex();
+    /** Routing index version at the last run of the state-based evaluators. */
+    private long stateEvaluatorsVersion = -1;
     private Instant currentTime = Instant.EPOCH;
+    private UndoJournal undoJournal = new UndoJournal();
     private TTAllocationStrategy ttAllocationStrategy;
+    /** Occupied position keys the last activation sweep saw, or null to re-evaluate every schedule. */
+    private Set<String> sweptOccupancy;
+    /** Trucks assigned when the last activation sweep finished. */
+    private Set<String> sweptTrucks = Set.of();
+    /** Times at which a WAITING takt's time condition passes, for waking its schedule. */
+    private final PriorityQueue<TaktDeadline> taktDeadlines =
+            new PriorityQueue<>(Comparator.comparing(TaktDeadline::time));
+    /** Set on truck state updates, since the allocation strategy may have a free truck now. */
+    private boolean truckPoolChanged;
+    /** Set when a schedule is removed, which can free positions other schedules wait for. */
+    private boolean scheduleRemoved;
+    /** Whether a batch is in progress, during which the sweep may be deferred. */
+    private boolean batching;
+    /** The last event of a batch whose sweep was deferred, or null if no sweep is pending. */
+    private Event deferredEvent;
+    /** Whether the completion conditions of the deferred events completed actions. */
+    private boolean deferredCompletionProgress;
+    /** Whether the deferred events completed actions in any way. */
+    private boolean deferredCompletions;
+    /** Event class → whether the sweep may be deferred past events of the class. */
+    private final Map<Class<?>, Boolean> sweepDeferrable = new HashMap<>();
 
     /**
      * Registers a TT allocation strategy for assigning trucks to TT actions.
@@ -632,10 +1284,22 @@ public class ScheduleRunnerProcessor implements EventProcessor {
      */
     public void registerSubProcessor(ScheduleSubProcessor subProcessor) {
         this.subProcessors.add(subProcessor);
+        sweepDeferrable.clear();
     }
 
+    /**
+     * Registers a completion condition evaluator. Events are routed to a
+     * {@link RoutedCompletionConditionEvaluator} through an index of the active actions; other
+     * evaluators receive every active action.
+     *
+     * @param evaluator the evaluator to register
+     */
     public void registerCompletionEvaluator(CompletionConditionEvaluator evaluator) {
         this.completionEvaluators.add(evaluator);
+        if (evaluator instanceof RoutedCompletionConditionEvaluator routed) {
+            completionRouting.register(routed);
+        }
+        sweepDeferrable.clear();
     }
 
     /**
@@ -653,8 +1317,8 @@ public class ScheduleRunnerProcessor implements EventProcessor {
                 ScheduleState state = scheduleStates.get(workQueueId);
                 if (state == null) return Map.of();
                 Map<UUID, Action> result = new HashMap<>();
-                for (Map.Entry<UUID, ActionInfo> entry : state.actionLookup.entrySet()) {
-                    result.put(entry.getKey(), entry.getValue().action());
+                for (int handle = 0; handle < state.definitions.length; handle++) {
+                    result.put(state.layout.actionId(handle), state.action(handle));
                 }
                 return result;
             }
@@ -663,8 +1327,8 @@ public class ScheduleRunnerProcessor implements EventProcessor {
             public String getTaktName(long workQueueId, UUID actionId) {
                 ScheduleState state = scheduleStates.get(workQueueId);
                 if (state == null) return null;
-                ActionInfo info = state.actionLookup.get(actionId);
-                return info != null ? info.taktName() : null;
+                int handle = state.actionHandle(actionId);
+                return handle >= 0 ? state.taktNameOf(handle) : null;
             }
 
             @Override
@@ -676,49 +1340,44 @@ public class ScheduleRunnerProcessor implements EventProcessor {
             public List<SideEffect> completeActionWithReason(long workQueueId, UUID actionId, CompletionReason reason) {
                 ScheduleState state = scheduleStates.get(workQueueId);
                 if (state == null) return List.of();
-                ActionInfo info = state.actionLookup.get(actionId);
-                if (info == null) return List.of();
-                if (info.action().status() == ActionStatus.COMPLETED) return List.of();
+                int handle = state.actionHandle(actionId);
+                if (handle < 0) return List.of();
+                if (state.status(handle) == ActionStatus.COMPLETED) return List.of();
 
                 // Update the action with completion reason, status, and actual times
-                Action canceledAction = info.action();
-                Instant actualStart = canceledAction.actualStartTime() != null ? canceledAction.actualStartTime() : currentTime;
-                Action updatedAction = canceledAction.withCompletionReason(reason).withStatus(ActionStatus.COMPLETED)
-                        .withActualTimes(actualStart, currentTime);
-                state.actionLookup.put(actionId, new ActionInfo(info.taktName(), updatedAction));
+                Action canceledAction = state.definitions[handle];
+                state.setActionStatus(handle, ActionStatus.COMPLETED, currentTime, reason);
 
                 // Re-wire dependencies: any action that depended on the canceled action
                 // should instead depend on the canceled action's same-device-type dependencies
                 Set<UUID> sameDeviceDeps = new HashSet<>();
                 if (canceledAction.dependsOn() != null) {
                     for (UUID depId : canceledAction.dependsOn()) {
-                        ActionInfo depInfo = state.actionLookup.get(depId);
-                        if (depInfo != null && depInfo.action().deviceType() == canceledAction.deviceType()) {
+                        int dependency = state.actionHandle(depId);
+                        if (dependency >= 0 && state.definitions[dependency].deviceType() == canceledAction.deviceType()) {
                             sameDeviceDeps.add(depId);
                         }
                     }
                 }
-                for (Map.Entry<UUID, ActionInfo> entry : state.actionLookup.entrySet()) {
-                    ActionInfo other = entry.getValue();
-                    Action otherAction = other.action();
-                    if (otherAction.dependsOn() != null && otherAction.dependsOn().contains(actionId)
-                            && otherAction.deviceType() == canceledAction.deviceType()) {
+                for (int dependent : state.dependencies().dependentsOf(handle)) {
+                    Action otherAction = state.action(dependent);
+                    if (otherAction.deviceType() == canceledAction.deviceType()) {
                         Set<UUID> newDeps = new HashSet<>(otherAction.dependsOn());
                         newDeps.remove(actionId);
                         newDeps.addAll(sameDeviceDeps);
                         Action rewired = otherAction.withDependencies(newDeps);
-                        state.actionLookup.put(entry.getKey(), new ActionInfo(other.taktName(), rewired));
+                        state.putAction(dependent, rewired);
                     }
                 }
 
                 List<SideEffect> effects = new ArrayList<>();
                 effects.add(new ActionCompleted(
-                        actionId, workQueueId, info.taktName(),
-                        updatedAction.description(), currentTime, reason));
+                        actionId, workQueueId, state.taktNameOf(handle),
+                        canceledAction.description(), currentTime, reason));
 
                 // Emit WorkInstructionCanceled for each WI so WorkQueueProcessor
                 // can exclude canceled containers from reschedule decisions
-                for (var wi : updatedAction.workInstructions()) {
+                for (var wi : canceledAction.workInstructions()) {
                     effects.add(new WorkInstructionCanceled(workQueueId, wi.workInstructionId()));
                 }
 
@@ -729,15 +1388,14 @@ public class ScheduleRunnerProcessor implements EventProcessor {
             public List<SideEffect> resetTTAction(long workQueueId, UUID actionId) {
                 ScheduleState state = scheduleStates.get(workQueueId);
                 if (state == null) return List.of();
-                ActionInfo info = state.actionLookup.get(actionId);
-                if (info == null) return List.of();
-                Action action = info.action();
-                String cheShortName = action.cheShortName();
+                int handle = state.actionHandle(actionId);
+                if (handle < 0) return List.of();
+                String cheShortName = state.actionStates.cheShortNames[handle];
                 if (cheShortName == null) return List.of();
 
                 // Clear truck assignment and reset to pending
-                Action resetAction = action.withTruckAssignment(null, null).withStatus(ActionStatus.PENDING);
-                state.actionLookup.put(actionId, new ActionInfo(info.taktName(), resetAction));
+                state.assignTruck(handle, null, null);
+                state.setActionStatus(handle, ActionStatus.PENDING, currentTime);
 
                 return List.of(new TruckUnassigned(actionId, workQueueId, cheShortName));
             }
@@ -774,7 +1432,7 @@ public class ScheduleRunnerProcessor implements EventProcessor {
             public void replaceTakt(long workQueueId, int index, Takt takt) {
                 ScheduleState state = scheduleStates.get(workQueueId);
                 if (state != null && index >= 0 && index < state.takts.size()) {
-                    state.takts.set(index, takt);
+                    state.replaceTakt(index, takt);
                 }
             }
 
@@ -782,9 +1440,9 @@ public class ScheduleRunnerProcessor implements EventProcessor {
             public void updateAction(long workQueueId, UUID actionId, Action action) {
                 ScheduleState state = scheduleStates.get(workQueueId);
                 if (state != null) {
-                    ActionInfo info = state.actionLookup.get(actionId);
-                    if (info != null) {
-                        state.actionLookup.put(actionId, new ActionInfo(info.taktName(), action));
+                    int handle = state.actionHandle(actionId);
+                    if (handle >= 0) {
+                        state.putAction(handle, action);
                     }
                 }
             }
@@ -792,45 +1450,55 @@ public class ScheduleRunnerProcessor implements EventProcessor {
     }
 
     /**
-     * Collects all truck cheShortNames currently assigned to actions across all schedules.
+     * Subscribes to the event types handled directly by this processor, truck state updates
+     * (a newly available truck can unblock pending TT actions), and every type a registered
+     * sub-processor or completion evaluator subscribes to. Events outside this set cannot
+     * change schedule state, so skipping them also skips the reactivation sweep.
      */
-    private Set<String> collectAssignedTrucks() {
-        Set<String> assigned = new HashSet<>();
-        for (ScheduleState state : scheduleStates.values()) {
-            // Only scan non-COMPLETED takts — completed actions have released their trucks
-            for (ActionInfo info : state.getActiveAndWaitingTaktActions()) {
-                Action action = info.action();
-                if (action.cheShortName() != null
-                        && action.status() != ActionStatus.COMPLETED
-                        && !action.skipWhenGatesSatisfied()) {
-                    assigned.add(action.cheShortName());
-                }
-            }
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        Set<Class<? extends Event>> types = new HashSet<>(HANDLED_EVENT_TYPES);
+        for (ScheduleSubProcessor sub : subProcessors) {
+            types.addAll(sub.subscribedEventTypes());
         }
-        return assigned;
+        for (CompletionConditionEvaluator evaluator : completionEvaluators) {
+            types.addAll(evaluator.subscribedEventTypes());
+        }
+        return types;
     }
 
     @Override
     public List<SideEffect> process(Event event) {
+        return SideEffectSink.collect(sink -> process(event, sink));
+    }
+
+    @Override
+    public void process(Event event, SideEffectSink sink) {
         long t0 = System.nanoTime();
-        List<SideEffect> sideEffects = new ArrayList<>();
+        int start = sink.size();
 
         if (event instanceof WorkQueueMessage message) {
-            sideEffects.addAll(handleWorkQueueMessage(message));
+            sink.addAll(handleWorkQueueMessage(message));
         } else if (event instanceof WorkInstructionEvent instruction) {
-            sideEffects.addAll(handleWorkInstructionEvent(instruction));
+            sink.addAll(handleWorkInstructionEvent(instruction));
         } else if (event instanceof ScheduleCreated scheduleCreated) {
-            sideEffects.addAll(handleScheduleCreated(scheduleCreated));
+            sink.addAll(handleScheduleCreated(scheduleCreated));
         } else if (event instanceof TimeEvent timeEvent) {
-            sideEffects.addAll(handleTimeEvent(timeEvent));
+            sink.addAll(handleTimeEvent(timeEvent));
         } else if (event instanceof ActionCompletedEvent completed) {
-            sideEffects.addAll(handleActionCompleted(completed));
+            sink.addAll(handleActionCompleted(completed));
         } else if (event instanceof OverrideConditionEvent override) {
-            sideEffects.addAll(handleOverrideCondition(override));
+            sink.addAll(handleOverrideCondition(override));
         } else if (event instanceof OverrideActionConditionEvent override) {
-            sideEffects.addAll(handleOverrideActionCondition(override));
+            sink.addAll(handleOverrideActionCondition(override));
         } else if (event instanceof NukeWorkQueueEvent nuke) {
-            scheduleStates.remove(nuke.workQueueId());
+            recordSchedule(nuke.workQueueId());
+            ScheduleState removed = scheduleStates.remove(nuke.workQueueId());
+            scheduleRemoved |= removed != null;
+            completionRouting.invalidate();
+            untrackOccupancy(nuke.workQueueId(), removed);
+        } else if (event instanceof ContainerHandlingEquipmentEvent) {
+            truckPoolChanged = true;
         }
         long t1 = System.nanoTime();
 
@@ -838,42 +1506,21 @@ public class ScheduleRunnerProcessor implements EventProcessor {
         if (!subProcessors.isEmpty()) {
             ScheduleContext context = createContext();
             for (ScheduleSubProcessor sub : subProcessors) {
-                sideEffects.addAll(sub.process(event, context));
+                sink.addAll(sub.process(event, context));
             }
         }
         long t2 = System.nanoTime();
 
-        // Evaluate completion conditions → activate new actions → re-evaluate.
-        // This loop handles the case where evaluateCompletionConditions completes an action
-        // (e.g., TT_DRIVE_TO_RTG_UNDER), reactivateAllSchedules then activates a dependent
-        // action (e.g., RTG_WAIT_FOR_TRUCK), and that newly activated action's completion
-        // condition is already satisfied (TT_DRIVE_TO_RTG_UNDER is COMPLETED).
-        boolean ccProgress = true;
-        while (ccProgress) {
-            ccProgress = false;
-            if (canSatisfyCompletionConditions(event, sideEffects)) {
-                List<SideEffect> ccEffects = evaluateCompletionConditions(event);
-                if (!ccEffects.isEmpty()) {
-                    sideEffects.addAll(ccEffects);
-                    ccProgress = true;
-                }
-            }
-
-            List<SideEffect> raEffects = reactivateAllSchedules();
-            if (!raEffects.isEmpty()) {
-                sideEffects.addAll(raEffects);
-                // If new actions were activated, their completion conditions
-                // may already be satisfiable — loop back to check
-                for (SideEffect e : raEffects) {
-                    if (e instanceof ActionActivated) {
-                        ccProgress = true;
-                        break;
-                    }
-                }
-            }
-        }
+        boolean ccProgress = runCompletionConditions(event, sink, start, false);
         long t3 = System.nanoTime();
-        long t4 = t3;
+        if (batching && isSweepDeferrable(event)) {
+            deferredEvent = event;
+            deferredCompletionProgress |= ccProgress;
+            deferredCompletions |= completedSince(sink, start);
+        } else {
+            settle(event, sink, start, ccProgress, false);
+        }
+        long t4 = System.nanoTime();
 
         long totalMs = (t4 - t0) / 1_000_000;
         if (totalMs > 5 && logger.isLoggable(java.util.logging.Level.FINE)) {
@@ -884,10 +1531,129 @@ public class ScheduleRunnerProcessor implements EventProcessor {
                     + " evalCC=" + (t3 - t2) / 1_000_000 + "ms"
                     + " reactivate=" + (t4 - t3) / 1_000_000 + "ms"
                     + " schedules=" + scheduleStates.size()
-                    + " effects=" + sideEffects.size());
+                    + " effects=" + (sink.size() - start));
         }
+    }
 
-        return sideEffects;
+    @Override
+    public void beginBatch() {
+        batching = true;
+    }
+
+    @Override
+    public void endBatch(SideEffectSink sink) {
+        batching = false;
+        if (deferredEvent != null) {
+            settleDeferred(sink);
+        }
+    }
+
+    @Override
+    public void settleBefore(Event event, SideEffectSink sink) {
+        if (deferredEvent != null && !isSweepDeferrable(event)) {
+            settleDeferred(sink);
+        }
+    }
+
+    /**
+     * Whether the sweep may be deferred past the event: time events advance the time the sweep
+     * stamps on what it activates, and sub-processors and completion evaluators read the
+     * action states it leaves.
+     */
+    private boolean isSweepDeferrable(Event event) {
+        return sweepDeferrable.computeIfAbsent(event.getClass(), eventClass -> {
+            if (TimeEvent.class.isAssignableFrom(eventClass)) {
+                return false;
+            }
+            for (ScheduleSubProcessor sub : subProcessors) {
+                if (subscribes(sub.subscribedEventTypes(), eventClass)) {
+                    return false;
+                }
+            }
+            for (CompletionConditionEvaluator evaluator : completionEvaluators) {
+                if (subscribes(evaluator.subscribedEventTypes(), eventClass)) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    private static boolean subscribes(Set<Class<? extends Event>> types, Class<?> eventClass) {
+        for (Class<? extends Event> type : types) {
+            if (type.isAssignableFrom(eventClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Runs the sweep deferred in a batch. */
+    private void settleDeferred(SideEffectSink sink) {
+        Event event = deferredEvent;
+        boolean ccProgress = deferredCompletionProgress;
+        boolean completedBefore = deferredCompletions;
+        deferredEvent = null;
+        deferredCompletionProgress = false;
+        deferredCompletions = false;
+        settle(event, sink, sink.size(), ccProgress, completedBefore);
+    }
+
+    /**
+     * Activates new actions and evaluates completion conditions until neither progresses.
+     * <p>
+     * This loop handles the case where evaluateCompletionConditions completes an action
+     * (e.g., TT_DRIVE_TO_RTG_UNDER), reactivateAllSchedules then activates a dependent
+     * action (e.g., RTG_WAIT_FOR_TRUCK), and that newly activated action's completion
+     * condition is already satisfied (TT_DRIVE_TO_RTG_UNDER is COMPLETED).
+     *
+     * @param ccProgress whether the completion conditions evaluated for the event completed actions
+     * @param completedBefore whether actions were completed before {@code start}
+     */
+    private void settle(Event event, SideEffectSink sink, int start, boolean ccProgress, boolean completedBefore) {
+        while (true) {
+            int raStart = sink.size();
+            reactivateAllSchedules(sink);
+            // If new actions were activated, their completion conditions
+            // may already be satisfiable — loop back to check
+            if (!ccProgress && !activatedSince(sink, raStart)) {
+                return;
+            }
+            ccProgress = runCompletionConditions(event, sink, start, completedBefore);
+        }
+    }
+
+    /**
+     * Evaluates completion conditions if the event or the actions completed since {@code start}
+     * could satisfy any.
+     *
+     * @return whether actions were completed
+     */
+    private boolean runCompletionConditions(Event event, SideEffectSink sink, int start, boolean completedBefore) {
+        if (!completedBefore && !canSatisfyCompletionConditions(event, sink, start)) {
+            return false;
+        }
+        List<SideEffect> ccEffects = evaluateCompletionConditions(event);
+        sink.addAll(ccEffects);
+        return !ccEffects.isEmpty();
+    }
+
+    private static boolean activatedSince(SideEffectSink sink, int start) {
+        for (int i = start; i < sink.size(); i++) {
+            if (sink.get(i) instanceof ActionActivated) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean completedSince(SideEffectSink sink, int start) {
+        for (int i = start; i < sink.size(); i++) {
+            if (sink.get(i) instanceof ActionCompleted) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private List<SideEffect> handleScheduleCreated(ScheduleCreated scheduleCreated) {
@@ -897,9 +1663,15 @@ public class ScheduleRunnerProcessor implements EventProcessor {
 
         ScheduleState oldState = scheduleStates.get(workQueueId);
 
-        ScheduleState newState = new ScheduleState(estimatedMoveTime, takts);
+        ScheduleState newState = new ScheduleState(undoJournal, estimatedMoveTime, takts);
         buildConditions(newState);
+        recordSchedule(workQueueId);
         scheduleStates.put(workQueueId, newState);
+        completionRouting.invalidate();
+        untrackOccupancy(workQueueId, oldState);
+        if (!occupancy.isStale()) {
+            trackOccupancy(workQueueId, newState);
+        }
 
         List<SideEffect> sideEffects = new ArrayList<>();
 
@@ -928,8 +1700,8 @@ public class ScheduleRunnerProcessor implements EventProcessor {
         for (Takt takt : oldState.takts) {
             Set<String> completedKeys = new HashSet<>();
             for (Action action : takt.actions()) {
-                ActionInfo oldInfo = oldState.actionLookup.get(action.id());
-                if (oldInfo != null && oldInfo.action().status() == ActionStatus.COMPLETED) {
+                int oldHandle = oldState.actionHandle(action.id());
+                if (oldHandle >= 0 && oldState.status(oldHandle) == ActionStatus.COMPLETED) {
                     completedKeys.add(action.actionType() + ":" + action.containerIndex());
                 }
             }
@@ -942,27 +1714,29 @@ public class ScheduleRunnerProcessor implements EventProcessor {
         // Transfer truck assignments from old schedule to new schedule by containerIndex
         transferTruckAssignments(oldState, newState);
 
-        for (Takt newTakt : newState.takts) {
-            String taktName = newTakt.name();
-            TaktState oldTaktState = oldState.taktStates.getOrDefault(taktName, TaktState.WAITING);
+        for (int takt = 0; takt < newState.takts.size(); takt++) {
+            String taktName = newState.layout.taktName(takt);
+            int oldTakt = oldState.layout.takt(taktName);
+            TaktState oldTaktState = oldTakt >= 0 ? oldState.taktStates[oldTakt] : TaktState.WAITING;
 
             if (oldTaktState == TaktState.COMPLETED) {
                 // Completed takts: mark takt and all actions as completed
-                newState.taktStates.put(taktName, TaktState.COMPLETED);
-                for (Action action : newTakt.actions()) {
-                    newState.setActionStatus(action.id(), ActionStatus.COMPLETED, this.currentTime);
+                newState.setTaktState(takt, TaktState.COMPLETED);
+                for (int action : newState.layout.actionsOf(takt)) {
+                    newState.setActionStatus(action, ActionStatus.COMPLETED, this.currentTime);
                 }
             } else if (oldTaktState == TaktState.ACTIVE) {
                 // Active takts: transfer completed action states by (actionType, containerIndex)
-                newState.taktStates.put(taktName, TaktState.ACTIVE);
-                newState.actualStartTimes.put(taktName, this.currentTime);
+                newState.setTaktState(takt, TaktState.ACTIVE);
+                newState.setActualStartTime(takt, this.currentTime);
                 sideEffects.add(new TaktActivated(workQueueId, taktName, this.currentTime));
 
                 Set<String> completedKeys = oldTaktCompletedKeys.getOrDefault(taktName, Set.of());
-                for (Action action : newTakt.actions()) {
-                    String key = action.actionType() + ":" + action.containerIndex();
+                for (int action : newState.layout.actionsOf(takt)) {
+                    Action version = newState.definitions[action];
+                    String key = version.actionType() + ":" + version.containerIndex();
                     if (completedKeys.contains(key)) {
-                        newState.setActionStatus(action.id(), ActionStatus.COMPLETED, this.currentTime);
+                        newState.setActionStatus(action, ActionStatus.COMPLETED, this.currentTime);
                     }
                 }
 
@@ -991,11 +1765,14 @@ public class ScheduleRunnerProcessor implements EventProcessor {
     private void transferTruckAssignments(ScheduleState oldState, ScheduleState newState) {
         // Build containerIndex → truck assignment from old TT actions
         Map<Integer, Map.Entry<Long, String>> oldAssignments = new HashMap<>();
-        for (ActionInfo info : oldState.actionLookup.values()) {
-            Action a = info.action();
-            if (a.deviceType() == DeviceType.TT && a.cheShortName() != null) {
+        ActionStateTable oldActionStates = oldState.actionStates;
+        for (int handle = 0; handle < oldState.definitions.length; handle++) {
+            Action a = oldState.definitions[handle];
+            String cheShortName = oldActionStates.cheShortNames[handle];
+            if (a.deviceType() == DeviceType.TT && cheShortName != null) {
+                Long cheId = oldActionStates.cheIds[handle];
                 oldAssignments.putIfAbsent(a.containerIndex(), Map.entry(
-                        a.cheId() != null ? a.cheId() : 0L, a.cheShortName()));
+                        cheId != null ? cheId : 0L, cheShortName));
             }
         }
 
@@ -1005,76 +1782,61 @@ public class ScheduleRunnerProcessor implements EventProcessor {
             Long cheId = assignment.getValue().getKey();
             String cheShortName = assignment.getValue().getValue();
 
-            for (Map.Entry<UUID, ActionInfo> e : newState.actionLookup.entrySet()) {
-                Action a = e.getValue().action();
+            for (int handle = 0; handle < newState.definitions.length; handle++) {
+                Action a = newState.definitions[handle];
                 if (a.containerIndex() != containerIdx) continue;
-                if (a.deviceType() == DeviceType.TT && a.cheShortName() == null) {
-                    Action assigned = a.withTruckAssignment(cheId, cheShortName);
-                    newState.actionLookup.put(e.getKey(), new ActionInfo(e.getValue().taktName(), assigned));
-                } else if (a.deviceType() != DeviceType.TT && a.targetChe() == null) {
-                    Action withTarget = a.withTargetChe(cheShortName);
-                    newState.actionLookup.put(e.getKey(), new ActionInfo(e.getValue().taktName(), withTarget));
+                if (a.deviceType() == DeviceType.TT && newState.actionStates.cheShortNames[handle] == null) {
+                    newState.assignTruck(handle, cheId, cheShortName);
+                } else if (a.deviceType() != DeviceType.TT && newState.actionStates.targetChes[handle] == null) {
+                    newState.setTargetChe(handle, cheShortName);
                 }
             }
         }
     }
 
     private void transferEventGateState(ScheduleState oldState, ScheduleState newState) {
-        // Build old action key → UUID mapping
-        Map<String, UUID> oldActionKeyToId = new HashMap<>();
-        for (ActionInfo info : oldState.actionLookup.values()) {
-            oldActionKeyToId.put(actionKey(info.action()), info.action().id());
+        // Build old action key → handle mapping
+        Map<String, Integer> oldActionKeyToHandle = new HashMap<>();
+        for (int handle = 0; handle < oldState.definitions.length; handle++) {
+            oldActionKeyToHandle.put(actionKey(oldState.definitions[handle]), handle);
         }
 
-        // Build new action key → UUID mapping
-        Map<String, UUID> newActionKeyToId = new HashMap<>();
-        for (ActionInfo info : newState.actionLookup.values()) {
-            newActionKeyToId.put(actionKey(info.action()), info.action().id());
+        // Build new action key → handle mapping
+        Map<String, Integer> newActionKeyToHandle = new HashMap<>();
+        for (int handle = 0; handle < newState.definitions.length; handle++) {
+            newActionKeyToHandle.put(actionKey(newState.definitions[handle]), handle);
         }
 
-        // Transfer armed gates
-        for (Map.Entry<UUID, Set<String>> entry : oldState.armedEventGates.entrySet()) {
-            UUID oldActionId = entry.getKey();
-            ActionInfo oldInfo = oldState.actionLookup.get(oldActionId);
-            if (oldInfo == null) continue;
-            UUID newActionId = newActionKeyToId.get(actionKey(oldInfo.action()));
-            if (newActionId != null) {
-                newState.armedEventGates.put(newActionId, new HashSet<>(entry.getValue()));
+        // Transfer armed and satisfied gates
+        for (int oldHandle = 0; oldHandle < oldState.definitions.length; oldHandle++) {
+            Set<String> armed = oldState.armedEventGates[oldHandle];
+            Set<String> satisfied = oldState.satisfiedEventGates[oldHandle];
+            if (armed == null && satisfied == null) continue;
+            Integer newHandle = newActionKeyToHandle.get(actionKey(oldState.definitions[oldHandle]));
+            if (newHandle == null) continue;
+            if (armed != null) {
+                newState.armedEventGates[newHandle] = new HashSet<>(armed);
             }
-        }
-
-        // Transfer satisfied gates
-        for (Map.Entry<UUID, Set<String>> entry : oldState.satisfiedEventGates.entrySet()) {
-            UUID oldActionId = entry.getKey();
-            ActionInfo oldInfo = oldState.actionLookup.get(oldActionId);
-            if (oldInfo == null) continue;
-            UUID newActionId = newActionKeyToId.get(actionKey(oldInfo.action()));
-            if (newActionId != null) {
-                newState.satisfiedEventGates.put(newActionId, new HashSet<>(entry.getValue()));
+            if (satisfied != null) {
+                newState.satisfiedEventGates[newHandle] = new HashSet<>(satisfied);
             }
         }
 
         // Re-arm gates whose source action was already activated or completed in the old state
         // (covers cases where the gate wasn't armed yet but the source action already ran)
-        for (ActionInfo newInfo : newState.actionLookup.values()) {
-            Action newAction = newInfo.action();
+        for (int newHandle = 0; newHandle < newState.definitions.length; newHandle++) {
+            Action newAction = newState.definitions[newHandle];
             if (newAction.eventGates().isEmpty()) continue;
-            UUID newActionId = newAction.id();
-            if (newState.armedEventGates.containsKey(newActionId)) continue; // already transferred
+            if (newState.armedEventGates[newHandle] != null) continue; // already transferred
 
             // Check if the source action was activated/completed in old state
-            UUID sourceId = newState.gateArmSourceActions.get(newActionId);
-            if (sourceId == null) continue;
-            ActionInfo sourceInfo = newState.actionLookup.get(sourceId);
-            if (sourceInfo == null) continue;
-            UUID oldSourceId = oldActionKeyToId.get(actionKey(sourceInfo.action()));
-            ActionInfo oldSourceInfo = oldSourceId != null ? oldState.actionLookup.get(oldSourceId) : null;
-            if (oldSourceInfo != null &&
-                    (oldSourceInfo.action().status() == ActionStatus.ACTIVE || oldSourceInfo.action().status() == ActionStatus.COMPLETED)) {
+            int source = newState.gateArmSources[newHandle];
+            if (source < 0) continue;
+            Integer oldSource = oldActionKeyToHandle.get(actionKey(newState.definitions[source]));
+            ActionStatus oldSourceStatus = oldSource != null ? oldState.status(oldSource) : null;
+            if (oldSourceStatus == ActionStatus.ACTIVE || oldSourceStatus == ActionStatus.COMPLETED) {
                 for (EventGateCondition gate : newAction.eventGates()) {
-                    newState.armedEventGates
-                            .computeIfAbsent(newActionId, k -> new HashSet<>())
-                            .add(gate.id());
+                    newState.armEventGate(newHandle, gate.id());
                 }
             }
         }
@@ -1084,14 +1846,13 @@ public class ScheduleRunnerProcessor implements EventProcessor {
         // the event updated the WI's eventType, but the old schedule's gates didn't match
         // (different WI assignment). After rescheduling, the new actions carry the updated WIs.
         // We arm AND satisfy in one pass — if the WI already has the event, the gate is done.
-        for (ActionInfo newInfo : newState.actionLookup.values()) {
-            Action newAction = newInfo.action();
+        for (int newHandle = 0; newHandle < newState.definitions.length; newHandle++) {
+            Action newAction = newState.definitions[newHandle];
             if (newAction.eventGates().isEmpty()) continue;
-            UUID newActionId = newAction.id();
 
             for (EventGateCondition gate : newAction.eventGates()) {
-                Set<String> satisfied = newState.satisfiedEventGates.getOrDefault(newActionId, Set.of());
-                if (satisfied.contains(gate.id())) continue;
+                Set<String> satisfied = newState.satisfiedEventGates[newHandle];
+                if (satisfied != null && satisfied.contains(gate.id())) continue;
 
                 boolean eventAlreadyReceived;
                 var wis = newAction.workInstructions();
@@ -1112,12 +1873,8 @@ public class ScheduleRunnerProcessor implements EventProcessor {
                 }
 
                 if (eventAlreadyReceived) {
-                    newState.armedEventGates
-                            .computeIfAbsent(newActionId, k -> new HashSet<>())
-                            .add(gate.id());
-                    newState.satisfiedEventGates
-                            .computeIfAbsent(newActionId, k -> new HashSet<>())
-                            .add(gate.id());
+                    newState.armEventGate(newHandle, gate.id());
+                    newState.satisfyEventGate(newHandle, gate.id());
                 }
             }
         }
@@ -1127,7 +1884,8 @@ public class ScheduleRunnerProcessor implements EventProcessor {
      * Builds TaktConditions for each takt based on its properties and action dependencies.
      */
     private void buildConditions(ScheduleState state) {
-        for (Takt takt : state.takts) {
+        for (int index = 0; index < state.takts.size(); index++) {
+            Takt takt = state.takts.get(index);
             List<TaktCondition> conditions = new ArrayList<>();
 
             // Condition 1: Time — planned start time must be reached
@@ -1141,7 +1899,7 @@ public class ScheduleRunnerProcessor implements EventProcessor {
                 conditions.add(depCondition);
             }
 
-            state.taktConditions.put(takt.name(), conditions);
+            state.setTaktConditions(index, conditions);
         }
     }
 
@@ -1177,9 +1935,9 @@ public class ScheduleRunnerProcessor implements EventProcessor {
                     continue; // skip intra-takt and later-takt dependencies
                 }
                 externalActionDeps.add(depId);
-                ActionInfo depInfo = state.actionLookup.get(depId);
-                if (depInfo != null) {
-                    depDescriptions.put(depId, depInfo.action().description());
+                int dependency = state.actionHandle(depId);
+                if (dependency >= 0) {
+                    depDescriptions.put(depId, state.definitions[dependency].description());
                 }
             }
             if (!externalActionDeps.isEmpty()) {
@@ -1196,33 +1954,39 @@ public class ScheduleRunnerProcessor implements EventProcessor {
 
     private List<SideEffect> handleWorkInstructionEvent(WorkInstructionEvent event) {
         if (event.estimatedMoveTime() != null) {
-            workInstructionEstimatedMoveTime.put(event.workInstructionId(), event.estimatedMoveTime());
+            if (undoJournal.isRecording()) {
+                PersistentLongMap<Instant> previous = workInstructionEstimatedMoveTime;
+                undoJournal.record(() -> workInstructionEstimatedMoveTime = previous);
+            }
+            workInstructionEstimatedMoveTime = workInstructionEstimatedMoveTime.with(
+                    event.workInstructionId(), event.estimatedMoveTime());
         }
 
         // Check if this WI event satisfies any armed event gates
         if (event.eventType() != null && !event.eventType().isEmpty()) {
             List<SideEffect> sideEffects = new ArrayList<>();
             for (ScheduleState state : scheduleStates.values()) {
-                List<UUID> gatedActions = state.eventTypeToGatedActions.getOrDefault(event.eventType(), List.of());
-                for (UUID gatedActionId : gatedActions) {
-                    Set<String> armed = state.armedEventGates.getOrDefault(gatedActionId, Set.of());
-                    ActionInfo gatedInfo = state.actionLookup.get(gatedActionId);
-                    if (gatedInfo == null) continue;
+                int[] gatedActions = state.eventTypeToGatedActions.get(event.eventType());
+                if (gatedActions == null) continue;
+                for (int gated : gatedActions) {
+                    Set<String> armed = state.armedEventGates[gated];
+                    if (armed == null) continue;
+                    Action gatedAction = state.definitions[gated];
 
                     // Match against the gated action's own WIs — each action carries the WIs it's responsible for.
                     // In different-bay templates (two RTGs), each RTG_DRIVE carries only its own WI.
                     // Gates with containerSuffix > 0 only match the specific WI at that index.
-                    boolean wiMatches = gatedInfo.action().workInstructions().stream()
+                    boolean wiMatches = gatedAction.workInstructions().stream()
                             .anyMatch(wi -> wi.workInstructionId() == event.workInstructionId());
                     if (!wiMatches) continue;
 
-                    for (EventGateCondition gate : gatedInfo.action().eventGates()) {
+                    for (EventGateCondition gate : gatedAction.eventGates()) {
                         if (!gate.requiredEventType().equals(event.eventType()) || !armed.contains(gate.id())) {
                             continue;
                         }
                         // If gate is scoped to a specific container, only that WI can satisfy it
                         if (gate.containerSuffix() > 0) {
-                            var wis = gatedInfo.action().workInstructions();
+                            var wis = gatedAction.workInstructions();
                             int idx = gate.containerSuffix() - 1;
                             if (idx < wis.size()) {
                                 // Check the specific WI by suffix index
@@ -1234,9 +1998,7 @@ public class ScheduleRunnerProcessor implements EventProcessor {
                             // the wiMatches check above already confirmed this event's WI
                             // belongs to this action — satisfy the gate.
                         }
-                        state.satisfiedEventGates
-                                .computeIfAbsent(gatedActionId, k -> new HashSet<>())
-                                .add(gate.id());
+                        state.satisfyEventGate(gated, gate.id());
                     }
                 }
                 // Auto-completion and action activation handled by reactivateAllSchedules()
@@ -1261,16 +2023,27 @@ public class ScheduleRunnerProcessor implements EventProcessor {
         if (scheduleStates.containsKey(workQueueId)) {
             return List.of();
         }
-        scheduleStates.put(workQueueId, new ScheduleState(null, List.of()));
+        recordSchedule(workQueueId);
+        ScheduleState state = new ScheduleState(undoJournal, null, List.of());
+        scheduleStates.put(workQueueId, state);
+        if (!occupancy.isStale()) {
+            trackOccupancy(workQueueId, state);
+        }
         return List.of();
     }
 
     private List<SideEffect> handleScheduleDeactivation(long workQueueId) {
-        scheduleStates.remove(workQueueId);
+        recordSchedule(workQueueId);
+        ScheduleState removed = scheduleStates.remove(workQueueId);
+        scheduleRemoved |= removed != null;
+        completionRouting.invalidate();
+        untrackOccupancy(workQueueId, removed);
         return List.of();
     }
 
     private List<SideEffect> handleTimeEvent(TimeEvent timeEvent) {
+        Instant previousTime = currentTime;
+        undoJournal.record(() -> currentTime = previousTime);
         this.currentTime = timeEvent.timestamp();
         // Takt activation and action activation handled by reactivateAllSchedules()
         return List.of();
@@ -1282,12 +2055,12 @@ public class ScheduleRunnerProcessor implements EventProcessor {
             return List.of();
         }
 
-        Set<String> overrides = state.overriddenConditions.get(event.taktName());
-        if (overrides == null) {
+        int takt = state.layout.takt(event.taktName());
+        if (takt < 0) {
             return List.of();
         }
 
-        overrides.add(event.conditionId());
+        state.overrideCondition(takt, event.conditionId());
 
         // Takt activation handled by reactivateAllSchedules()
         return List.of();
@@ -1299,14 +2072,12 @@ public class ScheduleRunnerProcessor implements EventProcessor {
             return List.of();
         }
 
-        ActionInfo actionInfo = state.actionLookup.get(event.actionId());
-        if (actionInfo == null) {
+        int handle = state.actionHandle(event.actionId());
+        if (handle < 0) {
             return List.of();
         }
 
-        state.overriddenActionConditions
-                .computeIfAbsent(event.actionId(), k -> new HashSet<>())
-                .add(event.conditionId());
+        state.overrideActionCondition(handle, event.conditionId());
 
         // Takt activation, action activation, and force-activation handled by reactivateAllSchedules()
         return List.of();
@@ -1316,35 +2087,38 @@ public class ScheduleRunnerProcessor implements EventProcessor {
      * Checks if all conditions for an action are satisfied or overridden,
      * and activates the action even if its takt is still WAITING.
      */
-    private List<SideEffect> tryForceActivateAction(long workQueueId, ScheduleState state,
-                                                      UUID actionId, ActionInfo actionInfo) {
-        if (actionInfo.action().status() != ActionStatus.PENDING) {
+    private List<SideEffect> tryForceActivateAction(long workQueueId, ScheduleState state, int handle) {
+        Action action = state.definitions[handle];
+        int takt = state.layout.taktOf(handle);
+        if (state.status(handle) != ActionStatus.PENDING || takt < 0) {
             return List.of();
         }
 
-        Set<String> overrides = state.overriddenActionConditions.getOrDefault(actionId, Set.of());
-        Action action = actionInfo.action();
-        String taktName = actionInfo.taktName();
+        Set<String> overrides = state.actionOverrides(handle);
+        UUID actionId = action.id();
+        String taktName = state.layout.taktName(takt);
 
         // Determine what conditions this action has and check each
-        Set<UUID> taktActionIds = new HashSet<>();
-        for (Action a : state.takts.stream().filter(t -> t.name().equals(taktName)).findFirst().get().actions()) {
-            taktActionIds.add(a.id());
+        boolean hasIntraTaktDep = false;
+        if (action.dependsOn() != null) {
+            for (UUID depId : action.dependsOn()) {
+                int dependency = state.actionHandle(depId);
+                if (dependency >= 0 && state.layout.taktOf(dependency) == takt) {
+                    hasIntraTaktDep = true;
+                    break;
+                }
+            }
         }
 
-        boolean hasIntraTaktDep = action.dependsOn() != null &&
-                action.dependsOn().stream().anyMatch(taktActionIds::contains);
-
         if (!hasIntraTaktDep) {
             // First action: has takt-activation condition
-            boolean taktActive = state.taktStates.get(taktName) == TaktState.ACTIVE;
+            boolean taktActive = state.taktStates[takt] == TaktState.ACTIVE;
             if (!taktActive && !overrides.contains("takt-activation")) {
                 return List.of();
             }
         } else {
             // Non-first action: has action-dependencies condition
-            boolean depsComplete = action.dependsOn() == null || action.dependsOn().isEmpty()
-                    || state.areDependenciesCompleted(action.dependsOn());
+            boolean depsComplete = state.areDependenciesCompleted(handle);
             if (!depsComplete && !overrides.contains("action-dependencies")) {
                 return List.of();
             }
@@ -1352,14 +2126,14 @@ public class ScheduleRunnerProcessor implements EventProcessor {
 
         // Check event gates (skip check for skipWhenGatesSatisfied actions)
         if (!action.skipWhenGatesSatisfied()
-                && !state.areEventGatesSatisfied(actionId, action, overrides)) {
+                && !state.areEventGatesSatisfied(handle, action, overrides)) {
             return List.of();
         }
 
         // Auto-complete: if skipWhenGatesSatisfied and all gates are already satisfied, skip
         if (action.skipWhenGatesSatisfied()
-                && state.areEventGatesSatisfied(actionId, action, overrides)) {
-            state.setActionStatus(actionId, ActionStatus.COMPLETED, currentTime);
+                && state.areEventGatesSatisfied(handle, action, overrides)) {
+            state.setActionStatus(handle, ActionStatus.COMPLETED, currentTime);
             return List.of(new ActionCompleted(
                     actionId, workQueueId, taktName,
                     action.description(), this.currentTime
@@ -1367,9 +2141,10 @@ public class ScheduleRunnerProcessor implements EventProcessor {
         }
 
         // All conditions met — activate the action
-        state.setActionStatus(actionId, ActionStatus.ACTIVE, currentTime);
-        armEventGatesForAction(state, actionId);
-        String cheForMessage = action.deviceType() == DeviceType.TT ? action.cheShortName() : action.targetChe();
+        state.setActionStatus(handle, ActionStatus.ACTIVE, currentTime);
+        armEventGatesForAction(state, handle);
+        String cheForMessage = action.deviceType() == DeviceType.TT
+                ? state.actionStates.cheShortNames[handle] : state.actionStates.targetChes[handle];
         return List.of(new ActionActivated(
                 actionId, workQueueId, taktName,
                 action.actionType(), action.description(), this.currentTime,
@@ -1385,21 +2160,26 @@ public class ScheduleRunnerProcessor implements EventProcessor {
      * This ensures consistent TT allocation priority (earlier takts first) and handles
      * all cascading: takt activation, action activation, auto-completion, takt completion,
      * force-activation of overridden actions, and cross-schedule truck reallocation.
+     * <p>
+     * A schedule whose inputs are unchanged since its last evaluation would make no progress,
+     * so only {@link ScheduleState#dirty dirty} schedules are evaluated. Besides the schedule's
+     * own mutations, its inputs are the current time (for WAITING takts), the occupancy of the
+     * equipment it watches, and free trucks (when it is waiting for one).
      */
     /**
      * Checks whether the event or prior side effects could possibly satisfy a completion condition.
      * Only CheTargetPositionEvent, AssetEvent, JobOperationEvent can directly satisfy conditions.
      * ActionCompletedEvaluator needs newly completed actions, which are signaled by ActionCompleted
-     * side effects from earlier in this process() call.
+     * side effects from earlier in this process() call, i.e. emitted into the sink from {@code start}.
      */
-    private boolean canSatisfyCompletionConditions(Event event, List<SideEffect> priorEffects) {
+    private boolean canSatisfyCompletionConditions(Event event, SideEffectSink sink, int start) {
         if (event instanceof CheTargetPositionEvent
                 || event instanceof AssetEvent
                 || event instanceof JobOperationEvent) {
             return true;
         }
-        for (SideEffect effect : priorEffects) {
-            if (effect instanceof ActionCompleted) {
+        for (int i = start; i < sink.size(); i++) {
+            if (sink.get(i) instanceof ActionCompleted) {
                 return true;
             }
         }
@@ -1407,13 +2187,20 @@ public class ScheduleRunnerProcessor implements EventProcessor {
     }
 
     /**
-     * Evaluates completion condition evaluators against all actions.
+     * Evaluates completion condition evaluators against the active actions.
      * When all completion conditions on an action are satisfied, the action is auto-completed.
      * Uses a fixed-point loop to cascade completions within a single processing cycle
      * (e.g., TT_DRIVE_TO_RTG_UNDER completing triggers RTG_WAIT_FOR_TRUCK completion).
+     * <p>
+     * Routed evaluators only receive the candidates from {@link #completionRouting}. State-based
+     * evaluators are skipped while no action changed since their last run, since they would
+     * find the same conditions satisfied again.
      */
     private List<SideEffect> evaluateCompletionConditions(Event event) {
         if (completionEvaluators.isEmpty()) return List.of();
+        if (completionRouting.isStale()) {
+            rebuildCompletionRouting();
+        }
 
         List<SideEffect> allSideEffects = new ArrayList<>();
         boolean progress = true;
@@ -1421,39 +2208,42 @@ public class ScheduleRunnerProcessor implements EventProcessor {
         while (progress) {
             progress = false;
 
-            // Build action maps from non-completed takts only:
-            // - ACTIVE actions for event-based evaluators (TTPosition, QCAsset, etc.)
-            // - ACTIVE+COMPLETED for ActionCompletedEvaluator (needs completed triggers)
-            // Using getActiveAndWaitingTaktActions() keeps this O(active_takts) not O(all_actions).
-            Map<UUID, Action> activeActions = new HashMap<>();
-            Map<UUID, Action> nonCompletedTaktActions = new HashMap<>();
-            Map<UUID, Long> actionToWorkQueue = new HashMap<>();
-            for (Map.Entry<Long, ScheduleState> entry : scheduleStates.entrySet()) {
-                for (ActionInfo info : entry.getValue().getActiveAndWaitingTaktActions()) {
-                    Action action = info.action();
-                    actionToWorkQueue.put(action.id(), entry.getKey());
-                    nonCompletedTaktActions.put(action.id(), action);
-                    if (action.status() == ActionStatus.ACTIVE) {
-                        activeActions.put(action.id(), action);
-                    }
-                }
-            }
+            // No active action has conditions to satisfy
+            if (completionRouting.isEmpty()) break;
 
-            if (activeActions.isEmpty()) break;
+            // Full action maps from non-completed takts, only built for evaluators without an index:
+            // - ACTIVE actions for event-based evaluators
+            // - ACTIVE+COMPLETED for state-based evaluators (ActionCompletedEvaluator needs completed triggers)
+            Map<UUID, Action> activeActions = null;
+            Map<UUID, Action> nonCompletedTaktActions = null;
+            long version = completionRouting.version();
+            boolean stateEvaluatorsCurrent = version == stateEvaluatorsVersion;
 
-            // Evaluate all evaluators:
-            // - Event-based evaluators get ACTIVE-only map
-            // - ActionCompletedEvaluator gets ACTIVE+COMPLETED from non-completed takts
             Map<UUID, Set<String>> newlySatisfiedByAction = new HashMap<>();
             for (CompletionConditionEvaluator evaluator : completionEvaluators) {
-                Map<UUID, Action> actionsForEvaluator = (evaluator instanceof ActionCompletedEvaluator)
-                        ? nonCompletedTaktActions : activeActions;
+                Map<UUID, Action> actionsForEvaluator;
+                if (evaluator instanceof RoutedCompletionConditionEvaluator routed) {
+                    actionsForEvaluator = routedCandidates(routed, event);
+                } else if (evaluator.subscribedEventTypes().isEmpty()) {
+                    if (stateEvaluatorsCurrent) continue;
+                    if (nonCompletedTaktActions == null) {
+                        nonCompletedTaktActions = collectNonCompletedTaktActions(false);
+                    }
+                    actionsForEvaluator = nonCompletedTaktActions;
+                } else {
+                    if (activeActions == null) {
+                        activeActions = collectNonCompletedTaktActions(true);
+                    }
+                    actionsForEvaluator = activeActions;
+                }
+                if (actionsForEvaluator.isEmpty()) continue;
                 Map<UUID, List<String>> evaluated = evaluator.evaluateSatisfied(event, actionsForEvaluator);
                 for (Map.Entry<UUID, List<String>> evalEntry : evaluated.entrySet()) {
                     newlySatisfiedByAction.computeIfAbsent(evalEntry.getKey(), k -> new HashSet<>())
                             .addAll(evalEntry.getValue());
                 }
             }
+            stateEvaluatorsVersion = version;
 
             if (newlySatisfiedByAction.isEmpty()) break;
 
@@ -1461,9 +2251,8 @@ public class ScheduleRunnerProcessor implements EventProcessor {
             for (Map.Entry<UUID, Set<String>> entry : newlySatisfiedByAction.entrySet()) {
                 UUID actionId = entry.getKey();
                 Set<String> newCondIds = entry.getValue();
-                Action action = activeActions.get(actionId);
-                if (action == null || action.status() != ActionStatus.ACTIVE) continue;
-                if (action.completionConditions() == null || action.completionConditions().isEmpty()) continue;
+                Action action = findIndexedAction(actionId);
+                if (action == null) continue;
 
                 Set<String> satisfied = satisfiedCompletionConditions.computeIfAbsent(actionId, k -> new HashSet<>());
                 boolean changed = false;
@@ -1472,16 +2261,14 @@ public class ScheduleRunnerProcessor implements EventProcessor {
                 }
 
                 if (changed && allConditionsSatisfied(action, satisfied)) {
-                    long wqId = actionToWorkQueue.get(actionId);
+                    long wqId = completionRouting.workQueueOf(actionId);
                     ScheduleState state = scheduleStates.get(wqId);
-                    if (state != null) {
-                        String taktName = state.actionLookup.get(actionId).taktName();
-                        state.setActionStatus(actionId, ActionStatus.COMPLETED, currentTime);
-                        satisfiedCompletionConditions.remove(actionId);
-                        allSideEffects.add(new ActionCompleted(actionId, wqId, taktName,
-                                action.description(), this.currentTime));
-                        progress = true;
-                    }
+                    int handle = state.actionHandle(actionId);
+                    state.setActionStatus(handle, ActionStatus.COMPLETED, currentTime);
+                    satisfiedCompletionConditions.remove(actionId);
+                    allSideEffects.add(new ActionCompleted(actionId, wqId, state.taktNameOf(handle),
+                            action.description(), this.currentTime));
+                    progress = true;
                 }
             }
         }
@@ -1489,6 +2276,87 @@ public class ScheduleRunnerProcessor implements EventProcessor {
         return allSideEffects;
     }
 
+    /**
+     * Returns the indexed actions the event is routed to for the evaluator.
+     */
+    private Map<UUID, Action> routedCandidates(RoutedCompletionConditionEvaluator evaluator, Event event) {
+        String key = evaluator.routingKey(event);
+        if (key == null) return Map.of();
+        Set<UUID> actionIds = completionRouting.candidates(evaluator, key);
+        if (actionIds.isEmpty()) return Map.of();
+        Map<UUID, Action> candidates = new HashMap<>();
+        for (UUID actionId : actionIds) {
+            Action action = findIndexedAction(actionId);
+            if (action != null) {
+                candidates.put(actionId, action);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Looks up an action in the routing index, which holds every ACTIVE action with completion
+     * conditions. Returns null for any other action.
+     */
+    private Action findIndexedAction(UUID actionId) {
+        Long workQueueId = completionRouting.workQueueOf(actionId);
+        ScheduleState state = workQueueId != null ? scheduleStates.get(workQueueId) : null;
+        int handle = state != null ? state.actionHandle(actionId) : -1;
+        return handle >= 0 && state.status(handle) == ActionStatus.ACTIVE ? state.action(handle) : null;
+    }
+
+    /**
+     * Collects the actions of non-completed takts across all schedules, for evaluators without
+     * a routing index. Using getActiveAndWaitingTaktActions() keeps this O(active_takts) not O(all_actions).
+     */
+    private Map<UUID, Action> collectNonCompletedTaktActions(boolean activeOnly) {
+        Map<UUID, Action> actions = new HashMap<>();
+        for (ScheduleState state : scheduleStates.values()) {
+            for (int handle : state.getActiveAndWaitingTaktActions()) {
+                if (!activeOnly || state.status(handle) == ActionStatus.ACTIVE) {
+                    Action action = state.action(handle);
+                    actions.put(action.id(), action);
+                }
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * Re-indexes the active actions of non-completed takts, and attaches the index to the
+     * schedules so they keep it up to date.
+     */
+    private void rebuildCompletionRouting() {
+        completionRouting.clear();
+        for (Map.Entry<Long, ScheduleState> entry : scheduleStates.entrySet()) {
+            routeCompletions(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /** Indexes the active actions of a schedule, unless the index awaits a rebuild anyway. */
+    private void routeCompletions(long workQueueId, ScheduleState state) {
+        if (completionRouting.isStale()) {
+            return;
+        }
+        state.completionRouting = completionRouting;
+        state.workQueueId = workQueueId;
+        for (int handle : state.getActiveAndWaitingTaktActions()) {
+            completionRouting.update(workQueueId, null, null, state.definitions[handle], state.status(handle));
+        }
+    }
+
+    /** Removes the actions of a schedule that is replaced from the index. */
+    private void unrouteCompletions(long workQueueId, ScheduleState state) {
+        if (state.completionRouting == null) {
+            return;
+        }
+        state.completionRouting = null;
+        for (int handle = 0; handle < state.definitions.length; handle++) {
+            Action definition = state.definitions[handle];
+            completionRouting.update(workQueueId, definition, state.status(handle), definition, null);
+        }
+    }
+
     private boolean allConditionsSatisfied(Action action, Set<String> satisfied) {
         for (CompletionCondition cond : action.completionConditions()) {
             if (!satisfied.contains(cond.id())) return false;
@@ -1496,77 +2364,81 @@ public class ScheduleRunnerProcessor implements EventProcessor {
         return true;
     }
 
-    private List<SideEffect> reactivateAllSchedules() {
-        List<SideEffect> allEffects = new ArrayList<>();
+    private void reactivateAllSchedules(SideEffectSink sink) {
+        if (!markSchedulesForSweep()) {
+            return;
+        }
+        int start = sink.size();
 
         boolean progress = true;
         int iterations = 0;
+        int evaluated = 0;
         long occupiedNs = 0, trucksNs = 0, taktsNs = 0, actionsNs = 0, gatedNs = 0, forceNs = 0, completeNs = 0;
 
         while (progress) {
             progress = false;
             iterations++;
 
-            // Compute occupied positions and assigned trucks once per iteration.
-            // These are invalidated when progress=true (actions changed status).
+            // Take the occupied positions and assigned trucks once per iteration, so every
+            // schedule of an iteration sees the same ones. Allocation adds to assignedTrucks.
             long ot0 = System.nanoTime();
-            Set<String> occupiedPositions = getOccupiedPositionKeys();
+            Set<String> occupiedPositions = Set.copyOf(occupancy().occupiedPositions());
             long ot1 = System.nanoTime();
-            Set<String> assignedTrucks = collectAssignedTrucks();
+            Set<String> assignedTrucks = new HashSet<>(occupancy.assignedTrucks());
             long ot2 = System.nanoTime();
             occupiedNs += ot1 - ot0;
             trucksNs += ot2 - ot1;
+            markOccupancyWatchers(occupiedPositions);
+            markTruckWaiters(assignedTrucks);
 
             for (Map.Entry<Long, ScheduleState> entry : scheduleStates.entrySet()) {
                 long wqId = entry.getKey();
                 ScheduleState state = entry.getValue();
+                if (!state.dirty) {
+                    continue;
+                }
+                // Mutations below mark the state dirty again, so it is re-evaluated next iteration
+                if (undoJournal.isRecording()) {
+                    boolean awaitingTruck = state.awaitingTruck;
+                    undoJournal.record(() -> {
+                        state.dirty = true;
+                        state.awaitingTruck = awaitingTruck;
+                    });
+                }
+                state.dirty = false;
+                state.awaitingTruck = false;
+                evaluated++;
 
                 // 1. Try activating WAITING takts (condition checks)
                 long st0 = System.nanoTime();
-                List<SideEffect> taktEffects = tryActivateTakts(wqId, state);
+                progress |= tryActivateTakts(wqId, state, sink);
                 taktsNs += System.nanoTime() - st0;
-                if (!taktEffects.isEmpty()) {
-                    allEffects.addAll(taktEffects);
-                    progress = true;
-                }
 
                 // 2. Activate eligible actions in ACTIVE takts, sorted by sequence
                 long st1 = System.nanoTime();
-                List<Takt> sortedTakts = state.takts.stream()
-                        .sorted(Comparator.comparingInt(Takt::sequence))
-                        .toList();
-                for (Takt takt : sortedTakts) {
-                    if (state.taktStates.get(takt.name()) == TaktState.ACTIVE) {
-                        List<SideEffect> actionEffects = activateEligibleActions(
-                                wqId, state, takt.name(), occupiedPositions, assignedTrucks);
-                        if (!actionEffects.isEmpty()) {
-                            allEffects.addAll(actionEffects);
-                            progress = true;
-                        }
+                for (int takt : state.layout.sequenceOrder()) {
+                    if (state.taktStates[takt] == TaktState.ACTIVE) {
+                        progress |= activateEligibleActions(
+                                wqId, state, takt, occupiedPositions, assignedTrucks, sink);
                     }
                 }
                 actionsNs += System.nanoTime() - st1;
 
                 // 3. Auto-complete gated actions (skipWhenGatesSatisfied)
                 long st2 = System.nanoTime();
-                List<SideEffect> autoEffects = autoCompleteGatedActions(wqId, state);
+                progress |= autoCompleteGatedActions(wqId, state, sink);
                 gatedNs += System.nanoTime() - st2;
-                if (!autoEffects.isEmpty()) {
-                    allEffects.addAll(autoEffects);
-                    progress = true;
-                }
 
                 // 4. Force-activate actions in WAITING takts with all conditions overridden
                 //    Skip entirely when no overrides exist (the common case)
                 long st3 = System.nanoTime();
                 if (!state.overriddenActionConditions.isEmpty()) {
-                    for (ActionInfo info : state.getActiveAndWaitingTaktActions()) {
-                        if (state.taktStates.get(info.taktName()) == TaktState.WAITING) {
-                            UUID actionId = info.action().id();
-                            if (info.action().status() == ActionStatus.PENDING) {
-                                List<SideEffect> forceEffects = tryForceActivateAction(wqId, state, actionId, info);
+                    for (int handle : state.getActiveAndWaitingTaktActions()) {
+                        if (state.taktStates[state.layout.taktOf(handle)] == TaktState.WAITING) {
+                            if (state.status(handle) == ActionStatus.PENDING) {
+                                List<SideEffect> forceEffects = tryForceActivateAction(wqId, state, handle);
                                 if (!forceEffects.isEmpty()) {
-                                    allEffects.addAll(forceEffects);
+                                    sink.addAll(forceEffects);
                                     progress = true;
                                 }
                             }
@@ -1577,18 +2449,25 @@ public class ScheduleRunnerProcessor implements EventProcessor {
 
                 // 5. Try completing fully-completed takts
                 long st4 = System.nanoTime();
-                List<SideEffect> completionEffects = tryCompletePendingTakts(wqId, state);
+                progress |= tryCompletePendingTakts(wqId, state, sink);
                 completeNs += System.nanoTime() - st4;
-                if (!completionEffects.isEmpty()) {
-                    allEffects.addAll(completionEffects);
-                    progress = true;
-                }
             }
+            if (undoJournal.isRecording()) {
+                Set<String> previousOccupancy = sweptOccupancy;
+                Set<String> previousTrucks = sweptTrucks;
+                undoJournal.record(() -> {
+                    sweptOccupancy = previousOccupancy;
+                    sweptTrucks = previousTrucks;
+                });
+            }
+            sweptOccupancy = occupiedPositions;
+            sweptTrucks = assignedTrucks;
         }
 
         long totalNs = occupiedNs + trucksNs + taktsNs + actionsNs + gatedNs + forceNs + completeNs;
         if (totalNs / 1_000_000 > 2 && logger.isLoggable(java.util.logging.Level.FINE)) {
             logger.fine("PERF reactivate iters=" + iterations
+                    + " evaluated=" + evaluated
                     + " occupied=" + occupiedNs / 1_000_000 + "ms"
                     + " trucks=" + trucksNs / 1_000_000 + "ms"
                     + " takts=" + taktsNs / 1_000_000 + "ms"
@@ -1596,40 +2475,189 @@ public class ScheduleRunnerProcessor implements EventProcessor {
                     + " gated=" + gatedNs / 1_000_000 + "ms"
                     + " force=" + forceNs / 1_000_000 + "ms"
                     + " complete=" + completeNs / 1_000_000 + "ms"
-                    + " effects=" + allEffects.size());
+                    + " effects=" + (sink.size() - start));
         }
+    }
 
-        return allEffects;
+    /**
+     * Marks the schedules affected by changes outside their own state since the last sweep:
+     * a takt time condition that came due and truck state updates for schedules waiting on a
+     * truck. After a restore to an earlier time every schedule is marked.
+     *
+     * @return whether the sweep has anything to evaluate
+     */
+    private boolean markSchedulesForSweep() {
+        while (!taktDeadlines.isEmpty() && !taktDeadlines.peek().time().isAfter(currentTime)) {
+            TaktDeadline due = taktDeadlines.poll();
+            ScheduleState state = scheduleStates.get(due.workQueueId());
+            boolean woken = state != null && due.time().equals(state.wakeTime);
+            if (undoJournal.isRecording()) {
+                undoJournal.record(() -> {
+                    taktDeadlines.add(due);
+                    if (woken) {
+                        state.wakeTime = due.time();
+                    }
+                });
+            }
+            if (woken) {
+                state.wakeTime = null;
+                state.dirty = true;
+            }
+        }
+        boolean markAll = sweptOccupancy == null;
+        boolean anyDirty = scheduleRemoved;
+        for (ScheduleState state : scheduleStates.values()) {
+            if (markAll || (truckPoolChanged && state.awaitingTruck)) {
+                state.dirty = true;
+            }
+            anyDirty |= state.dirty;
+        }
+        if (truckPoolChanged || scheduleRemoved) {
+            boolean previousTruckPoolChanged = truckPoolChanged;
+            boolean previousScheduleRemoved = scheduleRemoved;
+            undoJournal.record(() -> {
+                truckPoolChanged = previousTruckPoolChanged;
+                scheduleRemoved = previousScheduleRemoved;
+            });
+        }
+        truckPoolChanged = false;
+        scheduleRemoved = false;
+        return anyDirty;
     }
 
     /**
-     * Tries to activate takts whose conditions are all satisfied (or overridden).
-     * Only handles takt state transitions (WAITING → ACTIVE). Action activation
-     * is handled separately by {@link #reactivateAllSchedules()}.
+     * Marks the schedules watching equipment whose occupancy differs from the last iteration.
      */
-    private List<SideEffect> tryActivateTakts(long workQueueId, ScheduleState state) {
-        List<SideEffect> sideEffects = new ArrayList<>();
+    private void markOccupancyWatchers(Set<String> occupiedPositions) {
+        if (sweptOccupancy == null) {
+            return;
+        }
+        Set<String> changedEquipment = new HashSet<>();
+        collectChangedEquipment(occupiedPositions, sweptOccupancy, changedEquipment);
+        collectChangedEquipment(sweptOccupancy, occupiedPositions, changedEquipment);
+        if (changedEquipment.isEmpty()) {
+            return;
+        }
+        for (ScheduleState state : scheduleStates.values()) {
+            if (!state.dirty && !Collections.disjoint(state.watchedEquipment, changedEquipment)) {
+                state.dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Adds the equipment of each position key in {@code keys} but not in {@code others},
+     * both by name ("QC:QCZ1") and as any equipment of its type ("QC:*").
+     */
+    private static void collectChangedEquipment(Set<String> keys, Set<String> others, Set<String> changedEquipment) {
+        for (String key : keys) {
+            if (!others.contains(key)) {
+                changedEquipment.add(key.substring(0, key.lastIndexOf(':')));
+                changedEquipment.add(key.substring(0, key.indexOf(':')) + ":*");
+            }
+        }
+    }
+
+    /**
+     * Marks the schedules waiting for a truck when a truck was released since the last iteration.
+     */
+    private void markTruckWaiters(Set<String> assignedTrucks) {
+        if (assignedTrucks.containsAll(sweptTrucks)) {
+            return;
+        }
+        for (ScheduleState state : scheduleStates.values()) {
+            if (state.awaitingTruck) {
+                state.dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the time from which the takt's planned start and non-overridden time conditions
+     * no longer hold it back, or null if they never do.
+     */
+    private static Instant timeGate(Takt takt, List<TaktCondition> conditions, Set<String> overrides) {
+        Instant gate = takt.plannedStartTime();
+        for (TaktCondition condition : conditions) {
+            if (condition instanceof TimeCondition time && time.time() != null
+                    && !overrides.contains(condition.id())
+                    && (gate == null || time.time().isAfter(gate))) {
+                gate = time.time();
+            }
+        }
+        return gate;
+    }
+
+    /**
+     * Makes sure the schedule is woken at {@code time}, unless it already is by then.
+     */
+    private void scheduleWakeUp(long workQueueId, ScheduleState state, Instant time) {
+        if (state.wakeTime == null || time.isBefore(state.wakeTime)) {
+            if (undoJournal.isRecording()) {
+                // The entry added below stays in the heap, stale once the wake time is restored
+                Instant previous = state.wakeTime;
+                undoJournal.record(() -> state.wakeTime = previous);
+            }
+            state.wakeTime = time;
+            taktDeadlines.add(new TaktDeadline(time, workQueueId));
+        }
+    }
 
-        // Build completedActionIds on-the-fly for ConditionContext
-        Set<UUID> completedActionIds = new HashSet<>();
-        for (ActionInfo info : state.actionLookup.values()) {
-            if (info.action().status() == ActionStatus.COMPLETED) {
-                completedActionIds.add(info.action().id());
+    /**
+     * Returns the actions with the TT actions first, keeping the order within each group, so
+     * truck allocation and targetChe propagation happen before QC/RTG actions activate in the
+     * same pass.
+     */
+    private static int[] inDeviceOrder(ScheduleState state, int[] handles) {
+        int[] ordered = new int[handles.length];
+        int count = 0;
+        for (int handle : handles) {
+            if (state.definitions[handle].deviceType() == DeviceType.TT) {
+                ordered[count++] = handle;
             }
         }
-        ConditionContext context = new ConditionContext(this.currentTime, completedActionIds);
+        for (int handle : handles) {
+            if (state.definitions[handle].deviceType() != DeviceType.TT) {
+                ordered[count++] = handle;
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Tries to activate takts whose conditions are all satisfied (or overridden).
+     * Only handles takt state transitions (WAITING → ACTIVE). Action activation
+     * is handled separately by {@link #reactivateAllSchedules(SideEffectSink)}.
+     *
+     * @return whether any takt changed state
+     */
+    private boolean tryActivateTakts(long workQueueId, ScheduleState state, SideEffectSink sink) {
+        int start = sink.size();
+        // Built on the first WAITING takt; schedules with none skip collecting completed actions
+        ConditionContext context = null;
+        // Earliest future time at which a takt still WAITING stops being held back by time
+        Instant wakeTime = null;
 
         for (int i = 0; i < state.takts.size(); i++) {
             Takt takt = state.takts.get(i);
-            TaktState taktState = state.taktStates.get(takt.name());
+            TaktState taktState = state.taktStates[i];
 
             if (taktState != TaktState.WAITING) {
                 continue;
             }
+            if (context == null) {
+                Set<UUID> completedActionIds = new HashSet<>();
+                for (int handle = 0; handle < state.definitions.length; handle++) {
+                    if (state.status(handle) == ActionStatus.COMPLETED) {
+                        completedActionIds.add(state.definitions[handle].id());
+                    }
+                }
+                context = new ConditionContext(this.currentTime, completedActionIds);
+            }
 
             // Check all conditions
-            List<TaktCondition> conditions = state.taktConditions.getOrDefault(takt.name(), List.of());
-            Set<String> overrides = state.overriddenConditions.getOrDefault(takt.name(), Set.of());
+            List<TaktCondition> conditions = state.taktConditions[i] != null ? state.taktConditions[i] : List.of();
+            Set<String> overrides = state.overriddenConditions[i];
 
             boolean allSatisfied = true;
             for (TaktCondition condition : conditions) {
@@ -1639,66 +2667,63 @@ public class ScheduleRunnerProcessor implements EventProcessor {
                 }
             }
 
-            if (!allSatisfied) {
-                continue;
-            }
-
             // Never activate before planned start time
-            if (takt.plannedStartTime() != null && this.currentTime.isBefore(takt.plannedStartTime())) {
+            if (!allSatisfied
+                    || (takt.plannedStartTime() != null && this.currentTime.isBefore(takt.plannedStartTime()))) {
+                Instant gate = timeGate(takt, conditions, overrides);
+                if (gate != null && this.currentTime.isBefore(gate)
+                        && (wakeTime == null || gate.isBefore(wakeTime))) {
+                    wakeTime = gate;
+                }
                 continue;
             }
 
             // Activate this takt - record actual start time as current system time
-            state.taktStates.put(takt.name(), TaktState.ACTIVE);
-            state.actualStartTimes.put(takt.name(), this.currentTime);
-            sideEffects.add(new TaktActivated(workQueueId, takt.name(), this.currentTime));
+            state.setTaktState(i, TaktState.ACTIVE);
+            state.setActualStartTime(i, this.currentTime);
+            sink.add(new TaktActivated(workQueueId, takt.name(), this.currentTime));
 
             if (takt.actions().isEmpty()) {
                 // Empty takt completes immediately if previous takt is completed
-                if (isPreviousTaktCompleted(state, takt.name())) {
-                    state.taktStates.put(takt.name(), TaktState.COMPLETED);
-                    sideEffects.add(new TaktCompleted(workQueueId, takt.name(), this.currentTime));
+                if (isPreviousTaktCompleted(state, i)) {
+                    state.setTaktState(i, TaktState.COMPLETED);
+                    sink.add(new TaktCompleted(workQueueId, takt.name(), this.currentTime));
                 }
             }
         }
 
-        return sideEffects;
+        if (wakeTime != null) {
+            scheduleWakeUp(workQueueId, state, wakeTime);
+        }
+        return sink.size() > start;
     }
 
     /**
      * Checks whether the takt immediately before the given takt (in list order) is completed.
      * Returns {@code true} if there is no previous takt (i.e. this is the first takt).
      */
-    private boolean isPreviousTaktCompleted(ScheduleState state, String taktName) {
-        Takt previousTakt = null;
-        for (Takt t : state.takts) {
-            if (t.name().equals(taktName)) {
-                break;
-            }
-            previousTakt = t;
-        }
-        if (previousTakt == null) {
-            return true;
-        }
-        return state.taktStates.get(previousTakt.name()) == TaktState.COMPLETED;
+    private boolean isPreviousTaktCompleted(ScheduleState state, int takt) {
+        return takt == 0 || state.taktStates[takt - 1] == TaktState.COMPLETED;
     }
 
     /**
      * Cascades takt completion: checks all active takts whose actions are fully completed
      * and whose previous takt is now completed.
+     *
+     * @return whether any takt completed
      */
-    private List<SideEffect> tryCompletePendingTakts(long workQueueId, ScheduleState state) {
-        List<SideEffect> sideEffects = new ArrayList<>();
-        for (Takt takt : state.takts) {
-            TaktState taktState = state.taktStates.get(takt.name());
-            if (taktState == TaktState.ACTIVE
-                    && state.isTaktFullyCompleted(takt.name())
-                    && isPreviousTaktCompleted(state, takt.name())) {
-                state.taktStates.put(takt.name(), TaktState.COMPLETED);
-                sideEffects.add(new TaktCompleted(workQueueId, takt.name(), this.currentTime));
-            }
-        }
-        return sideEffects;
+    private boolean tryCompletePendingTakts(long workQueueId, ScheduleState state, SideEffectSink sink) {
+        boolean completed = false;
+        for (int takt = 0; takt < state.taktStates.length; takt++) {
+            if (state.taktStates[takt] == TaktState.ACTIVE
+                    && state.isTaktFullyCompleted(takt)
+                    && isPreviousTaktCompleted(state, takt)) {
+                state.setTaktState(takt, TaktState.COMPLETED);
+                sink.add(new TaktCompleted(workQueueId, state.layout.taktName(takt), this.currentTime));
+                completed = true;
+            }
+        }
+        return completed;
     }
 
     /**
@@ -1719,53 +2744,43 @@ public class ScheduleRunnerProcessor implements EventProcessor {
     /**
      * Arms any event gates that have the given action as their source.
      */
-    private void armEventGatesForAction(ScheduleState state, UUID activatedActionId) {
-        for (Map.Entry<UUID, UUID> entry : state.gateArmSourceActions.entrySet()) {
-            if (entry.getValue().equals(activatedActionId)) {
-                UUID gatedActionId = entry.getKey();
-                ActionInfo gatedInfo = state.actionLookup.get(gatedActionId);
-                if (gatedInfo != null) {
-                    for (EventGateCondition gate : gatedInfo.action().eventGates()) {
-                        state.armedEventGates
-                                .computeIfAbsent(gatedActionId, k -> new HashSet<>())
-                                .add(gate.id());
-                    }
-                }
+    private void armEventGatesForAction(ScheduleState state, int activatedAction) {
+        for (int gated : state.armedGatesOf[activatedAction]) {
+            for (EventGateCondition gate : state.definitions[gated].eventGates()) {
+                state.armEventGate(gated, gate.id());
             }
         }
     }
 
     /**
      * Activates all actions in the given takt that have their dependencies satisfied.
+     *
+     * @return whether any action was activated or completed
      */
-    private List<SideEffect> activateEligibleActions(long workQueueId, ScheduleState state, String taktName,
-                                                       Set<String> occupiedPositions, Set<String> assignedTrucks) {
-        List<SideEffect> sideEffects = new ArrayList<>();
+    private boolean activateEligibleActions(long workQueueId, ScheduleState state, int takt,
+                                            Set<String> occupiedPositions, Set<String> assignedTrucks,
+                                            SideEffectSink sink) {
+        int start = sink.size();
+        String taktName = state.layout.taktName(takt);
 
         boolean progress = true;
         while (progress) {
             progress = false;
-            List<UUID> actionsToActivate = state.getActivatableActionsInTakt(taktName, occupiedPositions);
-            // Process TT actions first so truck allocation + targetChe propagation
-            // happens before QC/RTG actions activate in the same pass
-            actionsToActivate.sort(Comparator.comparingInt(id -> {
-                ActionInfo info = state.actionLookup.get(id);
-                return info != null && info.action().deviceType() == DeviceType.TT ? 0 : 1;
-            }));
-            for (UUID actionId : actionsToActivate) {
-                ActionInfo actionInfo = state.actionLookup.get(actionId);
-                Action action = actionInfo.action();
-                Set<String> overrides = state.overriddenActionConditions.getOrDefault(actionId, Set.of());
+            int[] actionsToActivate = inDeviceOrder(state, state.getActivatableActionsInTakt(takt, occupiedPositions));
+            for (int handle : actionsToActivate) {
+                Action action = state.definitions[handle];
+                UUID actionId = action.id();
+                Set<String> overrides = state.actionOverrides(handle);
 
                 // Auto-complete: if skipWhenGatesSatisfied and all gates are already satisfied,
                 // skip this action (mark completed without activating).
                 // Extra safety: verify all dependencies are truly COMPLETED, not just activatable.
                 if (action.skipWhenGatesSatisfied()
-                        && state.areEventGatesSatisfied(actionId, action, overrides)
-                        && state.areDependenciesCompleted(action.dependsOn())) {
-                    state.setActionStatus(actionId, ActionStatus.COMPLETED, currentTime);
-                    sideEffects.add(new ActionCompleted(
-                            actionId, workQueueId, actionInfo.taktName(),
+                        && state.areEventGatesSatisfied(handle, action, overrides)
+                        && state.areDependenciesCompleted(handle)) {
+                    state.setActionStatus(handle, ActionStatus.COMPLETED, currentTime);
+                    sink.add(new ActionCompleted(
+                            actionId, workQueueId, taktName,
                             action.description(), this.currentTime
                     ));
                     progress = true;
@@ -1773,36 +2788,32 @@ public class ScheduleRunnerProcessor implements EventProcessor {
                 }
 
                 // TT allocation: if this is a TT action without a truck assigned, try to allocate one
-                if (action.deviceType() == DeviceType.TT && action.cheShortName() == null
+                if (action.deviceType() == DeviceType.TT && state.actionStates.cheShortNames[handle] == null
                         && ttAllocationStrategy != null) {
                     var allocation = ttAllocationStrategy.allocateFreeTruck(assignedTrucks);
                     if (allocation.isEmpty()) {
-                        // No truck available — action stays pending
+                        // No truck available — action stays pending until a truck frees up
+                        state.awaitingTruck = true;
                         continue;
                     }
                     String truckName = allocation.get().cheShortName();
                     Long truckCheId = allocation.get().cheId();
                     assignedTrucks.add(truckName);
 
-                    Action assignedAction = action.withTruckAssignment(truckCheId, truckName);
-                    state.actionLookup.put(actionId, new ActionInfo(actionInfo.taktName(), assignedAction));
-                    actionInfo = state.actionLookup.get(actionId);
-                    action = assignedAction;
-                    sideEffects.add(new TruckAssigned(actionId, workQueueId, truckName, truckCheId,
+                    state.assignTruck(handle, truckCheId, truckName);
+                    sink.add(new TruckAssigned(actionId, workQueueId, truckName, truckCheId,
                             action.workInstructions()));
 
                     // Propagate truck assignment to all other TT actions with the same containerIndex,
                     // and set targetChe on non-TT actions (QC, RTG) with the same containerIndex
                     int containerIdx = action.containerIndex();
-                    for (Map.Entry<UUID, ActionInfo> e : state.actionLookup.entrySet()) {
-                        Action other = e.getValue().action();
-                        if (other.containerIndex() == containerIdx && !e.getKey().equals(actionId)) {
-                            if (other.deviceType() == DeviceType.TT && other.cheShortName() == null) {
-                                Action propagated = other.withTruckAssignment(truckCheId, truckName);
-                                state.actionLookup.put(e.getKey(), new ActionInfo(e.getValue().taktName(), propagated));
-                            } else if (other.deviceType() != DeviceType.TT && other.targetChe() == null) {
-                                Action withTarget = other.withTargetChe(truckName);
-                                state.actionLookup.put(e.getKey(), new ActionInfo(e.getValue().taktName(), withTarget));
+                    for (int otherHandle = 0; otherHandle < state.definitions.length; otherHandle++) {
+                        Action other = state.definitions[otherHandle];
+                        if (other.containerIndex() == containerIdx && otherHandle != handle) {
+                            if (other.deviceType() == DeviceType.TT && state.actionStates.cheShortNames[otherHandle] == null) {
+                                state.assignTruck(otherHandle, truckCheId, truckName);
+                            } else if (other.deviceType() != DeviceType.TT && state.actionStates.targetChes[otherHandle] == null) {
+                                state.setTargetChe(otherHandle, truckName);
                             }
                         }
                     }
@@ -1810,11 +2821,11 @@ public class ScheduleRunnerProcessor implements EventProcessor {
 
                 // Location skip: if the next position is free, skip this action (auto-complete)
                 // Must be after TT allocation — can't skip without a truck assigned
-                if (action.cheShortName() != null
+                if (state.actionStates.cheShortNames[handle] != null
                         && state.shouldSkipForLocation(action, occupiedPositions, overrides)) {
-                    state.setActionStatus(actionId, ActionStatus.COMPLETED, currentTime);
-                    sideEffects.add(new ActionCompleted(
-                            actionId, workQueueId, actionInfo.taktName(),
+                    state.setActionStatus(handle, ActionStatus.COMPLETED, currentTime);
+                    sink.add(new ActionCompleted(
+                            actionId, workQueueId, taktName,
                             action.description(), this.currentTime,
                             CompletionReason.LOCATION_SKIPPED
                     ));
@@ -1822,13 +2833,14 @@ public class ScheduleRunnerProcessor implements EventProcessor {
                     continue;
                 }
 
-                state.setActionStatus(actionId, ActionStatus.ACTIVE, currentTime);
-                armEventGatesForAction(state, actionId);
-                String cheForMsg = action.deviceType() == DeviceType.TT ? action.cheShortName() : action.targetChe();
-                sideEffects.add(new ActionActivated(
+                state.setActionStatus(handle, ActionStatus.ACTIVE, currentTime);
+                armEventGatesForAction(state, handle);
+                String cheForMsg = action.deviceType() == DeviceType.TT
+                        ? state.actionStates.cheShortNames[handle] : state.actionStates.targetChes[handle];
+                sink.add(new ActionActivated(
                         actionId,
                         workQueueId,
-                        actionInfo.taktName(),
+                        taktName,
                         action.actionType(),
                         action.description(),
                         this.currentTime,
@@ -1839,7 +2851,7 @@ public class ScheduleRunnerProcessor implements EventProcessor {
             }
         }
 
-        return sideEffects;
+        return sink.size() > start;
     }
 
     /**
@@ -1847,24 +2859,26 @@ public class ScheduleRunnerProcessor implements EventProcessor {
      * and whose event gates are now all satisfied. This handles the case where a
      * conditional action was activated (gates not yet satisfied) and then all gates
      * become satisfied while the action is still active.
+     *
+     * @return whether any action was completed
      */
-    private List<SideEffect> autoCompleteGatedActions(long workQueueId, ScheduleState state) {
-        List<SideEffect> sideEffects = new ArrayList<>();
-        for (ActionInfo info : state.getActiveAndWaitingTaktActions()) {
-            Action action = info.action();
-            if (action.status() != ActionStatus.ACTIVE) continue;
+    private boolean autoCompleteGatedActions(long workQueueId, ScheduleState state, SideEffectSink sink) {
+        boolean completed = false;
+        for (int handle : state.getActiveAndWaitingTaktActions()) {
+            if (state.status(handle) != ActionStatus.ACTIVE) continue;
+            Action action = state.definitions[handle];
             if (!action.skipWhenGatesSatisfied()) continue;
-            UUID actionId = action.id();
-            Set<String> overrides = state.overriddenActionConditions.getOrDefault(actionId, Set.of());
-            if (!state.areEventGatesSatisfied(actionId, action, overrides)) continue;
+            Set<String> overrides = state.actionOverrides(handle);
+            if (!state.areEventGatesSatisfied(handle, action, overrides)) continue;
 
-            state.setActionStatus(actionId, ActionStatus.COMPLETED, currentTime);
-            sideEffects.add(new ActionCompleted(
-                    actionId, workQueueId, info.taktName(),
+            state.setActionStatus(handle, ActionStatus.COMPLETED, currentTime);
+            sink.add(new ActionCompleted(
+                    action.id(), workQueueId, state.taktNameOf(handle),
                     action.description(), this.currentTime
             ));
+            completed = true;
         }
-        return sideEffects;
+        return completed;
     }
 
     private List<SideEffect> handleActionCompleted(ActionCompletedEvent event) {
@@ -1876,24 +2890,25 @@ public class ScheduleRunnerProcessor implements EventProcessor {
             return List.of();
         }
 
-        ActionInfo completedActionInfo = state.actionLookup.get(completedActionId);
-        if (completedActionInfo == null) {
+        int completed = state.actionHandle(completedActionId);
+        if (completed < 0) {
             return List.of();
         }
 
-        if (completedActionInfo.action().status() != ActionStatus.ACTIVE) {
+        Action completedAction = state.definitions[completed];
+        if (state.status(completed) != ActionStatus.ACTIVE) {
             return List.of();
         }
 
         // Move action from active to completed
-        state.setActionStatus(completedActionId, ActionStatus.COMPLETED, this.currentTime);
+        state.setActionStatus(completed, ActionStatus.COMPLETED, this.currentTime);
 
         // Produce ActionCompleted side effect
         return List.of(new ActionCompleted(
                 completedActionId,
                 workQueueId,
-                completedActionInfo.taktName(),
-                completedActionInfo.action().description(),
+                state.taktNameOf(completed),
+                completedAction.description(),
                 currentTime
         ));
 
@@ -1901,21 +2916,46 @@ public class ScheduleRunnerProcessor implements EventProcessor {
         // takt completion, cross-schedule truck reallocation) is handled by reactivateAllSchedules()
     }
 
+    @Override
+    public void setUndoJournal(UndoJournal journal) {
+        this.undoJournal = journal;
+    }
+
+    /**
+     * Captures the state in time proportional to the schedules changed since the last capture
+     * or restore: unchanged schedules and the rest of the snapshot are shared with it.
+     */
     @Override
     public Object captureState() {
         Map<String, Object> state = new HashMap<>();
 
-        Map<Long, ScheduleState> statesCopy = new HashMap<>();
-        for (Map.Entry<Long, ScheduleState> entry : scheduleStates.entrySet()) {
-            statesCopy.put(entry.getKey(), entry.getValue().copy());
+        // Unchanged schedules reuse the copy taken for the previous snapshot
+        for (long workQueueId : uncapturedSchedules) {
+            ScheduleState live = scheduleStates.get(workQueueId);
+            ScheduleState frozen = null;
+            if (live != null) {
+                if (live.captured == null) {
+                    live.captured = live.copy();
+                }
+                live.workQueueId = workQueueId;
+                live.uncaptured = uncapturedSchedules;
+                frozen = live.captured;
+            }
+            capturedSchedules = capturedSchedules.with(workQueueId, frozen);
         }
-        state.put("scheduleStates", statesCopy);
-        state.put("workInstructionEstimatedMoveTime", new HashMap<>(workInstructionEstimatedMoveTime));
+        uncapturedSchedules.clear();
+        state.put("scheduleStates", capturedSchedules);
+        state.put("workInstructionEstimatedMoveTime", workInstructionEstimatedMoveTime);
         state.put("currentTime", currentTime);
 
         return state;
     }
 
+    /**
+     * Restores the state in time proportional to the schedules that differ from it. These
+     * share their frozen copy until they change again, and are re-indexed one by one; the
+     * other schedules, their indexes and dependency graphs are kept.
+     */
     @Override
     @SuppressWarnings("unchecked")
     public void restoreState(Object state) {
@@ -1925,24 +2965,48 @@ public class ScheduleRunnerProcessor implements EventProcessor {
 
         Map<String, Object> stateMap = (Map<String, Object>) state;
 
-        scheduleStates.clear();
-        Object schedulesState = stateMap.get("scheduleStates");
-        if (schedulesState instanceof Map) {
-            Map<Long, ScheduleState> schedulesMap = (Map<Long, ScheduleState>) schedulesState;
-            for (Map.Entry<Long, ScheduleState> entry : schedulesMap.entrySet()) {
-                scheduleStates.put(entry.getKey(), entry.getValue().copy());
+        PersistentLongMap<ScheduleState> restored = stateMap.get("scheduleStates") instanceof PersistentLongMap<?> map
+                ? (PersistentLongMap<ScheduleState>) map : PersistentLongMap.empty();
+        Set<Long> differing = new HashSet<>(uncapturedSchedules);
+        capturedSchedules.forEachDifference(restored, differing::add);
+        for (long workQueueId : differing) {
+            ScheduleState frozen = restored.get(workQueueId);
+            ScheduleState current = scheduleStates.get(workQueueId);
+            if (current != null && frozen != null && current.captured == frozen) {
+                continue;
+            }
+            if (current != null) {
+                unrouteCompletions(workQueueId, current);
+                untrackOccupancy(workQueueId, current);
+                scheduleRemoved = true;
+            }
+            if (frozen == null) {
+                scheduleStates.remove(workQueueId);
+                continue;
+            }
+            ScheduleState live = frozen.share(undoJournal, workQueueId, uncapturedSchedules);
+            scheduleStates.put(workQueueId, live);
+            routeCompletions(workQueueId, live);
+            if (!occupancy.isStale()) {
+                trackOccupancy(workQueueId, live);
             }
         }
+        capturedSchedules = restored;
+        uncapturedSchedules.clear();
 
-        workInstructionEstimatedMoveTime.clear();
         Object estimatedMoveTimeState = stateMap.get("workInstructionEstimatedMoveTime");
-        if (estimatedMoveTimeState instanceof Map) {
-            workInstructionEstimatedMoveTime.putAll((Map<Long, Instant>) estimatedMoveTimeState);
-        }
+        workInstructionEstimatedMoveTime = estimatedMoveTimeState instanceof PersistentLongMap<?> map
+                ? (PersistentLongMap<Instant>) map : PersistentLongMap.empty();
 
         Object currentTimeState = stateMap.get("currentTime");
         if (currentTimeState instanceof Instant instant) {
+            if (instant.isBefore(currentTime)) {
+                // Deadlines that came due since are gone, so the next sweep evaluates every schedule
+                sweptOccupancy = null;
+            }
             this.currentTime = instant;
         }
+        // Truck availability is restored by the truck state processor
+        truckPoolChanged = true;
     }
 }
@@ -4,6 +4,7 @@ import com.wonderingwizard.engine.Event;
 import com.wonderingwizard.engine.SideEffect;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Interface for sub-processors that handle specific events within the schedule runner context.
@@ -23,4 +24,14 @@ public interface ScheduleSubProcessor {
      * @return list of side effects produced, or empty list if this sub-processor doesn't handle the event
      */
     List<SideEffect> process(Event event, ScheduleContext context);
+
+    /**
+     * Returns the event types this sub-processor handles. {@link ScheduleRunnerProcessor}
+     * includes them in its own engine subscription. Defaults to every event.
+     *
+     * @return the handled event types
+     */
+    default Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(Event.class);
+    }
 }
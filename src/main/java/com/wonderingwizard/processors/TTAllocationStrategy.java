@@ -8,6 +8,10 @@ import java.util.Set;
  * <p>
  * Implementations determine which trucks are available based on their
  * current state and which trucks are already assigned to active actions.
+ * <p>
+ * The schedule runner only retries a failed allocation after a truck was released or a
+ * {@link com.wonderingwizard.events.ContainerHandlingEquipmentEvent} arrived, so availability
+ * must not change on other events.
  */
 public interface TTAllocationStrategy {
 
@@ -10,35 +10,46 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Logger;
 
 /**
  * Evaluates CheTargetPositionEvent against active TT action completion conditions.
  * <p>
- * Matches by equipmentInstructionId (which is the action UUID) directly.
+ * Matches by equipmentInstructionId (which is the action UUID) directly, which is also the routing key.
  */
-public class TTPositionEventEvaluator implements CompletionConditionEvaluator {
+public class TTPositionEventEvaluator implements RoutedCompletionConditionEvaluator {
 
     private static final Logger logger = Logger.getLogger(TTPositionEventEvaluator.class.getName());
 
     public static final String CONDITION_TYPE = "TT_POSITION_EVENT";
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(CheTargetPositionEvent.class);
+    }
+
+    @Override
+    public String routingKey(Event event) {
+        UUID actionId = event instanceof CheTargetPositionEvent positionEvent ? parseActionId(positionEvent) : null;
+        return actionId != null ? actionId.toString() : null;
+    }
+
+    @Override
+    public Set<String> routingKeys(Action action) {
+        return RoutedCompletionConditionEvaluator.hasCondition(action, CONDITION_TYPE)
+                ? Set.of(action.id().toString()) : Set.of();
+    }
+
     @Override
     public Map<UUID, List<String>> evaluateSatisfied(Event event, Map<UUID, Action> activeActions) {
         if (!(event instanceof CheTargetPositionEvent positionEvent)) {
             return Map.of();
         }
 
-        String instructionId = positionEvent.equipmentInstructionId();
-        if (instructionId == null || instructionId.isEmpty()) {
-            return Map.of();
-        }
-
-        UUID actionId;
-        try {
-            actionId = UUID.fromString(instructionId);
-        } catch (IllegalArgumentException e) {
+        UUID actionId = parseActionId(positionEvent);
+        if (actionId == null) {
             return Map.of();
         }
 
@@ -58,4 +69,16 @@ public class TTPositionEventEvaluator implements CompletionConditionEvaluator {
 
         return satisfiedConditionIds.isEmpty() ? Map.of() : Map.of(actionId, satisfiedConditionIds);
     }
+
+    private static UUID parseActionId(CheTargetPositionEvent positionEvent) {
+        String instructionId = positionEvent.equipmentInstructionId();
+        if (instructionId == null || instructionId.isEmpty()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(instructionId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
@@ -1,8 +1,9 @@
 package com.wonderingwizard.processors;
 
 import com.wonderingwizard.engine.Event;
-import com.wonderingwizard.engine.EventProcessor;
 import com.wonderingwizard.engine.SideEffect;
+import com.wonderingwizard.engine.UndoJournal;
+import com.wonderingwizard.engine.UndoableEventProcessor;
 import com.wonderingwizard.events.CheLogicalPositionEvent;
 import com.wonderingwizard.events.CheStatus;
 import com.wonderingwizard.events.ContainerHandlingEquipmentEvent;
@@ -27,7 +28,7 @@ import java.util.Set;
  * and its pool ID matches the configured FES pool ID, and it is not already
  * assigned to any action in an active schedule.
  */
-public class TTStateProcessor implements EventProcessor, TTAllocationStrategy {
+public class TTStateProcessor implements UndoableEventProcessor, TTAllocationStrategy {
 
     private static final String CHE_KIND_TT = "TT";
     private static final long FES_POOL_ID = 23L;
@@ -35,6 +36,7 @@ public class TTStateProcessor implements EventProcessor, TTAllocationStrategy {
     private final long fesPoolId;
     private final Map<String, ContainerHandlingEquipmentEvent> truckState = new LinkedHashMap<>();
     private final Map<String, CheLogicalPositionEvent> truckPositions = new LinkedHashMap<>();
+    private UndoJournal undoJournal = new UndoJournal();
 
     public TTStateProcessor() {
         this(FES_POOL_ID);
@@ -56,11 +58,17 @@ public class TTStateProcessor implements EventProcessor, TTAllocationStrategy {
         return List.of();
     }
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(ContainerHandlingEquipmentEvent.class, CheLogicalPositionEvent.class);
+    }
+
     private List<SideEffect> handleTTEvent(ContainerHandlingEquipmentEvent event) {
         String name = event.cheShortName();
         if (name == null || name.isBlank()) {
             return List.of();
         }
+        undoJournal.recordMapEntry(truckState, name);
         truckState.put(name, event);
         return List.of(new TTStateUpdated(name, event));
     }
@@ -74,6 +82,7 @@ public class TTStateProcessor implements EventProcessor, TTAllocationStrategy {
         if (!truckState.containsKey(name)) {
             return List.of();
         }
+        undoJournal.recordMapEntry(truckPositions, name);
         truckPositions.put(name, event);
         return List.of();
     }
@@ -119,6 +128,11 @@ public class TTStateProcessor implements EventProcessor, TTAllocationStrategy {
         return Map.copyOf(truckPositions);
     }
 
+    @Override
+    public void setUndoJournal(UndoJournal journal) {
+        this.undoJournal = journal;
+    }
+
     @Override
     public Object captureState() {
         var state = new HashMap<String, Object>();
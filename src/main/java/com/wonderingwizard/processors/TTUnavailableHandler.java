@@ -37,6 +37,11 @@ public class TTUnavailableHandler implements ScheduleSubProcessor {
     private static final Logger logger = Logger.getLogger(TTUnavailableHandler.class.getName());
     private static final String CHE_KIND_TT = "TT";
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(ContainerHandlingEquipmentEvent.class);
+    }
+
     @Override
     public List<SideEffect> process(Event event, ScheduleContext context) {
         if (!(event instanceof ContainerHandlingEquipmentEvent cheEvent)) {
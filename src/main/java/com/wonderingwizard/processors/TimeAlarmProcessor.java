@@ -1,61 +1,104 @@
 package com.wonderingwizard.processors;
 
 import com.wonderingwizard.engine.Event;
-import com.wonderingwizard.engine.EventProcessor;
 import com.wonderingwizard.engine.SideEffect;
+import com.wonderingwizard.engine.SideEffectSink;
+import com.wonderingwizard.engine.UndoJournal;
+import com.wonderingwizard.engine.UndoableEventProcessor;
 import com.wonderingwizard.events.SetTimeAlarm;
 import com.wonderingwizard.events.TimeEvent;
 import com.wonderingwizard.sideeffects.AlarmSet;
 import com.wonderingwizard.sideeffects.AlarmTriggered;
 
 import java.time.Instant;
-import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 /**
  * Processor that handles time-based alarms.
  * <p>
  * When a SetTimeAlarm event is received, the alarm is stored and an AlarmSet side effect is produced.
  * When a TimeEvent is received, any alarms whose trigger time has passed are triggered and
- * AlarmTriggered side effects are produced.
+ * AlarmTriggered side effects are produced, in trigger time order.
+ * <p>
+ * Pending alarms are indexed by trigger time, so a TimeEvent only touches the alarms that are due.
  */
-public class TimeAlarmProcessor implements EventProcessor {
+public class TimeAlarmProcessor implements UndoableEventProcessor {
+
+    /** A trigger time in {@link #deadlines}; stale once the alarm was triggered or set to another time. */
+    private record Deadline(Instant triggerTime, String alarmName) {}
 
     private final Map<String, Instant> pendingAlarms = new HashMap<>();
+    /** Every pending alarm's trigger time, plus stale entries that are dropped when they surface. */
+    private final PriorityQueue<Deadline> deadlines = new PriorityQueue<>(
+            Comparator.comparing(Deadline::triggerTime).thenComparing(Deadline::alarmName));
+    private UndoJournal undoJournal = new UndoJournal();
 
     @Override
     public List<SideEffect> process(Event event) {
+        return SideEffectSink.collect(sink -> process(event, sink));
+    }
+
+    @Override
+    public void process(Event event, SideEffectSink sink) {
         if (event instanceof SetTimeAlarm setAlarm) {
-            return handleSetAlarm(setAlarm);
-        }
-        if (event instanceof TimeEvent timeEvent) {
-            return handleTimeEvent(timeEvent);
+            handleSetAlarm(setAlarm, sink);
+        } else if (event instanceof TimeEvent timeEvent) {
+            handleTimeEvent(timeEvent, sink);
         }
-        return List.of();
     }
 
-    private List<SideEffect> handleSetAlarm(SetTimeAlarm setAlarm) {
-        pendingAlarms.put(setAlarm.alarmName(), setAlarm.triggerTime());
-        return List.of(new AlarmSet(setAlarm.alarmName(), setAlarm.triggerTime()));
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(SetTimeAlarm.class, TimeEvent.class);
+    }
+
+    private void handleSetAlarm(SetTimeAlarm setAlarm, SideEffectSink sink) {
+        String alarmName = setAlarm.alarmName();
+        Instant previous = pendingAlarms.get(alarmName);
+        undoJournal.recordMapEntry(pendingAlarms, alarmName);
+        if (previous != null) {
+            // Compaction may drop the previous entry, which becomes live again on undo
+            undoJournal.record(() -> deadlines.add(new Deadline(previous, alarmName)));
+        }
+        pendingAlarms.put(alarmName, setAlarm.triggerTime());
+        // An earlier entry for this alarm, if any, goes stale and is dropped when it surfaces
+        deadlines.add(new Deadline(setAlarm.triggerTime(), alarmName));
+        if (deadlines.size() > 2 * pendingAlarms.size() + 16) {
+            rebuildDeadlines();
+        }
+        sink.add(new AlarmSet(alarmName, setAlarm.triggerTime()));
     }
 
-    private List<SideEffect> handleTimeEvent(TimeEvent timeEvent) {
-        List<SideEffect> triggeredAlarms = new ArrayList<>();
+    private void handleTimeEvent(TimeEvent timeEvent, SideEffectSink sink) {
         Instant currentTime = timeEvent.timestamp();
 
-        Iterator<Map.Entry<String, Instant>> iterator = pendingAlarms.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, Instant> entry = iterator.next();
-            if (!entry.getValue().isAfter(currentTime)) {
-                triggeredAlarms.add(new AlarmTriggered(entry.getKey(), currentTime));
-                iterator.remove();
+        while (!deadlines.isEmpty() && !deadlines.peek().triggerTime().isAfter(currentTime)) {
+            Deadline due = deadlines.poll();
+            if (!due.triggerTime().equals(pendingAlarms.get(due.alarmName()))) {
+                continue;
             }
+            sink.add(new AlarmTriggered(due.alarmName(), currentTime));
+            undoJournal.recordMapEntry(pendingAlarms, due.alarmName());
+            undoJournal.record(() -> deadlines.add(due));
+            pendingAlarms.remove(due.alarmName());
+        }
+    }
+
+    private void rebuildDeadlines() {
+        deadlines.clear();
+        for (Map.Entry<String, Instant> entry : pendingAlarms.entrySet()) {
+            deadlines.add(new Deadline(entry.getValue(), entry.getKey()));
         }
+    }
 
-        return triggeredAlarms;
+    @Override
+    public void setUndoJournal(UndoJournal journal) {
+        this.undoJournal = journal;
     }
 
     @Override
@@ -71,5 +114,6 @@ public class TimeAlarmProcessor implements EventProcessor {
         }
         pendingAlarms.clear();
         pendingAlarms.putAll((Map<String, Instant>) state);
+        rebuildDeadlines();
     }
 }
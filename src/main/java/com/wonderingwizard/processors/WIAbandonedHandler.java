@@ -36,6 +36,11 @@ public class WIAbandonedHandler implements ScheduleSubProcessor {
 
     private static final Logger logger = Logger.getLogger(WIAbandonedHandler.class.getName());
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(WorkInstructionEvent.class);
+    }
+
     @Override
     public List<SideEffect> process(Event event, ScheduleContext context) {
         if (!(event instanceof WorkInstructionEvent wiEvent)) {
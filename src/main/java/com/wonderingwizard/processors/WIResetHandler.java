@@ -29,6 +29,11 @@ public class WIResetHandler implements ScheduleSubProcessor {
 
     private static final Logger logger = Logger.getLogger(WIResetHandler.class.getName());
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(WorkInstructionEvent.class);
+    }
+
     @Override
     public List<SideEffect> process(Event event, ScheduleContext context) {
         if (!(event instanceof WorkInstructionEvent wiEvent)) {
@@ -33,6 +33,11 @@ public class WIRevertHandler implements ScheduleSubProcessor {
 
     private static final Logger logger = Logger.getLogger(WIRevertHandler.class.getName());
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(WorkInstructionEvent.class);
+    }
+
     @Override
     public List<SideEffect> process(Event event, ScheduleContext context) {
         if (!(event instanceof WorkInstructionEvent wiEvent)) {
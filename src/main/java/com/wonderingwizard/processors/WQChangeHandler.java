@@ -27,6 +27,11 @@ public class WQChangeHandler implements ScheduleSubProcessor {
 
     private static final Logger logger = Logger.getLogger(WQChangeHandler.class.getName());
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(WorkInstructionEvent.class);
+    }
+
     @Override
     public List<SideEffect> process(Event event, ScheduleContext context) {
         if (!(event instanceof WorkInstructionEvent wiEvent)) {
@@ -6,9 +6,12 @@ import com.wonderingwizard.domain.takt.ContainerWorkflow;
 import com.wonderingwizard.domain.takt.DeviceActionTemplate;
 import com.wonderingwizard.domain.takt.DeviceType;
 import com.wonderingwizard.domain.takt.Takt;
+import com.wonderingwizard.engine.BatchingEventProcessor;
 import com.wonderingwizard.engine.Event;
-import com.wonderingwizard.engine.EventProcessor;
 import com.wonderingwizard.engine.SideEffect;
+import com.wonderingwizard.engine.SideEffectSink;
+import com.wonderingwizard.engine.UndoJournal;
+import com.wonderingwizard.engine.UndoableEventProcessor;
 import com.wonderingwizard.events.LoadMode;
 import com.wonderingwizard.events.NukeWorkQueueEvent;
 import com.wonderingwizard.events.WorkInstructionEvent;
@@ -28,6 +31,8 @@ import java.security.Timestamp;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.IntSupplier;
 import java.util.logging.Level;
@@ -55,8 +60,17 @@ import static com.wonderingwizard.domain.takt.DeviceType.TT;
  * - If a work instruction with the same ID exists in a different queue, it is moved
  * - If a work instruction with the same ID exists in the same queue, it is updated
  * - No side effect is produced
+ * <p>
+ * With a {@linkplain #setScheduleCreationPool schedule creation pool}, an event that rebuilds
+ * several schedules, e.g. a TimeEvent ending the debounce period of several work queues, builds
+ * them concurrently on the pool. The event still waits for its builds and returns their
+ * ScheduleCreated side effects in order, so the side effects are the same as without a pool.
+ * In a batch, e.g. the work queues of a shift start arriving in one poll, the builds of
+ * consecutive ACTIVE messages are started on the pool as the messages arrive. Their
+ * ScheduleCreated side effects are emitted in message order before the next event that is not
+ * a WorkQueueMessage of another work queue, or at the end of the batch.
  */
-public class WorkQueueProcessor implements EventProcessor {
+public class WorkQueueProcessor implements UndoableEventProcessor, BatchingEventProcessor {
 
     private static final Logger logger = Logger.getLogger(WorkQueueProcessor.class.getName());
     private static final int DRIVE_TIME_MIN_SECONDS = 30;
@@ -79,11 +93,28 @@ public class WorkQueueProcessor implements EventProcessor {
     private final Map<Long, Instant> lastWiChangeTime = new HashMap<>();
     /** Current system time, updated from TimeEvent. */
     private Instant currentTime;
+    private UndoJournal undoJournal = new UndoJournal();
     private final IntSupplier driveTimeSupplier;
     private final IntSupplier qcDriveTimeOffsetSupplier;
     private final boolean useGraphScheduleBuilder;
+    /** Shared by all builds, so that the blueprints and segments it derives are reused across them. */
+    private final GraphScheduleBuilder graphScheduleBuilder;
     private final List<SchedulePipelineStep> pipelineSteps = new ArrayList<>();
     private final List<SchedulePostProcessingStep> postProcessingSteps = new ArrayList<>();
+    /** Builds schedules off the event thread, or null to build them on it. */
+    private ForkJoinPool scheduleCreationPool;
+    /**
+     * What the last graph build of each work queue produced, so that a rebuild only redoes the
+     * containers that changed. Only affects how fast schedules are built, not what they contain,
+     * so it is neither journaled nor part of the captured state.
+     */
+    private final Map<Long, GraphScheduleBuilder.BuildCache> buildCaches = new HashMap<>();
+    /** Whether a batch is in progress, during which activation builds may be left running. */
+    private boolean batching;
+    /** Builds of the activations in the current batch whose schedules are not emitted yet, in order. */
+    private final List<ForkJoinTask<ScheduleCreated>> pendingBuilds = new ArrayList<>();
+    /** The work queues of {@link #pendingBuilds}. */
+    private final Set<Long> pendingQueues = new HashSet<>();
 
     public WorkQueueProcessor() {
         this(
@@ -105,6 +136,7 @@ public class WorkQueueProcessor implements EventProcessor {
         this.driveTimeSupplier = driveTimeSupplier;
         this.qcDriveTimeOffsetSupplier = qcDriveTimeOffsetSupplier;
         this.useGraphScheduleBuilder = useGraphScheduleBuilder;
+        this.graphScheduleBuilder = new GraphScheduleBuilder(driveTimeSupplier, qcDriveTimeOffsetSupplier);
     }
 
     /**
@@ -127,9 +159,23 @@ public class WorkQueueProcessor implements EventProcessor {
         postProcessingSteps.add(step);
     }
 
+    /**
+     * Builds the schedules of events that rebuild several schedules concurrently on the given
+     * pool. Pipeline steps are {@linkplain SchedulePipelineStep#snapshot() bound to their inputs}
+     * on the event thread; the bound steps, post-processing steps and drive time suppliers are
+     * then called from pool threads, concurrently for different work queues.
+     *
+     * @param pool the pool to build schedules on, or null to build them on the event thread
+     */
+    public void setScheduleCreationPool(ForkJoinPool pool) {
+        this.scheduleCreationPool = pool;
+    }
+
     @Override
     public List<SideEffect> process(Event event) {
         if (event instanceof TimeEvent timeEvent) {
+            Instant previousTime = currentTime;
+            undoJournal.record(() -> currentTime = previousTime);
             currentTime = timeEvent.timestamp();
             return checkDebouncedScheduleCreation();
         }
@@ -144,9 +190,7 @@ public class WorkQueueProcessor implements EventProcessor {
             return handleWorkInstructionEvent(instruction);
         }
         if (event instanceof WorkInstructionCanceled canceled) {
-            canceledWorkInstructionIds
-                    .computeIfAbsent(canceled.workQueueId(), k -> new HashSet<>())
-                    .add(canceled.workInstructionId());
+            markCanceled(canceled.workQueueId(), canceled.workInstructionId());
             return List.of();
         }
         if (event instanceof NukeWorkQueueEvent nuke) {
@@ -155,6 +199,17 @@ public class WorkQueueProcessor implements EventProcessor {
         return List.of();
     }
 
+    @Override
+    public Set<Class<? extends Event>> subscribedEventTypes() {
+        return Set.of(
+                TimeEvent.class,
+                WorkQueueMessage.class,
+                WorkInstructionReassigned.class,
+                WorkInstructionEvent.class,
+                WorkInstructionCanceled.class,
+                NukeWorkQueueEvent.class);
+    }
+
     /**
      * Checks pending WQs in lastWiChangeTime and creates schedules via reschedule
      * if the debounce quiet period (3s) has elapsed and the min EMT is >5 min away.
@@ -164,7 +219,7 @@ public class WorkQueueProcessor implements EventProcessor {
             return List.of();
         }
 
-        var effects = new ArrayList<SideEffect>();
+        var requests = new ArrayList<ScheduleRequest>();
         var resolved = new ArrayList<Long>();
 
         for (var entry : lastWiChangeTime.entrySet()) {
@@ -196,14 +251,86 @@ public class WorkQueueProcessor implements EventProcessor {
             }
 
             // Debounce elapsed, create/recreate schedule
-            effects.addAll(handleReschedule(wqId));
+            if (!instructions.isEmpty()) {
+                requests.add(scheduleRequest(wqId, true));
+            }
             resolved.add(wqId);
         }
 
-        resolved.forEach(lastWiChangeTime::remove);
+        for (long wqId : resolved) {
+            undoJournal.recordMapEntry(lastWiChangeTime, wqId);
+            lastWiChangeTime.remove(wqId);
+        }
+        return buildSchedules(requests);
+    }
+
+    /**
+     * Builds the requested schedules, concurrently if there is a schedule creation pool, and
+     * returns their ScheduleCreated side effects in request order.
+     */
+    private List<SideEffect> buildSchedules(List<ScheduleRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        List<SideEffect> effects = new ArrayList<>(requests.size());
+        if (scheduleCreationPool == null || requests.size() == 1) {
+            for (ScheduleRequest request : requests) {
+                effects.add(buildSchedule(request));
+            }
+            return effects;
+        }
+        List<ForkJoinTask<ScheduleCreated>> tasks = new ArrayList<>(requests.size());
+        for (ScheduleRequest request : requests) {
+            tasks.add(scheduleCreationPool.submit(() -> buildSchedule(request)));
+        }
+        for (ForkJoinTask<ScheduleCreated> task : tasks) {
+            effects.add(task.join());
+        }
         return effects;
     }
 
+    private void markCanceled(long workQueueId, long workInstructionId) {
+        Set<Long> canceled = canceledWorkInstructionIds.get(workQueueId);
+        if (canceled == null) {
+            undoJournal.recordMapEntry(canceledWorkInstructionIds, workQueueId);
+            canceled = new HashSet<>();
+            canceledWorkInstructionIds.put(workQueueId, canceled);
+        }
+        if (canceled.add(workInstructionId)) {
+            undoJournal.record(() -> canceledWorkInstructionIds.get(workQueueId).remove(workInstructionId));
+        }
+    }
+
+    /**
+     * Removes the instruction with the given ID from every queue. Undo operations look the
+     * list up by queue ID, so they stay valid when a queue's list is later replaced.
+     */
+    private void removeInstruction(long workInstructionId) {
+        for (var entry : workInstructions.entrySet()) {
+            long queueId = entry.getKey();
+            List<WorkInstructionEvent> instructions = entry.getValue();
+            for (int i = instructions.size() - 1; i >= 0; i--) {
+                WorkInstructionEvent wi = instructions.get(i);
+                if (wi.workInstructionId() == workInstructionId) {
+                    instructions.remove(i);
+                    int index = i;
+                    undoJournal.record(() -> workInstructions.get(queueId).add(index, wi));
+                }
+            }
+        }
+    }
+
+    private void appendInstruction(long workQueueId, WorkInstructionEvent instruction) {
+        List<WorkInstructionEvent> instructions = workInstructions.get(workQueueId);
+        if (instructions == null) {
+            undoJournal.recordMapEntry(workInstructions, workQueueId);
+            instructions = new ArrayList<>();
+            workInstructions.put(workQueueId, instructions);
+        }
+        instructions.add(instruction);
+        undoJournal.record(() -> workInstructions.get(workQueueId).removeLast());
+    }
+
     private List<SideEffect> handleWorkInstructionEvent(WorkInstructionEvent event) {
         long workInstructionId = event.workInstructionId();
         long workQueueId = event.workQueueId();
@@ -225,19 +352,16 @@ public class WorkQueueProcessor implements EventProcessor {
         }
 
         // Remove existing instruction with same ID from all queues (handles moves and updates)
-        for (List<WorkInstructionEvent> instructions : workInstructions.values()) {
-            instructions.removeIf(wi -> wi.workInstructionId() == workInstructionId);
-        }
+        removeInstruction(workInstructionId);
 
         // Add the instruction to the target queue
-        workInstructions
-                .computeIfAbsent(workQueueId, k -> new ArrayList<>())
-                .add(event);
+        appendInstruction(workQueueId, event);
 
         // Track WI change for debounced schedule creation
         if (activeSchedules.containsKey(workQueueId)
                 && Boolean.TRUE.equals(managedByFesQueue.get(workQueueId))
                 && currentTime != null) {
+            undoJournal.recordMapEntry(lastWiChangeTime, workQueueId);
             lastWiChangeTime.put(workQueueId, currentTime);
         }
 
@@ -294,10 +418,12 @@ public class WorkQueueProcessor implements EventProcessor {
             if (movedWi != null) {
                 effects.add(new WorkInstructionReassigned(movedWi));
             }
-            effects.addAll(handleReschedule(workQueueId));
+            var requests = new ArrayList<ScheduleRequest>(2);
+            addRescheduleRequest(requests, workQueueId);
             if (movedWi != null && activeSchedules.containsKey(sourceQueueId)) {
-                effects.addAll(handleReschedule(sourceQueueId));
+                addRescheduleRequest(requests, sourceQueueId);
             }
+            effects.addAll(buildSchedules(requests));
             return effects;
         }
 
@@ -327,9 +453,7 @@ public class WorkQueueProcessor implements EventProcessor {
      */
     private WorkInstructionEvent moveWorkInstruction(WorkInstructionEvent wi, long targetQueueId) {
         // Remove from current queue
-        for (List<WorkInstructionEvent> instructions : workInstructions.values()) {
-            instructions.removeIf(w -> w.workInstructionId() == wi.workInstructionId());
-        }
+        removeInstruction(wi.workInstructionId());
 
         // Create a copy with the new workQueueId and add to target queue
         var moved = new WorkInstructionEvent(
@@ -338,9 +462,7 @@ public class WorkQueueProcessor implements EventProcessor {
                 wi.estimatedRtgCycleTimeSeconds(), wi.putChe(),
                 wi.isTwinFetch(), wi.isTwinPut(), wi.isTwinCarry(),
                 wi.twinCompanionWorkInstruction(), wi.toPosition(), wi.containerId());
-        workInstructions
-                .computeIfAbsent(targetQueueId, k -> new ArrayList<>())
-                .add(moved);
+        appendInstruction(targetQueueId, moved);
         return moved;
     }
 
@@ -388,25 +510,25 @@ public class WorkQueueProcessor implements EventProcessor {
         Instant fetchedTime = fetchedWi.estimatedMoveTime();
         Instant expectedTime = expectedWi.estimatedMoveTime();
 
-        instructions.replaceAll(wi -> {
+        for (int i = 0; i < instructions.size(); i++) {
+            WorkInstructionEvent wi = instructions.get(i);
+            Instant swappedTime;
             if (wi.workInstructionId() == fetchedWi.workInstructionId()) {
-                return new WorkInstructionEvent(
-                        wi.eventType(), wi.workInstructionId(), wi.workQueueId(), wi.fetchChe(),
-                        wi.workInstructionMoveStage(), expectedTime, wi.estimatedCycleTimeSeconds(),
-                        wi.estimatedRtgCycleTimeSeconds(), wi.putChe(),
-                        wi.isTwinFetch(), wi.isTwinPut(), wi.isTwinCarry(),
-                        wi.twinCompanionWorkInstruction(), wi.toPosition(), wi.containerId());
-            }
-            if (wi.workInstructionId() == expectedWi.workInstructionId()) {
-                return new WorkInstructionEvent(
-                        wi.eventType(), wi.workInstructionId(), wi.workQueueId(), wi.fetchChe(),
-                        wi.workInstructionMoveStage(), fetchedTime, wi.estimatedCycleTimeSeconds(),
-                        wi.estimatedRtgCycleTimeSeconds(), wi.putChe(),
-                        wi.isTwinFetch(), wi.isTwinPut(), wi.isTwinCarry(),
-                        wi.twinCompanionWorkInstruction(), wi.toPosition(), wi.containerId());
+                swappedTime = expectedTime;
+            } else if (wi.workInstructionId() == expectedWi.workInstructionId()) {
+                swappedTime = fetchedTime;
+            } else {
+                continue;
             }
-            return wi;
-        });
+            instructions.set(i, new WorkInstructionEvent(
+                    wi.eventType(), wi.workInstructionId(), wi.workQueueId(), wi.fetchChe(),
+                    wi.workInstructionMoveStage(), swappedTime, wi.estimatedCycleTimeSeconds(),
+                    wi.estimatedRtgCycleTimeSeconds(), wi.putChe(),
+                    wi.isTwinFetch(), wi.isTwinPut(), wi.isTwinCarry(),
+                    wi.twinCompanionWorkInstruction(), wi.toPosition(), wi.containerId()));
+            int index = i;
+            undoJournal.record(() -> workInstructions.get(workQueueId).set(index, wi));
+        }
     }
 
     /**
@@ -420,30 +542,62 @@ public class WorkQueueProcessor implements EventProcessor {
     }
 
     /**
-     * Rebuilds the entire schedule from scratch when a FETCH_COMPLETE event reveals
+     * Requests rebuilding the entire schedule from scratch when a FETCH_COMPLETE event reveals
      * that the actual container configuration or order differs from the plan.
      */
-    private List<SideEffect> handleReschedule(long workQueueId) {
-        List<WorkInstructionEvent> allInstructions = workInstructions.getOrDefault(workQueueId, List.of());
-        if (allInstructions.isEmpty()) {
-            return List.of();
+    private void addRescheduleRequest(List<ScheduleRequest> requests, long workQueueId) {
+        if (!workInstructions.getOrDefault(workQueueId, List.of()).isEmpty()) {
+            requests.add(scheduleRequest(workQueueId, true));
         }
+    }
 
-        var estimatedMoveTime = allInstructions.stream()
+    /**
+     * Inputs of a schedule build, captured on the event thread so that the build does not
+     * read processor state, nor the state of the processors its pipeline steps belong to.
+     */
+    private record ScheduleRequest(long workQueueId, List<WorkInstructionEvent> instructions,
+                                   Instant estimatedMoveTime, int qcMuda, LoadMode loadMode,
+                                   String bollard, String pointOfWork, boolean graphBuilder,
+                                   List<SchedulePipelineStep> pipelineSteps,
+                                   GraphScheduleBuilder.BuildCache buildCache) {
+    }
+
+    private ScheduleRequest scheduleRequest(long workQueueId, boolean graphBuilder) {
+        List<WorkInstructionEvent> instructions = List.copyOf(workInstructions.getOrDefault(workQueueId, List.of()));
+        // Find earliest estimated move time from work instructions
+        var estimatedMoveTime = instructions.stream()
                 .map(WorkInstructionEvent::estimatedMoveTime)
                 .filter(t -> t != null)
                 .min(Instant::compareTo)
                 .orElse(null);
 
-        int qcMuda = qcMudaByQueue.getOrDefault(workQueueId, 0);
-        LoadMode loadMode = loadModeByQueue.getOrDefault(workQueueId, LoadMode.DSCH);
+        return new ScheduleRequest(workQueueId, instructions, estimatedMoveTime,
+                qcMudaByQueue.getOrDefault(workQueueId, 0),
+                loadModeByQueue.getOrDefault(workQueueId, LoadMode.DSCH),
+                bollardByQueue.get(workQueueId), pointOfWorkByQueue.get(workQueueId), graphBuilder,
+                graphBuilder ? pipelineSteps.stream().map(SchedulePipelineStep::snapshot).toList() : List.of(),
+                graphBuilder ? buildCaches.computeIfAbsent(workQueueId, id -> new GraphScheduleBuilder.BuildCache()) : null);
+    }
 
-        String bollard = bollardByQueue.get(workQueueId);
-        List<Takt> takts = new GraphScheduleBuilder(driveTimeSupplier, qcDriveTimeOffsetSupplier)
-                .createTakts(allInstructions, estimatedMoveTime, qcMuda, loadMode,
-                        workQueueId, pipelineSteps, bollard, postProcessingSteps);
+    /**
+     * Builds the takts of a schedule. Safe to call off the event thread.
+     */
+    private ScheduleCreated buildSchedule(ScheduleRequest request) {
+        List<Takt> takts;
+        if (request.graphBuilder()) {
+            // A work queue's builds share its cache, so they must not overlap
+            synchronized (request.buildCache()) {
+                takts = graphScheduleBuilder.createTakts(request.instructions(), request.estimatedMoveTime(),
+                        request.qcMuda(), request.loadMode(), request.workQueueId(), request.pipelineSteps(),
+                        request.bollard(), postProcessingSteps, request.buildCache());
+            }
+        } else {
+            takts = createTaktsFromWorkInstructionsPrimvs(request.instructions(), request.estimatedMoveTime(),
+                    request.qcMuda());
+        }
 
-        String pointOfWork = pointOfWorkByQueue.get(workQueueId);
+        // Assign QC device name from pointOfWorkName
+        String pointOfWork = request.pointOfWork();
         if (pointOfWork != null && !pointOfWork.isBlank()) {
             takts = assignQCDevice(takts, pointOfWork);
         }
@@ -452,7 +606,7 @@ public class WorkQueueProcessor implements EventProcessor {
                 .sorted((a, b) -> a.sequence() - b.sequence())
                 .toList();
 
-        return List.of(new ScheduleCreated(workQueueId, sortedTakts, estimatedMoveTime));
+        return new ScheduleCreated(request.workQueueId(), sortedTakts, request.estimatedMoveTime());
     }
 
     private static final String MANAGED_BY_FES = "FES4";
@@ -460,18 +614,23 @@ public class WorkQueueProcessor implements EventProcessor {
     private List<SideEffect> handleWorkQueueMessage(WorkQueueMessage message) {
         long workQueueId = message.workQueueId();
         WorkQueueStatus status = message.status();
+        undoJournal.recordMapEntry(qcMudaByQueue, workQueueId);
         qcMudaByQueue.put(workQueueId, message.qcMudaSeconds());
         if (message.loadMode() != null) {
+            undoJournal.recordMapEntry(loadModeByQueue, workQueueId);
             loadModeByQueue.put(workQueueId, message.loadMode());
         }
         if (message.pointOfWorkName() != null) {
+            undoJournal.recordMapEntry(pointOfWorkByQueue, workQueueId);
             pointOfWorkByQueue.put(workQueueId, message.pointOfWorkName());
         }
         if (message.bollardPosition() != null) {
+            undoJournal.recordMapEntry(bollardByQueue, workQueueId);
             bollardByQueue.put(workQueueId, message.bollardPosition());
         }
 
         boolean managedByFes = MANAGED_BY_FES.equals(message.workQueueManaged());
+        undoJournal.recordMapEntry(managedByFesQueue, workQueueId);
         managedByFesQueue.put(workQueueId, managedByFes);
 
         if (status == WorkQueueStatus.ACTIVE && managedByFes) {
@@ -498,31 +657,50 @@ public class WorkQueueProcessor implements EventProcessor {
         }
 
         // Create new schedule with takts generated from work instructions
+        undoJournal.recordMapEntry(activeSchedules, workQueueId);
         activeSchedules.put(workQueueId, true);
-        List<WorkInstructionEvent> instructions = workInstructions.getOrDefault(workQueueId, List.of());
-        // Find earliest estimated move time from work instructions
-        var estimatedMoveTime = instructions.stream()
-                .map(WorkInstructionEvent::estimatedMoveTime)
-                .filter(t -> t != null)
-                .min(java.time.Instant::compareTo)
-                .orElse(null);
+        ScheduleRequest request = scheduleRequest(workQueueId, useGraphScheduleBuilder);
+        if (batching && scheduleCreationPool != null) {
+            pendingQueues.add(workQueueId);
+            pendingBuilds.add(scheduleCreationPool.submit(() -> buildSchedule(request)));
+            return List.of();
+        }
+        return List.of(buildSchedule(request));
+    }
 
-        int qcMuda = qcMudaByQueue.getOrDefault(workQueueId, 0);
-        LoadMode loadMode = loadModeByQueue.getOrDefault(workQueueId, LoadMode.DSCH);
-        String pointOfWork = pointOfWorkByQueue.get(workQueueId);
-        String bollard2 = bollardByQueue.get(workQueueId);
-        List<Takt> takts = useGraphScheduleBuilder
-                ? new GraphScheduleBuilder(driveTimeSupplier, qcDriveTimeOffsetSupplier)
-                        .createTakts(instructions, estimatedMoveTime, qcMuda, loadMode,
-                                workQueueId, pipelineSteps, bollard2, postProcessingSteps)
-                : createTaktsFromWorkInstructionsPrimvs(instructions, estimatedMoveTime, qcMuda);
+    @Override
+    public void beginBatch() {
+        batching = true;
+    }
 
-        // Assign QC device name from pointOfWorkName
-        if (pointOfWork != null && !pointOfWork.isBlank()) {
-            takts = assignQCDevice(takts, pointOfWork);
+    @Override
+    public void endBatch(SideEffectSink sink) {
+        batching = false;
+        emitPendingBuilds(sink);
+    }
+
+    /**
+     * Emits the pending schedules unless the event is a message of a work queue without one,
+     * which cannot depend on them.
+     */
+    @Override
+    public void settleBefore(Event event, SideEffectSink sink) {
+        if (!pendingBuilds.isEmpty()
+                && !(event instanceof WorkQueueMessage message && !pendingQueues.contains(message.workQueueId()))) {
+            emitPendingBuilds(sink);
         }
+    }
 
-        return List.of(new ScheduleCreated(workQueueId, takts.stream().sorted( (a, b) -> a.sequence() - b.sequence()).toList(), estimatedMoveTime));
+    /** Waits for the pending builds and emits their schedules in activation order. */
+    private void emitPendingBuilds(SideEffectSink sink) {
+        try {
+            for (ForkJoinTask<ScheduleCreated> build : pendingBuilds) {
+                sink.add(build.join());
+            }
+        } finally {
+            pendingBuilds.clear();
+            pendingQueues.clear();
+        }
     }
 
     public List<Takt> createTaktsFromWorkInstructionsPrimvs(List<WorkInstructionEvent> instructions, java.time.Instant estimatedMoveTime, int qcMudaSeconds) {
@@ -769,6 +947,7 @@ public class WorkQueueProcessor implements EventProcessor {
         }
 
         // Abort the schedule (work instructions remain stored)
+        undoJournal.recordMapEntry(activeSchedules, workQueueId);
         activeSchedules.remove(workQueueId);
         return List.of(new ScheduleAborted(workQueueId));
     }
@@ -804,17 +983,20 @@ public class WorkQueueProcessor implements EventProcessor {
         if (activeSchedules.containsKey(workQueueId)) {
             sideEffects.add(new ScheduleAborted(workQueueId));
         }
-        activeSchedules.remove(workQueueId);
-        workInstructions.remove(workQueueId);
-        qcMudaByQueue.remove(workQueueId);
-        loadModeByQueue.remove(workQueueId);
-        bollardByQueue.remove(workQueueId);
-        canceledWorkInstructionIds.remove(workQueueId);
-        managedByFesQueue.remove(workQueueId);
-        lastWiChangeTime.remove(workQueueId);
+        for (Map<Long, ?> perQueue : List.of(activeSchedules, workInstructions, qcMudaByQueue,
+                loadModeByQueue, bollardByQueue, canceledWorkInstructionIds, managedByFesQueue, lastWiChangeTime)) {
+            undoJournal.recordMapEntry(perQueue, workQueueId);
+            perQueue.remove(workQueueId);
+        }
+        buildCaches.remove(workQueueId);
         return sideEffects;
     }
 
+    @Override
+    public void setUndoJournal(UndoJournal journal) {
+        this.undoJournal = journal;
+    }
+
     @Override
     public Object captureState() {
         Map<String, Object> state = new HashMap<>();
@@ -14,12 +14,14 @@ import com.wonderingwizard.domain.takt.TaktActivationCondition;
 import com.wonderingwizard.domain.takt.TaktCondition;
 import com.wonderingwizard.domain.takt.Takt;
 import com.wonderingwizard.domain.takt.TimeCondition;
+import com.wonderingwizard.engine.BatchProcessingException;
 import com.wonderingwizard.engine.Engine;
 import com.wonderingwizard.engine.Event;
 import com.wonderingwizard.engine.EventProcessingEngine;
 import com.wonderingwizard.engine.EventProcessor;
 import com.wonderingwizard.engine.EventPropagatingEngine;
 import com.wonderingwizard.engine.SideEffect;
+import com.wonderingwizard.engine.SideEffectSink;
 import com.wonderingwizard.kafka.ActionActivatedToEquipmentInstructionMapper;
 import com.wonderingwizard.kafka.AssetEventMapper;
 import com.wonderingwizard.kafka.CheTargetPositionEventMapper;
@@ -50,27 +52,9 @@ import com.wonderingwizard.events.WorkQueueStatus;
 import com.wonderingwizard.events.CheJobStepState;
 import com.wonderingwizard.events.CheStatus;
 import com.wonderingwizard.events.ContainerHandlingEquipmentEvent;
-import com.wonderingwizard.processors.ActionCompletedEvaluator;
-import com.wonderingwizard.processors.RTGAssetEventEvaluator;
-import com.wonderingwizard.processors.DelayProcessor;
 import com.wonderingwizard.processors.DigitalMapProcessor;
-import com.wonderingwizard.processors.EventLogProcessor;
-import com.wonderingwizard.processors.PlannedTimeStep;
-import com.wonderingwizard.processors.RtgWaitDurationStep;
-import com.wonderingwizard.processors.QCAssetEventEvaluator;
-import com.wonderingwizard.processors.RTGJobOperationEvaluator;
-import com.wonderingwizard.processors.TTPositionEventEvaluator;
 import com.wonderingwizard.processors.ScheduleRunnerProcessor;
 import com.wonderingwizard.processors.TTStateProcessor;
-import com.wonderingwizard.processors.ContainerMoveStoppedHandler;
-import com.wonderingwizard.processors.EstimatedTimeCalculator;
-import com.wonderingwizard.processors.TTUnavailableHandler;
-import com.wonderingwizard.processors.WIAbandonedHandler;
-import com.wonderingwizard.processors.WIResetHandler;
-import com.wonderingwizard.processors.WIRevertHandler;
-import com.wonderingwizard.processors.WQChangeHandler;
-import com.wonderingwizard.processors.TimeAlarmProcessor;
-import com.wonderingwizard.processors.WorkQueueProcessor;
 import com.wonderingwizard.sideeffects.ActionActivated;
 import com.wonderingwizard.sideeffects.ActionCompleted;
 import com.wonderingwizard.sideeffects.DelayUpdated;
@@ -88,12 +72,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -103,6 +89,9 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.logging.Logger;
 
@@ -120,10 +109,22 @@ public class DemoServer {
     private final Engine engine;
     private final EventProcessingEngine baseEngine;
     private final Settings settings;
+    /** Whether the engine journals every step, so any step can be reverted without replay. */
+    private final boolean undoJournal;
+    /** Periodic engine checkpoints for bounded replay on step-back; null in undo-journal mode. */
+    private final StepCheckpoints checkpoints;
     private final ScheduleRunnerProcessor scheduleRunnerProcessor;
     private final TTStateProcessor ttStateProcessor;
     private final com.wonderingwizard.processors.QCStateProcessor qcStateProcessor;
+    /** Pool new schedules are built on, or null to build them on the event thread. */
+    private final ForkJoinPool scheduleCreationPool;
+    /** Thread digital maps are loaded on, or null to load them on the event thread. */
+    private final ExecutorService mapLoadingExecutor;
     private final List<Step> steps = new ArrayList<>();
+    /** Steps after which the engine was within a batch, with work deferred to its end still pending. */
+    private final BitSet unsettledSteps = new BitSet();
+    /** Whether {@link #processSteps} has a batch open on the engine. */
+    private boolean inBatch;
     private final Map<Long, WorkQueueMessage> wqMessageCache = new HashMap<>();
     /** Cached schedule view builders, rebuilt incrementally from new steps only. */
     private final Map<Long, ScheduleViewBuilder> scheduleViewCache = new LinkedHashMap<>();
@@ -269,46 +270,46 @@ public class DemoServer {
 
     public DemoServer(Settings settings) {
         this.settings = settings;
-        this.baseEngine = new EventProcessingEngine();
+        this.undoJournal = settings.undoJournal();
+        this.baseEngine = new EventProcessingEngine(undoJournal);
+        int scheduleCreationThreads = settings.scheduleCreationThreads();
+        this.scheduleCreationPool = scheduleCreationThreads > 0 ? new ForkJoinPool(scheduleCreationThreads) : null;
         this.engine = new EventPropagatingEngine(baseEngine);
-        engine.register(new EventLogProcessor());
-        engine.register(new TimeAlarmProcessor());
-        this.digitalMapProcessor = new DigitalMapProcessor();
-        var workQueueProcessor = new WorkQueueProcessor();
-        workQueueProcessor.registerStep(digitalMapProcessor);
-        workQueueProcessor.registerStep(new RtgWaitDurationStep());
-        workQueueProcessor.registerPostProcessingStep(new PlannedTimeStep());
-        engine.register(digitalMapProcessor);
-        engine.register(workQueueProcessor);
-        this.ttStateProcessor = new TTStateProcessor();
-        engine.register(ttStateProcessor);
-        this.qcStateProcessor = new com.wonderingwizard.processors.QCStateProcessor();
-        engine.register(qcStateProcessor);
-        this.scheduleRunnerProcessor = new ScheduleRunnerProcessor();
-        scheduleRunnerProcessor.registerTTAllocationStrategy(ttStateProcessor);
-        scheduleRunnerProcessor.registerSubProcessor(new TTUnavailableHandler());
-        scheduleRunnerProcessor.registerSubProcessor(new WIAbandonedHandler());
-        scheduleRunnerProcessor.registerSubProcessor(new WIResetHandler());
-        scheduleRunnerProcessor.registerSubProcessor(new WIRevertHandler());
-        scheduleRunnerProcessor.registerSubProcessor(new WQChangeHandler());
-        scheduleRunnerProcessor.registerSubProcessor(new ContainerMoveStoppedHandler());
-        scheduleRunnerProcessor.registerSubProcessor(new EstimatedTimeCalculator());
-        scheduleRunnerProcessor.registerCompletionEvaluator(new QCAssetEventEvaluator());
-        scheduleRunnerProcessor.registerCompletionEvaluator(new TTPositionEventEvaluator());
-        scheduleRunnerProcessor.registerCompletionEvaluator(new RTGJobOperationEvaluator());
-        scheduleRunnerProcessor.registerCompletionEvaluator(new ActionCompletedEvaluator());
-        scheduleRunnerProcessor.registerCompletionEvaluator(new RTGAssetEventEvaluator());
-        engine.register(scheduleRunnerProcessor);
-        engine.register(new DelayProcessor());
+        ProcessorStack stack = ProcessorStack.registerInto(engine, scheduleCreationPool);
+        this.digitalMapProcessor = stack.digitalMapProcessor();
+        this.ttStateProcessor = stack.ttStateProcessor();
+        this.qcStateProcessor = stack.qcStateProcessor();
+        this.scheduleRunnerProcessor = stack.scheduleRunnerProcessor();
+        String mapCacheDirectory = settings.digitalMapCacheDirectory();
+        if (!mapCacheDirectory.isBlank()) {
+            digitalMapProcessor.setDurationCacheDirectory(Path.of(mapCacheDirectory.trim()));
+        }
+        if (settings.digitalMapBackgroundLoading()) {
+            this.mapLoadingExecutor = Executors.newSingleThreadExecutor(
+                    Thread.ofPlatform().name("digital-map-loader").daemon().factory());
+            digitalMapProcessor.setMapLoadingExecutor(mapLoadingExecutor);
+        } else {
+            this.mapLoadingExecutor = null;
+        }
         // Take initial snapshot so we can always reset to clean state
         engine.snapshot();
         snapshotStepIndex = 0;
+        if (undoJournal) {
+            this.checkpoints = null;
+        } else {
+            this.checkpoints = new StepCheckpoints(settings.checkpointInterval(), settings.maxCheckpoints());
+            checkpoints.put(0, baseEngine.captureCheckpoint());
+        }
     }
 
     DemoServer(Engine engine) {
         this.settings = Settings.load();
         this.engine = engine;
+        this.undoJournal = false;
+        this.checkpoints = null;
         this.baseEngine = null;
+        this.scheduleCreationPool = null;
+        this.mapLoadingExecutor = null;
         this.scheduleRunnerProcessor = null;
         this.ttStateProcessor = null;
         this.qcStateProcessor = null;
@@ -439,6 +440,12 @@ public class DemoServer {
         if (kafkaConsumerManager != null) {
             kafkaConsumerManager.stopAll();
         }
+        if (scheduleCreationPool != null) {
+            scheduleCreationPool.shutdown();
+        }
+        if (mapLoadingExecutor != null) {
+            mapLoadingExecutor.shutdown();
+        }
         if (httpServer != null) {
             httpServer.stop(0);
             logger.info("Demo server stopped");
@@ -449,6 +456,9 @@ public class DemoServer {
         // Initialize OTEL metrics with Prometheus exporter on port 9464
         this.metrics = new com.wonderingwizard.metrics.Metrics();
         baseEngine.setMetrics(this.metrics);
+        if (engine instanceof EventPropagatingEngine propagatingEngine) {
+            propagatingEngine.setMetrics(this.metrics);
+        }
         // Wrap the engine so Kafka events are recorded as steps in the viewer
         Engine stepRecordingEngine = new Engine() {
             @Override
@@ -461,6 +471,11 @@ public class DemoServer {
                 return processStep("Kafka: " + event.getClass().getSimpleName(), event).sideEffects();
             }
 
+            @Override
+            public List<SideEffect> processBatch(List<Event> events) {
+                return processSteps("Kafka: ", events);
+            }
+
             @Override
             public void snapshot() {
                 engine.snapshot();
@@ -636,6 +651,62 @@ public class DemoServer {
         return submitAndWait(() -> processStepInternal(description, event));
     }
 
+    /**
+     * Processes a batch of events as consecutive steps with a single hand-off to the event
+     * processing thread. Each step is described by the prefix followed by the event type.
+     * <p>
+     * The events are processed as one engine batch, so the work processors defer to its end
+     * settles once for all of them; its side effects are recorded with the last step. The batch
+     * is settled early at steps due for a checkpoint, so checkpoints never hold deferred work.
+     *
+     * @return the side effects of all steps, in order
+     * @throws BatchProcessingException if an event fails; the steps before it are kept and settled
+     */
+    List<SideEffect> processSteps(String descriptionPrefix, List<Event> events) {
+        return submitAndWait(() -> {
+            List<SideEffect> sideEffects = new ArrayList<>();
+            engine.beginBatch();
+            inBatch = true;
+            for (int i = 0; i < events.size(); i++) {
+                Event event = events.get(i);
+                try {
+                    sideEffects.addAll(processStepInternal(
+                            descriptionPrefix + event.getClass().getSimpleName(), event).sideEffects());
+                } catch (RuntimeException e) {
+                    sideEffects.addAll(endStepBatch());
+                    throw new BatchProcessingException(i, e, sideEffects);
+                }
+            }
+            sideEffects.addAll(endStepBatch());
+            return sideEffects;
+        });
+    }
+
+    /**
+     * Ends the batch opened by {@link #processSteps}, recording the side effects of the work
+     * deferred to its end with the last step and publishing them.
+     *
+     * @return the side effects of the deferred work
+     */
+    private List<SideEffect> endStepBatch() {
+        SideEffectSink sink = new SideEffectSink();
+        engine.endBatch(sink);
+        inBatch = false;
+        List<SideEffect> deferred = sink.toList();
+        if (!steps.isEmpty()) {
+            unsettledSteps.clear(steps.size());
+            if (!deferred.isEmpty()) {
+                Step last = steps.getLast();
+                List<SideEffect> lastSideEffects = new ArrayList<>(last.sideEffects());
+                lastSideEffects.addAll(deferred);
+                steps.set(steps.size() - 1, new Step(last.stepNumber(), last.description(), last.event(), lastSideEffects));
+            }
+        }
+        publish(deferred);
+        broadcastState();
+        return deferred;
+    }
+
     /**
      * Core event processing logic. Must only be called from the event processing thread.
      */
@@ -649,23 +720,42 @@ public class DemoServer {
             wqMessageCache.put(wqMsg.workQueueId(), wqMsg);
         }
 
+        if (undoJournal) {
+            engine.snapshot();
+        }
         List<SideEffect> sideEffects = engine.processEvent(event);
 
         int stepNumber = steps.size() + 1;
+        if (inBatch && checkpoints != null && checkpoints.isDue(stepNumber)) {
+            // Settle the batch so that the checkpoint holds no deferred work
+            SideEffectSink sink = new SideEffectSink();
+            engine.endBatch(sink);
+            engine.beginBatch();
+            if (!sink.isEmpty()) {
+                sideEffects = new ArrayList<>(sideEffects);
+                sideEffects.addAll(sink.toList());
+            }
+        } else if (inBatch) {
+            unsettledSteps.set(stepNumber);
+        }
         Step step = new Step(stepNumber, description, event, sideEffects);
         steps.add(step);
+        checkpointIfDue();
 
-        // Publish on a separate thread
-        if (sideEffectPublisher != null) {
-            List<SideEffect> toPublish = List.copyOf(sideEffects);
-            Thread.ofVirtual().name("kafka-publish").start(() -> sideEffectPublisher.publish(toPublish));
-        }
-
+        publish(sideEffects);
         broadcastState();
 
         return new StepResult(step, sideEffects);
     }
 
+    /** Publishes side effects on a separate thread. */
+    private void publish(List<SideEffect> sideEffects) {
+        if (sideEffectPublisher != null && !sideEffects.isEmpty()) {
+            List<SideEffect> toPublish = List.copyOf(sideEffects);
+            Thread.ofVirtual().name("kafka-publish").start(() -> sideEffectPublisher.publish(toPublish));
+        }
+    }
+
     /**
      * Creates an explicit snapshot of the current engine state.
      * The snapshot is associated with the current step count so that
@@ -673,6 +763,10 @@ public class DemoServer {
      */
     public void createSnapshot() {
         submitAndWait(() -> {
+            if (undoJournal) {
+                // Every step is already journaled
+                return;
+            }
             engine.snapshot();
             snapshotStepIndex = steps.size();
             logger.info("Snapshot created at step " + snapshotStepIndex);
@@ -681,12 +775,23 @@ public class DemoServer {
 
     /**
      * Resets the engine to its initial state (before any events).
-     * Uses the initial snapshot taken at startup.
+     * Uses the checkpoint or snapshot taken at startup.
      */
     private void resetToInitial() {
-        // Restore initial snapshot
-        engine.stepBack();
+        if (undoJournal) {
+            rewindTo(0);
+            return;
+        }
+        if (checkpoints != null) {
+            baseEngine.restoreCheckpoint(checkpoints.floor(0).state());
+            checkpoints.discardAfter(0);
+            engine.clearHistory();
+        } else {
+            // Restore initial snapshot
+            engine.stepBack();
+        }
         steps.clear();
+        unsettledSteps.clear();
         wqMessageCache.clear();
         scheduleViewCache.clear();
         scheduleViewCacheIndex = 0;
@@ -740,58 +845,122 @@ public class DemoServer {
     }
 
     /**
-     * Steps back to the target step number by restoring the nearest snapshot
-     * and replaying events from that point.
+     * Steps back to the target step number by undoing the steps after it (undo-journal mode)
+     * or by restoring the nearest checkpoint or snapshot and replaying events from that point.
      *
      * @param targetStep the step number to revert to (1-based, 0 means undo all)
      * @return true if step-back was successful
      */
     public boolean stepBackTo(int targetStep) {
-        return submitAndWait(() -> {
-            if (targetStep < 0 || targetStep >= steps.size()) {
-                return false;
-            }
-            if (snapshotStepIndex < 0 || targetStep < snapshotStepIndex) {
-                logger.warning("Cannot step back to step " + targetStep
-                        + ": no snapshot or target is before snapshot at step " + snapshotStepIndex);
-                return false;
-            }
+        return submitAndWait(() -> rewindTo(targetStep));
+    }
 
-            // Save the events we need to replay (from snapshot to target)
-            List<Step> stepsToReplay = new ArrayList<>();
-            for (int i = snapshotStepIndex; i < targetStep; i++) {
-                stepsToReplay.add(steps.get(i));
+    /**
+     * Reverts the engine and step list to {@code targetStep}. In undo-journal mode this undoes
+     * the journaled steps after the target; otherwise it restores the latest checkpoint or snapshot
+     * before the target and replays events up to it. Must only be called from the event processing thread.
+     */
+    private boolean rewindTo(int targetStep) {
+        if (targetStep < 0 || targetStep >= steps.size()) {
+            return false;
+        }
+        if (undoJournal) {
+            // Within a batch the journal holds unsettled states, so undo to the step that
+            // settled before the target and replay the steps up to it one by one
+            int settledStep = unsettledSteps.previousClearBit(targetStep);
+            List<Step> stepsToReplay = new ArrayList<>(steps.subList(settledStep, targetStep));
+            while (steps.size() > settledStep) {
+                engine.stepBack();
+                steps.removeLast();
             }
-
-            // Restore the snapshot
-            engine.stepBack();
-
-            // Clear all steps after snapshot and invalidate caches
-            while (steps.size() > snapshotStepIndex) {
-                steps.remove(steps.size() - 1);
+            unsettledSteps.clear(settledStep + 1, Integer.MAX_VALUE);
+            for (Step step : stepsToReplay) {
+                engine.snapshot();
+                steps.add(new Step(steps.size() + 1, step.description(), step.event(), engine.processEvent(step.event())));
             }
             scheduleViewCache.clear();
             scheduleViewCacheIndex = 0;
             wqMessageCache.clear();
-
-            // Replay events from snapshot up to target (without creating new snapshots)
-            for (Step step : stepsToReplay) {
-                if (step.event() instanceof SystemTimeSet sts) {
-                    currentTime = sts.timestamp();
-                }
+            currentTime = initialTime;
+            for (Step step : steps) {
                 if (step.event() instanceof WorkQueueMessage wqMsg) {
                     wqMessageCache.put(wqMsg.workQueueId(), wqMsg);
+                } else if (step.event() instanceof SystemTimeSet sts) {
+                    currentTime = sts.timestamp();
                 }
-                List<SideEffect> sideEffects = engine.processEvent(step.event());
-                steps.add(new Step(steps.size() + 1, step.description(), step.event(), sideEffects));
             }
+            return true;
+        }
 
-            // Re-take the snapshot at current position so further step-backs work
+        // Start from the latest checkpoint or the explicit snapshot, whichever needs less replay
+        StepCheckpoints.Checkpoint checkpoint = checkpoints != null ? checkpoints.floor(targetStep) : null;
+        boolean fromCheckpoint = checkpoint != null
+                && (snapshotStepIndex < 0 || targetStep < snapshotStepIndex || checkpoint.step() > snapshotStepIndex);
+        if (!fromCheckpoint && (snapshotStepIndex < 0 || targetStep < snapshotStepIndex)) {
+            logger.warning("Cannot step back to step " + targetStep
+                    + ": no snapshot or target is before snapshot at step " + snapshotStepIndex);
+            return false;
+        }
+        int replayFrom = fromCheckpoint ? checkpoint.step() : snapshotStepIndex;
+
+        // Save the events we need to replay (from snapshot to target)
+        List<Step> stepsToReplay = new ArrayList<>(steps.subList(replayFrom, targetStep));
+
+        if (fromCheckpoint) {
+            baseEngine.restoreCheckpoint(checkpoint.state());
+        } else {
+            // Restore the snapshot
+            engine.stepBack();
+        }
+
+        // Clear all steps after the restored state and invalidate caches
+        while (steps.size() > replayFrom) {
+            steps.remove(steps.size() - 1);
+        }
+        // Replayed steps are processed one by one, so they are settled
+        unsettledSteps.clear(replayFrom + 1, Integer.MAX_VALUE);
+        if (checkpoints != null) {
+            checkpoints.discardAfter(targetStep);
+        }
+        scheduleViewCache.clear();
+        scheduleViewCacheIndex = 0;
+        wqMessageCache.clear();
+        for (Step step : steps) {
+            if (step.event() instanceof WorkQueueMessage wqMsg) {
+                wqMessageCache.put(wqMsg.workQueueId(), wqMsg);
+            }
+        }
+
+        // Replay events up to target (without creating new snapshots)
+        for (Step step : stepsToReplay) {
+            if (step.event() instanceof SystemTimeSet sts) {
+                currentTime = sts.timestamp();
+            }
+            if (step.event() instanceof WorkQueueMessage wqMsg) {
+                wqMessageCache.put(wqMsg.workQueueId(), wqMsg);
+            }
+            List<SideEffect> sideEffects = engine.processEvent(step.event());
+            steps.add(new Step(steps.size() + 1, step.description(), step.event(), sideEffects));
+            checkpointIfDue();
+        }
+
+        // Re-take the snapshot at current position so further step-backs work. A snapshot
+        // that is still at or before the target stays valid when starting from a checkpoint.
+        if (fromCheckpoint && snapshotStepIndex > targetStep) {
+            engine.clearHistory();
+        }
+        if (!fromCheckpoint || snapshotStepIndex > targetStep) {
             engine.snapshot();
             snapshotStepIndex = steps.size();
+        }
 
-            return true;
-        });
+        return true;
+    }
+
+    private void checkpointIfDue() {
+        if (checkpoints != null && checkpoints.isDue(steps.size())) {
+            checkpoints.put(steps.size(), baseEngine.captureCheckpoint());
+        }
     }
 
     /**
@@ -909,7 +1078,7 @@ public class DemoServer {
                         builder.hasTTAllocation = scheduleRunnerProcessor != null
                                 && scheduleRunnerProcessor.hasTTAllocationStrategy();
                         builder.occupiedPositionKeys = scheduleRunnerProcessor != null
-                                ? scheduleRunnerProcessor.getOccupiedPositionKeys() : Set.of();
+                                ? Set.copyOf(scheduleRunnerProcessor.getOccupiedPositionKeys()) : Set.of();
                         builder.storeTakts(created.takts());
                         builders.put(wqId, builder);
                     }
@@ -992,7 +1161,7 @@ public class DemoServer {
             }
             // Refresh occupied positions and satisfied event gates
             builder.occupiedPositionKeys = scheduleRunnerProcessor != null
-                    ? scheduleRunnerProcessor.getOccupiedPositionKeys() : Set.of();
+                    ? Set.copyOf(scheduleRunnerProcessor.getOccupiedPositionKeys()) : Set.of();
             builder.satisfiedEventGates.clear();
             if (scheduleRunnerProcessor != null) {
                 for (Takt takt : builder.originalTakts) {
@@ -2641,9 +2810,11 @@ public class DemoServer {
             return;
         }
         String stateJson = submitAndWait(() -> {
-            engine.snapshot();
-            snapshotStepIndex = steps.size();
-            logger.info("Snapshot created at step " + snapshotStepIndex);
+            if (!undoJournal) {
+                engine.snapshot();
+                snapshotStepIndex = steps.size();
+                logger.info("Snapshot created at step " + snapshotStepIndex);
+            }
             broadcastState();
             return JsonSerializer.serialize(buildState());
         });
@@ -2662,42 +2833,9 @@ public class DemoServer {
             int targetStep = Integer.parseInt(targetStepStr);
 
             String result = submitAndWait(() -> {
-                if (targetStep < 0 || targetStep >= steps.size()) {
+                if (!rewindTo(targetStep)) {
                     return null;
                 }
-                if (snapshotStepIndex < 0 || targetStep < snapshotStepIndex) {
-                    logger.warning("Cannot step back to step " + targetStep
-                            + ": no snapshot or target is before snapshot at step " + snapshotStepIndex);
-                    return null;
-                }
-
-                List<Step> stepsToReplay = new ArrayList<>();
-                for (int i = snapshotStepIndex; i < targetStep; i++) {
-                    stepsToReplay.add(steps.get(i));
-                }
-
-                engine.stepBack();
-
-                while (steps.size() > snapshotStepIndex) {
-                    steps.remove(steps.size() - 1);
-                }
-                scheduleViewCache.clear();
-                scheduleViewCacheIndex = 0;
-                wqMessageCache.clear();
-
-                for (Step step : stepsToReplay) {
-                    if (step.event() instanceof SystemTimeSet sts) {
-                        currentTime = sts.timestamp();
-                    }
-                    if (step.event() instanceof WorkQueueMessage wqMsg) {
-                        wqMessageCache.put(wqMsg.workQueueId(), wqMsg);
-                    }
-                    List<SideEffect> sideEffects = engine.processEvent(step.event());
-                    steps.add(new Step(steps.size() + 1, step.description(), step.event(), sideEffects));
-                }
-
-                engine.snapshot();
-                snapshotStepIndex = steps.size();
 
                 // Recalculate current time from remaining steps
                 currentTime = initialTime;
@@ -0,0 +1,106 @@
+package com.wonderingwizard.server;
+
+import com.wonderingwizard.engine.Engine;
+import com.wonderingwizard.processors.ActionCompletedEvaluator;
+import com.wonderingwizard.processors.ContainerMoveStoppedHandler;
+import com.wonderingwizard.processors.DelayProcessor;
+import com.wonderingwizard.processors.DigitalMapProcessor;
+import com.wonderingwizard.processors.EstimatedTimeCalculator;
+import com.wonderingwizard.processors.EventLogProcessor;
+import com.wonderingwizard.processors.PlannedTimeStep;
+import com.wonderingwizard.processors.QCAssetEventEvaluator;
+import com.wonderingwizard.processors.QCStateProcessor;
+import com.wonderingwizard.processors.RTGAssetEventEvaluator;
+import com.wonderingwizard.processors.RTGJobOperationEvaluator;
+import com.wonderingwizard.processors.RtgWaitDurationStep;
+import com.wonderingwizard.processors.ScheduleRunnerProcessor;
+import com.wonderingwizard.processors.TTPositionEventEvaluator;
+import com.wonderingwizard.processors.TTStateProcessor;
+import com.wonderingwizard.processors.TTUnavailableHandler;
+import com.wonderingwizard.processors.TimeAlarmProcessor;
+import com.wonderingwizard.processors.WIAbandonedHandler;
+import com.wonderingwizard.processors.WIResetHandler;
+import com.wonderingwizard.processors.WIRevertHandler;
+import com.wonderingwizard.processors.WQChangeHandler;
+import com.wonderingwizard.processors.WorkQueueProcessor;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The processors the demo server runs, registered in the order the server depends on.
+ * <p>
+ * Kept separate from {@link DemoServer} so benchmarks and tools can run the same stack
+ * without the HTTP server and step recording.
+ *
+ * @param digitalMapProcessor the digital map, also registered as a schedule pipeline step
+ * @param ttStateProcessor truck state, also the schedule runner's TT allocation strategy
+ * @param qcStateProcessor quay crane state
+ * @param scheduleRunnerProcessor the schedule runner with all handlers and evaluators
+ */
+public record ProcessorStack(DigitalMapProcessor digitalMapProcessor, TTStateProcessor ttStateProcessor,
+                             QCStateProcessor qcStateProcessor, ScheduleRunnerProcessor scheduleRunnerProcessor) {
+
+    /**
+     * Creates the processors and registers them with the given engine.
+     *
+     * @param engine the engine to register with
+     * @return the processors the server queries for its state
+     */
+    public static ProcessorStack registerInto(Engine engine) {
+        return registerInto(engine, null);
+    }
+
+    /**
+     * Creates the processors and registers them with the given engine, building new schedules
+     * on the given pool.
+     *
+     * @param engine the engine to register with
+     * @param scheduleCreationPool the pool to build schedules on, or null to build them on the
+     *                             event thread
+     * @return the processors the server queries for its state
+     * @see WorkQueueProcessor#setScheduleCreationPool
+     */
+    public static ProcessorStack registerInto(Engine engine, ForkJoinPool scheduleCreationPool) {
+        engine.register(new EventLogProcessor());
+        engine.register(new TimeAlarmProcessor());
+        var digitalMapProcessor = new DigitalMapProcessor();
+        engine.register(digitalMapProcessor);
+        var workQueueProcessor = createWorkQueueProcessor(digitalMapProcessor);
+        workQueueProcessor.setScheduleCreationPool(scheduleCreationPool);
+        engine.register(workQueueProcessor);
+        var ttStateProcessor = new TTStateProcessor();
+        engine.register(ttStateProcessor);
+        var qcStateProcessor = new QCStateProcessor();
+        engine.register(qcStateProcessor);
+        var scheduleRunnerProcessor = createScheduleRunner(ttStateProcessor);
+        engine.register(scheduleRunnerProcessor);
+        engine.register(new DelayProcessor());
+        return new ProcessorStack(digitalMapProcessor, ttStateProcessor, qcStateProcessor, scheduleRunnerProcessor);
+    }
+
+    private static WorkQueueProcessor createWorkQueueProcessor(DigitalMapProcessor digitalMapProcessor) {
+        var workQueueProcessor = new WorkQueueProcessor();
+        workQueueProcessor.registerStep(digitalMapProcessor);
+        workQueueProcessor.registerStep(new RtgWaitDurationStep());
+        workQueueProcessor.registerPostProcessingStep(new PlannedTimeStep());
+        return workQueueProcessor;
+    }
+
+    private static ScheduleRunnerProcessor createScheduleRunner(TTStateProcessor ttStateProcessor) {
+        var scheduleRunnerProcessor = new ScheduleRunnerProcessor();
+        scheduleRunnerProcessor.registerTTAllocationStrategy(ttStateProcessor);
+        scheduleRunnerProcessor.registerSubProcessor(new TTUnavailableHandler());
+        scheduleRunnerProcessor.registerSubProcessor(new WIAbandonedHandler());
+        scheduleRunnerProcessor.registerSubProcessor(new WIResetHandler());
+        scheduleRunnerProcessor.registerSubProcessor(new WIRevertHandler());
+        scheduleRunnerProcessor.registerSubProcessor(new WQChangeHandler());
+        scheduleRunnerProcessor.registerSubProcessor(new ContainerMoveStoppedHandler());
+        scheduleRunnerProcessor.registerSubProcessor(new EstimatedTimeCalculator());
+        scheduleRunnerProcessor.registerCompletionEvaluator(new QCAssetEventEvaluator());
+        scheduleRunnerProcessor.registerCompletionEvaluator(new TTPositionEventEvaluator());
+        scheduleRunnerProcessor.registerCompletionEvaluator(new RTGJobOperationEvaluator());
+        scheduleRunnerProcessor.registerCompletionEvaluator(new ActionCompletedEvaluator());
+        scheduleRunnerProcessor.registerCompletionEvaluator(new RTGAssetEventEvaluator());
+        return scheduleRunnerProcessor;
+    }
+}
@@ -81,6 +81,37 @@ public class Settings {
         return getBoolean("clock.autostart", true);
     }
 
+    // --- Engine ---
+
+    public boolean undoJournal() {
+        return getBoolean("engine.undo-journal", false);
+    }
+
+    public int checkpointInterval() {
+        return getInt("engine.checkpoint-interval", 100);
+    }
+
+    public int maxCheckpoints() {
+        return getInt("engine.max-checkpoints", 50);
+    }
+
+    /** Threads to build an event's schedules on in parallel, or 0 to build them on the event thread. */
+    public int scheduleCreationThreads() {
+        return getInt("engine.schedule-creation-threads", 0);
+    }
+
+    // --- Digital map ---
+
+    /** Directory to cache precomputed POI durations in, or blank to disable the cache. */
+    public String digitalMapCacheDirectory() {
+        return get("digital-map.cache-directory", "");
+    }
+
+    /** Whether to load digital maps on a background thread instead of the event thread. */
+    public boolean digitalMapBackgroundLoading() {
+        return getBoolean("digital-map.background-loading", false);
+    }
+
     // --- Kafka ---
 
     public boolean kafkaEnabled() {
@@ -0,0 +1,89 @@
+package com.wonderingwizard.server;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Engine checkpoints taken at evenly spaced steps, used to rewind the demo server
+ * without replaying from the start.
+ * <p>
+ * Checkpoints are taken every {@link #spacing()} steps, starting at {@code interval}. When more
+ * than {@code capacity} would be kept, the spacing doubles and every other checkpoint is
+ * dropped, so the checkpoints stay evenly spaced and a rewind replays fewer than
+ * {@link #spacing()} steps. When discarding checkpoints leaves room for twice as many, the
+ * spacing halves again, down to {@code interval}. The checkpoint at step 0 is always kept so
+ * the initial state is reachable.
+ * Must only be used from the event processing thread.
+ */
+class StepCheckpoints {
+
+    /** A checkpoint of the engine state after {@code step} steps. */
+    record Checkpoint(int step, Object state) {}
+
+    private final int interval;
+    private final int capacity;
+    private int spacing;
+    private final TreeMap<Integer, Object> byStep = new TreeMap<>();
+
+    /**
+     * @param interval steps between checkpoints, or 0 to only keep the initial checkpoint
+     * @param capacity maximum number of checkpoints kept, including the initial one
+     */
+    StepCheckpoints(int interval, int capacity) {
+        this.interval = interval;
+        this.spacing = interval;
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Returns whether a checkpoint should be taken after the given step.
+     */
+    boolean isDue(int step) {
+        return step == 0 || (spacing > 0 && step % spacing == 0 && !byStep.containsKey(step));
+    }
+
+    /**
+     * Stores a checkpoint, doubling the spacing and dropping the checkpoints off it
+     * while the capacity is exceeded.
+     */
+    void put(int step, Object state) {
+        byStep.put(step, state);
+        while (byStep.size() > capacity && spacing > 0) {
+            spacing *= 2;
+            int kept = spacing;
+            byStep.keySet().removeIf(s -> s % kept != 0);
+        }
+    }
+
+    /**
+     * Returns the latest checkpoint at or before the given step, or null if there is none.
+     */
+    Checkpoint floor(int step) {
+        Map.Entry<Integer, Object> entry = byStep.floorEntry(step);
+        if (entry == null) {
+            return null;
+        }
+        return new Checkpoint(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Discards all checkpoints taken after the given step, halving the spacing while the
+     * remaining checkpoints fill at most half of the capacity.
+     */
+    void discardAfter(int step) {
+        byStep.tailMap(step, false).clear();
+        while (spacing > interval && byStep.size() * 2 <= capacity) {
+            spacing /= 2;
+        }
+    }
+
+    /** Returns the number of steps between the kept checkpoints. */
+    int spacing() {
+        return spacing;
+    }
+
+    /** Returns the number of checkpoints kept. */
+    int size() {
+        return byStep.size();
+    }
+}
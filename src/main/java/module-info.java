@@ -1,5 +1,6 @@
 module com.wonderingwizard {
     requires java.logging;
+    requires java.xml;
     requires jdk.httpserver;
     requires jdk.jfr;
     requires io.opentelemetry.api;
@@ -0,0 +1,234 @@
+package com.wonderingwizard.engine;
+
+import com.wonderingwizard.events.ActionCompletedEvent;
+import com.wonderingwizard.events.TimeEvent;
+import com.wonderingwizard.events.WorkInstructionEvent;
+import com.wonderingwizard.events.WorkQueueMessage;
+import com.wonderingwizard.events.WorkQueueStatus;
+import com.wonderingwizard.processors.DelayProcessor;
+import com.wonderingwizard.processors.EventLogProcessor;
+import com.wonderingwizard.processors.ScheduleRunnerProcessor;
+import com.wonderingwizard.processors.TimeAlarmProcessor;
+import com.wonderingwizard.processors.WorkQueueProcessor;
+import com.wonderingwizard.sideeffects.ActionActivated;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import static com.wonderingwizard.events.MoveStage.PLANNED;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Engine Batch Processing")
+class EngineBatchTest {
+
+    private static final Instant EMT = Instant.parse("2024-01-01T10:00:00Z");
+
+    @Nested
+    @DisplayName("Equivalence with Per-Event Processing")
+    class EquivalenceTests {
+
+        @Test
+        @DisplayName("Should produce the same side effects as processing each event")
+        void batchMatchesPerEvent() {
+            Engine perEvent = createEngine();
+            Engine batched = createEngine();
+
+            List<String> expected = runScenario(perEvent, EngineBatchTest::processOneByOne);
+            assertTrue(expected.stream().anyMatch(e -> e.startsWith("TaktCompleted")));
+            assertEquals(expected.stream().sorted().toList(),
+                    runScenario(batched, Engine::processBatch).stream().sorted().toList());
+        }
+
+        @Test
+        @DisplayName("Should activate actions once for all completions of a batch")
+        void batchActivatesOnceForAllCompletions() {
+            List<List<String>> perEventRounds = runRounds(createEngine(), EngineBatchTest::processOneByOne);
+            List<List<String>> batchedRounds = runRounds(createEngine(), Engine::processBatch);
+
+            // Per event, every completion is followed by the activations it enables
+            assertTrue(perEventRounds.stream().anyMatch(round -> !completionsBeforeActivations(round)));
+            for (List<String> round : batchedRounds) {
+                assertTrue(completionsBeforeActivations(round), round.toString());
+            }
+        }
+
+        @Test
+        @DisplayName("Should leave the same state as processing each event")
+        void batchLeavesSameState() {
+            EventLogProcessor perEventLog = new EventLogProcessor();
+            Engine perEvent = createEngine();
+            perEvent.register(perEventLog);
+            EventLogProcessor batchedLog = new EventLogProcessor();
+            Engine batched = createEngine();
+            batched.register(batchedLog);
+
+            runScenario(perEvent, EngineBatchTest::processOneByOne);
+            runScenario(batched, Engine::processBatch);
+
+            assertEquals(perEventLog.getEventLog().size(), batchedLog.getEventLog().size());
+            Event probe = new TimeEvent(EMT.plusSeconds(3600));
+            assertEquals(describe(perEvent.processEvent(probe)), describe(batched.processEvent(probe)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Failures")
+    class FailureTests {
+
+        @Test
+        @DisplayName("Should report the failing event and keep the events before it applied")
+        void reportsFailedIndex() {
+            Engine engine = new EventPropagatingEngine(new EventProcessingEngine());
+            EventLogProcessor eventLog = new EventLogProcessor();
+            engine.register(eventLog);
+            engine.register(new FailingProcessor(EMT.plusSeconds(2)));
+
+            List<Event> events = List.of(
+                    new TimeEvent(EMT), new TimeEvent(EMT.plusSeconds(1)),
+                    new TimeEvent(EMT.plusSeconds(2)), new TimeEvent(EMT.plusSeconds(3)));
+            BatchProcessingException e = assertThrows(BatchProcessingException.class,
+                    () -> engine.processBatch(events));
+
+            assertEquals(2, e.getFailedIndex());
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+            assertEquals(events.subList(0, 3), eventLog.getEventLog());
+        }
+
+        @Test
+        @DisplayName("Should carry the side effects of the events before the failing one")
+        void carriesSideEffectsOfAppliedEvents() {
+            Engine engine = createEngine();
+            engine.register(new FailingProcessor(EMT.plusSeconds(30)));
+            List<Event> applied = new ArrayList<>();
+            for (long wi = 1; wi <= 2; wi++) {
+                applied.add(new WorkInstructionEvent(100 + wi, 1L, "CHE-001", PLANNED, EMT.plusSeconds(wi * 120), 120));
+            }
+            applied.add(new WorkQueueMessage(1L, WorkQueueStatus.ACTIVE, 0, null));
+            List<Event> events = new ArrayList<>(applied);
+            events.add(new TimeEvent(EMT.plusSeconds(30)));
+
+            BatchProcessingException e = assertThrows(BatchProcessingException.class,
+                    () -> engine.processBatch(events));
+
+            List<String> expected = describe(processOneByOne(createEngine(), applied));
+            assertTrue(expected.contains("ScheduleCreated"));
+            assertEquals(expected.stream().sorted().toList(), describe(e.getSideEffects()).stream().sorted().toList());
+        }
+
+        @Test
+        @DisplayName("Should return no side effects for an empty batch")
+        void emptyBatch() {
+            Engine engine = createEngine();
+
+            assertEquals(List.of(), engine.processBatch(List.of()));
+        }
+    }
+
+    private static Engine createEngine() {
+        Engine engine = new EventPropagatingEngine(new EventProcessingEngine());
+        registerProcessors(engine);
+        return engine;
+    }
+
+    private static void registerProcessors(Engine engine) {
+        engine.register(new TimeAlarmProcessor());
+        engine.register(new WorkQueueProcessor(() -> 30));
+        engine.register(new ScheduleRunnerProcessor());
+        engine.register(new DelayProcessor());
+    }
+
+    private static List<SideEffect> processOneByOne(Engine engine, List<Event> events) {
+        List<SideEffect> sideEffects = new ArrayList<>();
+        for (Event event : events) {
+            sideEffects.addAll(engine.processEvent(event));
+        }
+        return sideEffects;
+    }
+
+    /**
+     * Runs schedules for several work queues in rounds, as a consumer would receive them in
+     * polls: each round is one tick plus the completions of the actions activated in the
+     * previous round. Returns the side effects without action IDs, which differ between engines.
+     */
+    private static List<String> runScenario(Engine engine, BiFunction<Engine, List<Event>, List<SideEffect>> process) {
+        return runRounds(engine, process).stream().flatMap(List::stream).toList();
+    }
+
+    /**
+     * Runs the scenario of {@link #runScenario} and returns the side effects of each round.
+     */
+    private static List<List<String>> runRounds(Engine engine, BiFunction<Engine, List<Event>, List<SideEffect>> process) {
+        List<List<String>> effects = new ArrayList<>();
+        List<Event> round = new ArrayList<>();
+        for (long wq = 1; wq <= 3; wq++) {
+            for (long wi = 1; wi <= 2; wi++) {
+                round.add(new WorkInstructionEvent(wq * 100 + wi, wq, "CHE-001", PLANNED, EMT.plusSeconds(wi * 120), 120));
+            }
+            round.add(new WorkQueueMessage(wq, WorkQueueStatus.ACTIVE, 0, null));
+        }
+        Instant time = EMT;
+        for (int tick = 0; tick < 40; tick++) {
+            time = time.plusSeconds(30);
+            round.add(new TimeEvent(time));
+            List<SideEffect> sideEffects = process.apply(engine, round);
+            effects.add(describe(sideEffects));
+            round = new ArrayList<>();
+            for (SideEffect effect : sideEffects) {
+                if (effect instanceof ActionActivated activated) {
+                    round.add(new ActionCompletedEvent(activated.actionId(), activated.workQueueId()));
+                }
+            }
+        }
+        return effects;
+    }
+
+    private static boolean completionsBeforeActivations(List<String> round) {
+        int lastCompleted = round.lastIndexOf("ActionCompleted");
+        return round.stream().noneMatch(effect -> effect.startsWith("ActionActivated")
+                && round.indexOf(effect) < lastCompleted);
+    }
+
+    private static List<String> describe(List<SideEffect> sideEffects) {
+        return sideEffects.stream()
+                .map(effect -> effect instanceof ActionActivated activated
+                        ? "ActionActivated:" + activated.workQueueId() + ":" + activated.taktName() + ":" + activated.actionDescription()
+                        : effect.getClass().getSimpleName())
+                .toList();
+    }
+
+    private static class FailingProcessor implements EventProcessor {
+        private final Instant failAt;
+
+        FailingProcessor(Instant failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override
+        public List<SideEffect> process(Event event) {
+            if (event instanceof TimeEvent timeEvent && timeEvent.timestamp().equals(failAt)) {
+                throw new IllegalStateException("failing at " + failAt);
+            }
+            return List.of();
+        }
+
+        @Override
+        public Set<Class<? extends Event>> subscribedEventTypes() {
+            return Set.of(TimeEvent.class);
+        }
+
+        @Override
+        public Object captureState() {
+            return null;
+        }
+
+        @Override
+        public void restoreState(Object state) {
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.wonderingwizard.engine;
+
+import com.wonderingwizard.events.SetTimeAlarm;
+import com.wonderingwizard.events.TimeEvent;
+import com.wonderingwizard.events.WorkQueueMessage;
+import com.wonderingwizard.events.WorkQueueStatus;
+import com.wonderingwizard.processors.ScheduleRunnerProcessor;
+import com.wonderingwizard.processors.TimeAlarmProcessor;
+import com.wonderingwizard.processors.WorkQueueProcessor;
+import com.wonderingwizard.sideeffects.AlarmTriggered;
+import com.wonderingwizard.sideeffects.TaktActivated;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("EventProcessingEngine Dispatch")
+class EventProcessingEngineDispatchTest {
+
+    private EventProcessingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new EventProcessingEngine();
+    }
+
+    /**
+     * Records every event it receives; subscribes to the given types.
+     */
+    private static class RecordingProcessor implements EventProcessor {
+        private final Set<Class<? extends Event>> types;
+        private final List<Event> received = new ArrayList<>();
+
+        RecordingProcessor(Set<Class<? extends Event>> types) {
+            this.types = types;
+        }
+
+        @Override
+        public List<SideEffect> process(Event event) {
+            received.add(event);
+            return List.of();
+        }
+
+        @Override
+        public Set<Class<? extends Event>> subscribedEventTypes() {
+            return types;
+        }
+
+        @Override
+        public String getName() {
+            return "RecordingProcessor";
+        }
+
+        @Override
+        public Object captureState() {
+            return List.copyOf(received);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void restoreState(Object state) {
+            received.clear();
+            received.addAll((List<Event>) state);
+        }
+    }
+
+    @Nested
+    @DisplayName("Subscription filtering")
+    class SubscriptionFiltering {
+
+        @Test
+        @DisplayName("processor is not called for events outside its subscription")
+        void nonSubscribedProcessorIsSkipped() {
+            RecordingProcessor timeOnly = new RecordingProcessor(Set.of(TimeEvent.class));
+            engine.register(timeOnly);
+
+            engine.processEvent(new WorkQueueMessage(1, WorkQueueStatus.ACTIVE, 0, null));
+            engine.processEvent(new TimeEvent(Instant.EPOCH));
+
+            assertEquals(1, timeOnly.received.size());
+            assertInstanceOf(TimeEvent.class, timeOnly.received.getFirst());
+        }
+
+        @Test
+        @DisplayName("default subscription receives every event")
+        void defaultSubscriptionReceivesAll() {
+            RecordingProcessor all = new RecordingProcessor(Set.of(Event.class));
+            engine.register(all);
+
+            engine.processEvent(new WorkQueueMessage(1, WorkQueueStatus.ACTIVE, 0, null));
+            engine.processEvent(new TimeEvent(Instant.EPOCH));
+
+            assertEquals(2, all.received.size());
+        }
+
+        @Test
+        @DisplayName("side effects that are events dispatch by their concrete class")
+        void sideEffectEventsDispatchByConcreteClass() {
+            RecordingProcessor taktOnly = new RecordingProcessor(Set.of(TaktActivated.class));
+            engine.register(taktOnly);
+
+            TaktActivated activated = new TaktActivated(1L, "TAKT100", Instant.EPOCH);
+            engine.processEvent(activated);
+            engine.processEvent(new TimeEvent(Instant.EPOCH));
+
+            assertEquals(List.of(activated), taktOnly.received);
+        }
+
+        @Test
+        @DisplayName("subscribed processors are called in registration order")
+        void registrationOrderIsPreserved() {
+            RecordingProcessor first = new RecordingProcessor(Set.of(Event.class));
+            RecordingProcessor skipped = new RecordingProcessor(Set.of(SetTimeAlarm.class));
+            RecordingProcessor last = new RecordingProcessor(Set.of(TimeEvent.class));
+            engine.register(first);
+            engine.register(skipped);
+            engine.register(last);
+
+            assertEquals(List.of(first, last), engine.getSubscribedProcessors(TimeEvent.class));
+        }
+
+        @Test
+        @DisplayName("registering a processor after dispatch includes it in later events")
+        void lateRegistrationIsDispatched() {
+            RecordingProcessor early = new RecordingProcessor(Set.of(TimeEvent.class));
+            engine.register(early);
+            engine.processEvent(new TimeEvent(Instant.EPOCH));
+
+            RecordingProcessor late = new RecordingProcessor(Set.of(TimeEvent.class));
+            engine.register(late);
+            engine.processEvent(new TimeEvent(Instant.EPOCH));
+
+            assertEquals(2, early.received.size());
+            assertEquals(1, late.received.size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Built-in processors")
+    class BuiltInProcessors {
+
+        @Test
+        @DisplayName("time alarms still trigger through the dispatch table")
+        void timeAlarmTriggers() {
+            engine.register(new TimeAlarmProcessor());
+            engine.register(new WorkQueueProcessor(() -> 30));
+
+            Instant trigger = Instant.parse("2024-01-01T12:00:00Z");
+            engine.processEvent(new SetTimeAlarm("alarm1", trigger));
+            List<SideEffect> effects = engine.processEvent(new TimeEvent(trigger));
+
+            assertTrue(effects.stream().anyMatch(se -> se instanceof AlarmTriggered));
+        }
+
+        @Test
+        @DisplayName("schedule runner skips events its handlers never inspect")
+        void scheduleRunnerSkipsUnrelatedEvents() {
+            ScheduleRunnerProcessor runner = new ScheduleRunnerProcessor();
+            engine.register(runner);
+
+            assertTrue(engine.getSubscribedProcessors(TimeEvent.class).contains(runner));
+            assertFalse(engine.getSubscribedProcessors(SetTimeAlarm.class).contains(runner));
+            assertFalse(engine.getSubscribedProcessors(TaktActivated.class).contains(runner));
+        }
+    }
+}
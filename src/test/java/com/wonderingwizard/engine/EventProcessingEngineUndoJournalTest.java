@@ -0,0 +1,276 @@
+package com.wonderingwizard.engine;
+
+import com.wonderingwizard.events.ActionCompletedEvent;
+import com.wonderingwizard.events.SetTimeAlarm;
+import com.wonderingwizard.events.TimeEvent;
+import com.wonderingwizard.events.WorkInstructionEvent;
+import com.wonderingwizard.events.WorkQueueMessage;
+import com.wonderingwizard.events.WorkQueueStatus;
+import com.wonderingwizard.processors.DelayProcessor;
+import com.wonderingwizard.processors.EventLogProcessor;
+import com.wonderingwizard.processors.ScheduleRunnerProcessor;
+import com.wonderingwizard.processors.TimeAlarmProcessor;
+import com.wonderingwizard.processors.WorkQueueProcessor;
+import com.wonderingwizard.sideeffects.ActionActivated;
+import com.wonderingwizard.sideeffects.AlarmTriggered;
+import com.wonderingwizard.sideeffects.ScheduleCreated;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static com.wonderingwizard.events.MoveStage.PLANNED;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("EventProcessingEngine Undo Journal")
+class EventProcessingEngineUndoJournalTest {
+
+    private static final Instant EMT = Instant.parse("2024-01-01T10:00:00Z");
+
+    private EventProcessingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new EventProcessingEngine(true);
+    }
+
+    @Nested
+    @DisplayName("Journaled Processors")
+    class JournaledProcessors {
+
+        @Test
+        @DisplayName("stepBack undoes the changes of the newest entry only")
+        void stepBackUndoesNewestEntry() {
+            engine.register(new TimeAlarmProcessor());
+
+            engine.snapshot();
+            engine.processEvent(new SetTimeAlarm("alarm1", Instant.parse("2024-01-01T12:00:00Z")));
+            engine.snapshot();
+            engine.processEvent(new SetTimeAlarm("alarm2", Instant.parse("2024-01-01T12:00:00Z")));
+            engine.processEvent(new TimeEvent(Instant.parse("2024-01-01T13:00:00Z")));
+
+            assertEquals(2, engine.getHistorySize());
+            assertTrue(engine.stepBack());
+            assertEquals(1, engine.getHistorySize());
+
+            List<SideEffect> effects = engine.processEvent(new TimeEvent(Instant.parse("2024-01-01T13:00:00Z")));
+            List<String> triggered = effects.stream()
+                    .filter(se -> se instanceof AlarmTriggered)
+                    .map(se -> ((AlarmTriggered) se).alarmName())
+                    .toList();
+            assertEquals(List.of("alarm1"), triggered);
+        }
+
+        @Test
+        @DisplayName("stepBack restores the event log without copying it")
+        void stepBackRestoresEventLog() {
+            EventLogProcessor eventLog = new EventLogProcessor();
+            engine.register(eventLog);
+
+            engine.processEvent(new TimeEvent(EMT));
+            engine.snapshot();
+            engine.processEvent(new TimeEvent(EMT.plusSeconds(1)));
+            engine.processEvent(new TimeEvent(EMT.plusSeconds(2)));
+
+            engine.stepBack();
+
+            assertEquals(List.of(new TimeEvent(EMT)), eventLog.getEventLog());
+        }
+
+        @Test
+        @DisplayName("undoable processors are never asked for their full state")
+        void undoableProcessorsAreNotCaptured() {
+            CountingProcessor undoable = new UndoableCountingProcessor();
+            engine.register(undoable);
+
+            engine.snapshot();
+            engine.processEvent(new TimeEvent(EMT));
+            engine.stepBack();
+
+            assertEquals(0, undoable.captures);
+        }
+    }
+
+    @Nested
+    @DisplayName("Fallback for Other Processors")
+    class FallbackForOtherProcessors {
+
+        @Test
+        @DisplayName("processors without a journal are restored from a capture taken before each event")
+        void fallbackRestoresCapturedState() {
+            CountingProcessor counter = new CountingProcessor();
+            engine.register(counter);
+
+            engine.processEvent(new TimeEvent(EMT));
+            engine.snapshot();
+            engine.processEvent(new TimeEvent(EMT.plusSeconds(1)));
+            engine.processEvent(new TimeEvent(EMT.plusSeconds(2)));
+            assertEquals(3, counter.count);
+
+            engine.stepBack();
+
+            assertEquals(1, counter.count);
+            assertEquals(2, counter.captures);
+        }
+
+        @Test
+        @DisplayName("nothing is captured while no snapshot is open")
+        void nothingCapturedWithoutSnapshot() {
+            CountingProcessor counter = new CountingProcessor();
+            engine.register(counter);
+
+            engine.processEvent(new TimeEvent(EMT));
+
+            assertEquals(0, counter.captures);
+            assertFalse(engine.stepBack());
+        }
+    }
+
+    @Nested
+    @DisplayName("Equivalence with Full Snapshots")
+    class EquivalenceWithFullSnapshots {
+
+        @Test
+        @DisplayName("replaying events after stepBack yields the same side effects as the first time")
+        void replayAfterStepBackMatchesFirstRun() {
+            Engine propagating = new EventPropagatingEngine(engine);
+            propagating.register(new EventLogProcessor());
+            propagating.register(new WorkQueueProcessor(() -> 30));
+            propagating.register(new ScheduleRunnerProcessor());
+            propagating.register(new DelayProcessor());
+
+            for (long wi = 1; wi <= 3; wi++) {
+                propagating.processEvent(new WorkInstructionEvent(wi, 1L, "CHE-001", PLANNED, EMT.plusSeconds(wi * 120), 120));
+            }
+            List<SideEffect> created = propagating.processEvent(new WorkQueueMessage(1L, WorkQueueStatus.ACTIVE, 0, null));
+            assertTrue(created.stream().anyMatch(se -> se instanceof ScheduleCreated));
+
+            propagating.snapshot();
+
+            List<Event> events = new ArrayList<>();
+            List<List<SideEffect>> firstRun = new ArrayList<>();
+            Instant time = EMT;
+            for (int step = 0; step < 20; step++) {
+                time = time.plusSeconds(30);
+                Event tick = new TimeEvent(time);
+                List<SideEffect> effects = propagating.processEvent(tick);
+                events.add(tick);
+                firstRun.add(effects);
+                for (SideEffect effect : effects) {
+                    if (effect instanceof ActionActivated activated) {
+                        Event completed = new ActionCompletedEvent(activated.actionId(), activated.workQueueId());
+                        events.add(completed);
+                        firstRun.add(propagating.processEvent(completed));
+                    }
+                }
+            }
+            assertTrue(firstRun.stream().flatMap(List::stream).anyMatch(se -> se instanceof ActionActivated));
+
+            assertTrue(propagating.stepBack());
+
+            List<List<SideEffect>> secondRun = new ArrayList<>();
+            for (Event event : events) {
+                secondRun.add(propagating.processEvent(event));
+            }
+            assertEquals(firstRun, secondRun);
+        }
+
+        @Test
+        @DisplayName("stepping back event by event across schedules replays the same side effects")
+        void perEventStepBackAcrossSchedulesMatchesFirstRun() {
+            Engine propagating = new EventPropagatingEngine(engine);
+            propagating.register(new EventLogProcessor());
+            propagating.register(new WorkQueueProcessor(() -> 30));
+            propagating.register(new ScheduleRunnerProcessor());
+            propagating.register(new DelayProcessor());
+
+            for (long wq = 1; wq <= 2; wq++) {
+                for (long wi = 1; wi <= 3; wi++) {
+                    propagating.processEvent(new WorkInstructionEvent(wq * 10 + wi, wq, "CHE-00" + wq, PLANNED,
+                            EMT.plusSeconds(wi * 120), 120));
+                }
+                propagating.processEvent(new WorkQueueMessage(wq, WorkQueueStatus.ACTIVE, 0, null));
+            }
+
+            List<Event> events = new ArrayList<>();
+            List<List<SideEffect>> firstRun = new ArrayList<>();
+            Instant time = EMT;
+            for (int step = 0; step < 20; step++) {
+                time = time.plusSeconds(30);
+                List<Event> pending = new ArrayList<>(List.of(new TimeEvent(time)));
+                while (!pending.isEmpty()) {
+                    Event event = pending.remove(0);
+                    propagating.snapshot();
+                    List<SideEffect> effects = propagating.processEvent(event);
+                    events.add(event);
+                    firstRun.add(effects);
+                    for (SideEffect effect : effects) {
+                        if (effect instanceof ActionActivated activated) {
+                            pending.add(new ActionCompletedEvent(activated.actionId(), activated.workQueueId()));
+                        }
+                    }
+                }
+            }
+            assertTrue(firstRun.stream().flatMap(List::stream).anyMatch(se -> se instanceof ActionActivated));
+
+            int steppedBack = events.size() / 2;
+            for (int i = 0; i < steppedBack; i++) {
+                assertTrue(propagating.stepBack());
+            }
+
+            int from = events.size() - steppedBack;
+            List<List<SideEffect>> secondRun = new ArrayList<>();
+            for (Event event : events.subList(from, events.size())) {
+                secondRun.add(propagating.processEvent(event));
+            }
+            assertEquals(firstRun.subList(from, firstRun.size()), secondRun);
+        }
+    }
+
+    private static class CountingProcessor implements EventProcessor {
+        int count;
+        int captures;
+
+        @Override
+        public List<SideEffect> process(Event event) {
+            count++;
+            return List.of();
+        }
+
+        @Override
+        public Set<Class<? extends Event>> subscribedEventTypes() {
+            return Set.of(TimeEvent.class);
+        }
+
+        @Override
+        public Object captureState() {
+            captures++;
+            return count;
+        }
+
+        @Override
+        public void restoreState(Object state) {
+            count = (Integer) state;
+        }
+    }
+
+    private static class UndoableCountingProcessor extends CountingProcessor implements UndoableEventProcessor {
+        private UndoJournal journal;
+
+        @Override
+        public List<SideEffect> process(Event event) {
+            journal.record(() -> count--);
+            return super.process(event);
+        }
+
+        @Override
+        public void setUndoJournal(UndoJournal journal) {
+            this.journal = journal;
+        }
+    }
+}
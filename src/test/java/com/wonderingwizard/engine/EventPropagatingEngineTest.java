@@ -237,6 +237,80 @@ class EventPropagatingEngineTest {
         }
     }
 
+    @Nested
+    @DisplayName("Sink Collection")
+    class SinkCollection {
+
+        @Test
+        @DisplayName("processEvent into a sink appends the same side effects as the list API")
+        void sinkMatchesListApi() {
+            EventPropagatingEngine other = new EventPropagatingEngine(new EventProcessingEngine());
+            for (Engine engine : List.of(propagatingEngine, other)) {
+                engine.register(new WorkQueueProcessor(() -> 30));
+                engine.register(new ScheduleRunnerProcessor());
+                engine.processEvent(new WorkInstructionEvent(
+                        1, 1L, "CHE1", MoveStage.PLANNED, Instant.parse("2020-01-01T00:00:00Z"), 120));
+            }
+
+            List<SideEffect> listed = propagatingEngine.processEvent(
+                    new WorkQueueMessage(1L, WorkQueueStatus.ACTIVE, 0, null));
+            SideEffectSink sink = new SideEffectSink();
+            other.processEvent(new WorkQueueMessage(1L, WorkQueueStatus.ACTIVE, 0, null), sink);
+
+            assertEquals(listed.stream().map(se -> se.getClass().getSimpleName()).toList(),
+                    sink.toList().stream().map(se -> se.getClass().getSimpleName()).toList());
+            assertTrue(listed.stream().anyMatch(se -> se instanceof ScheduleCreated));
+        }
+
+        @Test
+        @DisplayName("side effects already in the sink are kept and not propagated again")
+        void existingSideEffectsAreKept() {
+            List<Event> received = new ArrayList<>();
+            propagatingEngine.register(new RecordingProcessor(received));
+            SideEffectSink sink = new SideEffectSink();
+            ScheduleCreated earlier = new ScheduleCreated(7L, List.of(), Instant.EPOCH);
+            sink.add(earlier);
+
+            propagatingEngine.processEvent(new TimeEvent(Instant.EPOCH), sink);
+
+            assertEquals(List.of(earlier), sink.toList());
+            assertEquals(List.of(new TimeEvent(Instant.EPOCH)), received);
+        }
+
+        @Test
+        @DisplayName("the returned list stays valid after later events")
+        void returnedListIsNotReused() {
+            propagatingEngine.register(new WorkQueueProcessor(() -> 30));
+            propagatingEngine.processEvent(new WorkInstructionEvent(
+                    1, 1L, "CHE1", MoveStage.PLANNED, Instant.parse("2020-01-01T00:00:00Z"), 120));
+
+            List<SideEffect> effects = propagatingEngine.processEvent(
+                    new WorkQueueMessage(1L, WorkQueueStatus.ACTIVE, 0, null));
+            List<SideEffect> copy = List.copyOf(effects);
+            propagatingEngine.processEvent(new WorkQueueMessage(1L, WorkQueueStatus.INACTIVE, 0, null));
+
+            assertEquals(copy, effects);
+        }
+    }
+
+    private record RecordingProcessor(List<Event> received) implements EventProcessor {
+
+        @Override
+        public List<SideEffect> process(Event event) {
+            received.add(event);
+            return List.of();
+        }
+
+        @Override
+        public Object captureState() {
+            return null;
+        }
+
+        @Override
+        public void restoreState(Object state) {
+        }
+    }
+
     @Nested
     @DisplayName("Integration with ScheduleCreated as Event")
     class IntegrationWithScheduleCreatedAsEvent {
@@ -0,0 +1,56 @@
+package com.wonderingwizard.engine;
+
+import com.wonderingwizard.sideeffects.AlarmTriggered;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SideEffectSink")
+class SideEffectSinkTest {
+
+    @Test
+    @DisplayName("keeps side effects in emission order beyond the initial capacity")
+    void keepsOrderWhenGrowing() {
+        SideEffectSink sink = new SideEffectSink();
+        List<SideEffect> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            SideEffect effect = new AlarmTriggered("alarm" + i, Instant.EPOCH);
+            sink.add(effect);
+            expected.add(effect);
+        }
+
+        assertEquals(100, sink.size());
+        assertEquals(expected, sink.toList());
+        assertEquals(expected.get(42), sink.get(42));
+    }
+
+    @Test
+    @DisplayName("toList returns a copy that survives clear")
+    void toListSurvivesClear() {
+        SideEffectSink sink = new SideEffectSink();
+        SideEffect effect = new AlarmTriggered("alarm", Instant.EPOCH);
+        sink.add(effect);
+
+        List<SideEffect> list = sink.toList();
+        sink.clear();
+
+        assertTrue(sink.isEmpty());
+        assertEquals(List.of(effect), list);
+        assertThrows(IndexOutOfBoundsException.class, () -> sink.get(0));
+    }
+
+    @Test
+    @DisplayName("an empty sink yields an immutable empty list")
+    void emptySinkYieldsEmptyList() {
+        List<SideEffect> list = new SideEffectSink().toList();
+
+        assertTrue(list.isEmpty());
+        assertThrows(UnsupportedOperationException.class,
+                () -> list.add(new AlarmTriggered("alarm", Instant.EPOCH)));
+    }
+}
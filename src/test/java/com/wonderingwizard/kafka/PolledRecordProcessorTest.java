@@ -0,0 +1,104 @@
+package com.wonderingwizard.kafka;
+
+import com.wonderingwizard.engine.Event;
+import com.wonderingwizard.engine.EventProcessingEngine;
+import com.wonderingwizard.engine.EventProcessor;
+import com.wonderingwizard.engine.SideEffect;
+import com.wonderingwizard.events.TimeEvent;
+import com.wonderingwizard.processors.EventLogProcessor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Polled Record Processor")
+class PolledRecordProcessorTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T10:00:00Z");
+
+    @Test
+    @DisplayName("Should send records that fail to map or process to the DLQ and process the rest")
+    void failedRecordsGoToDeadLetterQueue() {
+        EventProcessingEngine engine = new EventProcessingEngine();
+        EventLogProcessor eventLog = new EventLogProcessor();
+        engine.register(eventLog);
+        engine.register(new FailingProcessor(T0.plusSeconds(2)));
+        DeadLetterQueue dlq = new DeadLetterQueue();
+        var processor = new PolledRecordProcessor<String>("topic", value -> {
+            if (value.equals("bad")) {
+                throw new IllegalArgumentException("unmappable");
+            }
+            return new TimeEvent(T0.plusSeconds(Long.parseLong(value)));
+        }, engine, null, dlq, Logger.getLogger(PolledRecordProcessorTest.class.getName()));
+
+        processor.process(List.of(
+                record(0, "0"), record(1, "bad"), record(2, "1"), record(3, "2"), record(4, "3")));
+
+        assertEquals(List.of(1L, 3L), dlq.getEntries().stream().map(DeadLetterQueue.Entry::offset).toList());
+        assertEquals(List.of(new TimeEvent(T0), new TimeEvent(T0.plusSeconds(1)),
+                new TimeEvent(T0.plusSeconds(2)), new TimeEvent(T0.plusSeconds(3))), eventLog.getEventLog());
+    }
+
+    @Test
+    @DisplayName("Should rethrow engine failures that are not attributed to a record")
+    void unattributedFailureIsRethrown() {
+        EventProcessingEngine engine = new EventProcessingEngine() {
+            @Override
+            public List<SideEffect> processBatch(List<Event> events) {
+                throw new IllegalStateException("hand-off failed");
+            }
+        };
+        DeadLetterQueue dlq = new DeadLetterQueue();
+        var processor = new PolledRecordProcessor<String>("topic", value -> {
+            if (value.equals("bad")) {
+                throw new IllegalArgumentException("unmappable");
+            }
+            return new TimeEvent(T0.plusSeconds(Long.parseLong(value)));
+        }, engine, null, dlq, Logger.getLogger(PolledRecordProcessorTest.class.getName()));
+
+        assertThrows(IllegalStateException.class,
+                () -> processor.process(List.of(record(0, "0"), record(1, "bad"), record(2, "1"))));
+
+        assertEquals(List.of(1L), dlq.getEntries().stream().map(DeadLetterQueue.Entry::offset).toList());
+    }
+
+    private static ConsumerRecord<String, String> record(long offset, String value) {
+        return new ConsumerRecord<>("topic", 0, offset, null, value);
+    }
+
+    private static class FailingProcessor implements EventProcessor {
+        private final Instant failAt;
+
+        FailingProcessor(Instant failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override
+        public List<SideEffect> process(Event event) {
+            if (event instanceof TimeEvent timeEvent && timeEvent.timestamp().equals(failAt)) {
+                throw new IllegalStateException("failing at " + failAt);
+            }
+            return List.of();
+        }
+
+        @Override
+        public Set<Class<? extends Event>> subscribedEventTypes() {
+            return Set.of(TimeEvent.class);
+        }
+
+        @Override
+        public Object captureState() {
+            return null;
+        }
+
+        @Override
+        public void restoreState(Object state) {
+        }
+    }
+}
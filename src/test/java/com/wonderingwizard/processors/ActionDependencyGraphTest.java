@@ -0,0 +1,112 @@
+package com.wonderingwizard.processors;
+
+import com.wonderingwizard.domain.takt.Action;
+import com.wonderingwizard.domain.takt.ActionStatus;
+import com.wonderingwizard.domain.takt.ActionType;
+import com.wonderingwizard.domain.takt.DeviceType;
+import com.wonderingwizard.domain.takt.Takt;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ActionDependencyGraph Tests")
+class ActionDependencyGraphTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T10:00:00Z");
+
+    private final List<Action> created = new ArrayList<>();
+    private ScheduleLayout layout;
+    private Action[] actions;
+    private ActionStatus[] statuses;
+
+    private Action action(ActionType type, Set<UUID> dependsOn) {
+        Action action = Action.create(DeviceType.TT, type, 0, 30).withDependencies(dependsOn);
+        created.add(action);
+        return action;
+    }
+
+    private ActionDependencyGraph graph(Takt... takts) {
+        layout = ScheduleLayout.of(List.of(takts));
+        actions = new Action[layout.actionCount()];
+        for (Action action : created) {
+            actions[layout.action(action.id())] = action;
+        }
+        statuses = new ActionStateTable(actions).statuses;
+        return new ActionDependencyGraph(layout, actions, statuses);
+    }
+
+    private void replace(ActionDependencyGraph graph, Action after) {
+        int handle = layout.action(after.id());
+        Action before = actions[handle];
+        ActionStatus statusBefore = statuses[handle];
+        actions[handle] = after;
+        statuses[handle] = after.status();
+        graph.update(handle, before.dependsOn(), statusBefore);
+    }
+
+    private int handle(Action action) {
+        return layout.action(action.id());
+    }
+
+    private List<UUID> ids(int[] handles) {
+        List<UUID> ids = new ArrayList<>();
+        for (int handle : handles) {
+            ids.add(layout.actionId(handle));
+        }
+        return ids;
+    }
+
+    @Test
+    @DisplayName("Makes a dependent ready once all of its dependencies completed")
+    void dependentBecomesReadyWhenDependenciesComplete() {
+        Action first = action(ActionType.TT_DRIVE_TO_QC_PULL, Set.of());
+        Action second = action(ActionType.TT_DRIVE_TO_QC_STANDBY, Set.of());
+        Action third = action(ActionType.TT_DRIVE_UNDER_QC, Set.of(first.id(), second.id()));
+        ActionDependencyGraph graph = graph(new Takt(0, List.of(first, second, third), START, START, 120));
+
+        assertEquals(List.of(first.id(), second.id()), ids(graph.readyActions(0, new int[0])));
+        assertFalse(graph.areDependenciesCompleted(handle(third)));
+
+        replace(graph, first.withStatus(ActionStatus.COMPLETED));
+        assertEquals(List.of(second.id()), ids(graph.readyActions(0, new int[0])));
+
+        replace(graph, second.withStatus(ActionStatus.ACTIVE));
+        replace(graph, second.withStatus(ActionStatus.COMPLETED));
+        assertTrue(graph.areDependenciesCompleted(handle(third)));
+        assertEquals(List.of(third.id()), ids(graph.readyActions(0, new int[0])));
+    }
+
+    @Test
+    @DisplayName("Follows rewired dependencies")
+    void followsRewiredDependencies() {
+        Action first = action(ActionType.TT_DRIVE_TO_QC_PULL, Set.of());
+        Action second = action(ActionType.TT_DRIVE_TO_QC_STANDBY, Set.of(first.id()));
+        Action third = action(ActionType.TT_DRIVE_UNDER_QC, Set.of(second.id()));
+        ActionDependencyGraph graph = graph(new Takt(0, List.of(first, second, third), START, START, 120));
+        assertEquals(List.of(third.id()), ids(graph.dependentsOf(handle(second))));
+
+        replace(graph, third.withDependencies(Set.of(first.id())));
+
+        assertEquals(List.of(), ids(graph.dependentsOf(handle(second))));
+        assertEquals(Set.of(second.id(), third.id()), Set.copyOf(ids(graph.dependentsOf(handle(first)))));
+        replace(graph, first.withStatus(ActionStatus.COMPLETED));
+        assertEquals(List.of(second.id(), third.id()), ids(graph.readyActions(0, new int[0])));
+    }
+
+    @Test
+    @DisplayName("Never makes an action ready that depends on an unknown action")
+    void unknownDependencyNeverCompletes() {
+        Action orphan = action(ActionType.TT_DRIVE_TO_QC_PULL, Set.of(UUID.randomUUID()));
+        ActionDependencyGraph graph = graph(new Takt(0, List.of(orphan), START, START, 120));
+
+        assertEquals(List.of(), ids(graph.readyActions(0, new int[0])));
+        assertEquals(List.of(orphan.id()), ids(graph.readyActions(0, new int[] {handle(orphan)})));
+    }
+}
@@ -0,0 +1,66 @@
+package com.wonderingwizard.processors;
+
+import com.wonderingwizard.domain.takt.Action;
+import com.wonderingwizard.domain.takt.ActionStatus;
+import com.wonderingwizard.domain.takt.ActionType;
+import com.wonderingwizard.domain.takt.CompletionReason;
+import com.wonderingwizard.domain.takt.DeviceType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ActionStateTable Tests")
+class ActionStateTableTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T10:00:00Z");
+
+    @Test
+    @DisplayName("Takes the runtime state from the definitions")
+    void takesRuntimeStateFromDefinitions() {
+        Action definition = Action.create(DeviceType.TT, ActionType.TT_DRIVE_TO_QC_PULL, 0, 30)
+                .withTruckAssignment(7L, "TT07").withStatus(ActionStatus.ACTIVE);
+
+        ActionStateTable table = new ActionStateTable(new Action[] {definition});
+
+        assertEquals(ActionStatus.ACTIVE, table.statuses[0]);
+        assertEquals(7L, table.cheIds[0]);
+        assertEquals("TT07", table.cheShortNames[0]);
+        assertEquals(definition, table.apply(0, definition));
+    }
+
+    @Test
+    @DisplayName("Applies the runtime state to the definition")
+    void appliesRuntimeState() {
+        Action definition = Action.create(DeviceType.QC, ActionType.QC_LIFT, 0, 60);
+        ActionStateTable table = new ActionStateTable(new Action[] {definition});
+
+        table.statuses[0] = ActionStatus.COMPLETED;
+        table.targetChes[0] = "TT07";
+        table.completionReasons[0] = CompletionReason.LOCATION_SKIPPED;
+        table.actualStartTimes[0] = START;
+        table.actualEndTimes[0] = START.plusSeconds(60);
+
+        Action expected = definition.withStatus(ActionStatus.COMPLETED).withTargetChe("TT07")
+                .withCompletionReason(CompletionReason.LOCATION_SKIPPED)
+                .withActualTimes(START, START.plusSeconds(60));
+        assertEquals(expected, table.apply(0, definition));
+    }
+
+    @Test
+    @DisplayName("Copies are independent of the original")
+    void copiesAreIndependent() {
+        Action definition = Action.create(DeviceType.TT, ActionType.TT_DRIVE_TO_QC_PULL, 0, 30);
+        ActionStateTable table = new ActionStateTable(new Action[] {definition});
+
+        ActionStateTable copy = table.copy();
+        copy.statuses[0] = ActionStatus.ACTIVE;
+        copy.cheShortNames[0] = "TT07";
+
+        assertEquals(ActionStatus.PENDING, table.statuses[0]);
+        assertNull(table.cheShortNames[0]);
+        assertEquals(definition, table.apply(0, definition));
+    }
+}
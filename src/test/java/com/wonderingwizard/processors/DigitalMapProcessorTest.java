@@ -16,8 +16,14 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -81,6 +87,35 @@ class DigitalMapProcessorTest {
         assertFalse(processor.isMapLoaded());
     }
 
+    @Test
+    void processDigitalMapEvent_truncatedLayout_keepsWhatWasRead() throws Exception {
+        var filler = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            filler.append("  <node id=\"").append(1000 + i).append("\" lat=\"35.8").append(i)
+                    .append("\" lon=\"-5.4").append(i * 7).append("\" version=\"1\" />\n");
+        }
+        byte[] compressed = gzip(SIMPLE_MAP_OSM.replace("</osm>", filler + "</osm>"));
+        byte[] truncated = java.util.Arrays.copyOf(compressed, compressed.length - 40);
+
+        processor.process(new DigitalMapEvent(layoutPayload(Base64.getEncoder().encodeToString(truncated))));
+
+        assertTrue(processor.isMapLoaded());
+        assertTrue(processor.findPathDuration("A", "C") > 0, "Roads before the truncation should be kept");
+    }
+
+    @Test
+    void processDigitalMapEvent_concatenatedBase64Segments() throws Exception {
+        byte[] compressed = gzip(SIMPLE_MAP_OSM);
+        // The first segment ends in padding, as produced by encoders that encode in chunks
+        String b64 = Base64.getEncoder().encodeToString(java.util.Arrays.copyOf(compressed, 10))
+                + "\n" + Base64.getEncoder().encodeToString(java.util.Arrays.copyOfRange(compressed, 10, compressed.length));
+
+        processor.process(new DigitalMapEvent(layoutPayload(b64)));
+
+        assertTrue(processor.isMapLoaded());
+        assertTrue(processor.findPathDuration("A", "C") > 0);
+    }
+
     @Test
     void processNonDigitalMapEvent_ignored() {
         var sideEffects = processor.process(
@@ -319,6 +354,133 @@ class DigitalMapProcessorTest {
         assertTrue(processor.findPathDuration("X", "Y") > 0);
     }
 
+    // ── Duration cache tests ─────────────────────────────────────────
+
+    @Test
+    void durationCache_sameMapIsReadBack() throws Exception {
+        Path directory = Files.createTempDirectory("map-cache");
+        try {
+            processor.setDurationCacheDirectory(directory);
+            loadSimpleMap();
+            int duration = processor.findPathDuration("A", "C");
+            assertEquals(List.of(cacheFileName(createMapPayload(SIMPLE_MAP_OSM))), cacheFiles(directory));
+
+            processor = new DigitalMapProcessor();
+            processor.setDurationCacheDirectory(directory);
+            loadSimpleMap();
+            assertEquals(duration, processor.findPathDuration("A", "C"));
+
+            loadBidirectionalMap();
+            assertEquals(-1, processor.findPathDuration("A", "C"), "Other map does not use the cached durations");
+            assertTrue(processor.findPathDuration("X", "Y") > 0);
+            assertEquals(1, cacheFiles(directory).size(), "The previous map's file is replaced");
+        } finally {
+            for (String file : cacheFiles(directory)) {
+                Files.delete(directory.resolve(file));
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void durationCache_fileIsNamedAfterUtf8HashOfLongPayload() throws Exception {
+        Path directory = Files.createTempDirectory("map-cache");
+        // Longer than one hash chunk, with multi-byte and surrogate pair characters across chunk boundaries
+        String payload = "{\"terminalCode\":\"" + "ü€😀".repeat(5000) + "\",\"terminalLayout\":\""
+                + Base64.getEncoder().encodeToString(gzip(SIMPLE_MAP_OSM)) + "\"}";
+        try {
+            processor.setDurationCacheDirectory(directory);
+            processor.process(new DigitalMapEvent(payload));
+
+            assertTrue(processor.findPathDuration("A", "C") > 0);
+            assertEquals(List.of(cacheFileName(payload)), cacheFiles(directory));
+        } finally {
+            for (String file : cacheFiles(directory)) {
+                Files.delete(directory.resolve(file));
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static String cacheFileName(String payload) throws Exception {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(payload.getBytes(StandardCharsets.UTF_8));
+        return "poi-durations-" + HexFormat.of().formatHex(hash) + ".bin";
+    }
+
+    private static List<String> cacheFiles(Path directory) throws Exception {
+        try (var files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    // ── Background loading tests ─────────────────────────────────────
+
+    @Test
+    void backgroundLoading_queriesUsePreviousMapUntilLoaded() {
+        loadSimpleMap();
+        var loads = new ArrayList<Runnable>();
+        processor.setMapLoadingExecutor(loads::add);
+
+        loadBidirectionalMap();
+        assertEquals(1, loads.size());
+        assertTrue(processor.findPathDuration("A", "C") > 0, "Previous map answers while loading");
+        assertEquals(-1, processor.findPathDuration("X", "Y"));
+
+        loads.forEach(Runnable::run);
+        assertEquals(-1, processor.findPathDuration("A", "C"));
+        assertTrue(processor.findPathDuration("X", "Y") > 0);
+    }
+
+    @Test
+    void backgroundLoading_enrichmentWaitsForNewMap() {
+        var templates = List.of(
+                GraphScheduleBuilder.ActionTemplate.of(ActionType.TT_DRIVE_TO_QC_STANDBY, DeviceType.TT, 99),
+                GraphScheduleBuilder.ActionTemplate.of(ActionType.TT_DRIVE_TO_RTG_STANDBY, DeviceType.TT, 99));
+        var wi = createWorkInstruction("Y-PTM-1A25E4", "QC-01");
+        loadMapWithRouteAndStandby("1A25", "B52", "1A25-SB");
+        var expected = processor.enrichTemplates(1L, templates, wi);
+
+        processor = new DigitalMapProcessor();
+        processor.setMapLoadingExecutor(task -> new Thread(task).start());
+        loadMapWithRouteAndStandby("1A25", "B52", "1A25-SB");
+
+        assertEquals(expected, processor.enrichTemplates(1L, templates, wi));
+    }
+
+    @Test
+    void snapshot_keepsMapOfWhenItWasTaken() {
+        var templates = List.of(
+                GraphScheduleBuilder.ActionTemplate.of(ActionType.TT_DRIVE_TO_QC_STANDBY, DeviceType.TT, 99),
+                GraphScheduleBuilder.ActionTemplate.of(ActionType.TT_DRIVE_TO_RTG_STANDBY, DeviceType.TT, 99));
+        var wi = createWorkInstruction("Y-PTM-1A25E4", "QC-01");
+        var context = new SchedulePipelineStep.EnrichmentContext(1L, null, 0, null);
+        loadMapWithRouteAndStandby("1A25", "B52", "1A25-SB");
+        var expected = processor.enrichTemplates(context, templates, wi);
+        var snapshot = processor.snapshot();
+
+        loadSimpleMap();
+
+        assertNotEquals(expected, processor.enrichTemplates(context, templates, wi));
+        assertEquals(expected, snapshot.enrichTemplates(context, templates, wi));
+        assertNotEquals(processor.inputsVersion(), snapshot.inputsVersion());
+    }
+
+    @Test
+    void backgroundLoading_restoredStateKeepsItsMap() {
+        var loads = new ArrayList<Runnable>();
+        processor.setMapLoadingExecutor(loads::add);
+        loadSimpleMap();
+        var state = processor.captureState();
+        loadBidirectionalMap();
+
+        processor.restoreState(state);
+        loads.forEach(Runnable::run);
+
+        assertTrue(processor.isMapLoaded());
+        assertTrue(processor.findPathDuration("A", "C") > 0);
+        assertEquals(-1, processor.findPathDuration("X", "Y"), "Undone map is not published");
+    }
+
     // ── Standby location tests ─────────────────────────────────────
 
     @Test
@@ -360,7 +522,10 @@ class DigitalMapProcessorTest {
     // ── Helpers ──────────────────────────────────────────────────────
 
     private void loadSimpleMap() {
-        String osm = """
+        processor.process(new DigitalMapEvent(createMapPayload(SIMPLE_MAP_OSM)));
+    }
+
+    private static final String SIMPLE_MAP_OSM = """
                 <?xml version='1.0' encoding='UTF-8'?>
                 <osm version="0.6">
                   <node id="1" lat="35.887" lon="-5.494" version="1">
@@ -387,8 +552,6 @@ class DigitalMapProcessorTest {
                   </way>
                 </osm>
                 """;
-        processor.process(new DigitalMapEvent(createMapPayload(osm)));
-    }
 
     private void loadBidirectionalMap() {
         String osm = """
@@ -539,17 +702,24 @@ class DigitalMapProcessorTest {
      */
     static String createMapPayload(String osmXml) {
         try {
-            var baos = new ByteArrayOutputStream();
-            try (var gzos = new GZIPOutputStream(baos)) {
-                gzos.write(osmXml.getBytes(StandardCharsets.UTF_8));
-            }
-            String b64 = Base64.getEncoder().encodeToString(baos.toByteArray());
-            return "{\"terminalCode\":\"TEST\",\"terminalLayout\":\"" + b64 + "\"}";
+            return layoutPayload(Base64.getEncoder().encodeToString(gzip(osmXml)));
         } catch (Exception e) {
             throw new RuntimeException("Failed to create test map payload", e);
         }
     }
 
+    private static byte[] gzip(String osmXml) throws java.io.IOException {
+        var baos = new ByteArrayOutputStream();
+        try (var gzos = new GZIPOutputStream(baos)) {
+            gzos.write(osmXml.getBytes(StandardCharsets.UTF_8));
+        }
+        return baos.toByteArray();
+    }
+
+    private static String layoutPayload(String b64) {
+        return "{\"terminalCode\":\"TEST\",\"terminalLayout\":\"" + b64 + "\"}";
+    }
+
     // ── 40ft standby tests ─────────────────────────────────────────
 
     @Test
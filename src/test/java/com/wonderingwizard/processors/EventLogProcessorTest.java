@@ -109,6 +109,23 @@ class EventLogProcessorTest {
             assertEquals(1, processor.getEventLog().size());
         }
 
+        @Test
+        @DisplayName("Should keep earlier snapshots intact after restore, append and clear")
+        void snapshotsSurviveLaterChanges() {
+            engine.processEvent(new TimeEvent(now));
+            Object oneEvent = processor.captureState();
+            engine.processEvent(new TimeEvent(now.plusSeconds(5)));
+            Object twoEvents = processor.captureState();
+
+            processor.restoreState(oneEvent);
+            engine.processEvent(new TimeEvent(now.plusSeconds(99)));
+            processor.clear();
+
+            processor.restoreState(twoEvents);
+            assertEquals(List.of(new TimeEvent(now), new TimeEvent(now.plusSeconds(5))),
+                    processor.getEventLog());
+        }
+
         @Test
         @DisplayName("Should throw for invalid state type")
         void throwsForInvalidState() {
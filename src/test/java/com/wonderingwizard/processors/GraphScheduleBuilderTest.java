@@ -11,6 +11,8 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -1149,4 +1151,437 @@ class GraphScheduleBuilderTest {
                     "Lift twins drop singles template should have container suffixes on RTG actions");
         }
     }
+
+    @Nested
+    @DisplayName("Blueprint reuse")
+    class BlueprintReuseTests {
+
+        private static WorkInstructionEvent wi(long id, int cycleTime, int rtgCycleTime, boolean twinFetch,
+                                               boolean twinPut, boolean twinCarry, long companion, String toPosition) {
+            return new WorkInstructionEvent(id, 1L, "CHE-001", PLANNED, EMT, cycleTime, rtgCycleTime,
+                    "CHE-QC", twinFetch, twinPut, twinCarry, companion, toPosition);
+        }
+
+        /** Work instruction flags per blueprint shape, the second one being the companion. */
+        private static List<List<WorkInstructionEvent>> shapes(int cycleTime, int rtgCycleTime) {
+            return List.of(
+                    List.of(wi(1, cycleTime, rtgCycleTime, false, false, false, 0L, "Y-PTM-1L20E4")),
+                    List.of(wi(1, cycleTime, rtgCycleTime, true, true, true, 99L, "Y-PTM-1L20E4")),
+                    List.of(wi(1, cycleTime, rtgCycleTime, true, true, true, 2L, "Y-PTM-1L20E4"),
+                            wi(2, cycleTime, rtgCycleTime, true, true, true, 1L, "Y-PTM-1L20F4")),
+                    List.of(wi(1, cycleTime, rtgCycleTime, true, false, true, 2L, "Y-PTM-1L20E4"),
+                            wi(2, cycleTime, rtgCycleTime, true, false, true, 1L, "Y-PTM-1L20F4")),
+                    List.of(wi(1, cycleTime, rtgCycleTime, true, false, true, 2L, "Y-PTM-1L20E4"),
+                            wi(2, cycleTime, rtgCycleTime, true, false, true, 1L, "Y-PTM-1L22E4")),
+                    List.of(wi(1, cycleTime, rtgCycleTime, false, false, true, 2L, "Y-PTM-1L20E4"),
+                            wi(2, cycleTime, rtgCycleTime, false, false, true, 1L, "Y-PTM-1L20F4")),
+                    List.of(wi(1, cycleTime, rtgCycleTime, false, false, true, 2L, "Y-PTM-1L20E4"),
+                            wi(2, cycleTime, rtgCycleTime, false, false, true, 1L, "Y-PTM-1L22E4")),
+                    List.of(wi(1, cycleTime, rtgCycleTime, false, true, true, 2L, "Y-PTM-1L20E4"),
+                            wi(2, cycleTime, rtgCycleTime, false, true, true, 1L, "Y-PTM-1L20F4")));
+        }
+
+        private static List<ActionTemplate> blueprint(GraphScheduleBuilder builder, List<WorkInstructionEvent> wis,
+                                                      LoadMode loadMode) {
+            var wiMap = new HashMap<Long, WorkInstructionEvent>();
+            wis.forEach(w -> wiMap.put(w.workInstructionId(), w));
+            return builder.buildContainerBlueprint(wis.getFirst(), wiMap, 0, loadMode);
+        }
+
+        @Test
+        @DisplayName("Should derive the same blueprint as a new builder for other work instruction durations")
+        void derivedBlueprint_equalsBuiltBlueprint() {
+            var builder = new GraphScheduleBuilder(() -> DEFAULT_DURATION_SECONDS, () -> 0);
+            for (var loadMode : LoadMode.values()) {
+                for (var wis : shapes(120, 60)) {
+                    blueprint(builder, wis, loadMode);
+                }
+                for (var wis : shapes(95, 130)) {
+                    var fresh = new GraphScheduleBuilder(() -> DEFAULT_DURATION_SECONDS, () -> 0);
+                    assertEquals(blueprint(fresh, wis, loadMode), blueprint(builder, wis, loadMode),
+                            loadMode + " " + wis.getFirst());
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Should share the blueprint between containers with equal durations")
+        void equalDurations_shareBlueprint() {
+            var builder = new GraphScheduleBuilder(() -> DEFAULT_DURATION_SECONDS, () -> 0);
+            var first = blueprint(builder, List.of(wi(1, 120, 60, false, false, false, 0L, "Y-PTM-1L20E4")), LoadMode.DSCH);
+            var second = blueprint(builder, List.of(wi(2, 120, 60, false, false, false, 0L, "Y-PTM-1L24E4")), LoadMode.DSCH);
+            var other = blueprint(builder, List.of(wi(3, 150, 60, false, false, false, 0L, "Y-PTM-1L20E4")), LoadMode.DSCH);
+
+            assertTrue(first == second, "Containers with equal durations should share the blueprint");
+            assertNotEquals(first, other);
+        }
+
+        @Test
+        @DisplayName("Should split equal enriched blueprints into segments once across builds")
+        void equalEnrichedBlueprints_splitOnce() {
+            var splits = new int[1];
+            var builder = new GraphScheduleBuilder(() -> DEFAULT_DURATION_SECONDS, () -> 0) {
+                @Override
+                Map<DeviceType, List<Segment>> buildSegmentsByDevice(List<ActionTemplate> blueprint) {
+                    splits[0]++;
+                    return super.buildSegmentsByDevice(blueprint);
+                }
+            };
+            SchedulePipelineStep copyingStep = (context, templates, workInstruction) -> new ArrayList<>(templates);
+            var instructions = List.of(
+                    wi(1, 120, 60, false, false, false, 0L, "Y-PTM-1L20E4"),
+                    wi(2, 120, 60, false, false, false, 0L, "Y-PTM-1L22E4"));
+
+            for (int build = 0; build < 2; build++) {
+                builder.createTakts(instructions, EMT, 0, LoadMode.DSCH, 1L, List.of(copyingStep));
+            }
+
+            assertEquals(1, splits[0]);
+        }
+    }
+
+    @Nested
+    @DisplayName("Rebuilding with a build cache")
+    class BuildCacheTests {
+
+        /** Pipeline step that counts the containers it enriches. */
+        private static final class CountingStep implements SchedulePipelineStep {
+            int enriched;
+            long version;
+
+            @Override
+            public List<ActionTemplate> enrichTemplates(EnrichmentContext context, List<ActionTemplate> templates,
+                                                        WorkInstructionEvent workInstruction) {
+                enriched++;
+                return templates;
+            }
+
+            @Override
+            public long inputsVersion() {
+                return version;
+            }
+        }
+
+        private static WorkInstructionEvent wi(long id, int cycleTimeSeconds) {
+            return new WorkInstructionEvent(id, 1L, "CHE-001", PLANNED, EMT.plusSeconds(id * 120),
+                    cycleTimeSeconds, 60, "", false, false, false, 0L, "Y01-" + id);
+        }
+
+        private static List<WorkInstructionEvent> instructions(int count) {
+            var instructions = new ArrayList<WorkInstructionEvent>();
+            for (int i = 1; i <= count; i++) {
+                instructions.add(wi(i, 120));
+            }
+            return instructions;
+        }
+
+        private static List<Takt> build(List<WorkInstructionEvent> instructions, SchedulePipelineStep step,
+                                        GraphScheduleBuilder.BuildCache cache) {
+            return new GraphScheduleBuilder(() -> DEFAULT_DURATION_SECONDS, () -> 0)
+                    .createTakts(instructions, EMT, 0, LoadMode.DSCH, 1L, List.of(step), null, List.of(), cache);
+        }
+
+        /** Describes the schedule without action IDs, with dependencies as container and description. */
+        private static List<String> structure(List<Takt> takts) {
+            var names = new HashMap<UUID, String>();
+            allActions(takts).forEach(a -> names.put(a.id(), a.containerIndex() + ":" + a.description()));
+            var result = new ArrayList<String>();
+            for (Takt takt : takts) {
+                result.add(takt.sequence() + " " + takt.plannedStartTime() + " " + takt.durationSeconds());
+                for (Action action : takt.actions()) {
+                    result.add("  " + names.get(action.id()) + " " + action.deviceType() + " "
+                            + action.durationSeconds() + " " + action.workInstructions()
+                            + " <- " + new TreeSet<>(action.dependsOn().stream().map(names::get).toList()));
+                }
+            }
+            return result;
+        }
+
+        @Test
+        @DisplayName("Should only enrich the changed container and match a full build")
+        void changedContainer_onlyItIsEnriched() {
+            var step = new CountingStep();
+            var cache = new GraphScheduleBuilder.BuildCache();
+            var instructions = instructions(10);
+            build(instructions, step, cache);
+            assertEquals(10, step.enriched);
+
+            instructions.set(7, wi(8, 200));
+            step.enriched = 0;
+            var rebuilt = build(instructions, step, cache);
+
+            assertEquals(1, step.enriched, "Only the changed container should be enriched again");
+            assertEquals(structure(build(instructions, new CountingStep(), null)), structure(rebuilt));
+        }
+
+        @Test
+        @DisplayName("Should create new actions when nothing changed")
+        void unchangedQueue_createsNewActions() {
+            var step = new CountingStep();
+            var cache = new GraphScheduleBuilder.BuildCache();
+            var instructions = instructions(5);
+            var first = build(instructions, step, cache);
+
+            step.enriched = 0;
+            var rebuilt = build(instructions, step, cache);
+
+            assertEquals(0, step.enriched);
+            assertEquals(structure(first), structure(rebuilt));
+            var firstIds = allActions(first).stream().map(Action::id).collect(Collectors.toSet());
+            assertTrue(allActions(rebuilt).stream().noneMatch(a -> firstIds.contains(a.id())),
+                    "Rebuilt schedule should not share actions with the previous one");
+        }
+
+        @Test
+        @DisplayName("Should match a full build when a container is removed")
+        void removedContainer_matchesFullBuild() {
+            var step = new CountingStep();
+            var cache = new GraphScheduleBuilder.BuildCache();
+            var instructions = instructions(8);
+            build(instructions, step, cache);
+
+            instructions.remove(2);
+            step.enriched = 0;
+            var rebuilt = build(instructions, step, cache);
+
+            // Containers after the removed one moved up, so their index and previous position changed
+            assertEquals(5, step.enriched);
+            assertEquals(structure(build(instructions, new CountingStep(), null)), structure(rebuilt));
+        }
+
+        @Test
+        @DisplayName("Should enrich every container again when a step's inputs changed")
+        void stepInputsChanged_enrichesAll() {
+            var step = new CountingStep();
+            var cache = new GraphScheduleBuilder.BuildCache();
+            var instructions = instructions(6);
+            build(instructions, step, cache);
+
+            step.version++;
+            step.enriched = 0;
+            build(instructions, step, cache);
+
+            assertEquals(6, step.enriched);
+        }
+    }
+
+    @Nested
+    @DisplayName("Takt table placement")
+    class TaktTableTests {
+
+        private static final DeviceType[] DEVICE_TYPES = {QC, TT, RTG};
+        private static final List<String> NAMES = List.of("lift", "place", "drive", "handover");
+
+        /**
+         * Placement of {@link #schedules()} by the builder that scanned the takts one at a time,
+         * before it was indexed by the takt table, rendered by {@link #placement}.
+         */
+        private static final String LINEAR_PLACEMENT = "linear-placement.txt";
+
+        /** Scales the TT durations of the template per container so that containers overlap unevenly. */
+        private static GraphScheduleBuilder unevenBuilder(List<ActionTemplate> template) {
+            return new GraphScheduleBuilder(() -> DEFAULT_DURATION_SECONDS, () -> 0) {
+                @Override
+                List<ActionTemplate> buildContainerBlueprint(WorkInstructionEvent wi, HashMap<Long, WorkInstructionEvent> workInstructionHashMap, int qcMudaSeconds, LoadMode loadMode) {
+                    int factor = 1 + (int) (wi.workInstructionId() % 4);
+                    return template.stream()
+                            .map(t -> t.deviceType() == TT ? t.withDuration(t.durationSeconds() * factor) : t)
+                            .toList();
+                }
+            };
+        }
+
+        /** Work instructions with varying cycle times, bays and twin pairs. */
+        private static List<WorkInstructionEvent> mixedInstructions(int count) {
+            var instructions = new ArrayList<WorkInstructionEvent>();
+            for (int i = 1; i <= count; i++) {
+                boolean twin = i % 5 == 1 && i < count;
+                int cycleTime = new int[] {60, 120, 200, 95}[i % 4];
+                int rtgCycleTime = new int[] {60, 130, 300}[i % 3];
+                instructions.add(new WorkInstructionEvent(i, 1L, "CHE-001", PLANNED, EMT.plusSeconds(i * 90L),
+                        cycleTime, rtgCycleTime, "CHE-QC", twin, false, twin, twin ? i + 1 : 0L,
+                        "Y-PTM-1L2" + (i % 4) + "E4"));
+                if (twin) {
+                    i++;
+                    instructions.add(new WorkInstructionEvent(i, 1L, "CHE-001", PLANNED, EMT.plusSeconds(i * 90L),
+                            cycleTime, rtgCycleTime, "CHE-QC", true, false, true, i - 1,
+                            "Y-PTM-1L2" + (i % 4) + "F4"));
+                }
+            }
+            return instructions;
+        }
+
+        private static Map<String, List<Takt>> schedules() {
+            var templates = new LinkedHashMap<String, List<ActionTemplate>>();
+            templates.put("discharge", DISCHARGE_TEMPLATE);
+            templates.put("load", LOAD_TEMPLATE);
+            templates.put("twin", DISCHARGE_TWIN_DIFFERENT_BAY_TEMPLATE);
+            templates.put("minimal", MINIMAL_TEMPLATE);
+
+            var schedules = new LinkedHashMap<String, List<Takt>>();
+            for (var template : templates.entrySet()) {
+                for (int count : new int[] {1, 3, 12}) {
+                    schedules.put(template.getKey() + "-" + count, schedule(template.getValue(), count));
+                }
+                var instructions = new ArrayList<WorkInstructionEvent>();
+                for (int i = 1; i <= 12; i++) {
+                    instructions.add(wi(i));
+                }
+                schedules.put(template.getKey() + "-uneven",
+                        unevenBuilder(template.getValue()).createTakts(instructions, EMT, 0, LoadMode.DSCH));
+            }
+            for (var loadMode : LoadMode.values()) {
+                schedules.put("mixed-" + loadMode, new GraphScheduleBuilder(() -> DEFAULT_DURATION_SECONDS, () -> 0)
+                        .createTakts(mixedInstructions(16), EMT, 0, loadMode));
+            }
+            return schedules;
+        }
+
+        /** Renders the takts with their actions, device instances, work instructions and dependencies. */
+        private static List<String> placement(List<Takt> takts) {
+            var names = new HashMap<UUID, String>();
+            allActions(takts).forEach(a -> names.put(a.id(), a.containerIndex() + ":" + a.description()));
+            var result = new ArrayList<String>();
+            for (Takt takt : takts) {
+                result.add(takt.sequence() + " " + takt.plannedStartTime() + " " + takt.durationSeconds());
+                for (Action action : takt.actions()) {
+                    result.add("  " + names.get(action.id()) + " " + action.deviceType() + action.deviceIndex() + " "
+                            + action.durationSeconds() + " "
+                            + action.workInstructions().stream().map(WorkInstructionEvent::workInstructionId).toList()
+                            + " <- " + new TreeSet<>(action.dependsOn().stream().map(names::get).toList()));
+                }
+            }
+            return result;
+        }
+
+        private static Map<String, List<String>> linearPlacement() throws IOException {
+            var placements = new LinkedHashMap<String, List<String>>();
+            try (var in = GraphScheduleBuilderTest.class.getResourceAsStream(LINEAR_PLACEMENT)) {
+                assertNotNull(in, LINEAR_PLACEMENT);
+                List<String> current = null;
+                for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                    if (line.startsWith("== ")) {
+                        current = new ArrayList<>();
+                        placements.put(line.substring(3), current);
+                    } else {
+                        current.add(line);
+                    }
+                }
+            }
+            return placements;
+        }
+
+        @Test
+        @DisplayName("Should place actions into the same takts as the linear placement")
+        void placement_matchesLinearPlacement() throws IOException {
+            var expected = linearPlacement();
+            var schedules = schedules();
+            assertEquals(expected.keySet(), schedules.keySet());
+            schedules.forEach((name, takts) -> assertEquals(expected.get(name), placement(takts), name));
+        }
+
+        @Test
+        @DisplayName("Should answer placement probes like scanning the takts")
+        void lookups_matchLinearScans() {
+            var random = new Random(20);
+            var table = new GraphScheduleBuilder.TaktTable();
+            for (int step = 0; step < 2000; step++) {
+                int sequence = random.nextInt(-10, 60);
+                if (table.get(sequence) == null) {
+                    table.put(new Takt(sequence, new ArrayList<>(), EMT.plusSeconds(sequence * 120L),
+                            EMT.plusSeconds(sequence * 120L), 120));
+                }
+                var actions = table.get(sequence).actions();
+                if (!actions.isEmpty() && random.nextInt(3) == 0) {
+                    table.removeAll(sequence, List.of(actions.get(random.nextInt(actions.size()))));
+                } else {
+                    table.add(sequence, new Action(UUID.randomUUID(), DEVICE_TYPES[random.nextInt(3)], QC_LIFT,
+                            NAMES.get(random.nextInt(NAMES.size())), Set.of(), random.nextInt(4), 60,
+                            random.nextInt(2), List.of()));
+                }
+
+                for (var deviceType : DEVICE_TYPES) {
+                    assertEquals(linearLastTaktOf(table, deviceType), table.lastTaktOf(deviceType), deviceType.name());
+                }
+                for (int probe = -15; probe < 65; probe++) {
+                    assertEquals(linearNearest(table, probe, 1), sequenceOf(table.after(probe)), "after " + probe);
+                    assertEquals(linearNearest(table, probe, -1), sequenceOf(table.before(probe)), "before " + probe);
+                    int name = random.nextInt(NAMES.size());
+                    var names = Set.of(NAMES.get(name), NAMES.get((name + 1 + random.nextInt(NAMES.size() - 1)) % NAMES.size()));
+                    assertEquals(linearLastTaktWithout(table, probe, names), table.lastTaktWithout(probe, names),
+                            "without " + names + " up to " + probe);
+                    for (var deviceType : DEVICE_TYPES) {
+                        for (int deviceIndex = 0; deviceIndex < 2; deviceIndex++) {
+                            for (int containerIndex = 0; containerIndex < 4; containerIndex++) {
+                                assertEquals(linearFirstTaktFor(table, probe, deviceType, deviceIndex, containerIndex),
+                                        table.firstTaktFor(probe, deviceType, deviceIndex, containerIndex),
+                                        "free of " + deviceType + deviceIndex + " from " + probe + " for " + containerIndex);
+                            }
+                        }
+                    }
+                    if (table.get(probe) == null) continue;
+                    assertEquals(linearHoldsAnyOf(table.get(probe), names), table.holdsAnyOf(probe, names));
+                    for (var deviceType : DEVICE_TYPES) {
+                        for (int deviceIndex = 0; deviceIndex < 2; deviceIndex++) {
+                            for (int containerIndex = 0; containerIndex < 4; containerIndex++) {
+                                assertEquals(
+                                        linearHasOtherContainer(table.get(probe), deviceType, deviceIndex, containerIndex),
+                                        table.hasOtherContainer(probe, deviceType, deviceIndex, containerIndex),
+                                        "takt " + probe + " " + deviceType + deviceIndex + " container " + containerIndex);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        private static int linearLastTaktOf(GraphScheduleBuilder.TaktTable table, DeviceType deviceType) {
+            int max = -1;
+            for (var takt : table.values()) {
+                if (takt.actions().stream().anyMatch(a -> a.deviceType() == deviceType)) {
+                    max = Math.max(max, takt.sequence());
+                }
+            }
+            return max;
+        }
+
+        /** Probes the sequences one at a time in the given direction. */
+        private static Integer linearNearest(GraphScheduleBuilder.TaktTable table, int sequence, int direction) {
+            for (int i = sequence + direction; i >= -20 && i <= 70; i += direction) {
+                if (table.get(i) != null) return i;
+            }
+            return null;
+        }
+
+        private static int linearFirstTaktFor(GraphScheduleBuilder.TaktTable table, int sequence,
+                                              DeviceType deviceType, int deviceIndex, int containerIndex) {
+            while (table.get(sequence) != null
+                    && linearHasOtherContainer(table.get(sequence), deviceType, deviceIndex, containerIndex)) {
+                sequence++;
+            }
+            return sequence;
+        }
+
+        private static int linearLastTaktWithout(GraphScheduleBuilder.TaktTable table, int sequence, Set<String> names) {
+            while (table.get(sequence) != null && linearHoldsAnyOf(table.get(sequence), names)) {
+                sequence--;
+            }
+            return sequence;
+        }
+
+        private static Integer sequenceOf(Takt takt) {
+            return takt != null ? takt.sequence() : null;
+        }
+
+        private static boolean linearHoldsAnyOf(Takt takt, Set<String> names) {
+            return takt.actions().stream().anyMatch(a -> names.contains(a.description()));
+        }
+
+        private static boolean linearHasOtherContainer(Takt takt, DeviceType deviceType, int deviceIndex,
+                                                       int containerIndex) {
+            return takt.actions().stream()
+                    .anyMatch(a -> a.deviceType() == deviceType && a.deviceIndex() == deviceIndex
+                            && a.containerIndex() != containerIndex);
+        }
+    }
 }
@@ -0,0 +1,91 @@
+package com.wonderingwizard.processors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PersistentLongMap Tests")
+class PersistentLongMapTest {
+
+    @Test
+    @DisplayName("Updates return new maps and leave the original unchanged")
+    void updatesLeaveOriginalUnchanged() {
+        PersistentLongMap<String> empty = PersistentLongMap.empty();
+        PersistentLongMap<String> one = empty.with(1L, "a");
+        PersistentLongMap<String> two = one.with(2L, "b");
+        PersistentLongMap<String> replaced = two.with(1L, "c");
+        PersistentLongMap<String> removed = replaced.with(2L, null);
+
+        assertTrue(empty.isEmpty());
+        assertEquals("a", one.get(1L));
+        assertNull(one.get(2L));
+        assertEquals(2, two.size());
+        assertEquals("a", two.get(1L));
+        assertEquals("c", replaced.get(1L));
+        assertEquals(2, replaced.size());
+        assertEquals(1, removed.size());
+        assertNull(removed.get(2L));
+        assertEquals("b", two.get(2L));
+    }
+
+    @Test
+    @DisplayName("Returns the same map when nothing changes")
+    void unchangedUpdateReturnsSameMap() {
+        String value = "a";
+        PersistentLongMap<String> map = PersistentLongMap.<String>empty().with(1L, value);
+
+        assertSame(map, map.with(1L, value));
+        assertSame(map, map.with(2L, null));
+    }
+
+    @Test
+    @DisplayName("Matches a HashMap under random updates, including keys far apart")
+    void matchesHashMap() {
+        Random random = new Random(42);
+        Map<Long, Integer> expected = new HashMap<>();
+        PersistentLongMap<Integer> map = PersistentLongMap.empty();
+        for (int i = 0; i < 5_000; i++) {
+            long key = random.nextBoolean() ? random.nextInt(500) : random.nextLong();
+            if (random.nextInt(4) == 0) {
+                expected.remove(key);
+                map = map.with(key, null);
+            } else {
+                expected.put(key, i);
+                map = map.with(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        Set<Long> keys = new HashSet<>();
+        map.forEachKey(keys::add);
+        assertEquals(expected.keySet(), keys);
+    }
+
+    @Test
+    @DisplayName("Reports only the keys whose values differ")
+    void reportsDifferences() {
+        PersistentLongMap<Integer> base = PersistentLongMap.empty();
+        for (long key = 0; key < 1_000; key++) {
+            base = base.with(key, (int) key);
+        }
+        PersistentLongMap<Integer> changed = base.with(7L, -7).with(500L, null).with(2_000L, 2_000);
+
+        Set<Long> differences = new HashSet<>();
+        base.forEachDifference(changed, differences::add);
+        assertEquals(Set.of(7L, 500L, 2_000L), differences);
+
+        Set<Long> none = new HashSet<>();
+        base.forEachDifference(base, none::add);
+        assertTrue(none.isEmpty());
+    }
+}
@@ -0,0 +1,108 @@
+package com.wonderingwizard.processors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PoiDurationMatrix Tests")
+class PoiDurationMatrixTest {
+
+    private Path directory;
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        if (directory != null) {
+            try (var files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static PoiDurationMatrix triangle() {
+        var builder = new RoadGraph.Builder();
+        int a = builder.addNode("1", 1.0, 1.0);
+        int b = builder.addNode("2", 1.1, 1.0);
+        int c = builder.addNode("3", 1.2, 1.0);
+        int isolated = builder.addNode("4", 1.3, 1.0);
+        builder.addEdge(a, b, 30.4, 100);
+        builder.addEdge(b, c, 20.0, 100);
+        builder.addEdge(c, a, 70.0, 100);
+        RoadGraph graph = builder.build();
+
+        var roadNodeByPoi = new LinkedHashMap<String, Integer>();
+        roadNodeByPoi.put("A", a);
+        roadNodeByPoi.put("A40", a);
+        roadNodeByPoi.put("B", b);
+        roadNodeByPoi.put("C", c);
+        roadNodeByPoi.put("X", isolated);
+        return PoiDurationMatrix.compute(graph, roadNodeByPoi);
+    }
+
+    @Test
+    @DisplayName("Holds the route durations between all POIs")
+    void holdsRouteDurations() {
+        PoiDurationMatrix matrix = triangle();
+
+        assertEquals(5, matrix.size());
+        assertEquals(30, matrix.duration("A", "B"));
+        assertEquals(50, matrix.duration("A40", "C"));
+        assertEquals(90, matrix.duration("B", "A40"));
+        assertEquals(0, matrix.duration("A", "A40"));
+        assertEquals(-1, matrix.duration("A", "X"));
+        assertEquals(-1, matrix.duration("X", "A"));
+        assertEquals(-1, matrix.duration("A", "unknown"));
+    }
+
+    @Test
+    @DisplayName("The empty matrix knows no POIs")
+    void emptyMatrix() {
+        assertEquals(0, PoiDurationMatrix.EMPTY.size());
+        assertEquals(-1, PoiDurationMatrix.EMPTY.duration("A", "B"));
+    }
+
+    @Test
+    @DisplayName("A written matrix is read back with its key")
+    void writtenMatrixIsReadBack() throws IOException {
+        directory = Files.createTempDirectory("poi-durations");
+        Path file = directory.resolve("matrix.bin");
+        PoiDurationMatrix matrix = triangle();
+
+        matrix.write(file, "layout-1");
+        PoiDurationMatrix read = PoiDurationMatrix.read(file, "layout-1");
+
+        assertNotNull(read);
+        assertEquals(Set.of("A", "A40", "B", "C", "X"), read.poiNames());
+        for (String from : read.poiNames()) {
+            for (String to : read.poiNames()) {
+                assertEquals(matrix.duration(from, to), read.duration(from, to), from + " -> " + to);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Missing files, other keys and damaged files are not read")
+    void rejectsUnusableFiles() throws IOException {
+        directory = Files.createTempDirectory("poi-durations");
+        Path file = directory.resolve("matrix.bin");
+        assertNull(PoiDurationMatrix.read(file, "layout-1"));
+
+        triangle().write(file, "layout-1");
+        assertNull(PoiDurationMatrix.read(file, "layout-2"));
+
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertNull(PoiDurationMatrix.read(file, "layout-1"));
+    }
+}
@@ -113,4 +113,15 @@ class RTGAssetEventEvaluatorTest {
 
         assertTrue(result.isEmpty());
     }
+
+    @Test
+    @DisplayName("Routes asset events to actions by RTG name")
+    void routesByRtgName() {
+        Action action = createRtgLiftAction(ActionStatus.ACTIVE, RTG_NAME);
+        AssetEvent event = new AssetEvent("DSCH", "RTGliftedContainerfromTruck", RTG_NAME, "", BASE_TIME);
+
+        assertEquals(Set.of(RTG_NAME), evaluator.routingKeys(action));
+        assertEquals(RTG_NAME, evaluator.routingKey(event));
+        assertNull(evaluator.routingKey(new TimeEvent(BASE_TIME)));
+    }
 }
@@ -0,0 +1,94 @@
+package com.wonderingwizard.processors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RoadGraph Tests")
+class RoadGraphTest {
+
+    /**
+     * A → B → D is 120 s on priority 100 roads; A → C → D is 100 s but on priority 200 roads.
+     * E is only reachable from D, F not at all.
+     */
+    private static RoadGraph diamond() {
+        var builder = new RoadGraph.Builder();
+        int a = builder.addNode("A", 1.0, 1.0);
+        int b = builder.addNode("B", 1.1, 1.0);
+        int c = builder.addNode("C", 1.0, 1.1);
+        int d = builder.addNode("D", 1.1, 1.1);
+        int e = builder.addNode("E", 1.2, 1.1);
+        builder.addNode("F", Double.NaN, Double.NaN);
+        builder.addEdge(a, b, 60, 100);
+        builder.addEdge(b, d, 60, 100);
+        builder.addEdge(a, c, 50, 200);
+        builder.addEdge(c, d, 50, 200);
+        builder.addEdge(d, e, 30, 100);
+        return builder.build();
+    }
+
+    private static String ids(RoadGraph graph, int[] path) {
+        var joiner = new StringJoiner(" ");
+        for (int node : path) {
+            joiner.add(graph.nodeId(node));
+        }
+        return joiner.toString();
+    }
+
+    @Test
+    @DisplayName("Numbers nodes in the order they were added")
+    void numbersNodesInOrder() {
+        var builder = new RoadGraph.Builder();
+        assertEquals(0, builder.addNode("10", 1.0, 2.0));
+        assertEquals(1, builder.addNode("20", 3.0, 4.0));
+        assertEquals(0, builder.addNode("10", 5.0, 6.0));
+        RoadGraph graph = builder.build();
+
+        assertEquals(2, graph.nodeCount());
+        assertEquals(1, graph.indexOf("20"));
+        assertEquals(-1, graph.indexOf("30"));
+        assertEquals("10", graph.nodeId(0));
+        assertEquals(1.0, graph.lat(0));
+        assertEquals(2.0, graph.lon(0));
+    }
+
+    @Test
+    @DisplayName("Routes by priority-weighted cost and sums the durations")
+    void routesByWeightedCost() {
+        RoadGraph graph = diamond();
+
+        double[] durations = graph.durationsFrom(graph.indexOf("A"), new int[] {graph.indexOf("E")});
+
+        assertEquals(0.0, durations[graph.indexOf("A")]);
+        assertEquals(150.0, durations[graph.indexOf("E")], 1e-9);
+        assertEquals("A B D E", ids(graph, graph.path(graph.indexOf("A"), graph.indexOf("E"))));
+    }
+
+    @Test
+    @DisplayName("Edges are directed")
+    void edgesAreDirected() {
+        RoadGraph graph = diamond();
+
+        double[] durations = graph.durationsFrom(graph.indexOf("E"), new int[] {graph.indexOf("A")});
+
+        assertTrue(Double.isNaN(durations[graph.indexOf("A")]));
+        assertEquals(0, graph.path(graph.indexOf("E"), graph.indexOf("A")).length);
+    }
+
+    @Test
+    @DisplayName("Unreachable nodes have no duration and no path")
+    void unreachableNodes() {
+        RoadGraph graph = diamond();
+        int f = graph.indexOf("F");
+
+        double[] durations = graph.durationsFrom(graph.indexOf("A"), new int[] {f, graph.indexOf("D")});
+
+        assertTrue(Double.isNaN(durations[f]));
+        assertEquals(120.0, durations[graph.indexOf("D")], 1e-9);
+        assertEquals(0, graph.path(graph.indexOf("A"), f).length);
+        assertEquals("F", ids(graph, graph.path(f, f)));
+    }
+}
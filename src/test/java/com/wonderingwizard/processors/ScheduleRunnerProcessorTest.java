@@ -3,11 +3,14 @@ package com.wonderingwizard.processors;
 import com.wonderingwizard.domain.takt.Action;
 import com.wonderingwizard.domain.takt.ActionStatus;
 import com.wonderingwizard.domain.takt.ActionType;
+import com.wonderingwizard.domain.takt.CompletionCondition;
 import com.wonderingwizard.domain.takt.DeviceType;
 import com.wonderingwizard.domain.takt.EventGateCondition;
 import com.wonderingwizard.domain.takt.Takt;
+import com.wonderingwizard.engine.Event;
 import com.wonderingwizard.engine.SideEffect;
 import com.wonderingwizard.events.ActionCompletedEvent;
+import com.wonderingwizard.events.AssetEvent;
 import com.wonderingwizard.events.EventType;
 import com.wonderingwizard.events.TimeEvent;
 import com.wonderingwizard.events.WorkInstructionEvent;
@@ -26,6 +29,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -136,6 +140,23 @@ class ScheduleRunnerProcessorTest {
             List<SideEffect> sideEffects = processor.process(new TimeEvent(Instant.parse("2024-01-01T10:00:02Z")));
             assertTrue(sideEffects.isEmpty());
         }
+
+        @Test
+        @DisplayName("Should activate a takt on the first TimeEvent past its start once its dependencies completed earlier")
+        void activatesWaitingTaktWhenItsStartTimePasses() {
+            List<Takt> takts = createLinkedTakts(2, EMT);
+            processor.process(new ScheduleCreated(1L, takts, EMT));
+            processor.process(new TimeEvent(Instant.parse("2024-01-01T10:00:01Z")));
+            processor.process(new ActionCompletedEvent(takts.get(0).actions().get(0).id(), 1L));
+            processor.process(new ActionCompletedEvent(takts.get(0).actions().get(1).id(), 1L));
+
+            // Second takt starts at 10:02:00
+            assertTrue(processor.process(new TimeEvent(Instant.parse("2024-01-01T10:01:59Z"))).isEmpty());
+            List<SideEffect> sideEffects = processor.process(new TimeEvent(Instant.parse("2024-01-01T10:02:30Z")));
+
+            assertInstanceOf(TaktActivated.class, sideEffects.get(0));
+            assertEquals(takts.get(1).name(), ((TaktActivated) sideEffects.get(0)).taktName());
+        }
     }
 
     @Nested
@@ -364,6 +385,201 @@ class ScheduleRunnerProcessorTest {
             assertInstanceOf(ActionCompleted.class, sideEffects.get(0));
             assertInstanceOf(ActionActivated.class, sideEffects.get(1));
         }
+
+        @Test
+        @DisplayName("Should keep a snapshot intact when the restored state changes again")
+        void restoredSnapshotIsNotModifiedByLaterChanges() {
+            List<Takt> takts = createLinkedTakts(1, EMT);
+            UUID firstActionId = takts.get(0).actions().get(0).id();
+
+            processor.process(new ScheduleCreated(1L, takts, EMT));
+            processor.process(new TimeEvent(Instant.parse("2024-01-01T10:00:01Z")));
+
+            Object state = processor.captureState();
+
+            processor.restoreState(state);
+            processor.process(new ActionCompletedEvent(firstActionId, 1L));
+            assertEquals(ActionStatus.COMPLETED, processor.getActionStatus(1L, firstActionId));
+
+            processor.restoreState(state);
+            assertEquals(ActionStatus.ACTIVE, processor.getActionStatus(1L, firstActionId));
+        }
+
+        @Test
+        @DisplayName("Should reflect changes made after an unchanged snapshot was reused")
+        void snapshotAfterChangeCapturesNewState() {
+            List<Takt> takts = createLinkedTakts(1, EMT);
+            UUID firstActionId = takts.get(0).actions().get(0).id();
+
+            processor.process(new ScheduleCreated(1L, takts, EMT));
+            processor.process(new TimeEvent(Instant.parse("2024-01-01T10:00:01Z")));
+            Object beforeCompletion = processor.captureState();
+            processor.captureState();
+
+            processor.process(new ActionCompletedEvent(firstActionId, 1L));
+            Object afterCompletion = processor.captureState();
+
+            processor.restoreState(beforeCompletion);
+            assertEquals(ActionStatus.ACTIVE, processor.getActionStatus(1L, firstActionId));
+            processor.restoreState(afterCompletion);
+            assertEquals(ActionStatus.COMPLETED, processor.getActionStatus(1L, firstActionId));
+        }
+
+        @Test
+        @DisplayName("Should share unchanged schedules between snapshots")
+        void snapshotsShareUnchangedSchedules() {
+            List<Takt> firstTakts = createLinkedTakts(1, EMT);
+            UUID firstActionId = firstTakts.get(0).actions().get(0).id();
+            processor.process(new ScheduleCreated(1L, firstTakts, EMT));
+            processor.process(new ScheduleCreated(2L, createLinkedTakts(1, EMT), EMT));
+            processor.process(new TimeEvent(Instant.parse("2024-01-01T10:00:01Z")));
+
+            PersistentLongMap<?> before = schedulesOf(processor.captureState());
+            assertSame(before, schedulesOf(processor.captureState()));
+
+            processor.process(new ActionCompletedEvent(firstActionId, 1L));
+            PersistentLongMap<?> after = schedulesOf(processor.captureState());
+
+            assertNotSame(before.get(1L), after.get(1L));
+            assertSame(before.get(2L), after.get(2L));
+        }
+
+        @Test
+        @DisplayName("Should restore by reference, so the next snapshot is the restored one")
+        void restoreSharesSnapshot() {
+            List<Takt> takts = createLinkedTakts(1, EMT);
+            UUID firstActionId = takts.get(0).actions().get(0).id();
+            processor.process(new ScheduleCreated(1L, takts, EMT));
+            processor.process(new ScheduleCreated(2L, createLinkedTakts(1, EMT), EMT));
+            processor.process(new TimeEvent(Instant.parse("2024-01-01T10:00:01Z")));
+            Object state = processor.captureState();
+
+            processor.process(new ActionCompletedEvent(firstActionId, 1L));
+            processor.process(new WorkQueueMessage(2L, INACTIVE, 0, null));
+            processor.restoreState(state);
+
+            assertSame(schedulesOf(state), schedulesOf(processor.captureState()));
+            assertEquals(ActionStatus.ACTIVE, processor.getActionStatus(1L, firstActionId));
+            assertEquals(1, processor.getScheduleTakts(2L).size());
+        }
+
+        @Test
+        @DisplayName("Should replay the same side effects after restoring an earlier snapshot")
+        void replayAfterRestoreMatchesFirstRun() {
+            processor.process(new ScheduleCreated(1L, createLinkedTakts(3, EMT), EMT));
+            processor.process(new ScheduleCreated(2L, createLinkedTakts(3, EMT), EMT));
+
+            List<Object> states = new ArrayList<>();
+            List<Event> events = new ArrayList<>();
+            List<List<SideEffect>> firstRun = new ArrayList<>();
+            Instant time = EMT;
+            for (int step = 0; step < 12; step++) {
+                time = time.plusSeconds(30);
+                List<Event> pending = new ArrayList<>(List.of(new TimeEvent(time)));
+                while (!pending.isEmpty()) {
+                    Event event = pending.remove(0);
+                    states.add(processor.captureState());
+                    List<SideEffect> effects = processor.process(event);
+                    events.add(event);
+                    firstRun.add(effects);
+                    for (SideEffect effect : effects) {
+                        if (effect instanceof ActionActivated activated) {
+                            pending.add(new ActionCompletedEvent(activated.actionId(), activated.workQueueId()));
+                        }
+                    }
+                }
+            }
+            assertTrue(firstRun.stream().flatMap(List::stream).anyMatch(se -> se instanceof TaktCompleted));
+
+            // Later snapshots share schedules with earlier ones, which replays must leave intact
+            for (int from = events.size() - 1; from >= 0; from--) {
+                processor.restoreState(states.get(from));
+                List<List<SideEffect>> replay = new ArrayList<>();
+                for (Event event : events.subList(from, events.size())) {
+                    replay.add(processor.process(event));
+                }
+                assertEquals(firstRun.subList(from, firstRun.size()), replay, "replay from event " + from);
+            }
+        }
+
+        private PersistentLongMap<?> schedulesOf(Object state) {
+            return (PersistentLongMap<?>) ((Map<?, ?>) state).get("scheduleStates");
+        }
+    }
+
+    @Nested
+    @DisplayName("Completion Condition Routing")
+    class CompletionConditionRoutingTests {
+
+        private Action qcLift(String qcName) {
+            WorkInstructionEvent wi = new WorkInstructionEvent("", 1L, 1L, qcName, "Planned",
+                    EMT, 120, 60, "RTZ01", false, false, false, 0, "", "CONT123");
+            return new Action(UUID.randomUUID(), DeviceType.QC, ActionType.QC_LIFT,
+                    "QC Lift", Set.of(), 0, 30, 0, List.of(wi), List.of(), false,
+                    null, null, null, null, ActionStatus.PENDING, List.of(),
+                    List.of(new CompletionCondition("qc-lifted-from-vessel",
+                            QCAssetEventEvaluator.CONDITION_TYPE, "QCliftedContainerfromVessel")),
+                    null, null, null, null, null, null);
+        }
+
+        private AssetEvent lifted(String qcName) {
+            return new AssetEvent("DSCH", "QCliftedContainerfromVessel", qcName, "", EMT);
+        }
+
+        @BeforeEach
+        void registerEvaluator() {
+            processor.registerCompletionEvaluator(new QCAssetEventEvaluator());
+        }
+
+        @Test
+        @DisplayName("Should complete only the active action of the QC the asset event comes from")
+        void completesActionOfEventQc() {
+            Action liftQc1 = qcLift("QCZ1");
+            Action liftQc2 = qcLift("QCZ2");
+            processor.process(new ScheduleCreated(1L, List.of(new Takt(0, List.of(liftQc1), EMT, EMT, 120)), EMT));
+            processor.process(new ScheduleCreated(2L, List.of(new Takt(0, List.of(liftQc2), EMT, EMT, 120)), EMT));
+            processor.process(new TimeEvent(EMT));
+
+            List<SideEffect> sideEffects = processor.process(lifted("QCZ2"));
+
+            assertEquals(ActionStatus.ACTIVE, processor.getActionStatus(1L, liftQc1.id()));
+            assertEquals(ActionStatus.COMPLETED, processor.getActionStatus(2L, liftQc2.id()));
+            assertTrue(sideEffects.stream().anyMatch(effect ->
+                    effect instanceof ActionCompleted completed && completed.actionId().equals(liftQc2.id())));
+        }
+
+        @Test
+        @DisplayName("Should not complete an action from an asset event received before it was active")
+        void ignoresEventBeforeActivation() {
+            Action first = qcLift("QCZ1");
+            Action second = qcLift("QCZ2").withDependencies(Set.of(first.id()));
+            processor.process(new ScheduleCreated(1L, List.of(new Takt(0, List.of(first, second), EMT, EMT, 120)), EMT));
+            processor.process(new TimeEvent(EMT));
+
+            processor.process(lifted("QCZ2"));
+            processor.process(lifted("QCZ1"));
+            assertEquals(ActionStatus.COMPLETED, processor.getActionStatus(1L, first.id()));
+            assertEquals(ActionStatus.ACTIVE, processor.getActionStatus(1L, second.id()));
+
+            processor.process(lifted("QCZ2"));
+            assertEquals(ActionStatus.COMPLETED, processor.getActionStatus(1L, second.id()));
+        }
+
+        @Test
+        @DisplayName("Should route events to the actions of a restored state")
+        void routesAfterRestore() {
+            Action lift = qcLift("QCZ1");
+            processor.process(new ScheduleCreated(1L, List.of(new Takt(0, List.of(lift), EMT, EMT, 120)), EMT));
+            processor.process(new TimeEvent(EMT));
+            Object active = processor.captureState();
+            processor.process(lifted("QCZ1"));
+
+            processor.restoreState(active);
+            assertEquals(ActionStatus.ACTIVE, processor.getActionStatus(1L, lift.id()));
+            processor.process(lifted("QCZ1"));
+
+            assertEquals(ActionStatus.COMPLETED, processor.getActionStatus(1L, lift.id()));
+        }
     }
 
     @Nested
@@ -3,6 +3,8 @@ package com.wonderingwizard.processors;
 import com.wonderingwizard.domain.takt.Action;
 import com.wonderingwizard.domain.takt.ActionType;
 import com.wonderingwizard.domain.takt.DeviceType;
+import com.wonderingwizard.domain.takt.EquipmentPosition;
+import com.wonderingwizard.domain.takt.LocationFreeCondition;
 import com.wonderingwizard.domain.takt.Takt;
 import com.wonderingwizard.engine.EventProcessingEngine;
 import com.wonderingwizard.engine.EventPropagatingEngine;
@@ -11,6 +13,7 @@ import com.wonderingwizard.events.ActionCompletedEvent;
 import com.wonderingwizard.events.CheJobStepState;
 import com.wonderingwizard.events.CheStatus;
 import com.wonderingwizard.events.ContainerHandlingEquipmentEvent;
+import com.wonderingwizard.events.NukeWorkQueueEvent;
 import com.wonderingwizard.events.TimeEvent;
 import com.wonderingwizard.events.WorkInstructionEvent;
 import com.wonderingwizard.sideeffects.ActionActivated;
@@ -359,4 +362,99 @@ class TTAllocationTest {
                     && aa.deviceType() == DeviceType.QC));
         }
     }
+
+    @Nested
+    @DisplayName("F-22.16: Location-blocked TT action resumes when another schedule frees the position")
+    class LocationBlockedAcrossSchedules {
+
+        private Action standbyAt(String qcName, long workInstructionId) {
+            WorkInstructionEvent wi = new WorkInstructionEvent(workInstructionId, 1L, qcName, "PLANNED", now, 120);
+            return new Action(UUID.randomUUID(), DeviceType.TT, ActionType.TT_DRIVE_TO_QC_STANDBY,
+                    "TT Drive to QC Standby", Set.of(), 0, 30, 0, List.of(wi));
+        }
+
+        @Test
+        @DisplayName("Should activate the blocked action once the other schedule's truck leaves standby")
+        void blockedActionActivatesWhenStandbyFreed() {
+            engine.processEvent(workingTruck("TT01", 23));
+            engine.processEvent(workingTruck("TT02", 23));
+
+            // Schedule 1: its truck occupies QC1 standby until it drives under the crane
+            Action standby1 = standbyAt("QC1", 1);
+            Action under1 = new Action(UUID.randomUUID(), DeviceType.TT, ActionType.TT_DRIVE_UNDER_QC,
+                    "TT Drive Under QC", Set.of(standby1.id()), 0, 30, 0, standby1.workInstructions());
+            engine.processEvent(new ScheduleCreated(1,
+                    List.of(new Takt(0, List.of(standby1, under1), now, now, 120)), now));
+            assertEquals(Set.of("QC:QC1:STANDBY"), scheduleRunner.getOccupiedPositionKeys());
+
+            // Schedule 2: may only drive to QC1 standby when it is free
+            Action standby2 = standbyAt("QC1", 2).withLocationSkipConditions(
+                    List.of(LocationFreeCondition.blockIfOccupied(DeviceType.QC, EquipmentPosition.STANDBY)));
+            List<SideEffect> blocked = engine.processEvent(new ScheduleCreated(2,
+                    List.of(new Takt(0, List.of(standby2), now, now, 120)), now));
+            assertFalse(blocked.stream().anyMatch(e -> e instanceof ActionActivated aa
+                    && aa.actionId().equals(standby2.id())), "Standby is occupied");
+
+            // Only schedule 1 changes; schedule 2 must still be re-evaluated
+            List<SideEffect> effects = engine.processEvent(new ActionCompletedEvent(standby1.id(), 1));
+
+            assertTrue(effects.stream().anyMatch(e -> e instanceof ActionActivated aa
+                    && aa.actionId().equals(standby2.id())), "Standby was freed");
+            assertEquals("TT02", scheduleRunner.getAction(2, standby2.id()).cheShortName());
+        }
+    }
+
+    @Nested
+    @DisplayName("F-22.17: Occupied positions and assigned trucks follow action changes")
+    class OccupancyTracking {
+
+        private Action standbyAt(String qcName, long workInstructionId) {
+            WorkInstructionEvent wi = new WorkInstructionEvent(workInstructionId, 1L, qcName, "PLANNED", now, 120);
+            return new Action(UUID.randomUUID(), DeviceType.TT, ActionType.TT_DRIVE_TO_QC_STANDBY,
+                    "TT Drive to QC Standby", Set.of(), 0, 30, 0, List.of(wi));
+        }
+
+        @Test
+        @DisplayName("Should update the views as actions complete and schedules are removed")
+        void viewsFollowChanges() {
+            engine.processEvent(workingTruck("TT01", 23));
+            Set<String> occupied = scheduleRunner.getOccupiedPositionKeys();
+            Set<String> trucks = scheduleRunner.getAssignedTrucks();
+
+            Action standby = standbyAt("QC1", 1);
+            Action under = new Action(UUID.randomUUID(), DeviceType.TT, ActionType.TT_DRIVE_UNDER_QC,
+                    "TT Drive Under QC", Set.of(standby.id()), 0, 30, 0, standby.workInstructions());
+            engine.processEvent(new ScheduleCreated(1,
+                    List.of(new Takt(0, List.of(standby, under), now, now, 120)), now));
+            assertEquals(Set.of("QC:QC1:STANDBY"), occupied);
+            assertEquals(Set.of("TT01"), trucks);
+
+            engine.processEvent(new ActionCompletedEvent(standby.id(), 1));
+            assertEquals(Set.of("QC:QC1:UNDER"), occupied);
+
+            engine.processEvent(new NukeWorkQueueEvent(1));
+            assertEquals(Set.of(), occupied);
+            assertEquals(Set.of(), trucks);
+            assertThrows(UnsupportedOperationException.class, () -> occupied.add("QC:QC1:STANDBY"));
+        }
+
+        @Test
+        @DisplayName("Should rebuild the occupied positions after a state restore")
+        void rebuildsAfterRestore() {
+            engine.processEvent(workingTruck("TT01", 23));
+            Action standby = standbyAt("QC1", 1);
+            Action under = new Action(UUID.randomUUID(), DeviceType.TT, ActionType.TT_DRIVE_UNDER_QC,
+                    "TT Drive Under QC", Set.of(standby.id()), 0, 30, 0, standby.workInstructions());
+            engine.processEvent(new ScheduleCreated(1,
+                    List.of(new Takt(0, List.of(standby, under), now, now, 120)), now));
+            Object snapshot = scheduleRunner.captureState();
+
+            engine.processEvent(new ActionCompletedEvent(standby.id(), 1));
+            assertEquals(Set.of("QC:QC1:UNDER"), scheduleRunner.getOccupiedPositionKeys());
+
+            scheduleRunner.restoreState(snapshot);
+            assertEquals(Set.of("QC:QC1:STANDBY"), scheduleRunner.getOccupiedPositionKeys());
+            assertEquals(1, scheduleRunner.getLocationOccupancy().size());
+        }
+    }
 }
@@ -187,6 +187,33 @@ class TimeAlarmProcessorTest {
                     .toList()
                     .containsAll(List.of("alarm a", "alarm b")));
         }
+
+        @Test
+        @DisplayName("Should trigger a re-set alarm only at its new time")
+        void resetAlarm_triggersAtNewTimeOnly() {
+            engine.processEvent(new SetTimeAlarm("alarm a", now.plusSeconds(10)));
+            engine.processEvent(new SetTimeAlarm("alarm a", now.plusSeconds(30)));
+
+            List<SideEffect> atOldTime = engine.processEvent(new TimeEvent(now.plusSeconds(20)));
+            List<SideEffect> atNewTime = engine.processEvent(new TimeEvent(now.plusSeconds(30)));
+
+            assertTrue(atOldTime.isEmpty(), "Alarm was moved to a later time");
+            assertEquals(List.of(new AlarmTriggered("alarm a", now.plusSeconds(30))), atNewTime);
+        }
+
+        @Test
+        @DisplayName("Should trigger due alarms in trigger time order")
+        void dueAlarms_triggeredInTimeOrder() {
+            engine.processEvent(new SetTimeAlarm("alarm c", now.plusSeconds(15)));
+            engine.processEvent(new SetTimeAlarm("alarm a", now.plusSeconds(12)));
+            engine.processEvent(new SetTimeAlarm("alarm b", now.plusSeconds(10)));
+
+            List<SideEffect> sideEffects = engine.processEvent(new TimeEvent(now.plusSeconds(20)));
+
+            assertEquals(List.of("alarm b", "alarm a", "alarm c"), sideEffects.stream()
+                    .map(se -> ((AlarmTriggered) se).alarmName())
+                    .toList());
+        }
     }
 
     @Nested
@@ -5,6 +5,7 @@ import com.wonderingwizard.domain.takt.DeviceType;
 import com.wonderingwizard.domain.takt.Takt;
 import com.wonderingwizard.engine.EventProcessingEngine;
 import com.wonderingwizard.engine.SideEffect;
+import com.wonderingwizard.engine.SideEffectSink;
 import com.wonderingwizard.events.NukeWorkQueueEvent;
 import com.wonderingwizard.events.WorkInstructionEvent;
 import com.wonderingwizard.events.WorkQueueMessage;
@@ -13,6 +14,7 @@ import com.wonderingwizard.sideeffects.ScheduleCreated;
 import com.wonderingwizard.sideeffects.WorkInstructionCanceled;
 import com.wonderingwizard.events.TimeEvent;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -20,6 +22,10 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import static com.wonderingwizard.events.EventType.QC_DISCHARGED_CONTAINER;
@@ -1800,4 +1806,165 @@ class WorkQueueProcessorTest {
                     "Should not debounce-create schedule for non-FES4 WQ");
         }
     }
+
+    @Nested
+    @DisplayName("Schedule creation on a pool")
+    class ScheduleCreationPool {
+
+        private static final Instant T0 = Instant.parse("2026-03-08T09:00:00Z");
+
+        private ForkJoinPool pool;
+
+        @BeforeEach
+        void setUp() {
+            pool = new ForkJoinPool(4);
+        }
+
+        @AfterEach
+        void tearDown() {
+            pool.shutdown();
+        }
+
+        @Test
+        @DisplayName("Should return an activation's schedule with the activation")
+        void activation_returnsSchedule() {
+            EventProcessingEngine poolEngine = createEngine(pool);
+            poolEngine.processEvent(new WorkInstructionEvent(10L, 1L, "CHE-10", PLANNED, EMT, 120));
+
+            List<SideEffect> effects = poolEngine.processEvent(new WorkQueueMessage(1L, ACTIVE, 0, null));
+
+            assertEquals(1, effects.size());
+            assertEquals(1L, ((ScheduleCreated) effects.get(0)).workQueueId());
+        }
+
+        @Test
+        @DisplayName("Should produce the same side effects per event with and without a pool")
+        void sameSideEffectsAsWithoutPool() {
+            EventProcessingEngine serialEngine = createEngine(null);
+            EventProcessingEngine poolEngine = createEngine(pool);
+
+            var events = new java.util.ArrayList<com.wonderingwizard.engine.Event>();
+            events.add(new TimeEvent(T0));
+            for (long wq = 1; wq <= 5; wq++) {
+                for (long i = 0; i < 3; i++) {
+                    long wiId = wq * 10 + i;
+                    events.add(new WorkInstructionEvent(wiId, wq, "CHE-" + wiId, PLANNED, EMT.plusSeconds(i * 120), 120));
+                }
+            }
+            for (long wq : List.of(3L, 1L, 5L, 2L, 4L)) {
+                events.add(new WorkQueueMessage(wq, ACTIVE, 0, null));
+            }
+            // Changing every queue at once makes the debounce rebuild all of them in one event
+            for (long wq = 1; wq <= 5; wq++) {
+                events.add(new WorkInstructionEvent(wq * 10 + 3, wq, "CHE-" + wq, PLANNED, EMT.plusSeconds(360), 120));
+            }
+            events.add(new TimeEvent(T0.plusSeconds(4)));
+            events.add(new WorkQueueMessage(2L, INACTIVE, 0, null));
+
+            List<SideEffect> lastTimeEffects = List.of();
+            for (var event : events) {
+                List<SideEffect> effects = poolEngine.processEvent(event);
+                assertEquals(describe(serialEngine.processEvent(event)), describe(effects),
+                        "Side effects of " + event);
+                if (event instanceof TimeEvent) {
+                    lastTimeEffects = effects;
+                }
+            }
+            assertEquals(5, lastTimeEffects.size(), "The debounce should rebuild every queue in one event");
+        }
+
+        @Test
+        @DisplayName("Should build the schedules of consecutive activations in a batch concurrently")
+        void batchedActivations_buildConcurrently() {
+            EventProcessingEngine serialEngine = createEngine(null);
+            var concurrentBuilds = new CountDownLatch(2);
+            var overlapped = new AtomicBoolean();
+            EventProcessingEngine poolEngine = createEngine(pool, new SchedulePipelineStep() {
+                @Override
+                public List<GraphScheduleBuilder.ActionTemplate> enrichTemplates(
+                        EnrichmentContext context, List<GraphScheduleBuilder.ActionTemplate> templates,
+                        WorkInstructionEvent workInstruction) {
+                    if (context.containerIndex() == 0) {
+                        concurrentBuilds.countDown();
+                        try {
+                            overlapped.compareAndSet(false, concurrentBuilds.await(5, TimeUnit.SECONDS));
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return templates;
+                }
+            });
+            var instructions = new java.util.ArrayList<com.wonderingwizard.engine.Event>();
+            for (long wq = 1; wq <= 5; wq++) {
+                instructions.add(new WorkInstructionEvent(wq * 10, wq, "CHE-" + wq, PLANNED, EMT, 120));
+            }
+            List<SideEffect> expected = new java.util.ArrayList<>();
+            for (var event : instructions) {
+                serialEngine.processEvent(event);
+                poolEngine.processEvent(event);
+            }
+            for (long wq = 1; wq <= 5; wq++) {
+                expected.addAll(serialEngine.processEvent(new WorkQueueMessage(wq, ACTIVE, 0, null)));
+            }
+
+            poolEngine.beginBatch();
+            for (long wq = 1; wq <= 5; wq++) {
+                assertEquals(List.of(), poolEngine.processEvent(new WorkQueueMessage(wq, ACTIVE, 0, null)),
+                        "The schedule should be emitted after the consecutive activations");
+            }
+            SideEffectSink sink = new SideEffectSink();
+            poolEngine.endBatch(sink);
+
+            assertEquals(describe(expected), describe(sink.toList()));
+            assertTrue(overlapped.get(), "Builds of different work queues should overlap");
+        }
+
+        @Test
+        @DisplayName("Should emit the pending schedules of a batch before another event")
+        void batchedActivations_emittedBeforeOtherEvents() {
+            EventProcessingEngine poolEngine = createEngine(pool);
+            poolEngine.processEvent(new WorkInstructionEvent(10L, 1L, "CHE-10", PLANNED, EMT, 120));
+
+            poolEngine.beginBatch();
+            poolEngine.processEvent(new WorkQueueMessage(1L, ACTIVE, 0, null));
+            List<SideEffect> effects = poolEngine.processEvent(new TimeEvent(T0));
+            SideEffectSink sink = new SideEffectSink();
+            poolEngine.endBatch(sink);
+
+            assertEquals(1, effects.size());
+            assertEquals(1L, ((ScheduleCreated) effects.get(0)).workQueueId());
+            assertTrue(sink.isEmpty());
+        }
+
+        private EventProcessingEngine createEngine(ForkJoinPool pool, SchedulePipelineStep... steps) {
+            WorkQueueProcessor processor = new WorkQueueProcessor(() -> DEFAULT_DURATION_SECONDS, () -> 0, true);
+            for (SchedulePipelineStep step : steps) {
+                processor.registerStep(step);
+            }
+            processor.registerStep(new RtgWaitDurationStep());
+            processor.registerPostProcessingStep(new PlannedTimeStep());
+            processor.setScheduleCreationPool(pool);
+            EventProcessingEngine engine = new EventProcessingEngine();
+            engine.register(processor);
+            return engine;
+        }
+
+        /** Describes side effects without the random action IDs, so that two runs compare equal. */
+        private List<String> describe(List<SideEffect> effects) {
+            return effects.stream()
+                    .map(effect -> effect instanceof ScheduleCreated created
+                            ? "ScheduleCreated " + created.workQueueId() + " " + created.estimatedMoveTime() + " "
+                                    + created.takts().stream()
+                                            .map(takt -> takt.sequence() + "@" + takt.plannedStartTime() + " "
+                                                    + takt.actions().stream()
+                                                            .map(a -> a.deviceType() + ":" + a.actionType() + ":"
+                                                                    + a.containerIndex() + ":" + a.durationSeconds() + ":"
+                                                                    + a.plannedStartTime() + ":" + a.dependsOn().size())
+                                                            .toList())
+                                            .toList()
+                            : effect.toString())
+                    .toList();
+        }
+    }
 }
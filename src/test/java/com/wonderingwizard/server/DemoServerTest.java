@@ -1,6 +1,7 @@
 package com.wonderingwizard.server;
 
 import com.wonderingwizard.engine.Engine;
+import com.wonderingwizard.engine.Event;
 import com.wonderingwizard.engine.EventProcessingEngine;
 import com.wonderingwizard.engine.EventPropagatingEngine;
 import com.wonderingwizard.engine.SideEffect;
@@ -75,6 +76,23 @@ class DemoServerTest {
             boolean hasScheduleCreated = result.sideEffects().stream().anyMatch(se -> se instanceof ScheduleCreated);
             assertTrue(hasScheduleCreated);
         }
+
+        @Test
+        @DisplayName("Should record a batch as steps and activate its schedules once at its end")
+        void batchDefersActivationToItsEnd() {
+            server.processStep("Time", new TimeEvent(Instant.parse("2024-01-01T00:10:00Z")));
+            List<SideEffect> sideEffects = server.processSteps("Kafka: ", twoQueueBatch());
+
+            List<DemoServer.Step> steps = server.getSteps();
+            assertEquals(5, steps.size());
+            assertEquals("Kafka: WorkQueueMessage", steps.get(2).description());
+            assertTrue(steps.get(2).sideEffects().stream().anyMatch(se -> se instanceof ScheduleCreated));
+            assertTrue(steps.get(2).sideEffects().stream().noneMatch(se -> se instanceof ActionActivated),
+                    "Activation should be deferred within the batch");
+            assertTrue(steps.get(4).sideEffects().stream().anyMatch(se -> se instanceof ActionActivated activated
+                    && activated.workQueueId() == 2L), "The end of the batch should activate the last schedule");
+            assertEquals(steps.subList(1, 5).stream().flatMap(step -> step.sideEffects().stream()).toList(), sideEffects);
+        }
     }
 
     @Nested
@@ -151,6 +169,51 @@ class DemoServerTest {
             boolean hasScheduleCreated = reactivateResult.sideEffects().stream().anyMatch(se -> se instanceof ScheduleCreated);
             assertTrue(hasScheduleCreated);
         }
+
+        @Test
+        @DisplayName("Should replay up to a step within a batch when undoing with the journal")
+        void undoJournalSettlesStepWithinBatch() {
+            var props = new java.util.Properties();
+            props.setProperty("kafka.enabled", "false");
+            props.setProperty("clock.autostart", "false");
+            props.setProperty("engine.undo-journal", "true");
+            DemoServer journalServer = new DemoServer(Settings.of(props));
+            journalServer.processStep("Time", new TimeEvent(Instant.parse("2024-01-01T00:10:00Z")));
+            journalServer.processSteps("Kafka: ", twoQueueBatch());
+
+            assertTrue(journalServer.stepBackTo(3));
+
+            List<DemoServer.Step> steps = journalServer.getSteps();
+            assertEquals(3, steps.size());
+            assertTrue(steps.get(2).sideEffects().stream().anyMatch(se -> se instanceof ActionActivated),
+                    "The step within the batch should be settled as if processed on its own");
+        }
+
+        @Test
+        @DisplayName("Should step back before an explicit snapshot using periodic checkpoints")
+        void stepsBackBeforeSnapshotFromCheckpoint() {
+            var props = new java.util.Properties();
+            props.setProperty("kafka.enabled", "false");
+            props.setProperty("clock.autostart", "false");
+            props.setProperty("engine.checkpoint-interval", "2");
+            DemoServer checkpointServer = new DemoServer(Settings.of(props));
+
+            for (long wi = 1; wi <= 4; wi++) {
+                checkpointServer.processStep("WI " + wi, new WorkInstructionEvent(
+                        wi, 1L, "RTG-01", MoveStage.PLANNED,
+                        Instant.parse("2024-01-01T00:05:00Z"), 120));
+            }
+            checkpointServer.createSnapshot();
+            checkpointServer.processStep("Activate WQ",
+                    new WorkQueueMessage(1L, WorkQueueStatus.ACTIVE, 0, null));
+
+            assertTrue(checkpointServer.stepBackTo(3));
+            assertEquals(3, checkpointServer.getSteps().size());
+
+            DemoServer.StepResult activated = checkpointServer.processStep("Activate WQ",
+                    new WorkQueueMessage(1L, WorkQueueStatus.ACTIVE, 0, null));
+            assertTrue(activated.sideEffects().stream().anyMatch(se -> se instanceof ScheduleCreated));
+        }
     }
 
     @Nested
@@ -402,4 +465,13 @@ class DemoServerTest {
             assertEquals(405, conn.getResponseCode());
         }
     }
+
+    /** Activates two work queues with one work instruction each. */
+    private static List<Event> twoQueueBatch() {
+        return List.of(
+                new WorkInstructionEvent(1L, 1L, "RTG-01", MoveStage.PLANNED, Instant.parse("2024-01-01T00:05:00Z"), 120),
+                new WorkQueueMessage(1L, WorkQueueStatus.ACTIVE, 0, null),
+                new WorkInstructionEvent(2L, 2L, "RTG-02", MoveStage.PLANNED, Instant.parse("2024-01-01T00:05:00Z"), 120),
+                new WorkQueueMessage(2L, WorkQueueStatus.ACTIVE, 0, null));
+    }
 }
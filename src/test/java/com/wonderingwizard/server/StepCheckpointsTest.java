@@ -0,0 +1,134 @@
+package com.wonderingwizard.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("StepCheckpoints Tests")
+class StepCheckpointsTest {
+
+    @Nested
+    @DisplayName("Scheduling")
+    class SchedulingTests {
+
+        @Test
+        @DisplayName("Should be due every interval steps that has no checkpoint yet")
+        void dueEveryInterval() {
+            StepCheckpoints checkpoints = new StepCheckpoints(10, 5);
+
+            assertTrue(checkpoints.isDue(10));
+            assertFalse(checkpoints.isDue(15));
+            checkpoints.put(10, "s10");
+            assertFalse(checkpoints.isDue(10));
+            assertTrue(checkpoints.isDue(20));
+        }
+
+        @Test
+        @DisplayName("Should only keep the initial checkpoint when the interval is zero")
+        void zeroIntervalDisablesPeriodicCheckpoints() {
+            StepCheckpoints checkpoints = new StepCheckpoints(0, 5);
+
+            assertTrue(checkpoints.isDue(0));
+            assertFalse(checkpoints.isDue(100));
+        }
+    }
+
+    @Nested
+    @DisplayName("Lookup")
+    class LookupTests {
+
+        @Test
+        @DisplayName("Should return the latest checkpoint at or before the target step")
+        void floorReturnsLatestEarlierCheckpoint() {
+            StepCheckpoints checkpoints = new StepCheckpoints(10, 5);
+            checkpoints.put(0, "s0");
+            checkpoints.put(10, "s10");
+            checkpoints.put(20, "s20");
+
+            assertEquals(new StepCheckpoints.Checkpoint(10, "s10"), checkpoints.floor(19));
+            assertEquals(new StepCheckpoints.Checkpoint(20, "s20"), checkpoints.floor(20));
+            assertEquals(new StepCheckpoints.Checkpoint(0, "s0"), checkpoints.floor(9));
+        }
+
+        @Test
+        @DisplayName("Should discard checkpoints after the target step")
+        void discardsLaterCheckpoints() {
+            StepCheckpoints checkpoints = new StepCheckpoints(10, 5);
+            checkpoints.put(0, "s0");
+            checkpoints.put(10, "s10");
+            checkpoints.put(20, "s20");
+
+            checkpoints.discardAfter(15);
+
+            assertEquals(2, checkpoints.size());
+            assertEquals(10, checkpoints.floor(100).step());
+            assertTrue(checkpoints.isDue(20));
+        }
+    }
+
+    @Nested
+    @DisplayName("Thinning")
+    class ThinningTests {
+
+        @Test
+        @DisplayName("Should double the spacing and keep every other checkpoint when full")
+        void doublesSpacingWhenFull() {
+            StepCheckpoints checkpoints = new StepCheckpoints(10, 3);
+            checkpoints.put(0, "s0");
+            checkpoints.put(10, "s10");
+            checkpoints.put(20, "s20");
+
+            checkpoints.put(30, "s30");
+
+            assertEquals(20, checkpoints.spacing());
+            assertEquals(2, checkpoints.size());
+            assertEquals(0, checkpoints.floor(19).step());
+            assertEquals(20, checkpoints.floor(39).step());
+            assertFalse(checkpoints.isDue(30));
+            assertTrue(checkpoints.isDue(40));
+        }
+
+        @Test
+        @DisplayName("Should halve the spacing again when discarding leaves room for twice as many")
+        void halvesSpacingAfterDiscard() {
+            StepCheckpoints checkpoints = new StepCheckpoints(10, 4);
+            for (int step = 0; step <= 100; step++) {
+                if (checkpoints.isDue(step)) {
+                    checkpoints.put(step, "s" + step);
+                }
+            }
+            assertEquals(40, checkpoints.spacing());
+
+            checkpoints.discardAfter(80);
+
+            assertEquals(40, checkpoints.spacing());
+
+            checkpoints.discardAfter(50);
+
+            assertEquals(10, checkpoints.spacing());
+            assertEquals(2, checkpoints.size());
+            assertTrue(checkpoints.isDue(50));
+            assertEquals(new StepCheckpoints.Checkpoint(40, "s40"), checkpoints.floor(45));
+        }
+
+        @Test
+        @DisplayName("Should keep every rewind below the spacing however many steps were taken")
+        void replayStaysBelowSpacing() {
+            StepCheckpoints checkpoints = new StepCheckpoints(10, 5);
+            for (int step = 0; step <= 1000; step++) {
+                if (checkpoints.isDue(step)) {
+                    checkpoints.put(step, "s" + step);
+                }
+                assertTrue(checkpoints.size() <= 5);
+                for (int target = 0; target <= step; target++) {
+                    assertTrue(target - checkpoints.floor(target).step() < checkpoints.spacing(),
+                            "step " + step + ", target " + target);
+                }
+            }
+            assertEquals(320, checkpoints.spacing());
+            assertEquals(0, checkpoints.floor(0).step());
+        }
+    }
+}